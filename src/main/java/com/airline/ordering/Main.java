@@ -1,6 +1,15 @@
 package com.airline.ordering;
 
 import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.cache.CachingMenuItemRepository;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+import com.airline.ordering.repository.impl.MenuItemRepositoryImpl;
+import com.airline.ordering.repository.impl.OrderRepositoryImpl;
+import com.airline.ordering.repository.journal.JournalingOrderRepository;
+import com.airline.ordering.repository.journal.OrderJournal;
+import com.airline.ordering.service.impl.MenuServiceImpl;
+import java.io.IOException;
+import java.nio.file.Paths;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,8 +19,31 @@ public class Main {
     public static void main(String[] args) {
         logger.info("Starting Inflight Ordering Application...");
         SQLiteConnection.initializeDatabase();
+        JournalingOrderRepository orderRepository = openOrderRepository(SQLiteConnection.getConfig());
+        SQLiteConnection.closeOnExit(orderRepository);
+        MenuServiceImpl menuService = new MenuServiceImpl(new CachingMenuItemRepository(new MenuItemRepositoryImpl()));
+        SQLiteConnection.closeOnExit(menuService);
         logger.info("Database initialized. Application ready.");
         // Further application startup logic will go here
     }
-}
 
+    /**
+     * Opens the order journal and replays any order writes a previous run acknowledged but had not yet
+     * flushed to the database.
+     */
+    private static JournalingOrderRepository openOrderRepository(DatabaseConfig config) {
+        try {
+            OrderJournal journal = OrderJournal.open(Paths.get(config.getOrderJournalPath()));
+            JournalingOrderRepository repository = new JournalingOrderRepository(
+                    new OrderRepositoryImpl(), journal, config.getJournalFlushIntervalMs());
+            int replayed = repository.recover();
+            if (replayed > 0) {
+                logger.info("Recovered {} journaled order writes.", replayed);
+            }
+            return repository;
+        } catch (IOException e) {
+            logger.error("Error opening order journal {}: {}", config.getOrderJournalPath(), e.getMessage());
+            throw new RuntimeException("Error opening order journal", e);
+        }
+    }
+}
@@ -73,6 +73,26 @@ public class MenuItem {
         this.category = category;
     }
     
+    /**
+     * Creates an independent copy of the given menu item, including its timestamps and its current inventory count.
+     */
+    public MenuItem(MenuItem other) {
+        this.itemId = other.itemId;
+        this.name = other.name;
+        this.description = other.description;
+        this.price = other.price;
+        this.category = other.category;
+        this.availableForTypes = new HashSet<>(other.availableForTypes);
+        this.allergens = new HashSet<>(other.allergens);
+        this.dietaryTags = new HashSet<>(other.dietaryTags);
+        this.status = other.status;
+        this.inventoryCount = other.getInventoryCount();
+        this.substitutableItems = new HashSet<>(other.substitutableItems);
+        this.comboItems = new HashSet<>(other.comboItems);
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+    
     // Getters and Setters
     public UUID getItemId() {
         return itemId;
@@ -239,11 +259,11 @@ public class MenuItem {
         this.updatedAt = LocalDateTime.now();
     }
     
-    // Equals and HashCode
+    // Equals and HashCode; by item ID, so read-only snapshots of an item equal the item
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        if (!(o instanceof MenuItem)) return false;
         MenuItem menuItem = (MenuItem) o;
         return Objects.equals(itemId, menuItem.itemId);
     }
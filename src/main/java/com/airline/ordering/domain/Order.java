@@ -4,16 +4,28 @@ import jakarta.validation.constraints.NotNull;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
 
 /**
  * Represents a complete order placed by a passenger.
  * Aggregates multiple order items and manages order lifecycle.
+ * <p>
+ * The total amount and quantity are maintained incrementally as items are added, removed and updated: each item's
+ * total is kept in minor units next to its position, and items are found through an index by order item ID.
+ * Changes made to an item in place count once the item is passed to {@link #updateItem} or the totals are
+ * recalculated with {@link #recalculateTotalAmount()}.
  */
 public class Order {
     
+    // Amounts are summed in hundredths; item totals with finer fractions fall back to BigDecimal arithmetic
+    private static final int MINOR_SCALE = 2;
+    private static final int INEXACT = -1;
+    
     @NotNull
     private UUID orderId;
     
@@ -27,7 +39,7 @@ public class Order {
     private List<OrderItem> items;
     
     @NotNull
-    private BigDecimal totalAmount;
+    private BigDecimal totalAmount; // Cached; null until recomputed after the items change
     
     @NotNull
     private OrderStatus status;
@@ -54,6 +66,18 @@ public class Order {
     
     private int syncVersion; // For optimistic locking during sync
     
+    private transient OrderSnapshot persistedState; // Last loaded or saved state, for differential saves
+    
+    // Running totals over items, with each item's contribution at the same position as the item
+    private transient Map<UUID, Integer> itemIndex = new HashMap<>();
+    private transient long[] itemAmounts = new long[8];
+    private transient int[] itemScales = new int[8];
+    private transient int[] itemQuantities = new int[8];
+    private transient long totalMinorUnits;
+    private transient int totalQuantity;
+    private transient int inexactItems;
+    private transient int[] scaleCounts = new int[MINOR_SCALE + 1];
+    
     // Constructors
     public Order() {
         this.orderId = UUID.randomUUID();
@@ -105,11 +129,14 @@ public class Order {
     
     public void setItems(List<OrderItem> items) {
         this.items = new ArrayList<>(items);
-        recalculateTotalAmount();
+        reindexItems();
         this.updatedAt = LocalDateTime.now();
     }
     
     public BigDecimal getTotalAmount() {
+        if (totalAmount == null) {
+            totalAmount = computeTotalAmount();
+        }
         return totalAmount;
     }
     
@@ -217,44 +244,72 @@ public class Order {
         this.syncVersion = syncVersion;
     }
     
+    /**
+     * @return The sync version the order had when it was last loaded or saved, or its current version if it
+     *         never was. Unlike {@link #getSyncVersion()}, it is not moved on by modifying a synced order.
+     */
+    public int getPersistedSyncVersion() {
+        return persistedState != null ? persistedState.getSyncVersion() : syncVersion;
+    }
+    
     // Business methods
     public void addItem(OrderItem item) {
-        this.items.add(item);
-        recalculateTotalAmount();
+        Integer index = itemIndex.get(item.getOrderItemId());
+        if (index != null) {
+            items.set(index, item);
+            untrack(index);
+            track(index, item);
+        } else {
+            items.add(item);
+            itemIndex.put(item.getOrderItemId(), items.size() - 1);
+            track(items.size() - 1, item);
+        }
         this.updatedAt = LocalDateTime.now();
         markAsModified();
     }
     
     public void removeItem(UUID orderItemId) {
-        this.items.removeIf(item -> item.getOrderItemId().equals(orderItemId));
-        recalculateTotalAmount();
+        Integer index = itemIndex.remove(orderItemId);
+        if (index != null) {
+            untrack(index);
+            items.remove((int) index);
+            int remaining = items.size() - index;
+            System.arraycopy(itemAmounts, index + 1, itemAmounts, index, remaining);
+            System.arraycopy(itemScales, index + 1, itemScales, index, remaining);
+            System.arraycopy(itemQuantities, index + 1, itemQuantities, index, remaining);
+            for (int i = index; i < items.size(); i++) {
+                itemIndex.put(items.get(i).getOrderItemId(), i);
+            }
+        }
         this.updatedAt = LocalDateTime.now();
         markAsModified();
     }
     
     public void updateItem(OrderItem updatedItem) {
-        for (int i = 0; i < items.size(); i++) {
-            if (items.get(i).getOrderItemId().equals(updatedItem.getOrderItemId())) {
-                items.set(i, updatedItem);
-                break;
-            }
+        Integer index = itemIndex.get(updatedItem.getOrderItemId());
+        if (index != null) {
+            items.set(index, updatedItem);
+            untrack(index);
+            track(index, updatedItem);
         }
-        recalculateTotalAmount();
         this.updatedAt = LocalDateTime.now();
         markAsModified();
     }
     
     public OrderItem findItem(UUID orderItemId) {
-        return items.stream()
-                .filter(item -> item.getOrderItemId().equals(orderItemId))
-                .findFirst()
-                .orElse(null);
+        Integer index = itemIndex.get(orderItemId);
+        return index != null ? items.get(index) : null;
     }
     
+    /**
+     * Recomputes the total amount and quantity from the items as they are now, picking up changes made to items
+     * in place.
+     */
     public void recalculateTotalAmount() {
-        this.totalAmount = items.stream()
-                .map(OrderItem::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        resetTotals();
+        for (int i = 0; i < items.size(); i++) {
+            track(i, items.get(i));
+        }
     }
     
     public boolean isEmpty() {
@@ -266,9 +321,7 @@ public class Order {
     }
     
     public int getTotalQuantity() {
-        return items.stream()
-                .mapToInt(OrderItem::getQuantity)
-                .sum();
+        return totalQuantity;
     }
     
     public boolean isModifiable() {
@@ -298,6 +351,43 @@ public class Order {
         this.updatedAt = LocalDateTime.now();
     }
     
+    /**
+     * Records the current state as the one stored in the database. Called by the repository after the order
+     * has been loaded or its save has committed.
+     */
+    public void markPersisted() {
+        this.persistedState = OrderSnapshot.of(this, items);
+    }
+    
+    /**
+     * Takes over the recorded database state of another copy of this order, such as one loaded from the
+     * repository, so the next save writes only what this copy changed relative to it.
+     */
+    public void restorePersistedState(Order stored) {
+        if (!Objects.equals(orderId, stored.orderId)) {
+            throw new IllegalArgumentException("Order " + stored.orderId + " is not a copy of order " + orderId);
+        }
+        this.persistedState = stored.persistedState;
+    }
+    
+    /**
+     * Forgets the recorded database state, so the next save writes the order and all its items in full.
+     */
+    public void clearPersistedState() {
+        this.persistedState = null;
+    }
+    
+    /**
+     * Returns the changes since the order was last loaded or saved. Orders that were never loaded or saved
+     * report themselves as new, with all items to be written.
+     */
+    public OrderChanges getChanges() {
+        if (persistedState == null) {
+            return new OrderChanges(true, OrderChanges.ORDER_FIELDS, true, new ArrayList<>(items), new ArrayList<>());
+        }
+        return persistedState.diff(this, items);
+    }
+    
     public void markSyncFailed() {
         this.lastSyncAttempt = LocalDateTime.now();
     }
@@ -322,6 +412,100 @@ public class Order {
         }
     }
     
+    private void reindexItems() {
+        itemIndex = new HashMap<>(Math.max(16, items.size() * 2));
+        for (int i = 0; i < items.size(); i++) {
+            itemIndex.put(items.get(i).getOrderItemId(), i);
+        }
+        recalculateTotalAmount();
+    }
+    
+    private void resetTotals() {
+        int capacity = Math.max(8, items.size());
+        if (itemAmounts.length < capacity) {
+            itemAmounts = new long[capacity];
+            itemScales = new int[capacity];
+            itemQuantities = new int[capacity];
+        }
+        totalMinorUnits = 0;
+        totalQuantity = 0;
+        inexactItems = 0;
+        Arrays.fill(scaleCounts, 0);
+        totalAmount = BigDecimal.ZERO;
+    }
+    
+    /**
+     * Adds the contribution of the item at the given position to the running totals.
+     */
+    private void track(int index, OrderItem item) {
+        if (index >= itemAmounts.length) {
+            int capacity = Math.max(index + 1, itemAmounts.length * 2);
+            itemAmounts = Arrays.copyOf(itemAmounts, capacity);
+            itemScales = Arrays.copyOf(itemScales, capacity);
+            itemQuantities = Arrays.copyOf(itemQuantities, capacity);
+        }
+        BigDecimal amount = item.getTotalPrice() != null ? item.getTotalPrice() : BigDecimal.ZERO;
+        long minorUnits = 0;
+        int scale = amount.scale();
+        if (scale < 0 || scale > MINOR_SCALE) {
+            scale = INEXACT;
+        } else {
+            try {
+                minorUnits = amount.movePointRight(MINOR_SCALE).longValueExact();
+            } catch (ArithmeticException e) {
+                scale = INEXACT;
+            }
+        }
+        itemAmounts[index] = minorUnits;
+        itemScales[index] = scale;
+        itemQuantities[index] = item.getQuantity();
+        totalMinorUnits += minorUnits;
+        totalQuantity += item.getQuantity();
+        if (scale == INEXACT) {
+            inexactItems++;
+        } else {
+            scaleCounts[scale]++;
+        }
+        totalAmount = null;
+    }
+    
+    /**
+     * Removes the contribution recorded for the given position from the running totals.
+     */
+    private void untrack(int index) {
+        totalMinorUnits -= itemAmounts[index];
+        totalQuantity -= itemQuantities[index];
+        if (itemScales[index] == INEXACT) {
+            inexactItems--;
+        } else {
+            scaleCounts[itemScales[index]]--;
+        }
+        totalAmount = null;
+    }
+    
+    /**
+     * Builds the total amount with the scale of the most precise item total, as summing the BigDecimals would.
+     */
+    private BigDecimal computeTotalAmount() {
+        if (inexactItems > 0) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (OrderItem item : items) {
+                if (item.getTotalPrice() != null) {
+                    total = total.add(item.getTotalPrice());
+                }
+            }
+            return total;
+        }
+        int scale = 0;
+        for (int s = MINOR_SCALE; s > 0; s--) {
+            if (scaleCounts[s] > 0) {
+                scale = s;
+                break;
+            }
+        }
+        return BigDecimal.valueOf(totalMinorUnits, MINOR_SCALE).setScale(scale);
+    }
+    
     // Equals and HashCode
     @Override
     public boolean equals(Object o) {
@@ -343,7 +527,7 @@ public class Order {
                 ", passengerId=" + passengerId +
                 ", seatNumber='" + seatNumber + '\'' +
                 ", itemCount=" + items.size() +
-                ", totalAmount=" + totalAmount +
+                ", totalAmount=" + getTotalAmount() +
                 ", status=" + status +
                 ", syncedWithCrs=" + syncedWithCrs +
                 '}';
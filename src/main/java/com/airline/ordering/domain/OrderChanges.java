@@ -0,0 +1,107 @@
+package com.airline.ordering.domain;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Describes how an order differs from the state last loaded from or saved to the database.
+ * Repositories use it to write only the rows that changed.
+ */
+public class OrderChanges {
+    
+    /**
+     * The order columns, by property name, that record the order's sync state rather than what was ordered.
+     */
+    public static final Set<String> SYNC_STATE_FIELDS = Set.of("syncedWithCrs", "lastSyncAttempt", "crsOrderId", "syncVersion");
+    
+    // Every order column other than the total amount, in column order
+    static final Set<String> ORDER_FIELDS = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+            "passengerId", "seatNumber", "status", "notes", "requestedDeliveryTime", "createdAt", "confirmedAt",
+            "deliveredAt", "syncedWithCrs", "lastSyncAttempt", "crsOrderId", "syncVersion")));
+    
+    private final boolean newOrder;
+    private final Set<String> changedFields;
+    private final boolean totalChanged;
+    private final List<OrderItem> upsertedItems;
+    private final List<UUID> removedItemIds;
+    
+    OrderChanges(boolean newOrder, Set<String> changedFields, boolean totalChanged,
+                 List<OrderItem> upsertedItems, List<UUID> removedItemIds) {
+        this.newOrder = newOrder;
+        this.changedFields = Collections.unmodifiableSet(changedFields);
+        this.totalChanged = totalChanged;
+        this.upsertedItems = Collections.unmodifiableList(upsertedItems);
+        this.removedItemIds = Collections.unmodifiableList(removedItemIds);
+    }
+    
+    /**
+     * Returns whether the order has no known persisted state, so it must be written in full.
+     */
+    public boolean isNewOrder() {
+        return newOrder;
+    }
+    
+    /**
+     * Returns whether any order column other than the total amount changed.
+     */
+    public boolean isHeaderChanged() {
+        return !changedFields.isEmpty();
+    }
+    
+    /**
+     * Returns the property names of the order columns other than the total amount that changed, in column order;
+     * all of them for a new order.
+     */
+    public Set<String> getChangedFields() {
+        return changedFields;
+    }
+    
+    /**
+     * Returns whether anything other than the order's sync state changed, so the CRS has something to learn.
+     */
+    public boolean hasSyncableChanges() {
+        if (newOrder || totalChanged || !upsertedItems.isEmpty() || !removedItemIds.isEmpty()) {
+            return true;
+        }
+        for (String field : changedFields) {
+            if (!SYNC_STATE_FIELDS.contains(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public boolean isTotalChanged() {
+        return totalChanged;
+    }
+    
+    /**
+     * Returns the items that were added or whose persisted values changed; all items for a new order.
+     */
+    public List<OrderItem> getUpsertedItems() {
+        return upsertedItems;
+    }
+    
+    public List<UUID> getRemovedItemIds() {
+        return removedItemIds;
+    }
+    
+    public boolean hasChanges() {
+        return newOrder || !changedFields.isEmpty() || totalChanged || !upsertedItems.isEmpty() || !removedItemIds.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return "OrderChanges{" +
+                "newOrder=" + newOrder +
+                ", changedFields=" + changedFields +
+                ", totalChanged=" + totalChanged +
+                ", upsertedItems=" + upsertedItems.size() +
+                ", removedItems=" + removedItemIds.size() +
+                '}';
+    }
+}
@@ -61,6 +61,23 @@ public class OrderItem {
         this.totalPrice = unitPrice.multiply(BigDecimal.valueOf(quantity));
     }
     
+    /**
+     * Creates an independent copy of the given order item, including its timestamps.
+     */
+    public OrderItem(OrderItem other) {
+        this.orderItemId = other.orderItemId;
+        this.menuItemId = other.menuItemId;
+        this.menuItemName = other.menuItemName;
+        this.quantity = other.quantity;
+        this.unitPrice = other.unitPrice;
+        this.totalPrice = other.totalPrice;
+        this.specialInstructions = other.specialInstructions;
+        this.substitutedFromItemId = other.substitutedFromItemId;
+        this.status = other.status;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+    
     // Getters and Setters
     public UUID getOrderItemId() {
         return orderItemId;
@@ -184,6 +201,27 @@ public class OrderItem {
         this.updatedAt = LocalDateTime.now();
     }
     
+    /**
+     * Returns whether the other item holds the same persisted values as this one, ignoring updatedAt.
+     * Amounts are compared numerically, so 4.5 and 4.50 are equal.
+     */
+    public boolean hasSameContent(OrderItem other) {
+        return Objects.equals(orderItemId, other.orderItemId)
+                && Objects.equals(menuItemId, other.menuItemId)
+                && Objects.equals(menuItemName, other.menuItemName)
+                && quantity == other.quantity
+                && sameAmount(unitPrice, other.unitPrice)
+                && sameAmount(totalPrice, other.totalPrice)
+                && Objects.equals(specialInstructions, other.specialInstructions)
+                && Objects.equals(substitutedFromItemId, other.substitutedFromItemId)
+                && status == other.status
+                && Objects.equals(createdAt, other.createdAt);
+    }
+    
+    private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+    
     // Equals and HashCode
     @Override
     public boolean equals(Object o) {
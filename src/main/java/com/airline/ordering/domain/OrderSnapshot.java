@@ -0,0 +1,104 @@
+package com.airline.ordering.domain;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable copy of the persisted values of an order and its items, taken when the order was last
+ * loaded or saved. updatedAt is not tracked, as it changes on every mutation.
+ */
+final class OrderSnapshot {
+    
+    private final UUID passengerId;
+    private final String seatNumber;
+    private final BigDecimal totalAmount;
+    private final OrderStatus status;
+    private final String notes;
+    private final LocalDateTime requestedDeliveryTime;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime confirmedAt;
+    private final LocalDateTime deliveredAt;
+    private final boolean syncedWithCrs;
+    private final LocalDateTime lastSyncAttempt;
+    private final String crsOrderId;
+    private final int syncVersion;
+    private final Map<UUID, OrderItem> items;
+    
+    private OrderSnapshot(Order order, List<OrderItem> orderItems) {
+        this.passengerId = order.getPassengerId();
+        this.seatNumber = order.getSeatNumber();
+        this.totalAmount = order.getTotalAmount();
+        this.status = order.getStatus();
+        this.notes = order.getNotes();
+        this.requestedDeliveryTime = order.getRequestedDeliveryTime();
+        this.createdAt = order.getCreatedAt();
+        this.confirmedAt = order.getConfirmedAt();
+        this.deliveredAt = order.getDeliveredAt();
+        this.syncedWithCrs = order.isSyncedWithCrs();
+        this.lastSyncAttempt = order.getLastSyncAttempt();
+        this.crsOrderId = order.getCrsOrderId();
+        this.syncVersion = order.getSyncVersion();
+        this.items = new LinkedHashMap<>(orderItems.size() * 2);
+        for (OrderItem item : orderItems) {
+            items.put(item.getOrderItemId(), new OrderItem(item));
+        }
+    }
+    
+    static OrderSnapshot of(Order order, List<OrderItem> orderItems) {
+        return new OrderSnapshot(order, orderItems);
+    }
+    
+    int getSyncVersion() {
+        return syncVersion;
+    }
+    
+    /**
+     * Compares the current state of the order with this snapshot.
+     */
+    OrderChanges diff(Order order, List<OrderItem> currentItems) {
+        Set<String> changedFields = new LinkedHashSet<>();
+        addIfChanged(changedFields, "passengerId", passengerId, order.getPassengerId());
+        addIfChanged(changedFields, "seatNumber", seatNumber, order.getSeatNumber());
+        addIfChanged(changedFields, "status", status, order.getStatus());
+        addIfChanged(changedFields, "notes", notes, order.getNotes());
+        addIfChanged(changedFields, "requestedDeliveryTime", requestedDeliveryTime, order.getRequestedDeliveryTime());
+        addIfChanged(changedFields, "createdAt", createdAt, order.getCreatedAt());
+        addIfChanged(changedFields, "confirmedAt", confirmedAt, order.getConfirmedAt());
+        addIfChanged(changedFields, "deliveredAt", deliveredAt, order.getDeliveredAt());
+        if (syncedWithCrs != order.isSyncedWithCrs()) {
+            changedFields.add("syncedWithCrs");
+        }
+        addIfChanged(changedFields, "lastSyncAttempt", lastSyncAttempt, order.getLastSyncAttempt());
+        addIfChanged(changedFields, "crsOrderId", crsOrderId, order.getCrsOrderId());
+        if (syncVersion != order.getSyncVersion()) {
+            changedFields.add("syncVersion");
+        }
+        boolean totalChanged = totalAmount == null || order.getTotalAmount() == null
+                ? totalAmount != order.getTotalAmount()
+                : totalAmount.compareTo(order.getTotalAmount()) != 0;
+        
+        List<OrderItem> upserted = new ArrayList<>();
+        Map<UUID, OrderItem> remaining = new LinkedHashMap<>(items);
+        for (OrderItem item : currentItems) {
+            OrderItem persisted = remaining.remove(item.getOrderItemId());
+            if (persisted == null || !persisted.hasSameContent(item)) {
+                upserted.add(item);
+            }
+        }
+        return new OrderChanges(false, changedFields, totalChanged, upserted, new ArrayList<>(remaining.keySet()));
+    }
+    
+    private static void addIfChanged(Set<String> changedFields, String field, Object persisted, Object current) {
+        if (!Objects.equals(persisted, current)) {
+            changedFields.add(field);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.airline.ordering.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Represents the outcome of a bulk repository write.
+ * Rows that could not be written are reported individually, as are rows deliberately left unwritten because
+ * a condition of the write no longer held; all other rows were committed.
+ * @param <ID> The type of the entity's ID
+ */
+public class BulkWriteResult<ID> {
+    
+    private final int succeededCount;
+    private final List<Failure<ID>> failures;
+    private final List<ID> skippedIds;
+    private final long elapsedMs;
+    
+    private BulkWriteResult(Builder<ID> builder) {
+        this.succeededCount = builder.succeededCount;
+        this.failures = new ArrayList<>(builder.failures);
+        this.skippedIds = new ArrayList<>(builder.skippedIds);
+        this.elapsedMs = builder.elapsedMs;
+    }
+    
+    // Getters
+    public int getSucceededCount() {
+        return succeededCount;
+    }
+    
+    public int getFailedCount() {
+        return failures.size();
+    }
+    
+    public int getAttemptedCount() {
+        return succeededCount + failures.size();
+    }
+    
+    public List<Failure<ID>> getFailures() {
+        return new ArrayList<>(failures);
+    }
+    
+    public List<ID> getFailedIds() {
+        return failures.stream().map(Failure::getId).collect(Collectors.toList());
+    }
+    
+    /**
+     * @return The IDs of the rows that were not written because a condition of the write did not hold.
+     */
+    public List<ID> getSkippedIds() {
+        return new ArrayList<>(skippedIds);
+    }
+    
+    public int getSkippedCount() {
+        return skippedIds.size();
+    }
+    
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+    
+    public boolean isFullySuccessful() {
+        return failures.isEmpty();
+    }
+    
+    public static <ID> BulkWriteResult<ID> empty() {
+        return new Builder<ID>().build();
+    }
+    
+    public static <ID> Builder<ID> builder() {
+        return new Builder<>();
+    }
+    
+    @Override
+    public String toString() {
+        return "BulkWriteResult{" +
+                "succeeded=" + succeededCount +
+                ", failed=" + failures.size() +
+                ", skipped=" + skippedIds.size() +
+                ", elapsedMs=" + elapsedMs +
+                '}';
+    }
+    
+    /**
+     * A row that could not be written, with the reason reported by the database.
+     * @param <ID> The type of the entity's ID
+     */
+    public static class Failure<ID> {
+        
+        private final ID id;
+        private final String message;
+        
+        public Failure(ID id, String message) {
+            this.id = id;
+            this.message = message;
+        }
+        
+        public ID getId() {
+            return id;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        @Override
+        public String toString() {
+            return "Failure{id=" + id + ", message='" + message + "'}";
+        }
+    }
+    
+    // Builder pattern
+    public static class Builder<ID> {
+        private int succeededCount;
+        private List<Failure<ID>> failures = new ArrayList<>();
+        private List<ID> skippedIds = new ArrayList<>();
+        private long elapsedMs;
+        
+        public Builder<ID> addSucceeded(int count) {
+            this.succeededCount += count;
+            return this;
+        }
+        
+        public Builder<ID> addFailure(ID id, String message) {
+            this.failures.add(new Failure<>(id, message));
+            return this;
+        }
+        
+        public Builder<ID> addSkipped(ID id) {
+            this.skippedIds.add(id);
+            return this;
+        }
+        
+        public Builder<ID> merge(BulkWriteResult<ID> result) {
+            this.succeededCount += result.succeededCount;
+            this.failures.addAll(result.failures);
+            this.skippedIds.addAll(result.skippedIds);
+            return this;
+        }
+        
+        public Builder<ID> elapsedMs(long elapsedMs) {
+            this.elapsedMs = elapsedMs;
+            return this;
+        }
+        
+        public BulkWriteResult<ID> build() {
+            return new BulkWriteResult<>(this);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.airline.ordering.repository;
+
+import com.airline.ordering.sync.changelog.OrderDelta;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Repository for the order change log, which the order repository appends to in the transaction of every save
+ * or delete that changes something the CRS has to learn about. Entries are read in sequence order and
+ * removed once the CRS has acknowledged them.
+ */
+public interface ChangeLogRepository {
+    
+    /**
+     * @param sequence The sequence to read after, typically {@link #getAcknowledgedSequence()}.
+     * @param limit The maximum number of entries to return.
+     * @return The entries with a higher sequence, lowest first.
+     */
+    List<OrderDelta> findAfter(long sequence, int limit);
+    
+    /**
+     * @param orderId The order whose entries to read.
+     * @return The entries of the order not yet acknowledged, lowest sequence first.
+     */
+    List<OrderDelta> findPending(UUID orderId);
+    
+    /**
+     * @return The highest sequence acknowledged by the CRS, or 0 if none has been.
+     */
+    long getAcknowledgedSequence();
+    
+    /**
+     * Records that the CRS has applied every entry up to and including the sequence, and drops those entries.
+     * Orders with no entry after the sequence are marked as synced with the CRS in the same transaction, without
+     * logging a change. Acknowledging a sequence at or below the current checkpoint has no effect.
+     */
+    void acknowledge(long sequence);
+    
+    /**
+     * @return The number of entries not yet acknowledged.
+     */
+    long countPending();
+}
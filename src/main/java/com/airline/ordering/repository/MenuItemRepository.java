@@ -3,7 +3,9 @@ package com.airline.ordering.repository;
 import com.airline.ordering.domain.MenuItem;
 import com.airline.ordering.domain.MenuCategory;
 import com.airline.ordering.domain.ItemStatus;
+import com.airline.ordering.domain.PassengerType;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -25,11 +27,26 @@ public interface MenuItemRepository extends Repository<MenuItem, UUID> {
      */
     List<MenuItem> findByStatus(ItemStatus status);
     
+    /**
+     * Finds all menu items offered to a passenger type, regardless of their current status.
+     * @param passengerType The passenger type.
+     * @return A list of menu items offered to the specified passenger type.
+     */
+    List<MenuItem> findByPassengerType(PassengerType passengerType);
+    
     /**
      * Searches for menu items by name or description.
      * @param searchTerm The term to search for.
      * @return A list of matching menu items.
      */
     List<MenuItem> searchByNameOrDescription(String searchTerm);
+    
+    /**
+     * Overwrites the inventory count of menu items, leaving every other column untouched.
+     * Ids without a stored menu item are ignored.
+     * @param inventoryCounts The new inventory count per menu item id.
+     * @return The outcome of the write, with per-item failures.
+     */
+    BulkWriteResult<UUID> updateInventoryCounts(Map<UUID, Integer> inventoryCounts);
 }
 
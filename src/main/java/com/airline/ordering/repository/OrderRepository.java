@@ -2,8 +2,10 @@ package com.airline.ordering.repository;
 
 import com.airline.ordering.domain.Order;
 import com.airline.ordering.domain.OrderStatus;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Repository interface for Order entities.
@@ -36,5 +38,51 @@ public interface OrderRepository extends Repository<Order, UUID> {
      * @return A list of orders requiring synchronization.
      */
     List<Order> findOrdersRequiringSync();
+    
+    /**
+     * Saves orders as received from the CRS, like {@link #saveAll(Collection)} but without recording them in the
+     * order change log: the CRS already has them, so pushing them back would only echo its own updates.
+     * <p>
+     * The write never overwrites local changes. An order without a persisted state is written only if no copy of
+     * it is stored; any other order only if the stored copy is synced with the CRS and still at the order's
+     * persisted sync version, so it is given the state of the local copy it replaces. Orders that fail this
+     * check are skipped.
+     * @param orders Must not be {@literal null}.
+     * @return The outcome of the write, including per-order failures and the orders skipped.
+     */
+    BulkWriteResult<UUID> saveAllFromCrs(Collection<Order> orders);
+    
+    /**
+     * Streams all orders over an open cursor, loading items for {@code fetchSize} orders at a time.
+     * The stream holds a pooled connection until it is closed and must be used in a try-with-resources block.
+     * @param fetchSize The number of orders read and held in memory at a time.
+     * @return A stream of all orders.
+     */
+    Stream<Order> streamAll(int fetchSize);
+    
+    /**
+     * Streams orders with a specific status over an open cursor.
+     * @param status The status of the orders.
+     * @param fetchSize The number of orders read and held in memory at a time.
+     * @return A stream of orders with the specified status; must be closed.
+     * @see #streamAll(int)
+     */
+    Stream<Order> streamByStatus(OrderStatus status, int fetchSize);
+    
+    /**
+     * Streams the orders that need synchronization with the CRS over an open cursor.
+     * @param fetchSize The number of orders read and held in memory at a time.
+     * @return A stream of orders requiring synchronization; must be closed.
+     * @see #streamAll(int)
+     */
+    Stream<Order> streamOrdersRequiringSync(int fetchSize);
+    
+    /**
+     * Returns the next page of orders in order ID order, using keyset pagination.
+     * Pages stay stable while orders are inserted or deleted and cost the same regardless of depth.
+     * @param afterOrderId The last order ID of the previous page, or {@literal null} for the first page.
+     * @param limit The maximum number of orders to return.
+     * @return Up to {@code limit} orders with an ID greater than {@code afterOrderId}; empty after the last page.
+     */
+    List<Order> findPage(UUID afterOrderId, int limit);
 }
-
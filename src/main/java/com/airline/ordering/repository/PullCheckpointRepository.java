@@ -0,0 +1,20 @@
+package com.airline.ordering.repository;
+
+import com.airline.ordering.sync.pull.PullCheckpoint;
+
+/**
+ * Repository for the checkpoint of pulling remote order updates from the CRS, so a pull interrupted by a lost
+ * connection or a restart resumes from its next page.
+ */
+public interface PullCheckpointRepository {
+    
+    /**
+     * @return The stored checkpoint, or {@link PullCheckpoint#initial()} if nothing has been pulled yet.
+     */
+    PullCheckpoint find();
+    
+    /**
+     * Replaces the stored checkpoint.
+     */
+    void save(PullCheckpoint checkpoint);
+}
@@ -1,8 +1,11 @@
 package com.airline.ordering.repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.stream.Stream;
 
 /**
  * Generic repository interface for common CRUD operations.
@@ -19,6 +22,50 @@ public interface Repository<T, ID> {
      */
     T save(T entity);
     
+    /**
+     * Saves all given entities in a single transaction using batched statements.
+     * Entities that cannot be written are skipped and reported in the result; all others are committed.
+     * @param entities Must not be {@literal null}.
+     * @return The outcome of the write, including per-entity failures.
+     */
+    BulkWriteResult<ID> saveAll(Collection<T> entities);
+    
+    /**
+     * Saves entities from a stream in transactions of 500 entities.
+     * @see #upsertAll(Stream, int)
+     */
+    default BulkWriteResult<ID> upsertAll(Stream<T> entities) {
+        return upsertAll(entities, 500);
+    }
+    
+    /**
+     * Saves entities from a stream of arbitrary length without materializing it.
+     * The stream is consumed in chunks of {@code chunkSize}, each saved and committed via {@link #saveAll(Collection)},
+     * so memory stays bounded and other writes are not held back for the whole import.
+     * @param entities Must not be {@literal null}; closed once consumed.
+     * @param chunkSize The number of entities per transaction.
+     * @return The combined outcome of all chunks.
+     */
+    default BulkWriteResult<ID> upsertAll(Stream<T> entities, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        long start = System.nanoTime();
+        BulkWriteResult.Builder<ID> result = BulkWriteResult.builder();
+        try (Stream<T> stream = entities) {
+            Iterator<T> iterator = stream.iterator();
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                    result.merge(saveAll(chunk));
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+        }
+        return result.elapsedMs((System.nanoTime() - start) / 1_000_000).build();
+    }
+    
     /**
      * Retrieves an entity by its id.
      * @param id Must not be {@literal null}.
@@ -40,6 +87,14 @@ public interface Repository<T, ID> {
      */
     void deleteById(ID id);
     
+    /**
+     * Deletes the entities with the given ids in a single transaction using batched statements.
+     * Ids without a matching entity are ignored.
+     * @param ids Must not be {@literal null}.
+     * @return The outcome of the delete, including per-id failures.
+     */
+    BulkWriteResult<ID> deleteAllById(Collection<ID> ids);
+    
     /**
      * Deletes a given entity.
      * @param entity Must not be {@literal null}.
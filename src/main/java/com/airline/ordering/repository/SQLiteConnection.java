@@ -1,132 +1,213 @@
 package com.airline.ordering.repository;
 
+import com.airline.ordering.repository.connection.ConnectionPool;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+import com.airline.ordering.repository.connection.PoolMetrics;
+import com.airline.ordering.repository.connection.SQLiteWriter;
+import com.airline.ordering.repository.connection.SqlWork;
+import com.airline.ordering.repository.migration.Migrations;
+import com.airline.ordering.repository.migration.SchemaMigrator;
+import com.airline.ordering.repository.migration.StorageFormatConverter;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Utility class for managing SQLite database connections and schema creation.
+ * Reads use connections served from a bounded {@link ConnectionPool}; closing a connection returns it to the pool.
+ * Writes are funnelled through a single {@link SQLiteWriter} thread via {@link #executeWrite(SqlWork)}.
  */
 public class SQLiteConnection {
     
     private static final Logger logger = LoggerFactory.getLogger(SQLiteConnection.class);
-    private static final String DB_URL = "jdbc:sqlite:inflight_ordering.db";
+    
+    private static volatile DatabaseConfig config = DatabaseConfig.fromSystemProperties();
+    private static volatile ConnectionPool pool;
+    private static volatile SQLiteWriter writer;
+    private static final Deque<AutoCloseable> exitResources = new ConcurrentLinkedDeque<>();
+    
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SQLiteConnection::shutdownOnExit, "sqlite-shutdown"));
+    }
     
     private SQLiteConnection() {
         // Private constructor to prevent instantiation
     }
     
     /**
-     * Establishes a connection to the SQLite database.
+     * Replaces the database configuration. Any existing pool and writer are closed so that
+     * subsequent connections use the new settings.
+     * @param newConfig The configuration to use.
+     */
+    public static synchronized void configure(DatabaseConfig newConfig) {
+        if (newConfig == null) {
+            throw new IllegalArgumentException("Database configuration must not be null");
+        }
+        closeResources();
+        config = newConfig;
+    }
+    
+    /**
+     * Returns the active database configuration.
+     */
+    public static DatabaseConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Borrows a connection to the SQLite database from the connection pool.
      * If the database file does not exist, it will be created.
-     * @return A Connection object to the database.
-     * @throws SQLException if a database access error occurs.
+     * @return A Connection object to the database; close it to return it to the pool.
+     * @throws SQLException if a database access error occurs or no connection becomes available in time.
      */
     public static Connection getConnection() throws SQLException {
-        Connection conn = null;
+        return pool().getConnection();
+    }
+    
+    /**
+     * Executes write work on the dedicated writer thread, in its own transaction, and waits for it to commit.
+     * The work must not commit, roll back or close the connection it is given.
+     * @param work The write work to execute.
+     * @return The result of the work.
+     * @throws SQLException if the work fails; the transaction is rolled back in that case.
+     */
+    public static <T> T executeWrite(SqlWork<T> work) throws SQLException {
+        return writer().execute(work);
+    }
+    
+    /**
+     * Queues write work on the dedicated writer thread without waiting for it.
+     * @param work The write work to execute.
+     * @return A future completed once the work has committed.
+     */
+    public static <T> CompletableFuture<T> submitWrite(SqlWork<T> work) {
         try {
-            conn = DriverManager.getConnection(DB_URL);
-            logger.info("Connected to SQLite database: {}", DB_URL);
+            return writer().submit(work);
         } catch (SQLException e) {
-            logger.error("Error connecting to SQLite database: {}", e.getMessage());
-            throw e;
+            return CompletableFuture.failedFuture(e);
         }
-        return conn;
     }
     
     /**
-     * Initializes the database schema by creating necessary tables if they don't exist.
-     * This method should be called once at application startup.
+     * Returns the writer serving this database, starting it if necessary.
+     * @throws SQLException if the writer connection cannot be opened.
      */
-    public static void initializeDatabase() {
-        String createPassengersTable = "CREATE TABLE IF NOT EXISTS passengers (\n" +
-                                       "    passenger_id TEXT PRIMARY KEY,\n" +
-                                       "    first_name TEXT NOT NULL,\n" +
-                                       "    last_name TEXT NOT NULL,\n" +
-                                       "    email TEXT,\n" +
-                                       "    phone_number TEXT,\n" +
-                                       "    seat_number TEXT NOT NULL,\n" +
-                                       "    type TEXT NOT NULL,\n" +
-                                       "    special_requirements TEXT,\n" +
-                                       "    created_at TEXT NOT NULL,\n" +
-                                       "    updated_at TEXT NOT NULL\n" +
-                                       ");";
-        
-        String createMenuItemsTable = "CREATE TABLE IF NOT EXISTS menu_items (\n" +
-                                      "    item_id TEXT PRIMARY KEY,\n" +
-                                      "    name TEXT NOT NULL,\n" +
-                                      "    description TEXT,\n" +
-                                      "    price REAL NOT NULL,\n" +
-                                      "    category TEXT NOT NULL,\n" +
-                                      "    available_for_types TEXT,\n" +
-                                      "    allergens TEXT,\n" +
-                                      "    dietary_tags TEXT,\n" +
-                                      "    status TEXT NOT NULL,\n" +
-                                      "    inventory_count INTEGER NOT NULL,\n" +
-                                      "    substitutable_items TEXT,\n" +
-                                      "    combo_items TEXT,\n" +
-                                      "    created_at TEXT NOT NULL,\n" +
-                                      "    updated_at TEXT NOT NULL\n" +
-                                      ");";
-        
-        String createOrdersTable = "CREATE TABLE IF NOT EXISTS orders (\n" +
-                                   "    order_id TEXT PRIMARY KEY,\n" +
-                                   "    passenger_id TEXT NOT NULL,\n" +
-                                   "    seat_number TEXT NOT NULL,\n" +
-                                   "    total_amount REAL NOT NULL,\n" +
-                                   "    status TEXT NOT NULL,\n" +
-                                   "    notes TEXT,\n" +
-                                   "    requested_delivery_time TEXT,\n" +
-                                   "    created_at TEXT NOT NULL,\n" +
-                                   "    updated_at TEXT NOT NULL,\n" +
-                                   "    confirmed_at TEXT,\n" +
-                                   "    delivered_at TEXT,\n" +
-                                   "    synced_with_crs INTEGER NOT NULL,\n" +
-                                   "    last_sync_attempt TEXT,\n" +
-                                   "    crs_order_id TEXT,\n" +
-                                   "    sync_version INTEGER NOT NULL\n" +
-                                   ");";
-        
-        String createOrderItemsTable = "CREATE TABLE IF NOT EXISTS order_items (\n" +
-                                       "    order_item_id TEXT PRIMARY KEY,\n" +
-                                       "    order_id TEXT NOT NULL,\n" +
-                                       "    menu_item_id TEXT NOT NULL,\n" +
-                                       "    menu_item_name TEXT NOT NULL,\n" +
-                                       "    quantity INTEGER NOT NULL,\n" +
-                                       "    unit_price REAL NOT NULL,\n" +
-                                       "    total_price REAL NOT NULL,\n" +
-                                       "    special_instructions TEXT,\n" +
-                                       "    substituted_from_item_id TEXT,\n" +
-                                       "    status TEXT NOT NULL,\n" +
-                                       "    created_at TEXT NOT NULL,\n" +
-                                       "    updated_at TEXT NOT NULL,\n" +
-                                       "    FOREIGN KEY (order_id) REFERENCES orders(order_id) ON DELETE CASCADE\n" +
-                                       ");";
+    public static SQLiteWriter getWriter() throws SQLException {
+        return writer();
+    }
+    
+    /**
+     * Returns a snapshot of the connection pool usage.
+     */
+    public static PoolMetrics getPoolMetrics() {
+        ConnectionPool current = pool;
+        return current != null ? current.getMetrics() : PoolMetrics.empty(config.getMaxPoolSize());
+    }
+    
+    /**
+     * Stops the writer after its queued writes finish and closes the connection pool.
+     * Both are recreated on the next request.
+     */
+    public static synchronized void shutdown() {
+        closeResources();
+    }
+    
+    /**
+     * Registers a resource that writes to the database, such as a write-behind journal, to be closed when the
+     * process exits. Resources are closed in reverse order of registration and before the writer and the pool,
+     * so their final writes still reach the database.
+     * @param resource The resource to close on exit.
+     */
+    public static void closeOnExit(AutoCloseable resource) {
+        exitResources.addLast(resource);
+    }
+    
+    private static void shutdownOnExit() {
+        AutoCloseable resource;
+        while ((resource = exitResources.pollLast()) != null) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                logger.error("Error closing {} on exit: {}", resource.getClass().getSimpleName(), e.getMessage());
+            }
+        }
+        shutdown();
+    }
+    
+    private static ConnectionPool pool() {
+        ConnectionPool current = pool;
+        if (current == null || current.isClosed()) {
+            synchronized (SQLiteConnection.class) {
+                current = pool;
+                if (current == null || current.isClosed()) {
+                    current = new ConnectionPool(config);
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private static SQLiteWriter writer() throws SQLException {
+        SQLiteWriter current = writer;
+        if (current == null || !current.isRunning()) {
+            synchronized (SQLiteConnection.class) {
+                current = writer;
+                if (current == null || !current.isRunning()) {
+                    current = new SQLiteWriter(config);
+                    writer = current;
+                }
+            }
+        }
+        return current;
+    }
+    
+    private static void closeResources() {
+        SQLiteWriter currentWriter = writer;
+        writer = null;
+        if (currentWriter != null) {
+            currentWriter.close();
+        }
+        ConnectionPool currentPool = pool;
+        pool = null;
+        if (currentPool != null) {
+            currentPool.close();
+        }
+    }
+    
+    /**
+     * Initializes the database schema by applying any pending schema migrations.
+     * This method should be called once at application startup. Any previously open pool and writer
+     * are recycled so the schema is created in the file currently at the configured path, and the
+     * writer switches the file to the configured journal mode.
+     */
+    public static synchronized void initializeDatabase() {
+        closeResources();
         
-        try (Connection conn = getConnection();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(createPassengersTable);
-            stmt.execute(createMenuItemsTable);
-            stmt.execute(createOrdersTable);
-            stmt.execute(createOrderItemsTable);
-            logger.info("Database schema initialized successfully.");
+        SchemaMigrator migrator = new SchemaMigrator(Migrations.all());
+        try {
+            int applied = migrator.migrate(writer());
+            new StorageFormatConverter().ensureFormat(writer(), getConfig().getStorageFormat());
+            logger.info("Database schema initialized successfully ({} migrations applied, version {}, {} storage).",
+                    applied, migrator.getLatestVersion(), getConfig().getStorageFormat());
         } catch (SQLException e) {
             logger.error("Error initializing database schema: {}", e.getMessage());
         }
     }
     
     /**
-     * Closes the given database connection.
+     * Closes the given database connection, returning it to the pool.
      * @param conn The Connection object to close.
      */
     public static void closeConnection(Connection conn) {
         if (conn != null) {
             try {
                 conn.close();
-                logger.info("SQLite database connection closed.");
+                logger.debug("SQLite database connection returned.");
             } catch (SQLException e) {
                 logger.error("Error closing SQLite database connection: {}", e.getMessage());
             }
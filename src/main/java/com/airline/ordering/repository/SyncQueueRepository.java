@@ -0,0 +1,11 @@
+package com.airline.ordering.repository;
+
+import com.airline.ordering.sync.scheduler.SyncTask;
+import java.util.UUID;
+
+/**
+ * Repository for the tasks waiting in the sync scheduler, keyed by order ID.
+ * Saving a task for an order that is already queued replaces it.
+ */
+public interface SyncQueueRepository extends Repository<SyncTask, UUID> {
+}
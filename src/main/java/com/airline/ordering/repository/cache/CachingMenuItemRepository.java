@@ -0,0 +1,174 @@
+package com.airline.ordering.repository.cache;
+
+import com.airline.ordering.domain.ItemStatus;
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.MenuItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through cache in front of a {@link MenuItemRepository}.
+ * <p>
+ * The whole menu is loaded once into an immutable {@link MenuCatalog} that is indexed by id, category, status
+ * and passenger type, so menu browsing is served from memory. Writes go straight to the underlying repository
+ * and discard the snapshot, as do CRS menu notifications via {@link MenuCacheInvalidationListener}; the next
+ * read reloads it. Free-text search is always delegated.
+ */
+public class CachingMenuItemRepository implements MenuItemRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingMenuItemRepository.class);
+
+    private final MenuItemRepository delegate;
+    private final Object loadLock = new Object();
+
+    // Bumped on every invalidation so a load that raced with a write never installs a stale snapshot
+    private final AtomicLong generation = new AtomicLong();
+    private volatile MenuCatalog catalog;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public CachingMenuItemRepository(MenuItemRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public MenuItem save(MenuItem entity) {
+        try {
+            return delegate.save(entity);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public BulkWriteResult<UUID> saveAll(Collection<MenuItem> entities) {
+        try {
+            return delegate.saveAll(entities);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public Optional<MenuItem> findById(UUID id) {
+        return Optional.ofNullable(catalog().get(id));
+    }
+
+    @Override
+    public List<MenuItem> findAll() {
+        return catalog().all();
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        try {
+            delegate.deleteById(id);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public BulkWriteResult<UUID> deleteAllById(Collection<UUID> ids) {
+        try {
+            return delegate.deleteAllById(ids);
+        } finally {
+            invalidate();
+        }
+    }
+
+    @Override
+    public void delete(MenuItem entity) {
+        deleteById(entity.getItemId());
+    }
+
+    @Override
+    public long count() {
+        return catalog().size();
+    }
+
+    @Override
+    public List<MenuItem> findByCategory(MenuCategory category) {
+        return catalog().byCategory(category);
+    }
+
+    @Override
+    public List<MenuItem> findByStatus(ItemStatus status) {
+        return catalog().byStatus(status);
+    }
+
+    @Override
+    public List<MenuItem> findByPassengerType(PassengerType passengerType) {
+        return catalog().byPassengerType(passengerType);
+    }
+
+    @Override
+    public List<MenuItem> searchByNameOrDescription(String searchTerm) {
+        return delegate.searchByNameOrDescription(searchTerm);
+    }
+
+    /**
+     * Writes inventory counts through without discarding the cached menu. Live counts are owned by the inventory
+     * engine, which persists them far more often than the menu changes, so the counts held in the catalog are only
+     * refreshed by the next reload.
+     */
+    @Override
+    public BulkWriteResult<UUID> updateInventoryCounts(Map<UUID, Integer> inventoryCounts) {
+        return delegate.updateInventoryCounts(inventoryCounts);
+    }
+
+    /**
+     * Discards the cached menu; the next read reloads it from the underlying repository.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        catalog = null;
+        logger.debug("Menu catalog cache invalidated");
+    }
+
+    public boolean isLoaded() {
+        return catalog != null;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    private MenuCatalog catalog() {
+        MenuCatalog current = catalog;
+        if (current != null) {
+            hits.incrementAndGet();
+            return current;
+        }
+        synchronized (loadLock) {
+            current = catalog;
+            if (current != null) {
+                hits.incrementAndGet();
+                return current;
+            }
+            long expectedGeneration = generation.get();
+            current = MenuCatalog.of(delegate.findAll());
+            loads.incrementAndGet();
+            if (generation.get() == expectedGeneration) {
+                catalog = current;
+            }
+            logger.debug("Menu catalog cache loaded with {} items", current.size());
+            return current;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.airline.ordering.repository.cache;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.sync.CRSNotificationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Discards the cached menu when the CRS reports menu changes made outside this device.
+ * All order-related notifications are ignored.
+ */
+public class MenuCacheInvalidationListener implements CRSNotificationListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(MenuCacheInvalidationListener.class);
+
+    private final CachingMenuItemRepository cache;
+
+    public MenuCacheInvalidationListener(CachingMenuItemRepository cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public void onInventoryUpdated(UUID menuItemId, int newQuantity, int previousQuantity) {
+        logger.debug("Inventory of menu item {} changed from {} to {}", menuItemId, previousQuantity, newQuantity);
+        cache.invalidate();
+    }
+
+    @Override
+    public void onMenuItemUnavailable(UUID menuItemId, String reason) {
+        logger.debug("Menu item {} became unavailable: {}", menuItemId, reason);
+        cache.invalidate();
+    }
+
+    @Override
+    public void onOrderConfirmed(UUID orderId, String confirmationNumber) {
+    }
+
+    @Override
+    public void onOrderCancelled(UUID orderId, String reason) {
+    }
+
+    @Override
+    public void onOrderStatusUpdated(UUID orderId, String newStatus, String previousStatus) {
+    }
+
+    @Override
+    public void onOrderModified(UUID orderId, Order updatedOrder) {
+    }
+
+    @Override
+    public void onPaymentProcessed(UUID orderId, String paymentStatus, String transactionId) {
+    }
+
+    @Override
+    public void onOrderReadyForDelivery(UUID orderId, LocalDateTime estimatedDeliveryTime) {
+    }
+
+    @Override
+    public void onOrderDelivered(UUID orderId, LocalDateTime deliveryTime) {
+    }
+
+    @Override
+    public void onOrderIssue(UUID orderId, String issueType, String description, String severity) {
+    }
+
+    @Override
+    public void onConnectionStatusChanged(boolean connected, String reason) {
+    }
+
+    @Override
+    public void onSystemNotification(String notificationType, String message, Map<String, Object> data) {
+    }
+
+    @Override
+    public void onNotificationError(Exception error) {
+    }
+}
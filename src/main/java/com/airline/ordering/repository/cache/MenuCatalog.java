@@ -0,0 +1,98 @@
+package com.airline.ordering.repository.cache;
+
+import com.airline.ordering.domain.ItemStatus;
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable, pre-indexed snapshot of the whole menu.
+ * <p>
+ * The snapshot owns private copies of the menu items and never hands them out; callers receive fresh copies
+ * so that mutating a returned item cannot corrupt the snapshot shared by other threads.
+ */
+final class MenuCatalog {
+
+    private final Map<UUID, MenuItem> byId;
+    private final Map<MenuCategory, List<MenuItem>> byCategory;
+    private final Map<ItemStatus, List<MenuItem>> byStatus;
+    private final Map<PassengerType, List<MenuItem>> byPassengerType;
+
+    private MenuCatalog(Collection<MenuItem> items) {
+        Map<UUID, MenuItem> ids = new LinkedHashMap<>();
+        Map<MenuCategory, List<MenuItem>> categories = new EnumMap<>(MenuCategory.class);
+        Map<ItemStatus, List<MenuItem>> statuses = new EnumMap<>(ItemStatus.class);
+        Map<PassengerType, List<MenuItem>> passengerTypes = new EnumMap<>(PassengerType.class);
+
+        for (MenuItem source : items) {
+            MenuItem item = new MenuItem(source);
+            ids.put(item.getItemId(), item);
+            categories.computeIfAbsent(item.getCategory(), key -> new ArrayList<>()).add(item);
+            statuses.computeIfAbsent(item.getStatus(), key -> new ArrayList<>()).add(item);
+            for (PassengerType type : item.getAvailableForTypes()) {
+                passengerTypes.computeIfAbsent(type, key -> new ArrayList<>()).add(item);
+            }
+        }
+
+        this.byId = Collections.unmodifiableMap(ids);
+        this.byCategory = freeze(categories);
+        this.byStatus = freeze(statuses);
+        this.byPassengerType = freeze(passengerTypes);
+    }
+
+    /**
+     * Builds a snapshot from the given menu items. The items are copied.
+     */
+    static MenuCatalog of(Collection<MenuItem> items) {
+        return new MenuCatalog(items);
+    }
+
+    MenuItem get(UUID itemId) {
+        MenuItem item = byId.get(itemId);
+        return item != null ? new MenuItem(item) : null;
+    }
+
+    List<MenuItem> all() {
+        return copyOf(byId.values());
+    }
+
+    List<MenuItem> byCategory(MenuCategory category) {
+        return copyOf(byCategory.getOrDefault(category, Collections.emptyList()));
+    }
+
+    List<MenuItem> byStatus(ItemStatus status) {
+        return copyOf(byStatus.getOrDefault(status, Collections.emptyList()));
+    }
+
+    List<MenuItem> byPassengerType(PassengerType passengerType) {
+        return copyOf(byPassengerType.getOrDefault(passengerType, Collections.emptyList()));
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    private static List<MenuItem> copyOf(Collection<MenuItem> items) {
+        List<MenuItem> copies = new ArrayList<>(items.size());
+        for (MenuItem item : items) {
+            copies.add(new MenuItem(item));
+        }
+        return copies;
+    }
+
+    private static <K extends Enum<K>> Map<K, List<MenuItem>> freeze(Map<K, List<MenuItem>> groups) {
+        for (Map.Entry<K, List<MenuItem>> entry : groups.entrySet()) {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(groups);
+    }
+}
@@ -0,0 +1,68 @@
+package com.airline.ordering.repository.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Opens physical SQLite connections and applies the per-connection PRAGMAs from a {@link DatabaseConfig}.
+ */
+public final class ConnectionFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionFactory.class);
+
+    private ConnectionFactory() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Opens a new physical connection with the configured PRAGMAs applied.
+     * @param config The database configuration.
+     * @return An open, configured connection owned by the caller.
+     * @throws SQLException if the connection cannot be opened or configured.
+     */
+    public static Connection open(DatabaseConfig config) throws SQLException {
+        Connection connection;
+        try {
+            connection = DriverManager.getConnection(config.getJdbcUrl());
+        } catch (SQLException e) {
+            logger.error("Error connecting to SQLite database {}: {}", config.getJdbcUrl(), e.getMessage());
+            throw e;
+        }
+
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + config.getBusyTimeoutMs());
+            stmt.execute("PRAGMA foreign_keys = " + (config.isForeignKeysEnabled() ? "ON" : "OFF"));
+            stmt.execute("PRAGMA synchronous = " + config.getSynchronousMode());
+            stmt.execute("PRAGMA cache_size = " + -config.getCacheSizeKib());
+            stmt.execute("PRAGMA mmap_size = " + config.getMmapSizeBytes());
+            stmt.execute("PRAGMA temp_store = " + config.getTempStore());
+        } catch (SQLException e) {
+            try {
+                connection.close();
+            } catch (SQLException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * Switches the database file to the configured journal mode. The mode is persistent for WAL,
+     * so this only needs to run on one connection.
+     * @return The journal mode reported by SQLite after the change.
+     */
+    public static String applyJournalMode(Connection connection, StorageMode storageMode) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA journal_mode = " + storageMode.getJournalMode());
+            try (java.sql.ResultSet rs = stmt.getResultSet()) {
+                return rs != null && rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.airline.ordering.repository.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Set;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Bounded pool of long-lived SQLite connections.
+ * <p>
+ * Physical connections are opened lazily up to {@link DatabaseConfig#getMaxPoolSize()}, configured once
+ * by {@link ConnectionFactory} and then reused. Callers receive a logical handle whose {@code close()} returns
+ * the physical connection to the pool, so existing try-with-resources code keeps working unchanged.
+ * Idle connections are validated before reuse once they have been idle longer than the validation interval,
+ * and connections held longer than the leak detection threshold are reported. Each physical connection keeps
+ * a {@link StatementCache}, so statements prepared through a handle are reused by later borrowers.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final DatabaseConfig config;
+    private final Semaphore permits;
+    private final BlockingDeque<PooledConnection> idleConnections = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowedConnections = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+    private final AtomicInteger connectionIds = new AtomicInteger();
+    private final AtomicLong totalBorrows = new AtomicLong();
+    private final AtomicLong totalCreated = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final AtomicLong borrowTimeouts = new AtomicLong();
+    private final AtomicLong validationFailures = new AtomicLong();
+    private final AtomicLong leaksDetected = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(DatabaseConfig config) {
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxPoolSize(), true);
+        if (config.isLeakDetectionEnabled()) {
+            long interval = Math.max(1_000, config.getLeakDetectionThresholdMs() / 4);
+            this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "sqlite-pool-housekeeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.housekeeper.scheduleWithFixedDelay(this::detectLeaks, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.housekeeper = null;
+        }
+        logger.info("SQLite connection pool created: {}", config);
+    }
+
+    /**
+     * Borrows a connection from the pool, opening a new physical connection if none is idle
+     * and the pool has not reached its maximum size.
+     * @return A logical connection; closing it returns the physical connection to the pool.
+     * @throws SQLTimeoutException if no connection became available within the configured timeout.
+     * @throws SQLException if the pool is closed or a new connection could not be opened.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        pendingRequests.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(config.getConnectionTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            pendingRequests.decrementAndGet();
+        }
+
+        if (!acquired) {
+            borrowTimeouts.incrementAndGet();
+            throw new SQLTimeoutException("Timed out after " + config.getConnectionTimeoutMs()
+                                          + " ms waiting for a database connection: " + getMetrics());
+        }
+
+        try {
+            PooledConnection pooled = takeIdleConnection();
+            if (pooled == null) {
+                pooled = openConnection();
+            }
+            long waited = System.nanoTime() - start;
+            totalBorrows.incrementAndGet();
+            totalWaitNanos.addAndGet(waited);
+            maxWaitNanos.accumulate(waited);
+
+            borrowedConnections.add(pooled);
+            return pooled.checkout();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns a snapshot of the current pool usage.
+     */
+    public PoolMetrics getMetrics() {
+        return new PoolMetrics(config.getMaxPoolSize(), borrowedConnections.size(), idleConnections.size(),
+                               pendingRequests.get(), totalBorrows.get(), totalCreated.get(), totalWaitNanos.get(),
+                               maxWaitNanos.get(), borrowTimeouts.get(), validationFailures.get(), leaksDetected.get());
+    }
+
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeper. Connections still borrowed are closed
+     * as well; their handles will fail on further use.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (housekeeper != null) {
+            housekeeper.shutdownNow();
+        }
+
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+        if (!borrowedConnections.isEmpty()) {
+            logger.warn("Closing connection pool with {} connection(s) still borrowed", borrowedConnections.size());
+            for (PooledConnection borrowed : borrowedConnections) {
+                borrowed.closePhysical();
+            }
+        }
+        logger.info("SQLite connection pool closed: {}", getMetrics());
+    }
+
+    private PooledConnection takeIdleConnection() {
+        PooledConnection pooled;
+        while ((pooled = idleConnections.pollFirst()) != null) {
+            if (isHealthy(pooled)) {
+                return pooled;
+            }
+            validationFailures.incrementAndGet();
+            logger.warn("Discarding unhealthy pooled connection {}", pooled.id);
+            pooled.closePhysical();
+        }
+        return null;
+    }
+
+    private boolean isHealthy(PooledConnection pooled) {
+        try {
+            if (pooled.physical.isClosed()) {
+                return false;
+            }
+            long idleMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pooled.lastReturnedNanos);
+            if (idleMs < config.getValidationIntervalMs()) {
+                return true;
+            }
+            return pooled.physical.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection physical = ConnectionFactory.open(config);
+        totalCreated.incrementAndGet();
+        PooledConnection pooled = new PooledConnection(connectionIds.incrementAndGet(), physical);
+        logger.info("Opened pooled SQLite connection {} to {}", pooled.id, config.getJdbcUrl());
+        return pooled;
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowedConnections.remove(pooled);
+        try {
+            if (!closed && pooled.resetState()) {
+                pooled.lastReturnedNanos = System.nanoTime();
+                idleConnections.offerFirst(pooled);
+            } else {
+                pooled.closePhysical();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void detectLeaks() {
+        long now = System.nanoTime();
+        for (PooledConnection pooled : borrowedConnections) {
+            long heldMs = TimeUnit.NANOSECONDS.toMillis(now - pooled.borrowedAtNanos);
+            if (heldMs >= config.getLeakDetectionThresholdMs() && !pooled.leakReported) {
+                pooled.leakReported = true;
+                leaksDetected.incrementAndGet();
+                logger.warn("Possible connection leak: connection {} held by thread '{}' for {} ms",
+                            pooled.id, pooled.borrowerThread, heldMs);
+            }
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.error("Error closing SQLite database connection: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+        private final int id;
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private volatile long lastReturnedNanos = System.nanoTime();
+        private volatile long borrowedAtNanos;
+        private volatile String borrowerThread;
+        private volatile boolean leakReported;
+
+        private PooledConnection(int id, Connection physical) {
+            this.id = id;
+            this.physical = physical;
+            this.statementCache = new StatementCache(physical, config.getStatementCacheSize());
+        }
+
+        private Connection checkout() {
+            borrowedAtNanos = System.nanoTime();
+            borrowerThread = Thread.currentThread().getName();
+            leakReported = false;
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                       new Class<?>[] {Connection.class},
+                                                       new LogicalConnection(this));
+        }
+
+        /**
+         * Rolls back any transaction the borrower left open so the next borrower starts clean.
+         * @return true if the connection can be reused.
+         */
+        private boolean resetState() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                return true;
+            } catch (SQLException e) {
+                logger.warn("Discarding pooled connection {} after failed reset: {}", id, e.getMessage());
+                return false;
+            }
+        }
+
+        private void closePhysical() {
+            statementCache.close();
+            closeQuietly(physical);
+        }
+    }
+
+    /**
+     * Handle given to a single borrower. Once closed it can no longer reach the physical connection,
+     * even after the pool hands that connection to someone else.
+     */
+    private final class LogicalConnection implements InvocationHandler {
+        private final PooledConnection pooled;
+        private volatile boolean handleClosed;
+
+        private LogicalConnection(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!handleClosed) {
+                        handleClosed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return handleClosed || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.id + (handleClosed ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+
+            if (handleClosed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (StatementCache.isPrepareStatement(method)) {
+                return pooled.statementCache.prepare((String) args[0]);
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,367 @@
+package com.airline.ordering.repository.connection;
+
+import java.util.Objects;
+
+/**
+ * Configuration for the onboard SQLite database and its connection pool.
+ * Defaults can be overridden through system properties so that crew devices
+ * can relocate the database file without a rebuild.
+ */
+public class DatabaseConfig {
+
+    public static final String DEFAULT_DB_PATH = "inflight_ordering.db";
+
+    public static final String PROPERTY_DB_PATH = "inflight.db.path";
+    public static final String PROPERTY_POOL_SIZE = "inflight.db.pool.size";
+    public static final String PROPERTY_STORAGE_FORMAT = "inflight.db.storage.format";
+
+    private final String databasePath;
+    private final int maxPoolSize;
+    private final long connectionTimeoutMs;
+    private final long validationIntervalMs;
+    private final int validationTimeoutSeconds;
+    private final long leakDetectionThresholdMs;
+    private final int busyTimeoutMs;
+    private final boolean foreignKeysEnabled;
+    private final StorageMode storageMode;
+    private final StorageFormat storageFormat;
+    private final String synchronousMode;
+    private final int cacheSizeKib;
+    private final long mmapSizeBytes;
+    private final String tempStore;
+    private final int writeQueueCapacity;
+    private final int statementCacheSize;
+    private final String orderJournalPath;
+    private final long journalFlushIntervalMs;
+
+    private DatabaseConfig(Builder builder) {
+        this.databasePath = builder.databasePath;
+        this.maxPoolSize = builder.maxPoolSize;
+        this.connectionTimeoutMs = builder.connectionTimeoutMs;
+        this.validationIntervalMs = builder.validationIntervalMs;
+        this.validationTimeoutSeconds = builder.validationTimeoutSeconds;
+        this.leakDetectionThresholdMs = builder.leakDetectionThresholdMs;
+        this.busyTimeoutMs = builder.busyTimeoutMs;
+        this.foreignKeysEnabled = builder.foreignKeysEnabled;
+        this.storageMode = builder.storageMode;
+        this.storageFormat = builder.storageFormat;
+        this.synchronousMode = builder.synchronousMode;
+        this.cacheSizeKib = builder.cacheSizeKib;
+        this.mmapSizeBytes = builder.mmapSizeBytes;
+        this.tempStore = builder.tempStore;
+        this.writeQueueCapacity = builder.writeQueueCapacity;
+        this.statementCacheSize = builder.statementCacheSize;
+        this.orderJournalPath = builder.orderJournalPath;
+        this.journalFlushIntervalMs = builder.journalFlushIntervalMs;
+    }
+
+    // Getters
+    public String getDatabasePath() {
+        return databasePath;
+    }
+
+    public String getJdbcUrl() {
+        return "jdbc:sqlite:" + databasePath;
+    }
+
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public long getConnectionTimeoutMs() {
+        return connectionTimeoutMs;
+    }
+
+    public long getValidationIntervalMs() {
+        return validationIntervalMs;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    public long getLeakDetectionThresholdMs() {
+        return leakDetectionThresholdMs;
+    }
+
+    public int getBusyTimeoutMs() {
+        return busyTimeoutMs;
+    }
+
+    public boolean isForeignKeysEnabled() {
+        return foreignKeysEnabled;
+    }
+
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public StorageFormat getStorageFormat() {
+        return storageFormat;
+    }
+
+    public String getSynchronousMode() {
+        return synchronousMode;
+    }
+
+    public int getCacheSizeKib() {
+        return cacheSizeKib;
+    }
+
+    public long getMmapSizeBytes() {
+        return mmapSizeBytes;
+    }
+
+    public String getTempStore() {
+        return tempStore;
+    }
+
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /**
+     * Returns the path of the write-behind order journal; unless set explicitly it sits next to the database file.
+     */
+    public String getOrderJournalPath() {
+        return orderJournalPath != null ? orderJournalPath : databasePath + ".orders.journal";
+    }
+
+    public long getJournalFlushIntervalMs() {
+        return journalFlushIntervalMs;
+    }
+
+    public boolean isLeakDetectionEnabled() {
+        return leakDetectionThresholdMs > 0;
+    }
+
+    // Static factory methods
+    public static DatabaseConfig defaults() {
+        return new Builder().build();
+    }
+
+    /**
+     * Builds a configuration from the {@code inflight.db.*} system properties,
+     * falling back to the defaults for anything that is not set.
+     */
+    public static DatabaseConfig fromSystemProperties() {
+        Builder builder = new Builder();
+        String path = System.getProperty(PROPERTY_DB_PATH);
+        if (path != null && !path.trim().isEmpty()) {
+            builder.databasePath(path.trim());
+        }
+        String poolSize = System.getProperty(PROPERTY_POOL_SIZE);
+        if (poolSize != null) {
+            try {
+                builder.maxPoolSize(Integer.parseInt(poolSize.trim()));
+            } catch (NumberFormatException e) {
+                // Keep the default pool size
+            }
+        }
+        String storageFormat = System.getProperty(PROPERTY_STORAGE_FORMAT);
+        if (storageFormat != null) {
+            try {
+                builder.storageFormat(StorageFormat.valueOf(storageFormat.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                // Keep the default storage format
+            }
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return new Builder()
+                .databasePath(databasePath)
+                .maxPoolSize(maxPoolSize)
+                .connectionTimeoutMs(connectionTimeoutMs)
+                .validationIntervalMs(validationIntervalMs)
+                .validationTimeoutSeconds(validationTimeoutSeconds)
+                .leakDetectionThresholdMs(leakDetectionThresholdMs)
+                .busyTimeoutMs(busyTimeoutMs)
+                .foreignKeysEnabled(foreignKeysEnabled)
+                .storageMode(storageMode)
+                .storageFormat(storageFormat)
+                .synchronousMode(synchronousMode)
+                .cacheSizeKib(cacheSizeKib)
+                .mmapSizeBytes(mmapSizeBytes)
+                .tempStore(tempStore)
+                .writeQueueCapacity(writeQueueCapacity)
+                .statementCacheSize(statementCacheSize)
+                .orderJournalPath(orderJournalPath)
+                .journalFlushIntervalMs(journalFlushIntervalMs);
+    }
+
+    // Builder pattern
+    public static class Builder {
+        private String databasePath = DEFAULT_DB_PATH;
+        private int maxPoolSize = 4;
+        private long connectionTimeoutMs = 5_000;
+        private long validationIntervalMs = 30_000;
+        private int validationTimeoutSeconds = 2;
+        private long leakDetectionThresholdMs = 60_000;
+        private int busyTimeoutMs = 5_000;
+        private boolean foreignKeysEnabled = true;
+        private StorageMode storageMode = StorageMode.WAL;
+        private StorageFormat storageFormat = StorageFormat.TEXT;
+        private String synchronousMode = "NORMAL";
+        private int cacheSizeKib = 8_192;
+        private long mmapSizeBytes = 64L * 1024 * 1024;
+        private String tempStore = "MEMORY";
+        private int writeQueueCapacity = 1_024;
+        private int statementCacheSize = 64;
+        private String orderJournalPath;
+        private long journalFlushIntervalMs = 50;
+
+        public Builder databasePath(String databasePath) {
+            this.databasePath = Objects.requireNonNull(databasePath, "databasePath");
+            return this;
+        }
+
+        public Builder maxPoolSize(int maxPoolSize) {
+            if (maxPoolSize < 1) {
+                throw new IllegalArgumentException("maxPoolSize must be at least 1");
+            }
+            this.maxPoolSize = maxPoolSize;
+            return this;
+        }
+
+        public Builder connectionTimeoutMs(long connectionTimeoutMs) {
+            this.connectionTimeoutMs = connectionTimeoutMs;
+            return this;
+        }
+
+        public Builder validationIntervalMs(long validationIntervalMs) {
+            this.validationIntervalMs = validationIntervalMs;
+            return this;
+        }
+
+        public Builder validationTimeoutSeconds(int validationTimeoutSeconds) {
+            this.validationTimeoutSeconds = validationTimeoutSeconds;
+            return this;
+        }
+
+        public Builder leakDetectionThresholdMs(long leakDetectionThresholdMs) {
+            this.leakDetectionThresholdMs = leakDetectionThresholdMs;
+            return this;
+        }
+
+        public Builder busyTimeoutMs(int busyTimeoutMs) {
+            this.busyTimeoutMs = busyTimeoutMs;
+            return this;
+        }
+
+        public Builder foreignKeysEnabled(boolean foreignKeysEnabled) {
+            this.foreignKeysEnabled = foreignKeysEnabled;
+            return this;
+        }
+
+        public Builder storageMode(StorageMode storageMode) {
+            this.storageMode = Objects.requireNonNull(storageMode, "storageMode");
+            return this;
+        }
+
+        /**
+         * Sets the layout of the order tables, TEXT by default. The tables are converted at startup when
+         * they are in another layout.
+         */
+        public Builder storageFormat(StorageFormat storageFormat) {
+            this.storageFormat = Objects.requireNonNull(storageFormat, "storageFormat");
+            return this;
+        }
+
+        /**
+         * Sets PRAGMA synchronous (OFF, NORMAL, FULL or EXTRA). NORMAL is durable across
+         * application crashes in WAL mode; use FULL to also survive power loss on every commit.
+         */
+        public Builder synchronousMode(String synchronousMode) {
+            this.synchronousMode = Objects.requireNonNull(synchronousMode, "synchronousMode");
+            return this;
+        }
+
+        public Builder cacheSizeKib(int cacheSizeKib) {
+            this.cacheSizeKib = cacheSizeKib;
+            return this;
+        }
+
+        public Builder mmapSizeBytes(long mmapSizeBytes) {
+            this.mmapSizeBytes = mmapSizeBytes;
+            return this;
+        }
+
+        public Builder tempStore(String tempStore) {
+            this.tempStore = Objects.requireNonNull(tempStore, "tempStore");
+            return this;
+        }
+
+        public Builder writeQueueCapacity(int writeQueueCapacity) {
+            if (writeQueueCapacity < 1) {
+                throw new IllegalArgumentException("writeQueueCapacity must be at least 1");
+            }
+            this.writeQueueCapacity = writeQueueCapacity;
+            return this;
+        }
+
+        /**
+         * Sets the number of prepared statements cached per connection; 0 disables the cache.
+         */
+        public Builder statementCacheSize(int statementCacheSize) {
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("statementCacheSize must not be negative");
+            }
+            this.statementCacheSize = statementCacheSize;
+            return this;
+        }
+
+        /**
+         * Sets the order journal file; {@literal null} places it next to the database file.
+         */
+        public Builder orderJournalPath(String orderJournalPath) {
+            this.orderJournalPath = orderJournalPath;
+            return this;
+        }
+
+        /**
+         * Sets how often journaled order writes are flushed into the database tables.
+         */
+        public Builder journalFlushIntervalMs(long journalFlushIntervalMs) {
+            if (journalFlushIntervalMs < 1) {
+                throw new IllegalArgumentException("journalFlushIntervalMs must be at least 1");
+            }
+            this.journalFlushIntervalMs = journalFlushIntervalMs;
+            return this;
+        }
+
+        public DatabaseConfig build() {
+            return new DatabaseConfig(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DatabaseConfig{" +
+                "databasePath='" + databasePath + '\'' +
+                ", maxPoolSize=" + maxPoolSize +
+                ", connectionTimeoutMs=" + connectionTimeoutMs +
+                ", validationIntervalMs=" + validationIntervalMs +
+                ", leakDetectionThresholdMs=" + leakDetectionThresholdMs +
+                ", busyTimeoutMs=" + busyTimeoutMs +
+                ", foreignKeysEnabled=" + foreignKeysEnabled +
+                ", storageMode=" + storageMode +
+                ", storageFormat=" + storageFormat +
+                ", synchronousMode='" + synchronousMode + '\'' +
+                ", cacheSizeKib=" + cacheSizeKib +
+                ", mmapSizeBytes=" + mmapSizeBytes +
+                ", statementCacheSize=" + statementCacheSize +
+                ", orderJournalPath='" + getOrderJournalPath() + '\'' +
+                ", journalFlushIntervalMs=" + journalFlushIntervalMs +
+                '}';
+    }
+}
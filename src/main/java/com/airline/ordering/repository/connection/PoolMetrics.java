@@ -0,0 +1,114 @@
+package com.airline.ordering.repository.connection;
+
+/**
+ * Point-in-time snapshot of connection pool usage.
+ */
+public class PoolMetrics {
+
+    private final int maxPoolSize;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final int pendingRequests;
+    private final long totalBorrows;
+    private final long totalConnectionsCreated;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long borrowTimeouts;
+    private final long validationFailures;
+    private final long leaksDetected;
+
+    public PoolMetrics(int maxPoolSize, int activeConnections, int idleConnections, int pendingRequests,
+                       long totalBorrows, long totalConnectionsCreated, long totalWaitNanos, long maxWaitNanos,
+                       long borrowTimeouts, long validationFailures, long leaksDetected) {
+        this.maxPoolSize = maxPoolSize;
+        this.activeConnections = activeConnections;
+        this.idleConnections = idleConnections;
+        this.pendingRequests = pendingRequests;
+        this.totalBorrows = totalBorrows;
+        this.totalConnectionsCreated = totalConnectionsCreated;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.borrowTimeouts = borrowTimeouts;
+        this.validationFailures = validationFailures;
+        this.leaksDetected = leaksDetected;
+    }
+
+    // Getters
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    public int getActiveConnections() {
+        return activeConnections;
+    }
+
+    public int getIdleConnections() {
+        return idleConnections;
+    }
+
+    public int getTotalConnections() {
+        return activeConnections + idleConnections;
+    }
+
+    public int getPendingRequests() {
+        return pendingRequests;
+    }
+
+    public long getTotalBorrows() {
+        return totalBorrows;
+    }
+
+    public long getTotalConnectionsCreated() {
+        return totalConnectionsCreated;
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public long getBorrowTimeouts() {
+        return borrowTimeouts;
+    }
+
+    public long getValidationFailures() {
+        return validationFailures;
+    }
+
+    public long getLeaksDetected() {
+        return leaksDetected;
+    }
+
+    // Calculated properties
+    public double getAverageWaitMicros() {
+        return totalBorrows > 0 ? (double) totalWaitNanos / totalBorrows / 1_000.0 : 0;
+    }
+
+    public double getUtilization() {
+        return maxPoolSize > 0 ? (double) activeConnections / maxPoolSize * 100 : 0;
+    }
+
+    public static PoolMetrics empty(int maxPoolSize) {
+        return new PoolMetrics(maxPoolSize, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "active=" + activeConnections +
+                ", idle=" + idleConnections +
+                ", max=" + maxPoolSize +
+                ", pending=" + pendingRequests +
+                ", borrows=" + totalBorrows +
+                ", created=" + totalConnectionsCreated +
+                ", avgWaitMicros=" + String.format("%.1f", getAverageWaitMicros()) +
+                ", maxWaitMicros=" + maxWaitNanos / 1_000 +
+                ", timeouts=" + borrowTimeouts +
+                ", validationFailures=" + validationFailures +
+                ", leaks=" + leaksDetected +
+                '}';
+    }
+}
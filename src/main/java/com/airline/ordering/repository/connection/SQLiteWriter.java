@@ -0,0 +1,262 @@
+package com.airline.ordering.repository.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single dedicated writer for the onboard database.
+ * <p>
+ * SQLite allows only one writer at a time, so instead of letting request threads race for the write lock
+ * (and stall readers in rollback-journal mode) all writes are queued and executed in order on one thread
+ * that owns a single connection. Each submitted {@link SqlWork} runs in its own transaction, which is
+ * committed before the caller is released and rolled back if the work fails. Readers keep using pooled
+ * connections and, in WAL mode, are never blocked by the writer. The work receives a connection whose
+ * prepared statements are cached, so repeated writes skip recompiling their SQL.
+ */
+public class SQLiteWriter implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SQLiteWriter.class);
+
+    private static final WriteTask<Void> SHUTDOWN = new WriteTask<>(connection -> null);
+
+    private final DatabaseConfig config;
+    private final Connection connection;
+    private final StatementCache statementCache;
+    private final Connection workConnection;
+    private final BlockingQueue<WriteTask<?>> queue;
+    private final Thread writerThread;
+
+    private final AtomicLong completedWrites = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong totalExecutionNanos = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    /**
+     * Opens the writer connection, switches the database to the configured journal mode and
+     * starts the writer thread.
+     * @param config The database configuration.
+     * @throws SQLException if the writer connection cannot be opened.
+     */
+    public SQLiteWriter(DatabaseConfig config) throws SQLException {
+        this.config = config;
+        this.connection = ConnectionFactory.open(config);
+        try {
+            String journalMode = ConnectionFactory.applyJournalMode(connection, config.getStorageMode());
+            logger.info("SQLite writer started for {} in journal mode {}", config.getJdbcUrl(), journalMode);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        this.statementCache = new StatementCache(connection, config.getStatementCacheSize());
+        this.workConnection = statementCache.wrap(connection);
+        this.queue = new ArrayBlockingQueue<>(config.getWriteQueueCapacity());
+        this.writerThread = new Thread(this::run, "sqlite-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Executes the work on the writer thread in its own transaction and waits for it to commit.
+     * Calls made from within a running write join the current transaction instead of queueing,
+     * so write work may safely call other code that writes.
+     * @param work The work to execute.
+     * @return The result of the work.
+     * @throws SQLException if the work fails, the queue is full or the writer is closed.
+     */
+    public <T> T execute(SqlWork<T> work) throws SQLException {
+        if (Thread.currentThread() == writerThread) {
+            return work.execute(workConnection);
+        }
+
+        CompletableFuture<T> future = submit(work);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for database write", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Database write failed", cause);
+        }
+    }
+
+    /**
+     * Queues the work without waiting for it to run.
+     * @param work The work to execute.
+     * @return A future completed with the result once the transaction has committed,
+     *         or exceptionally if the work failed or could not be queued.
+     */
+    public <T> CompletableFuture<T> submit(SqlWork<T> work) {
+        WriteTask<T> task = new WriteTask<>(work);
+        if (!running) {
+            task.future.completeExceptionally(new SQLException("SQLite writer is closed"));
+            return task.future;
+        }
+
+        try {
+            if (!queue.offer(task, config.getConnectionTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                task.future.completeExceptionally(new SQLTimeoutException(
+                        "Write queue full (" + config.getWriteQueueCapacity() + " pending writes)"));
+                return task.future;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            task.future.completeExceptionally(new SQLException("Interrupted while queueing database write", e));
+            return task.future;
+        }
+
+        if (!running && queue.remove(task)) {
+            task.future.completeExceptionally(new SQLException("SQLite writer is closed"));
+        }
+        return task.future;
+    }
+
+    public boolean isWriterThread() {
+        return Thread.currentThread() == writerThread;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getCompletedWrites() {
+        return completedWrites.get();
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    public double getAverageQueueWaitMicros() {
+        long total = completedWrites.get() + failedWrites.get();
+        return total > 0 ? (double) totalQueueWaitNanos.get() / total / 1_000.0 : 0;
+    }
+
+    public double getAverageExecutionMicros() {
+        long total = completedWrites.get() + failedWrites.get();
+        return total > 0 ? (double) totalExecutionNanos.get() / total / 1_000.0 : 0;
+    }
+
+    /**
+     * Stops accepting writes, lets already queued writes finish and closes the writer connection.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            queue.put(SHUTDOWN);
+            writerThread.join(config.getConnectionTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<WriteTask<?>> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        for (WriteTask<?> task : abandoned) {
+            task.future.completeExceptionally(new SQLException("SQLite writer is closed"));
+        }
+
+        statementCache.close();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            logger.error("Error closing SQLite writer connection: {}", e.getMessage());
+        }
+        logger.info("SQLite writer stopped: {} writes committed, {} failed", completedWrites.get(), failedWrites.get());
+    }
+
+    private void run() {
+        while (true) {
+            WriteTask<?> task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            if (task == SHUTDOWN) {
+                return;
+            }
+            runTask(task);
+        }
+    }
+
+    private <T> void runTask(WriteTask<T> task) {
+        long start = System.nanoTime();
+        totalQueueWaitNanos.addAndGet(start - task.enqueuedNanos);
+        try {
+            connection.setAutoCommit(false);
+            T result = task.work.execute(workConnection);
+            connection.commit();
+            completedWrites.incrementAndGet();
+            task.future.complete(result);
+        } catch (Exception e) {
+            rollbackQuietly();
+            failedWrites.incrementAndGet();
+            task.future.completeExceptionally(e);
+        } finally {
+            if (!task.future.isDone()) {
+                rollbackQuietly();
+                failedWrites.incrementAndGet();
+                task.future.completeExceptionally(new SQLException("Database write aborted"));
+            }
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                logger.error("Error restoring auto-commit on SQLite writer connection: {}", e.getMessage());
+            }
+            totalExecutionNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private void rollbackQuietly() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.error("Error rolling back SQLite write: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A queued unit of write work and the future its caller waits on.
+     */
+    private static final class WriteTask<T> {
+        private final SqlWork<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long enqueuedNanos = System.nanoTime();
+
+        private WriteTask(SqlWork<T> work) {
+            this.work = work;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.airline.ordering.repository.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of database work executed against a connection supplied by the caller.
+ * @param <T> The type of the result
+ */
+@FunctionalInterface
+public interface SqlWork<T> {
+
+    /**
+     * Executes the work.
+     * @param connection The connection to use; must not be closed by the work.
+     * @return The result of the work, may be {@literal null}.
+     * @throws SQLException if a database access error occurs.
+     */
+    T execute(Connection connection) throws SQLException;
+}
@@ -0,0 +1,227 @@
+package com.airline.ordering.repository.connection;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-connection cache of prepared statements keyed by SQL text.
+ * <p>
+ * Compiling a statement is a large part of the cost of a short SQLite query, and the repositories issue the
+ * same handful of SQL strings over and over. Statements handed out by {@link #prepare(String)} are
+ * handles that return the underlying statement to the cache on {@code close()} instead of finalizing it, so
+ * existing try-with-resources code reuses compiled statements without changes. A statement is owned by at most
+ * one handle at a time; preparing SQL whose cached statement is still in use compiles a second one. The least
+ * recently used statements are closed once the cache is full.
+ * <p>
+ * A cache belongs to a single physical connection and, like the connection, must only be used by one thread
+ * at a time.
+ */
+public class StatementCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+
+    private final Connection physical;
+    private final int capacity;
+    private final LinkedHashMap<String, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private boolean closed;
+
+    /**
+     * Creates a cache for the given connection.
+     * @param physical The connection statements are prepared on.
+     * @param capacity The maximum number of idle statements kept; 0 disables caching.
+     */
+    public StatementCache(Connection physical, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        this.physical = physical;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns a prepared statement for the SQL, reusing a cached one when available.
+     * @param sql The SQL text; the cache key is the exact string.
+     * @return A statement handle; closing it returns the statement to the cache.
+     * @throws SQLException if the statement cannot be compiled.
+     */
+    public PreparedStatement prepare(String sql) throws SQLException {
+        if (capacity == 0) {
+            return physical.prepareStatement(sql);
+        }
+        PreparedStatement statement;
+        synchronized (idle) {
+            statement = closed ? null : idle.remove(sql);
+        }
+        if (statement != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            statement = physical.prepareStatement(sql);
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                                                          new Class<?>[] {PreparedStatement.class},
+                                                          new CachedStatement(sql, statement));
+    }
+
+    /**
+     * Wraps a connection so that {@code prepareStatement(String)} goes through this cache. All other calls,
+     * including {@code close()}, are forwarded unchanged.
+     * @param connection The connection to wrap; normally the one this cache was created for.
+     */
+    public Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                   new Class<?>[] {Connection.class},
+                                                   (proxy, method, args) -> {
+            if (isPrepareStatement(method)) {
+                return prepare((String) args[0]);
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    /**
+     * Returns whether the method is the plain {@code prepareStatement(String)} call served by the cache.
+     */
+    static boolean isPrepareStatement(Method method) {
+        return "prepareStatement".equals(method.getName()) && method.getParameterCount() == 1;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Closes all idle statements. Statements still in use are closed when their handle is closed.
+     */
+    @Override
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+            for (PreparedStatement statement : idle.values()) {
+                closeQuietly(statement);
+            }
+            idle.clear();
+        }
+    }
+
+    private void release(String sql, PreparedStatement statement, ResultSet lastResultSet) {
+        try {
+            if (lastResultSet != null && !lastResultSet.isClosed()) {
+                lastResultSet.close();
+            }
+            statement.clearBatch();
+            statement.clearParameters();
+        } catch (SQLException e) {
+            logger.debug("Discarding cached statement after failed reset: {}", e.getMessage());
+            closeQuietly(statement);
+            return;
+        }
+
+        PreparedStatement displaced;
+        synchronized (idle) {
+            if (closed) {
+                displaced = statement;
+            } else {
+                displaced = idle.put(sql, statement);
+                if (displaced == null && idle.size() > capacity) {
+                    Iterator<Map.Entry<String, PreparedStatement>> eldest = idle.entrySet().iterator();
+                    displaced = eldest.next().getValue();
+                    eldest.remove();
+                }
+            }
+        }
+        if (displaced != null) {
+            closeQuietly(displaced);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.error("Error closing cached statement: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Handle given to a single user of a cached statement.
+     */
+    private final class CachedStatement implements InvocationHandler {
+        private final String sql;
+        private final PreparedStatement statement;
+        private ResultSet lastResultSet;
+        private boolean handleClosed;
+
+        private CachedStatement(String sql, PreparedStatement statement) {
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!handleClosed) {
+                        handleClosed = true;
+                        release(sql, statement, lastResultSet);
+                    }
+                    return null;
+                case "isClosed":
+                    return handleClosed || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + sql + "]";
+                default:
+                    break;
+            }
+
+            if (handleClosed) {
+                throw new SQLException("Statement has already been closed");
+            }
+            Object result;
+            try {
+                result = method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                lastResultSet = (ResultSet) result;
+            }
+            return result;
+        }
+    }
+}
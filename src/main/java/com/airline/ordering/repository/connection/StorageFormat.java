@@ -0,0 +1,175 @@
+package com.airline.ordering.repository.connection;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Enumeration of the column layouts supported for the order tables, together with the
+ * codec that reads and writes identifiers, timestamps and amounts in that layout.
+ */
+public enum StorageFormat {
+
+    /**
+     * Original layout: UUIDs and timestamps as ISO text, amounts as REAL. The default.
+     */
+    TEXT("TEXT", "TEXT", "REAL") {
+        @Override
+        public void setUuid(PreparedStatement pstmt, int index, UUID value) throws SQLException {
+            pstmt.setString(index, value != null ? value.toString() : null);
+        }
+
+        @Override
+        public UUID getUuid(ResultSet rs, int column) throws SQLException {
+            String value = rs.getString(column);
+            return value != null && !value.isEmpty() ? UUID.fromString(value) : null;
+        }
+
+        @Override
+        public void setTimestamp(PreparedStatement pstmt, int index, LocalDateTime value) throws SQLException {
+            pstmt.setString(index, value != null ? value.toString() : null);
+        }
+
+        @Override
+        public LocalDateTime getTimestamp(ResultSet rs, int column) throws SQLException {
+            String value = rs.getString(column);
+            return value != null && !value.isEmpty() ? LocalDateTime.parse(value) : null;
+        }
+
+        @Override
+        public void setMoney(PreparedStatement pstmt, int index, BigDecimal value) throws SQLException {
+            pstmt.setDouble(index, value.doubleValue());
+        }
+
+        @Override
+        public BigDecimal getMoney(ResultSet rs, int column) throws SQLException {
+            return BigDecimal.valueOf(rs.getDouble(column));
+        }
+    },
+
+    /**
+     * Compact layout: UUIDs as 16-byte BLOBs, timestamps as epoch milliseconds and amounts as
+     * integer minor units (cents). Timestamps are stored as if they were UTC, so the stored value
+     * does not depend on the device time zone. Amounts with fractions of a cent cannot be stored
+     * and are rejected rather than rounded.
+     */
+    TYPED("BLOB", "INTEGER", "INTEGER") {
+        @Override
+        public void setUuid(PreparedStatement pstmt, int index, UUID value) throws SQLException {
+            if (value == null) {
+                pstmt.setNull(index, Types.BLOB);
+                return;
+            }
+            pstmt.setBytes(index, toBytes(value));
+        }
+
+        @Override
+        public UUID getUuid(ResultSet rs, int column) throws SQLException {
+            byte[] value = rs.getBytes(column);
+            return value != null ? fromBytes(value) : null;
+        }
+
+        @Override
+        public void setTimestamp(PreparedStatement pstmt, int index, LocalDateTime value) throws SQLException {
+            if (value == null) {
+                pstmt.setNull(index, Types.INTEGER);
+                return;
+            }
+            pstmt.setLong(index, value.toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+
+        @Override
+        public LocalDateTime getTimestamp(ResultSet rs, int column) throws SQLException {
+            long value = rs.getLong(column);
+            return rs.wasNull() ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(value), ZoneOffset.UTC);
+        }
+
+        @Override
+        public void setMoney(PreparedStatement pstmt, int index, BigDecimal value) throws SQLException {
+            try {
+                pstmt.setLong(index, value.setScale(MONEY_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+            } catch (ArithmeticException e) {
+                throw new SQLException("Amount " + value.toPlainString() + " cannot be stored in minor units", e);
+            }
+        }
+
+        @Override
+        public BigDecimal getMoney(ResultSet rs, int column) throws SQLException {
+            return BigDecimal.valueOf(rs.getLong(column), MONEY_SCALE);
+        }
+    };
+
+    /**
+     * Number of decimal places kept for amounts stored as minor units.
+     */
+    public static final int MONEY_SCALE = 2;
+
+    private final String uuidColumnType;
+    private final String timestampColumnType;
+    private final String moneyColumnType;
+
+    StorageFormat(String uuidColumnType, String timestampColumnType, String moneyColumnType) {
+        this.uuidColumnType = uuidColumnType;
+        this.timestampColumnType = timestampColumnType;
+        this.moneyColumnType = moneyColumnType;
+    }
+
+    public String getUuidColumnType() {
+        return uuidColumnType;
+    }
+
+    public String getTimestampColumnType() {
+        return timestampColumnType;
+    }
+
+    public String getMoneyColumnType() {
+        return moneyColumnType;
+    }
+
+    public abstract void setUuid(PreparedStatement pstmt, int index, UUID value) throws SQLException;
+
+    public abstract UUID getUuid(ResultSet rs, int column) throws SQLException;
+
+    public abstract void setTimestamp(PreparedStatement pstmt, int index, LocalDateTime value) throws SQLException;
+
+    public abstract LocalDateTime getTimestamp(ResultSet rs, int column) throws SQLException;
+
+    public abstract void setMoney(PreparedStatement pstmt, int index, BigDecimal value) throws SQLException;
+
+    public abstract BigDecimal getMoney(ResultSet rs, int column) throws SQLException;
+
+    public UUID getUuid(ResultSet rs, String column) throws SQLException {
+        return getUuid(rs, rs.findColumn(column));
+    }
+
+    public LocalDateTime getTimestamp(ResultSet rs, String column) throws SQLException {
+        return getTimestamp(rs, rs.findColumn(column));
+    }
+
+    public BigDecimal getMoney(ResultSet rs, String column) throws SQLException {
+        return getMoney(rs, rs.findColumn(column));
+    }
+
+    static byte[] toBytes(UUID value) {
+        return ByteBuffer.allocate(16)
+                .putLong(value.getMostSignificantBits())
+                .putLong(value.getLeastSignificantBits())
+                .array();
+    }
+
+    static UUID fromBytes(byte[] value) {
+        if (value.length != 16) {
+            throw new IllegalArgumentException("UUID must be 16 bytes, was " + value.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
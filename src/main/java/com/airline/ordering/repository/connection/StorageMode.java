@@ -0,0 +1,34 @@
+package com.airline.ordering.repository.connection;
+
+/**
+ * Enumeration of the journaling modes supported for the onboard database.
+ */
+public enum StorageMode {
+
+    /**
+     * Classic rollback journal. Writers block readers for the duration of a commit.
+     */
+    ROLLBACK_JOURNAL("DELETE"),
+
+    /**
+     * Write-ahead log. Readers never block the writer and the writer never blocks readers.
+     */
+    WAL("WAL");
+
+    private final String journalMode;
+
+    StorageMode(String journalMode) {
+        this.journalMode = journalMode;
+    }
+
+    /**
+     * Gets the value passed to {@code PRAGMA journal_mode}.
+     */
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    public boolean allowsConcurrentReads() {
+        return this == WAL;
+    }
+}
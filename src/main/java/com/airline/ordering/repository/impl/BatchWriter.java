@@ -0,0 +1,220 @@
+package com.airline.ordering.repository.impl;
+
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.SQLiteConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes many rows through a fixed set of reused, batched prepared statements inside the caller's transaction.
+ * <p>
+ * Rows are sent in chunks, each guarded by a savepoint. If a chunk fails, it is rolled back and replayed row by
+ * row under per-row savepoints, so a bad row is reported as a failure without discarding the rest of the batch.
+ * Statements run in the order they were registered, which lets a parent row be written before its children.
+ * A guard query, if registered, is checked for each row inside the transaction before the row is written; rows
+ * it turns down are reported as skipped.
+ */
+class BatchWriter<T, ID> implements AutoCloseable {
+    
+    static final int DEFAULT_CHUNK_SIZE = 500;
+    
+    /**
+     * Binds one entity to a statement and adds it to the statement's batch, possibly several times.
+     */
+    @FunctionalInterface
+    interface RowBinder<T> {
+        void addBatch(PreparedStatement pstmt, T entity) throws SQLException;
+    }
+    
+    /**
+     * Queries whether one entity is still to be written.
+     */
+    @FunctionalInterface
+    interface RowGuard<T> {
+        boolean test(PreparedStatement pstmt, T entity) throws SQLException;
+    }
+    
+    /**
+     * Registers the statements of a bulk write on a freshly opened writer.
+     */
+    @FunctionalInterface
+    interface Setup<T, ID> {
+        void configure(BatchWriter<T, ID> writer) throws SQLException;
+    }
+    
+    private final Connection connection;
+    private final Function<T, ID> idExtractor;
+    private final int chunkSize;
+    private final List<PreparedStatement> statements = new ArrayList<>();
+    private final List<RowBinder<T>> binders = new ArrayList<>();
+    private PreparedStatement guardStatement;
+    private RowGuard<T> guard;
+    
+    BatchWriter(Connection connection, Function<T, ID> idExtractor) {
+        this(connection, idExtractor, DEFAULT_CHUNK_SIZE);
+    }
+    
+    BatchWriter(Connection connection, Function<T, ID> idExtractor, int chunkSize) {
+        this.connection = connection;
+        this.idExtractor = idExtractor;
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * Writes all rows in a single transaction on the database writer thread.
+     * @param rows The rows to write.
+     * @param idExtractor Extracts the id reported for a failed row.
+     * @param setup Registers the statements each row is written through.
+     * @return The outcome, with per-row failures.
+     * @throws SQLException if the transaction as a whole fails; nothing is written in that case.
+     */
+    static <T, ID> BulkWriteResult<ID> writeAll(Collection<? extends T> rows, Function<T, ID> idExtractor,
+                                                Setup<T, ID> setup) throws SQLException {
+        long start = System.nanoTime();
+        BulkWriteResult.Builder<ID> result = BulkWriteResult.builder();
+        if (!rows.isEmpty()) {
+            SQLiteConnection.executeWrite(conn -> {
+                try (BatchWriter<T, ID> writer = new BatchWriter<>(conn, idExtractor)) {
+                    setup.configure(writer);
+                    writer.write(rows.iterator(), result);
+                }
+                return null;
+            });
+        }
+        return result.elapsedMs((System.nanoTime() - start) / 1_000_000).build();
+    }
+    
+    /**
+     * Prepares a statement that every row is written through.
+     */
+    BatchWriter<T, ID> statement(String sql, RowBinder<T> binder) throws SQLException {
+        statements.add(connection.prepareStatement(sql));
+        binders.add(binder);
+        return this;
+    }
+    
+    /**
+     * Prepares the query each row is checked against before it is written. Rows the guard turns down are
+     * skipped; as the check runs in the write transaction, no other write can slip in between.
+     */
+    BatchWriter<T, ID> guard(String sql, RowGuard<T> guard) throws SQLException {
+        if (guardStatement != null) {
+            throw new IllegalStateException("A guard is already registered");
+        }
+        this.guardStatement = connection.prepareStatement(sql);
+        this.guard = guard;
+        return this;
+    }
+    
+    /**
+     * Writes all rows, recording successes and per-row failures in the given result.
+     * @throws SQLException if the connection itself fails, e.g. a savepoint cannot be rolled back.
+     */
+    void write(Iterator<? extends T> rows, BulkWriteResult.Builder<ID> result) throws SQLException {
+        List<T> chunk = new ArrayList<>(chunkSize);
+        while (rows.hasNext()) {
+            T row = rows.next();
+            if (guard != null && !guard.test(guardStatement, row)) {
+                result.addSkipped(idOf(row));
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                writeChunk(chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, result);
+        }
+    }
+    
+    private void writeChunk(List<T> chunk, BulkWriteResult.Builder<ID> result) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            for (T entity : chunk) {
+                bind(entity);
+            }
+            executeBatches();
+            connection.releaseSavepoint(savepoint);
+            result.addSucceeded(chunk.size());
+        } catch (SQLException | RuntimeException e) {
+            discard(savepoint);
+            for (T entity : chunk) {
+                writeRow(entity, result);
+            }
+        }
+    }
+    
+    private void writeRow(T entity, BulkWriteResult.Builder<ID> result) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            bind(entity);
+            executeBatches();
+            connection.releaseSavepoint(savepoint);
+            result.addSucceeded(1);
+        } catch (SQLException | RuntimeException e) {
+            discard(savepoint);
+            result.addFailure(idOf(entity), e.getMessage());
+        }
+    }
+    
+    private void bind(T entity) throws SQLException {
+        for (int i = 0; i < statements.size(); i++) {
+            binders.get(i).addBatch(statements.get(i), entity);
+        }
+    }
+    
+    private void executeBatches() throws SQLException {
+        for (PreparedStatement pstmt : statements) {
+            pstmt.executeBatch();
+        }
+    }
+    
+    private void discard(Savepoint savepoint) throws SQLException {
+        for (PreparedStatement pstmt : statements) {
+            pstmt.clearBatch();
+        }
+        connection.rollback(savepoint);
+        connection.releaseSavepoint(savepoint);
+    }
+    
+    private ID idOf(T entity) {
+        try {
+            return entity != null ? idExtractor.apply(entity) : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+    
+    @Override
+    public void close() throws SQLException {
+        SQLException failure = null;
+        List<PreparedStatement> toClose = new ArrayList<>(statements);
+        if (guardStatement != null) {
+            toClose.add(guardStatement);
+        }
+        for (PreparedStatement pstmt : toClose) {
+            try {
+                pstmt.close();
+            } catch (SQLException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.airline.ordering.repository.impl;
+
+import com.airline.ordering.repository.ChangeLogRepository;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.connection.StorageFormat;
+import com.airline.ordering.sync.changelog.OrderDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class ChangeLogRepositoryImpl implements ChangeLogRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogRepositoryImpl.class);
+    
+    // The checkpoint of the CRS push; the table allows other consumers of the log later
+    private static final String CHECKPOINT_NAME = "crs";
+    
+    private static final String UPSERT_CHECKPOINT_SQL = "INSERT INTO change_log_checkpoint(name, sequence) VALUES(?,?)"
+                                                        + " ON CONFLICT(name) DO UPDATE SET sequence=excluded.sequence WHERE excluded.sequence > sequence";
+    
+    private static final String DELETE_ACKNOWLEDGED_SQL = "DELETE FROM order_change_log WHERE sequence <= ?";
+    
+    // Orders whose last logged change is acknowledged, so the CRS holds their current state
+    private static final String SELECT_CAUGHT_UP_ORDERS_SQL = "SELECT DISTINCT order_id FROM order_change_log WHERE sequence <= ?"
+                                                              + " AND order_id NOT IN (SELECT order_id FROM order_change_log WHERE sequence > ?)";
+    
+    private static final String MARK_SYNCED_SQL = "UPDATE orders SET synced_with_crs = 1, last_sync_attempt = ? WHERE order_id = ?";
+    
+    private final StorageFormat format;
+    
+    public ChangeLogRepositoryImpl() {
+        this(SQLiteConnection.getConfig().getStorageFormat());
+    }
+    
+    /**
+     * Creates a repository for a database whose order tables use the given column layout.
+     * @param format The storage format of the orders table, whose rows are marked synced on acknowledgement.
+     */
+    public ChangeLogRepositoryImpl(StorageFormat format) {
+        this.format = format;
+    }
+    
+    @Override
+    public List<OrderDelta> findAfter(long sequence, int limit) {
+        String sql = "SELECT * FROM order_change_log WHERE sequence > ? ORDER BY sequence LIMIT ?";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, sequence);
+            pstmt.setInt(2, limit);
+            ResultSet rs = pstmt.executeQuery();
+            return RowMapper.mapAll(rs, OrderDeltaRowMapper::new);
+        } catch (SQLException e) {
+            logger.error("Error finding order changes after sequence {}: {}", sequence, e.getMessage());
+            throw new RuntimeException("Error finding order changes", e);
+        }
+    }
+    
+    @Override
+    public List<OrderDelta> findPending(UUID orderId) {
+        String sql = "SELECT * FROM order_change_log WHERE order_id = ? AND sequence > "
+                     + "COALESCE((SELECT sequence FROM change_log_checkpoint WHERE name = ?), 0) ORDER BY sequence";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, orderId.toString());
+            pstmt.setString(2, CHECKPOINT_NAME);
+            ResultSet rs = pstmt.executeQuery();
+            return RowMapper.mapAll(rs, OrderDeltaRowMapper::new);
+        } catch (SQLException e) {
+            logger.error("Error finding pending changes of order {}: {}", orderId, e.getMessage());
+            throw new RuntimeException("Error finding pending order changes", e);
+        }
+    }
+    
+    @Override
+    public long getAcknowledgedSequence() {
+        String sql = "SELECT sequence FROM change_log_checkpoint WHERE name = ?";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, CHECKPOINT_NAME);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.error("Error reading change log checkpoint: {}", e.getMessage());
+            throw new RuntimeException("Error reading change log checkpoint", e);
+        }
+    }
+    
+    @Override
+    public void acknowledge(long sequence) {
+        try {
+            // Advancing the checkpoint, marking the orders it brings up to date and dropping the entries it covers
+            // happen in one transaction
+            int dropped = SQLiteConnection.executeWrite(conn -> {
+                markSynced(conn, findCaughtUpOrders(conn, sequence));
+                try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_CHECKPOINT_SQL)) {
+                    pstmt.setString(1, CHECKPOINT_NAME);
+                    pstmt.setLong(2, sequence);
+                    pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(DELETE_ACKNOWLEDGED_SQL)) {
+                    pstmt.setLong(1, sequence);
+                    return pstmt.executeUpdate();
+                }
+            });
+            logger.debug("Order changes acknowledged up to sequence {} ({} dropped)", sequence, dropped);
+        } catch (SQLException e) {
+            logger.error("Error acknowledging order changes up to sequence {}: {}", sequence, e.getMessage());
+            throw new RuntimeException("Error acknowledging order changes", e);
+        }
+    }
+    
+    private static List<String> findCaughtUpOrders(Connection conn, long sequence) throws SQLException {
+        List<String> orderIds = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(SELECT_CAUGHT_UP_ORDERS_SQL)) {
+            pstmt.setLong(1, sequence);
+            pstmt.setLong(2, sequence);
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                orderIds.add(rs.getString(1));
+            }
+        }
+        return orderIds;
+    }
+    
+    /**
+     * Marks the orders as synced with the CRS directly, so the update is not itself logged as a change.
+     */
+    private void markSynced(Connection conn, List<String> orderIds) throws SQLException {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        try (PreparedStatement pstmt = conn.prepareStatement(MARK_SYNCED_SQL)) {
+            for (String orderId : orderIds) {
+                format.setTimestamp(pstmt, 1, now);
+                format.setUuid(pstmt, 2, UUID.fromString(orderId));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+    
+    @Override
+    public long countPending() {
+        String sql = "SELECT COUNT(*) FROM order_change_log WHERE sequence > "
+                     + "COALESCE((SELECT sequence FROM change_log_checkpoint WHERE name = ?), 0)";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, CHECKPOINT_NAME);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.error("Error counting pending order changes: {}", e.getMessage());
+            throw new RuntimeException("Error counting pending order changes", e);
+        }
+    }
+    
+    private static final class OrderDeltaRowMapper implements RowMapper<OrderDelta> {
+        private final int sequence;
+        private final int orderId;
+        private final int syncVersion;
+        private final int delta;
+        private final int recordedAt;
+        
+        OrderDeltaRowMapper(ResultSet rs) throws SQLException {
+            sequence = rs.findColumn("sequence");
+            orderId = rs.findColumn("order_id");
+            syncVersion = rs.findColumn("sync_version");
+            delta = rs.findColumn("delta");
+            recordedAt = rs.findColumn("recorded_at");
+        }
+        
+        @Override
+        public OrderDelta map(ResultSet rs) throws SQLException {
+            return new OrderDelta(rs.getLong(sequence), UUID.fromString(rs.getString(orderId)), rs.getInt(syncVersion),
+                    rs.getString(delta), LocalDateTime.parse(rs.getString(recordedAt)));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.airline.ordering.repository.impl;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderChanges;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.repository.connection.StorageFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Appends order changes to the order change log, through statements that run in the transaction of the write
+ * they describe, so the log cannot miss a change or record one that was rolled back.
+ */
+class ChangeLogWriter {
+    
+    static final String INSERT_ENTRY_SQL = "INSERT INTO order_change_log(order_id, sync_version, delta, recorded_at) VALUES(?,?,?,?)";
+    
+    // Reads the sync version of the order about to be deleted; inserts nothing if there is no such order
+    static final String INSERT_DELETION_SQL = "INSERT INTO order_change_log(order_id, sync_version, delta, recorded_at)"
+                                              + " SELECT ?, sync_version, ?, ? FROM orders WHERE order_id = ?";
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private static final String DELETION_DELTA = "{\"op\":\"DELETE\"}";
+    
+    private ChangeLogWriter() {
+    }
+    
+    /**
+     * Binds a log entry for the changes of a save and adds it to the statement's batch, unless nothing but the
+     * order's sync state changed.
+     */
+    static void addEntryBatch(PreparedStatement pstmt, Order order, OrderChanges changes, LocalDateTime now) throws SQLException {
+        if (!changes.hasSyncableChanges()) {
+            return;
+        }
+        pstmt.setString(1, order.getOrderId().toString());
+        pstmt.setInt(2, order.getSyncVersion());
+        pstmt.setString(3, toDelta(order, changes));
+        pstmt.setString(4, now.toString());
+        pstmt.addBatch();
+    }
+    
+    /**
+     * Binds a log entry for deleting an order to {@link #INSERT_DELETION_SQL} and adds it to the statement's batch.
+     */
+    static void addDeletionBatch(PreparedStatement pstmt, StorageFormat format, UUID orderId, LocalDateTime now) throws SQLException {
+        pstmt.setString(1, orderId.toString());
+        pstmt.setString(2, DELETION_DELTA);
+        pstmt.setString(3, now.toString());
+        format.setUuid(pstmt, 4, orderId);
+        pstmt.addBatch();
+    }
+    
+    static String toDelta(Order order, OrderChanges changes) {
+        ObjectNode delta = OBJECT_MAPPER.createObjectNode();
+        delta.put("op", changes.isNewOrder() ? "CREATE" : "UPDATE");
+        ObjectNode fields = delta.putObject("fields");
+        for (String field : changes.getChangedFields()) {
+            if (!OrderChanges.SYNC_STATE_FIELDS.contains(field)) {
+                putField(fields, order, field);
+            }
+        }
+        if (changes.isTotalChanged()) {
+            delta.put("totalAmount", toText(order.getTotalAmount()));
+        }
+        if (!changes.getUpsertedItems().isEmpty()) {
+            ArrayNode items = delta.putArray("upsertedItems");
+            for (OrderItem item : changes.getUpsertedItems()) {
+                ObjectNode node = items.addObject();
+                node.put("orderItemId", toText(item.getOrderItemId()));
+                node.put("menuItemId", toText(item.getMenuItemId()));
+                node.put("menuItemName", item.getMenuItemName());
+                node.put("quantity", item.getQuantity());
+                node.put("unitPrice", toText(item.getUnitPrice()));
+                node.put("totalPrice", toText(item.getTotalPrice()));
+                node.put("specialInstructions", item.getSpecialInstructions());
+                node.put("substitutedFromItemId", toText(item.getSubstitutedFromItemId()));
+                node.put("status", toText(item.getStatus()));
+            }
+        }
+        if (!changes.getRemovedItemIds().isEmpty()) {
+            ArrayNode removed = delta.putArray("removedItemIds");
+            for (UUID orderItemId : changes.getRemovedItemIds()) {
+                removed.add(orderItemId.toString());
+            }
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Error serializing change of order " + order.getOrderId(), e);
+        }
+    }
+    
+    private static void putField(ObjectNode fields, Order order, String field) {
+        switch (field) {
+            case "passengerId":
+                fields.put(field, toText(order.getPassengerId()));
+                break;
+            case "seatNumber":
+                fields.put(field, order.getSeatNumber());
+                break;
+            case "status":
+                fields.put(field, toText(order.getStatus()));
+                break;
+            case "notes":
+                fields.put(field, order.getNotes());
+                break;
+            case "requestedDeliveryTime":
+                fields.put(field, toText(order.getRequestedDeliveryTime()));
+                break;
+            case "createdAt":
+                fields.put(field, toText(order.getCreatedAt()));
+                break;
+            case "confirmedAt":
+                fields.put(field, toText(order.getConfirmedAt()));
+                break;
+            case "deliveredAt":
+                fields.put(field, toText(order.getDeliveredAt()));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown order field: " + field);
+        }
+    }
+    
+    private static String toText(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        return value instanceof Enum ? ((Enum<?>) value).name() : value.toString();
+    }
+}
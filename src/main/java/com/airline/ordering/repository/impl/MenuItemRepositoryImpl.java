@@ -4,14 +4,18 @@ import com.airline.ordering.domain.ItemStatus;
 import com.airline.ordering.domain.MenuCategory;
 import com.airline.ordering.domain.MenuItem;
 import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.BulkWriteResult;
 import com.airline.ordering.repository.MenuItemRepository;
 import com.airline.ordering.repository.SQLiteConnection;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -20,65 +24,118 @@ import java.util.stream.Collectors;
 public class MenuItemRepositoryImpl implements MenuItemRepository {
     
     private static final Logger logger = LoggerFactory.getLogger(MenuItemRepositoryImpl.class);
-    private final ObjectMapper objectMapper;
     
-    public MenuItemRepositoryImpl() {
-        objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-    }
+    private static final String UPSERT_SQL = "INSERT INTO menu_items(item_id, name, description, price, category, available_for_types, allergens, dietary_tags, status, inventory_count, substitutable_items, combo_items, created_at, updated_at) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?)"
+                                             + " ON CONFLICT(item_id) DO UPDATE SET name=?, description=?, price=?, category=?, available_for_types=?, allergens=?, dietary_tags=?, status=?, inventory_count=?, substitutable_items=?, combo_items=?, updated_at=?";
+    
+    private static final String UPDATE_INVENTORY_SQL = "UPDATE menu_items SET inventory_count = ?, updated_at = ? WHERE item_id = ?";
+    
+    private static final String DELETE_SQL = "DELETE FROM menu_items WHERE item_id = ?";
+    
+    // ObjectMapper and ObjectReader are thread-safe once configured, so every instance shares them
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+    private static final ObjectReader STRING_SET_READER = OBJECT_MAPPER.readerFor(new TypeReference<Set<String>>() { });
+    private static final ObjectReader UUID_SET_READER = OBJECT_MAPPER.readerFor(new TypeReference<Set<UUID>>() { });
     
     @Override
     public MenuItem save(MenuItem menuItem) {
-        String sql = "INSERT INTO menu_items(item_id, name, description, price, category, available_for_types, allergens, dietary_tags, status, inventory_count, substitutable_items, combo_items, created_at, updated_at) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?)"
-                     + " ON CONFLICT(item_id) DO UPDATE SET name=?, description=?, price=?, category=?, available_for_types=?, allergens=?, dietary_tags=?, status=?, inventory_count=?, substitutable_items=?, combo_items=?, updated_at=?";
-        
-        try (Connection conn = SQLiteConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            String availableForTypesJson = objectMapper.writeValueAsString(menuItem.getAvailableForTypes().stream().map(Enum::name).collect(Collectors.toSet()));
-            String allergensJson = objectMapper.writeValueAsString(menuItem.getAllergens());
-            String dietaryTagsJson = objectMapper.writeValueAsString(menuItem.getDietaryTags());
-            String substitutableItemsJson = objectMapper.writeValueAsString(menuItem.getSubstitutableItems());
-            String comboItemsJson = objectMapper.writeValueAsString(menuItem.getComboItems());
-            
-            pstmt.setString(1, menuItem.getItemId().toString());
-            pstmt.setString(2, menuItem.getName());
-            pstmt.setString(3, menuItem.getDescription());
-            pstmt.setDouble(4, menuItem.getPrice().doubleValue());
-            pstmt.setString(5, menuItem.getCategory().name());
-            pstmt.setString(6, availableForTypesJson);
-            pstmt.setString(7, allergensJson);
-            pstmt.setString(8, dietaryTagsJson);
-            pstmt.setString(9, menuItem.getStatus().name());
-            pstmt.setInt(10, menuItem.getInventoryCount());
-            pstmt.setString(11, substitutableItemsJson);
-            pstmt.setString(12, comboItemsJson);
-            pstmt.setString(13, menuItem.getCreatedAt().toString());
-            pstmt.setString(14, LocalDateTime.now().toString());
-            
-            // For ON CONFLICT UPDATE part
-            pstmt.setString(15, menuItem.getName());
-            pstmt.setString(16, menuItem.getDescription());
-            pstmt.setDouble(17, menuItem.getPrice().doubleValue());
-            pstmt.setString(18, menuItem.getCategory().name());
-            pstmt.setString(19, availableForTypesJson);
-            pstmt.setString(20, allergensJson);
-            pstmt.setString(21, dietaryTagsJson);
-            pstmt.setString(22, menuItem.getStatus().name());
-            pstmt.setInt(23, menuItem.getInventoryCount());
-            pstmt.setString(24, substitutableItemsJson);
-            pstmt.setString(25, comboItemsJson);
-            pstmt.setString(26, LocalDateTime.now().toString());
-            
-            pstmt.executeUpdate();
+        try {
+            SQLiteConnection.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+                    bindUpsert(pstmt, menuItem, LocalDateTime.now().toString());
+                    return pstmt.executeUpdate();
+                }
+            });
             logger.info("MenuItem saved: {}", menuItem.getItemId());
             return menuItem;
-        } catch (SQLException | JsonProcessingException e) {
+        } catch (SQLException e) {
             logger.error("Error saving MenuItem {}: {}", menuItem.getItemId(), e.getMessage());
             throw new RuntimeException("Error saving MenuItem", e);
         }
     }
     
+    @Override
+    public BulkWriteResult<UUID> saveAll(Collection<MenuItem> menuItems) {
+        String now = LocalDateTime.now().toString();
+        try {
+            BulkWriteResult<UUID> result = BatchWriter.writeAll(menuItems, MenuItem::getItemId,
+                    writer -> writer.statement(UPSERT_SQL, (pstmt, menuItem) -> {
+                        bindUpsert(pstmt, menuItem, now);
+                        pstmt.addBatch();
+                    }));
+            logger.info("MenuItems saved: {}", result);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error saving {} MenuItems: {}", menuItems.size(), e.getMessage());
+            throw new RuntimeException("Error saving MenuItems", e);
+        }
+    }
+    
+    @Override
+    public BulkWriteResult<UUID> updateInventoryCounts(Map<UUID, Integer> inventoryCounts) {
+        String now = LocalDateTime.now().toString();
+        try {
+            BulkWriteResult<UUID> result = BatchWriter.writeAll(inventoryCounts.entrySet(), Map.Entry::getKey,
+                    writer -> writer.statement(UPDATE_INVENTORY_SQL, (pstmt, entry) -> {
+                        pstmt.setInt(1, entry.getValue());
+                        pstmt.setString(2, now);
+                        pstmt.setString(3, entry.getKey().toString());
+                        pstmt.addBatch();
+                    }));
+            logger.debug("MenuItem inventory counts updated: {}", result);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error updating inventory of {} MenuItems: {}", inventoryCounts.size(), e.getMessage());
+            throw new RuntimeException("Error updating MenuItem inventory", e);
+        }
+    }
+    
+    private void bindUpsert(PreparedStatement pstmt, MenuItem menuItem, String now) throws SQLException {
+        String availableForTypesJson;
+        String allergensJson;
+        String dietaryTagsJson;
+        String substitutableItemsJson;
+        String comboItemsJson;
+        try {
+            availableForTypesJson = OBJECT_MAPPER.writeValueAsString(menuItem.getAvailableForTypes().stream().map(Enum::name).collect(Collectors.toSet()));
+            allergensJson = OBJECT_MAPPER.writeValueAsString(menuItem.getAllergens());
+            dietaryTagsJson = OBJECT_MAPPER.writeValueAsString(menuItem.getDietaryTags());
+            substitutableItemsJson = OBJECT_MAPPER.writeValueAsString(menuItem.getSubstitutableItems());
+            comboItemsJson = OBJECT_MAPPER.writeValueAsString(menuItem.getComboItems());
+        } catch (JsonProcessingException e) {
+            throw new SQLException("Error serializing MenuItem " + menuItem.getItemId(), e);
+        }
+        
+        pstmt.setString(1, menuItem.getItemId().toString());
+        pstmt.setString(2, menuItem.getName());
+        pstmt.setString(3, menuItem.getDescription());
+        pstmt.setDouble(4, menuItem.getPrice().doubleValue());
+        pstmt.setString(5, menuItem.getCategory().name());
+        pstmt.setString(6, availableForTypesJson);
+        pstmt.setString(7, allergensJson);
+        pstmt.setString(8, dietaryTagsJson);
+        pstmt.setString(9, menuItem.getStatus().name());
+        pstmt.setInt(10, menuItem.getInventoryCount());
+        pstmt.setString(11, substitutableItemsJson);
+        pstmt.setString(12, comboItemsJson);
+        pstmt.setString(13, menuItem.getCreatedAt().toString());
+        pstmt.setString(14, now);
+        
+        // For ON CONFLICT UPDATE part
+        pstmt.setString(15, menuItem.getName());
+        pstmt.setString(16, menuItem.getDescription());
+        pstmt.setDouble(17, menuItem.getPrice().doubleValue());
+        pstmt.setString(18, menuItem.getCategory().name());
+        pstmt.setString(19, availableForTypesJson);
+        pstmt.setString(20, allergensJson);
+        pstmt.setString(21, dietaryTagsJson);
+        pstmt.setString(22, menuItem.getStatus().name());
+        pstmt.setInt(23, menuItem.getInventoryCount());
+        pstmt.setString(24, substitutableItemsJson);
+        pstmt.setString(25, comboItemsJson);
+        pstmt.setString(26, now);
+    }
+    
     @Override
     public Optional<MenuItem> findById(UUID id) {
         String sql = "SELECT * FROM menu_items WHERE item_id = ?";
@@ -86,40 +143,35 @@ public class MenuItemRepositoryImpl implements MenuItemRepository {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, id.toString());
             ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRowToMenuItem(rs));
-            }
+            return RowMapper.mapFirst(rs, MenuItemRowMapper::new);
         } catch (SQLException e) {
             logger.error("Error finding MenuItem by ID {}: {}", id, e.getMessage());
             throw new RuntimeException("Error finding MenuItem by ID", e);
         }
-        return Optional.empty();
     }
     
     @Override
     public List<MenuItem> findAll() {
-        List<MenuItem> menuItems = new ArrayList<>();
         String sql = "SELECT * FROM menu_items";
         try (Connection conn = SQLiteConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                menuItems.add(mapRowToMenuItem(rs));
-            }
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return RowMapper.mapAll(rs, MenuItemRowMapper::new);
         } catch (SQLException e) {
             logger.error("Error finding all MenuItems: {}", e.getMessage());
             throw new RuntimeException("Error finding all MenuItems", e);
         }
-        return menuItems;
     }
     
     @Override
     public void deleteById(UUID id) {
-        String sql = "DELETE FROM menu_items WHERE item_id = ?";
-        try (Connection conn = SQLiteConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, id.toString());
-            pstmt.executeUpdate();
+        try {
+            SQLiteConnection.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+                    pstmt.setString(1, id.toString());
+                    return pstmt.executeUpdate();
+                }
+            });
             logger.info("MenuItem deleted: {}", id);
         } catch (SQLException e) {
             logger.error("Error deleting MenuItem by ID {}: {}", id, e.getMessage());
@@ -127,6 +179,22 @@ public class MenuItemRepositoryImpl implements MenuItemRepository {
         }
     }
     
+    @Override
+    public BulkWriteResult<UUID> deleteAllById(Collection<UUID> ids) {
+        try {
+            BulkWriteResult<UUID> result = BatchWriter.writeAll(ids, id -> id,
+                    writer -> writer.statement(DELETE_SQL, (pstmt, id) -> {
+                        pstmt.setString(1, id.toString());
+                        pstmt.addBatch();
+                    }));
+            logger.info("MenuItems deleted: {}", result);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error deleting {} MenuItems: {}", ids.size(), e.getMessage());
+            throw new RuntimeException("Error deleting MenuItems", e);
+        }
+    }
+    
     @Override
     public void delete(MenuItem entity) {
         deleteById(entity.getItemId());
@@ -136,8 +204,8 @@ public class MenuItemRepositoryImpl implements MenuItemRepository {
     public long count() {
         String sql = "SELECT COUNT(*) FROM menu_items";
         try (Connection conn = SQLiteConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             if (rs.next()) {
                 return rs.getLong(1);
             }
@@ -150,98 +218,156 @@ public class MenuItemRepositoryImpl implements MenuItemRepository {
     
     @Override
     public List<MenuItem> findByCategory(MenuCategory category) {
-        List<MenuItem> menuItems = new ArrayList<>();
         String sql = "SELECT * FROM menu_items WHERE category = ?";
         try (Connection conn = SQLiteConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, category.name());
             ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                menuItems.add(mapRowToMenuItem(rs));
-            }
+            return RowMapper.mapAll(rs, MenuItemRowMapper::new);
         } catch (SQLException e) {
             logger.error("Error finding MenuItems by category {}: {}", category, e.getMessage());
             throw new RuntimeException("Error finding MenuItems by category", e);
         }
-        return menuItems;
     }
     
     @Override
     public List<MenuItem> findByStatus(ItemStatus status) {
-        List<MenuItem> menuItems = new ArrayList<>();
         String sql = "SELECT * FROM menu_items WHERE status = ?";
         try (Connection conn = SQLiteConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, status.name());
             ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                menuItems.add(mapRowToMenuItem(rs));
-            }
+            return RowMapper.mapAll(rs, MenuItemRowMapper::new);
         } catch (SQLException e) {
             logger.error("Error finding MenuItems by status {}: {}", status, e.getMessage());
             throw new RuntimeException("Error finding MenuItems by status", e);
         }
-        return menuItems;
     }
     
+    @Override
+    public List<MenuItem> findByPassengerType(PassengerType passengerType) {
+        // available_for_types holds a JSON array of quoted enum names, so match the quoted name exactly
+        String sql = "SELECT * FROM menu_items WHERE available_for_types LIKE ?";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, "%\"" + passengerType.name() + "\"%");
+            ResultSet rs = pstmt.executeQuery();
+            return RowMapper.mapAll(rs, MenuItemRowMapper::new);
+        } catch (SQLException e) {
+            logger.error("Error finding MenuItems by passenger type {}: {}", passengerType, e.getMessage());
+            throw new RuntimeException("Error finding MenuItems by passenger type", e);
+        }
+    }
+    
+    /**
+     * Searches the full-text index over name, description, dietary tags and allergens.
+     * Every word of the search term must match the start of a word in the item (prefix matching),
+     * and results are ranked by relevance with name matches weighted highest.
+     * A blank search term returns all menu items.
+     */
     @Override
     public List<MenuItem> searchByNameOrDescription(String searchTerm) {
-        List<MenuItem> menuItems = new ArrayList<>();
-        String sql = "SELECT * FROM menu_items WHERE LOWER(name) LIKE LOWER(?) OR LOWER(description) LIKE LOWER(?)";
+        String matchQuery = toMatchQuery(searchTerm);
+        if (matchQuery.isEmpty()) {
+            return findAll();
+        }
+        
+        String sql = "SELECT m.* FROM menu_items_fts f JOIN menu_items m ON m.item_id = f.item_id"
+                     + " WHERE menu_items_fts MATCH ? ORDER BY bm25(menu_items_fts, 0.0, 10.0, 4.0, 2.0, 1.0)";
         try (Connection conn = SQLiteConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, "%" + searchTerm + "%");
-            pstmt.setString(2, "%" + searchTerm + "%");
+            pstmt.setString(1, matchQuery);
             ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                menuItems.add(mapRowToMenuItem(rs));
-            }
+            return RowMapper.mapAll(rs, MenuItemRowMapper::new);
         } catch (SQLException e) {
             logger.error("Error searching MenuItems by name or description {}: {}", searchTerm, e.getMessage());
             throw new RuntimeException("Error searching MenuItems", e);
         }
-        return menuItems;
     }
     
-    private MenuItem mapRowToMenuItem(ResultSet rs) throws SQLException {
-        MenuItem menuItem = new MenuItem();
-        menuItem.setItemId(UUID.fromString(rs.getString("item_id")));
-        menuItem.setName(rs.getString("name"));
-        menuItem.setDescription(rs.getString("description"));
-        menuItem.setPrice(rs.getBigDecimal("price"));
-        menuItem.setCategory(MenuCategory.valueOf(rs.getString("category")));
-        menuItem.setStatus(ItemStatus.valueOf(rs.getString("status")));
-        menuItem.setInventoryCount(rs.getInt("inventory_count"));
-        menuItem.setCreatedAt(LocalDateTime.parse(rs.getString("created_at")));
-        menuItem.setUpdatedAt(LocalDateTime.parse(rs.getString("updated_at")));
+    /**
+     * Turns free text typed by a passenger into an FTS5 query of quoted prefix terms, so that
+     * FTS5 operators and punctuation in the input are never interpreted as query syntax.
+     */
+    static String toMatchQuery(String searchTerm) {
+        if (searchTerm == null) {
+            return "";
+        }
+        StringBuilder query = new StringBuilder();
+        for (String token : searchTerm.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append('"').append(token).append("\"*");
+        }
+        return query.toString();
+    }
+    
+    /**
+     * Maps menu item rows using column positions resolved once per result set.
+     */
+    private static final class MenuItemRowMapper implements RowMapper<MenuItem> {
+        private final int itemId;
+        private final int name;
+        private final int description;
+        private final int price;
+        private final int category;
+        private final int status;
+        private final int inventoryCount;
+        private final int createdAt;
+        private final int updatedAt;
+        private final int availableForTypes;
+        private final int allergens;
+        private final int dietaryTags;
+        private final int substitutableItems;
+        private final int comboItems;
         
-        try {
-            Set<String> availableForTypesStrings = objectMapper.readValue(rs.getString("available_for_types"),
-                                                                         objectMapper.getTypeFactory().constructCollectionType(Set.class, String.class));
-            menuItem.setAvailableForTypes(availableForTypesStrings.stream().map(PassengerType::valueOf).collect(Collectors.toSet()));
-            
-            Set<String> allergens = objectMapper.readValue(rs.getString("allergens"),
-                                                           objectMapper.getTypeFactory().constructCollectionType(Set.class, String.class));
-            menuItem.setAllergens(allergens);
-            
-            Set<String> dietaryTags = objectMapper.readValue(rs.getString("dietary_tags"),
-                                                             objectMapper.getTypeFactory().constructCollectionType(Set.class, String.class));
-            menuItem.setDietaryTags(dietaryTags);
-            
-            Set<UUID> substitutableItems = objectMapper.readValue(rs.getString("substitutable_items"),
-                                                                  objectMapper.getTypeFactory().constructCollectionType(Set.class, UUID.class));
-            menuItem.setSubstitutableItems(substitutableItems);
+        MenuItemRowMapper(ResultSet rs) throws SQLException {
+            itemId = rs.findColumn("item_id");
+            name = rs.findColumn("name");
+            description = rs.findColumn("description");
+            price = rs.findColumn("price");
+            category = rs.findColumn("category");
+            status = rs.findColumn("status");
+            inventoryCount = rs.findColumn("inventory_count");
+            createdAt = rs.findColumn("created_at");
+            updatedAt = rs.findColumn("updated_at");
+            availableForTypes = rs.findColumn("available_for_types");
+            allergens = rs.findColumn("allergens");
+            dietaryTags = rs.findColumn("dietary_tags");
+            substitutableItems = rs.findColumn("substitutable_items");
+            comboItems = rs.findColumn("combo_items");
+        }
+        
+        @Override
+        public MenuItem map(ResultSet rs) throws SQLException {
+            MenuItem menuItem = new MenuItem();
+            menuItem.setItemId(UUID.fromString(rs.getString(itemId)));
+            menuItem.setName(rs.getString(name));
+            menuItem.setDescription(rs.getString(description));
+            menuItem.setPrice(rs.getBigDecimal(price));
+            menuItem.setCategory(MenuCategory.valueOf(rs.getString(category)));
+            menuItem.setStatus(ItemStatus.valueOf(rs.getString(status)));
+            menuItem.setInventoryCount(rs.getInt(inventoryCount));
+            menuItem.setCreatedAt(LocalDateTime.parse(rs.getString(createdAt)));
+            menuItem.setUpdatedAt(LocalDateTime.parse(rs.getString(updatedAt)));
             
-            Set<UUID> comboItems = objectMapper.readValue(rs.getString("combo_items"),
-                                                          objectMapper.getTypeFactory().constructCollectionType(Set.class, UUID.class));
-            menuItem.setComboItems(comboItems);
+            try {
+                Set<String> availableForTypesStrings = STRING_SET_READER.readValue(rs.getString(availableForTypes));
+                menuItem.setAvailableForTypes(availableForTypesStrings.stream().map(PassengerType::valueOf).collect(Collectors.toSet()));
+                menuItem.setAllergens(STRING_SET_READER.readValue(rs.getString(allergens)));
+                menuItem.setDietaryTags(STRING_SET_READER.readValue(rs.getString(dietaryTags)));
+                menuItem.setSubstitutableItems(UUID_SET_READER.readValue(rs.getString(substitutableItems)));
+                menuItem.setComboItems(UUID_SET_READER.readValue(rs.getString(comboItems)));
+            } catch (IOException e) {
+                logger.error("Error parsing JSON from MenuItem ResultSet: {}", e.getMessage());
+                // Handle error, perhaps return an empty set or re-throw as a runtime exception
+            }
             
-        } catch (JsonProcessingException e) {
-            logger.error("Error parsing JSON from MenuItem ResultSet: {}", e.getMessage());
-            // Handle error, perhaps return an empty set or re-throw as a runtime exception
+            return menuItem;
         }
-        
-        return menuItem;
     }
 }
-
@@ -1,111 +1,130 @@
 package com.airline.ordering.repository.impl;
 
 import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderChanges;
 import com.airline.ordering.domain.OrderItem;
 import com.airline.ordering.domain.OrderItemStatus;
 import com.airline.ordering.domain.OrderStatus;
+import com.airline.ordering.repository.BulkWriteResult;
 import com.airline.ordering.repository.OrderRepository;
 import com.airline.ordering.repository.SQLiteConnection;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.airline.ordering.repository.connection.StorageFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 import java.math.BigDecimal;
 
 public class OrderRepositoryImpl implements OrderRepository {
     
     private static final Logger logger = LoggerFactory.getLogger(OrderRepositoryImpl.class);
-    private final ObjectMapper objectMapper;
+    
+    private static final String UPSERT_ORDER_SQL = "INSERT INTO orders(order_id, passenger_id, seat_number, total_amount, status, notes, requested_delivery_time, created_at, updated_at, confirmed_at, delivered_at, synced_with_crs, last_sync_attempt, crs_order_id, sync_version) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)"
+                                                   + " ON CONFLICT(order_id) DO UPDATE SET passenger_id=?, seat_number=?, total_amount=?, status=?, notes=?, requested_delivery_time=?, updated_at=?, confirmed_at=?, delivered_at=?, synced_with_crs=?, last_sync_attempt=?, crs_order_id=?, sync_version=?";
+    
+    private static final String DELETE_ORDER_ITEMS_SQL = "DELETE FROM order_items WHERE order_id = ?";
+    
+    // Changed items are updated in place on conflict, so their rows and index entries are not deleted and re-inserted
+    private static final String UPSERT_ORDER_ITEM_SQL = "INSERT INTO order_items(order_item_id, order_id, menu_item_id, menu_item_name, quantity, unit_price, total_price, special_instructions, substituted_from_item_id, status, created_at, updated_at) VALUES(?,?,?,?,?,?,?,?,?,?,?,?)"
+                                                        + " ON CONFLICT(order_item_id) DO UPDATE SET order_id=excluded.order_id, menu_item_id=excluded.menu_item_id, menu_item_name=excluded.menu_item_name, quantity=excluded.quantity, unit_price=excluded.unit_price, total_price=excluded.total_price, special_instructions=excluded.special_instructions, substituted_from_item_id=excluded.substituted_from_item_id, status=excluded.status, updated_at=excluded.updated_at";
+    
+    private static final String DELETE_ORDER_ITEM_SQL = "DELETE FROM order_items WHERE order_item_id = ?";
+    
+    private static final String UPDATE_ORDER_TOTAL_SQL = "UPDATE orders SET total_amount = ?, updated_at = ? WHERE order_id = ?";
+    
+    private static final String DELETE_ORDER_SQL = "DELETE FROM orders WHERE order_id = ?";
+    
+    private static final String SELECT_SYNC_STATE_SQL = "SELECT synced_with_crs, sync_version FROM orders WHERE order_id = ?";
+    
+    // Bound parameters per IN-list query; well below SQLite's host parameter limit
+    private static final int ITEM_FETCH_CHUNK_SIZE = 500;
+    
+    private final StorageFormat format;
     
     public OrderRepositoryImpl() {
-        objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
+        this(SQLiteConnection.getConfig().getStorageFormat());
     }
     
+    /**
+     * Creates a repository for a database whose order tables use the given column layout.
+     * @param format The storage format of the orders and order_items tables.
+     */
+    public OrderRepositoryImpl(StorageFormat format) {
+        this.format = format;
+    }
+    
+    /**
+     * Saves the order, writing only what changed since it was last loaded or saved: the order row when one of
+     * its columns changed (or just the total when only items changed), upserts for added and modified items and
+     * deletes for removed ones. Orders without a known persisted state are written in full.
+     */
     @Override
     public Order save(Order order) {
-        String sqlOrder = "INSERT INTO orders(order_id, passenger_id, seat_number, total_amount, status, notes, requested_delivery_time, created_at, updated_at, confirmed_at, delivered_at, synced_with_crs, last_sync_attempt, crs_order_id, sync_version) VALUES(?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)"
-                          + " ON CONFLICT(order_id) DO UPDATE SET passenger_id=?, seat_number=?, total_amount=?, status=?, notes=?, requested_delivery_time=?, updated_at=?, confirmed_at=?, delivered_at=?, synced_with_crs=?, last_sync_attempt=?, crs_order_id=?, sync_version=?";
-        
-        String sqlOrderItemDelete = "DELETE FROM order_items WHERE order_id = ?";
-        String sqlOrderItemInsert = "INSERT INTO order_items(order_item_id, order_id, menu_item_id, menu_item_name, quantity, unit_price, total_price, special_instructions, substituted_from_item_id, status, created_at, updated_at) VALUES(?,?,?,?,?,?,?,?,?,?,?,?)";
-        
-        try (Connection conn = SQLiteConnection.getConnection()) {
-            conn.setAutoCommit(false); // Start transaction
-            
-            // Save Order
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlOrder)) {
-                pstmt.setString(1, order.getOrderId().toString());
-                pstmt.setString(2, order.getPassengerId() != null ? order.getPassengerId().toString() : null);
-                pstmt.setString(3, order.getSeatNumber());
-                pstmt.setDouble(4, order.getTotalAmount().doubleValue());
-                pstmt.setString(5, order.getStatus().name());
-                pstmt.setString(6, order.getNotes());
-                pstmt.setString(7, order.getRequestedDeliveryTime() != null ? order.getRequestedDeliveryTime().toString() : null);
-                pstmt.setString(8, order.getCreatedAt().toString());
-                pstmt.setString(9, LocalDateTime.now().toString());
-                pstmt.setString(10, order.getConfirmedAt() != null ? order.getConfirmedAt().toString() : null);
-                pstmt.setString(11, order.getDeliveredAt() != null ? order.getDeliveredAt().toString() : null);
-                pstmt.setInt(12, order.isSyncedWithCrs() ? 1 : 0);
-                pstmt.setString(13, order.getLastSyncAttempt() != null ? order.getLastSyncAttempt().toString() : null);
-                pstmt.setString(14, order.getCrsOrderId());
-                pstmt.setInt(15, order.getSyncVersion());
+        OrderChanges changes = order.getChanges();
+        if (!changes.hasChanges()) {
+            logger.debug("Order unchanged, nothing to save: {}", order.getOrderId());
+            return order;
+        }
+        try {
+            // Runs as a single transaction on the writer thread
+            SQLiteConnection.executeWrite(conn -> {
+                LocalDateTime now = LocalDateTime.now();
                 
-                // For ON CONFLICT UPDATE part
-                pstmt.setString(16, order.getPassengerId() != null ? order.getPassengerId().toString() : null);
-                pstmt.setString(17, order.getSeatNumber());
-                pstmt.setDouble(18, order.getTotalAmount().doubleValue());
-                pstmt.setString(19, order.getStatus().name());
-                pstmt.setString(20, order.getNotes());
-                pstmt.setString(21, order.getRequestedDeliveryTime() != null ? order.getRequestedDeliveryTime().toString() : null);
-                pstmt.setString(22, LocalDateTime.now().toString());
-                pstmt.setString(23, order.getConfirmedAt() != null ? order.getConfirmedAt().toString() : null);
-                pstmt.setString(24, order.getDeliveredAt() != null ? order.getDeliveredAt().toString() : null);
-                pstmt.setInt(25, order.isSyncedWithCrs() ? 1 : 0);
-                pstmt.setString(26, order.getLastSyncAttempt() != null ? order.getLastSyncAttempt().toString() : null);
-                pstmt.setString(27, order.getCrsOrderId());
-                pstmt.setInt(28, order.getSyncVersion());
+                if (changes.isNewOrder() || changes.isHeaderChanged()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_ORDER_SQL)) {
+                        bindOrderUpsert(pstmt, order, now);
+                        pstmt.executeUpdate();
+                    }
+                } else if (changes.isTotalChanged()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(UPDATE_ORDER_TOTAL_SQL)) {
+                        bindTotalUpdate(pstmt, order, now);
+                        pstmt.executeUpdate();
+                    }
+                }
                 
-                pstmt.executeUpdate();
-            }
-            
-            // Delete existing OrderItems for this order
-            try (PreparedStatement pstmt = conn.prepareStatement(sqlOrderItemDelete)) {
-                pstmt.setString(1, order.getOrderId().toString());
-                pstmt.executeUpdate();
-            }
-            
-            // Insert new OrderItems
-            if (order.getItems() != null) {
-                try (PreparedStatement pstmt = conn.prepareStatement(sqlOrderItemInsert)) {
-                    for (OrderItem item : order.getItems()) {
-                        pstmt.setString(1, item.getOrderItemId().toString());
-                        pstmt.setString(2, order.getOrderId().toString());
-                        pstmt.setString(3, item.getMenuItemId() != null ? item.getMenuItemId().toString() : null);
-                        pstmt.setString(4, item.getMenuItemName());
-                        pstmt.setInt(5, item.getQuantity());
-                        pstmt.setDouble(6, item.getUnitPrice().doubleValue());
-                        pstmt.setDouble(7, item.getTotalPrice().doubleValue());
-                        pstmt.setString(8, item.getSpecialInstructions());
-                        pstmt.setString(9, item.getSubstitutedFromItemId() != null ? item.getSubstitutedFromItemId().toString() : null);
-                        pstmt.setString(10, item.getStatus().name());
-                        pstmt.setString(11, item.getCreatedAt().toString());
-                        pstmt.setString(12, LocalDateTime.now().toString());
-                        pstmt.addBatch();
+                if (changes.isNewOrder()) {
+                    // Nothing is known about rows already stored for this order, so replace them all
+                    try (PreparedStatement pstmt = conn.prepareStatement(DELETE_ORDER_ITEMS_SQL)) {
+                        format.setUuid(pstmt, 1, order.getOrderId());
+                        pstmt.executeUpdate();
+                    }
+                } else if (!changes.getRemovedItemIds().isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(DELETE_ORDER_ITEM_SQL)) {
+                        addRemovedItemBatches(pstmt, changes);
+                        pstmt.executeBatch();
                     }
-                    pstmt.executeBatch();
                 }
-            }
-            
-            conn.commit(); // Commit transaction
-            logger.info("Order saved: {}", order.getOrderId());
+                
+                if (!changes.getUpsertedItems().isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_ORDER_ITEM_SQL)) {
+                        addOrderItemBatches(pstmt, order, changes.getUpsertedItems(), now);
+                        pstmt.executeBatch();
+                    }
+                }
+                
+                if (changes.hasSyncableChanges()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(ChangeLogWriter.INSERT_ENTRY_SQL)) {
+                        ChangeLogWriter.addEntryBatch(pstmt, order, changes, now);
+                        pstmt.executeBatch();
+                    }
+                }
+                return null;
+            });
+            order.markPersisted();
+            logger.info("Order saved: {} ({})", order.getOrderId(), changes);
             return order;
         } catch (SQLException e) {
             logger.error("Error saving order {}: {}", order.getOrderId(), e.getMessage());
@@ -113,6 +132,160 @@ public class OrderRepositoryImpl implements OrderRepository {
         }
     }
     
+    @Override
+    public BulkWriteResult<UUID> saveAll(Collection<Order> orders) {
+        return saveAll(orders, true);
+    }
+    
+    /**
+     * Writes each order only if the stored copy is still the one it was read against, checked in the write
+     * transaction: an order read as new only if it is still absent, any other only if it is stored without local
+     * changes at its persisted sync version. Other orders are left as they are and reported as skipped.
+     */
+    @Override
+    public BulkWriteResult<UUID> saveAllFromCrs(Collection<Order> orders) {
+        return saveAll(orders, false);
+    }
+    
+    private BulkWriteResult<UUID> saveAll(Collection<Order> orders, boolean logChanges) {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Order, OrderChanges> changesByOrder = new IdentityHashMap<>(orders.size() * 2);
+        for (Order order : orders) {
+            if (order != null) {
+                changesByOrder.put(order, order.getChanges());
+            }
+        }
+        try {
+            BulkWriteResult<UUID> result = BatchWriter.writeAll(orders, Order::getOrderId, writer -> {
+                if (!logChanges) {
+                    writer.guard(SELECT_SYNC_STATE_SQL, (pstmt, order) ->
+                            order == null || isUnchangedLocally(pstmt, order, changesByOrder.get(order)));
+                }
+                writer.statement(UPSERT_ORDER_SQL, (pstmt, order) -> {
+                            OrderChanges changes = changesByOrder.get(order);
+                            if (changes.isNewOrder() || changes.isHeaderChanged()) {
+                                bindOrderUpsert(pstmt, order, now);
+                                pstmt.addBatch();
+                            }
+                        })
+                        .statement(UPDATE_ORDER_TOTAL_SQL, (pstmt, order) -> {
+                            OrderChanges changes = changesByOrder.get(order);
+                            if (!changes.isNewOrder() && !changes.isHeaderChanged() && changes.isTotalChanged()) {
+                                bindTotalUpdate(pstmt, order, now);
+                                pstmt.addBatch();
+                            }
+                        })
+                        .statement(DELETE_ORDER_ITEMS_SQL, (pstmt, order) -> {
+                            if (changesByOrder.get(order).isNewOrder()) {
+                                format.setUuid(pstmt, 1, order.getOrderId());
+                                pstmt.addBatch();
+                            }
+                        })
+                        .statement(DELETE_ORDER_ITEM_SQL, (pstmt, order) -> addRemovedItemBatches(pstmt, changesByOrder.get(order)))
+                        .statement(UPSERT_ORDER_ITEM_SQL, (pstmt, order) ->
+                                addOrderItemBatches(pstmt, order, changesByOrder.get(order).getUpsertedItems(), now))
+                        .statement(ChangeLogWriter.INSERT_ENTRY_SQL, (pstmt, order) -> {
+                            if (logChanges) {
+                                ChangeLogWriter.addEntryBatch(pstmt, order, changesByOrder.get(order), now);
+                            }
+                        });
+            });
+            Set<UUID> failedIds = new HashSet<>(result.getFailedIds());
+            failedIds.addAll(result.getSkippedIds());
+            for (Order order : changesByOrder.keySet()) {
+                if (!failedIds.contains(order.getOrderId())) {
+                    order.markPersisted();
+                }
+            }
+            logger.info("Orders saved: {}", result);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error saving {} orders: {}", orders.size(), e.getMessage());
+            throw new RuntimeException("Error saving orders", e);
+        }
+    }
+    
+    /**
+     * @return true if the stored order is as the given copy was read: absent for a new order, otherwise stored
+     *         without local changes at the copy's persisted sync version.
+     */
+    private boolean isUnchangedLocally(PreparedStatement pstmt, Order order, OrderChanges changes) throws SQLException {
+        format.setUuid(pstmt, 1, order.getOrderId());
+        try (ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                return changes.isNewOrder();
+            }
+            return !changes.isNewOrder() && rs.getInt(1) == 1 && rs.getInt(2) == order.getPersistedSyncVersion();
+        }
+    }
+    
+    private void bindOrderUpsert(PreparedStatement pstmt, Order order, LocalDateTime now) throws SQLException {
+        format.setUuid(pstmt, 1, order.getOrderId());
+        format.setUuid(pstmt, 2, order.getPassengerId());
+        pstmt.setString(3, order.getSeatNumber());
+        format.setMoney(pstmt, 4, order.getTotalAmount());
+        pstmt.setString(5, order.getStatus().name());
+        pstmt.setString(6, order.getNotes());
+        format.setTimestamp(pstmt, 7, order.getRequestedDeliveryTime());
+        format.setTimestamp(pstmt, 8, order.getCreatedAt());
+        format.setTimestamp(pstmt, 9, now);
+        format.setTimestamp(pstmt, 10, order.getConfirmedAt());
+        format.setTimestamp(pstmt, 11, order.getDeliveredAt());
+        pstmt.setInt(12, order.isSyncedWithCrs() ? 1 : 0);
+        format.setTimestamp(pstmt, 13, order.getLastSyncAttempt());
+        pstmt.setString(14, order.getCrsOrderId());
+        pstmt.setInt(15, order.getSyncVersion());
+        
+        // For ON CONFLICT UPDATE part
+        format.setUuid(pstmt, 16, order.getPassengerId());
+        pstmt.setString(17, order.getSeatNumber());
+        format.setMoney(pstmt, 18, order.getTotalAmount());
+        pstmt.setString(19, order.getStatus().name());
+        pstmt.setString(20, order.getNotes());
+        format.setTimestamp(pstmt, 21, order.getRequestedDeliveryTime());
+        format.setTimestamp(pstmt, 22, now);
+        format.setTimestamp(pstmt, 23, order.getConfirmedAt());
+        format.setTimestamp(pstmt, 24, order.getDeliveredAt());
+        pstmt.setInt(25, order.isSyncedWithCrs() ? 1 : 0);
+        format.setTimestamp(pstmt, 26, order.getLastSyncAttempt());
+        pstmt.setString(27, order.getCrsOrderId());
+        pstmt.setInt(28, order.getSyncVersion());
+    }
+    
+    private void bindTotalUpdate(PreparedStatement pstmt, Order order, LocalDateTime now) throws SQLException {
+        format.setMoney(pstmt, 1, order.getTotalAmount());
+        format.setTimestamp(pstmt, 2, now);
+        format.setUuid(pstmt, 3, order.getOrderId());
+    }
+    
+    private void addRemovedItemBatches(PreparedStatement pstmt, OrderChanges changes) throws SQLException {
+        if (changes.isNewOrder()) {
+            return;
+        }
+        for (UUID orderItemId : changes.getRemovedItemIds()) {
+            format.setUuid(pstmt, 1, orderItemId);
+            pstmt.addBatch();
+        }
+    }
+    
+    private void addOrderItemBatches(PreparedStatement pstmt, Order order, List<OrderItem> items, LocalDateTime now) throws SQLException {
+        for (OrderItem item : items) {
+            format.setUuid(pstmt, 1, item.getOrderItemId());
+            format.setUuid(pstmt, 2, order.getOrderId());
+            format.setUuid(pstmt, 3, item.getMenuItemId());
+            pstmt.setString(4, item.getMenuItemName());
+            pstmt.setInt(5, item.getQuantity());
+            format.setMoney(pstmt, 6, item.getUnitPrice());
+            format.setMoney(pstmt, 7, item.getTotalPrice());
+            pstmt.setString(8, item.getSpecialInstructions());
+            format.setUuid(pstmt, 9, item.getSubstitutedFromItemId());
+            pstmt.setString(10, item.getStatus().name());
+            format.setTimestamp(pstmt, 11, item.getCreatedAt());
+            format.setTimestamp(pstmt, 12, now);
+            pstmt.addBatch();
+        }
+    }
+    
     @Override
     public Optional<Order> findById(UUID id) {
         String sqlOrder = "SELECT * FROM orders WHERE order_id = ?";
@@ -120,15 +293,13 @@ public class OrderRepositoryImpl implements OrderRepository {
         try (Connection conn = SQLiteConnection.getConnection()) {
             Order order = null;
             try (PreparedStatement pstmt = conn.prepareStatement(sqlOrder)) {
-                pstmt.setString(1, id.toString());
+                format.setUuid(pstmt, 1, id);
                 ResultSet rs = pstmt.executeQuery();
-                if (rs.next()) {
-                    order = mapRowToOrder(rs);
-                }
+                order = RowMapper.mapFirst(rs, OrderRowMapper::new).orElse(null);
             }
             
             if (order != null) {
-                loadOrderItems(conn, order);
+                loadOrderItems(conn, Collections.singletonList(order));
                 return Optional.of(order);
             }
         } catch (SQLException e) {
@@ -140,16 +311,13 @@ public class OrderRepositoryImpl implements OrderRepository {
     
     @Override
     public List<Order> findAll() {
-        List<Order> orders = new ArrayList<>();
+        List<Order> orders;
         String sql = "SELECT * FROM orders";
         try (Connection conn = SQLiteConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                Order order = mapRowToOrder(rs);
-                loadOrderItems(conn, order);
-                orders.add(order);
-            }
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            orders = RowMapper.mapAll(rs, OrderRowMapper::new);
+            loadOrderItems(conn, orders);
         } catch (SQLException e) {
             logger.error("Error finding all orders: {}", e.getMessage());
             throw new RuntimeException("Error finding all orders", e);
@@ -159,11 +327,17 @@ public class OrderRepositoryImpl implements OrderRepository {
     
     @Override
     public void deleteById(UUID id) {
-        String sqlOrder = "DELETE FROM orders WHERE order_id = ?";
-        try (Connection conn = SQLiteConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sqlOrder)) {
-            pstmt.setString(1, id.toString());
-            pstmt.executeUpdate();
+        try {
+            SQLiteConnection.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(ChangeLogWriter.INSERT_DELETION_SQL)) {
+                    ChangeLogWriter.addDeletionBatch(pstmt, format, id, LocalDateTime.now());
+                    pstmt.executeBatch();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(DELETE_ORDER_SQL)) {
+                    format.setUuid(pstmt, 1, id);
+                    return pstmt.executeUpdate();
+                }
+            });
             logger.info("Order deleted: {}", id);
         } catch (SQLException e) {
             logger.error("Error deleting order by ID {}: {}", id, e.getMessage());
@@ -171,6 +345,26 @@ public class OrderRepositoryImpl implements OrderRepository {
         }
     }
     
+    @Override
+    public BulkWriteResult<UUID> deleteAllById(Collection<UUID> ids) {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            // Order items are removed by the ON DELETE CASCADE foreign key
+            BulkWriteResult<UUID> result = BatchWriter.writeAll(ids, id -> id, writer -> writer
+                    .statement(ChangeLogWriter.INSERT_DELETION_SQL, (pstmt, id) ->
+                            ChangeLogWriter.addDeletionBatch(pstmt, format, id, now))
+                    .statement(DELETE_ORDER_SQL, (pstmt, id) -> {
+                        format.setUuid(pstmt, 1, id);
+                        pstmt.addBatch();
+                    }));
+            logger.info("Orders deleted: {}", result);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error deleting {} orders: {}", ids.size(), e.getMessage());
+            throw new RuntimeException("Error deleting orders", e);
+        }
+    }
+    
     @Override
     public void delete(Order entity) {
         deleteById(entity.getOrderId());
@@ -180,8 +374,8 @@ public class OrderRepositoryImpl implements OrderRepository {
     public long count() {
         String sql = "SELECT COUNT(*) FROM orders";
         try (Connection conn = SQLiteConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             if (rs.next()) {
                 return rs.getLong(1);
             }
@@ -194,17 +388,14 @@ public class OrderRepositoryImpl implements OrderRepository {
     
     @Override
     public List<Order> findByPassengerId(UUID passengerId) {
-        List<Order> orders = new ArrayList<>();
+        List<Order> orders;
         String sql = "SELECT * FROM orders WHERE passenger_id = ?";
         try (Connection conn = SQLiteConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, passengerId.toString());
+            format.setUuid(pstmt, 1, passengerId);
             ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                Order order = mapRowToOrder(rs);
-                loadOrderItems(conn, order);
-                orders.add(order);
-            }
+            orders = RowMapper.mapAll(rs, OrderRowMapper::new);
+            loadOrderItems(conn, orders);
         } catch (SQLException e) {
             logger.error("Error finding orders by passenger ID {}: {}", passengerId, e.getMessage());
             throw new RuntimeException("Error finding orders by passenger ID", e);
@@ -214,17 +405,14 @@ public class OrderRepositoryImpl implements OrderRepository {
     
     @Override
     public List<Order> findBySeatNumber(String seatNumber) {
-        List<Order> orders = new ArrayList<>();
+        List<Order> orders;
         String sql = "SELECT * FROM orders WHERE seat_number = ?";
         try (Connection conn = SQLiteConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, seatNumber);
             ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                Order order = mapRowToOrder(rs);
-                loadOrderItems(conn, order);
-                orders.add(order);
-            }
+            orders = RowMapper.mapAll(rs, OrderRowMapper::new);
+            loadOrderItems(conn, orders);
         } catch (SQLException e) {
             logger.error("Error finding orders by seat number {}: {}", seatNumber, e.getMessage());
             throw new RuntimeException("Error finding orders by seat number", e);
@@ -234,17 +422,14 @@ public class OrderRepositoryImpl implements OrderRepository {
     
     @Override
     public List<Order> findByStatus(OrderStatus status) {
-        List<Order> orders = new ArrayList<>();
+        List<Order> orders;
         String sql = "SELECT * FROM orders WHERE status = ?";
         try (Connection conn = SQLiteConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, status.name());
             ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                Order order = mapRowToOrder(rs);
-                loadOrderItems(conn, order);
-                orders.add(order);
-            }
+            orders = RowMapper.mapAll(rs, OrderRowMapper::new);
+            loadOrderItems(conn, orders);
         } catch (SQLException e) {
             logger.error("Error finding orders by status {}: {}", status, e.getMessage());
             throw new RuntimeException("Error finding orders by status", e);
@@ -254,7 +439,7 @@ public class OrderRepositoryImpl implements OrderRepository {
     
     @Override
     public List<Order> findOrdersRequiringSync() {
-        List<Order> orders = new ArrayList<>();
+        List<Order> orders;
         String sql = "SELECT * FROM orders WHERE synced_with_crs = 0 AND (status = ? OR status = ? OR status = ?)";
         try (Connection conn = SQLiteConnection.getConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
@@ -262,11 +447,8 @@ public class OrderRepositoryImpl implements OrderRepository {
             pstmt.setString(2, OrderStatus.CONFIRMED.name());
             pstmt.setString(3, OrderStatus.CANCELLED.name());
             ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                Order order = mapRowToOrder(rs);
-                loadOrderItems(conn, order);
-                orders.add(order);
-            }
+            orders = RowMapper.mapAll(rs, OrderRowMapper::new);
+            loadOrderItems(conn, orders);
         } catch (SQLException e) {
             logger.error("Error finding orders requiring sync: {}", e.getMessage());
             throw new RuntimeException("Error finding orders requiring sync", e);
@@ -274,73 +456,225 @@ public class OrderRepositoryImpl implements OrderRepository {
         return orders;
     }
     
-    private Order mapRowToOrder(ResultSet rs) throws SQLException {
-        Order order = new Order(UUID.fromString(rs.getString("passenger_id")), rs.getString("seat_number"));
-        order.setOrderId(UUID.fromString(rs.getString("order_id")));
-        order.setTotalAmount(BigDecimal.valueOf(rs.getDouble("total_amount")));
-        order.setStatus(OrderStatus.valueOf(rs.getString("status")));
-        order.setNotes(rs.getString("notes"));
-        
-        String requestedDeliveryTimeStr = rs.getString("requested_delivery_time");
-        order.setRequestedDeliveryTime(requestedDeliveryTimeStr != null && !requestedDeliveryTimeStr.isEmpty() ? LocalDateTime.parse(requestedDeliveryTimeStr) : null);
-        
-        order.setCreatedAt(LocalDateTime.parse(rs.getString("created_at")));
-        
-        String updatedAtStr = rs.getString("updated_at");
-        order.setUpdatedAt(updatedAtStr != null && !updatedAtStr.isEmpty() ? LocalDateTime.parse(updatedAtStr) : null);
+    @Override
+    public Stream<Order> streamAll(int fetchSize) {
+        return streamOrders("SELECT * FROM orders", pstmt -> { }, fetchSize, "all orders");
+    }
+    
+    @Override
+    public Stream<Order> streamByStatus(OrderStatus status, int fetchSize) {
+        return streamOrders("SELECT * FROM orders WHERE status = ?",
+                pstmt -> pstmt.setString(1, status.name()), fetchSize, "orders by status " + status);
+    }
+    
+    @Override
+    public Stream<Order> streamOrdersRequiringSync(int fetchSize) {
+        String sql = "SELECT * FROM orders WHERE synced_with_crs = 0 AND (status = ? OR status = ? OR status = ?)";
+        return streamOrders(sql, pstmt -> {
+            pstmt.setString(1, OrderStatus.PENDING.name());
+            pstmt.setString(2, OrderStatus.CONFIRMED.name());
+            pstmt.setString(3, OrderStatus.CANCELLED.name());
+        }, fetchSize, "orders requiring sync");
+    }
+    
+    @Override
+    public List<Order> findPage(UUID afterOrderId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        List<Order> orders;
+        String sql = afterOrderId != null
+                     ? "SELECT * FROM orders WHERE order_id > ? ORDER BY order_id LIMIT ?"
+                     : "SELECT * FROM orders ORDER BY order_id LIMIT ?";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (afterOrderId != null) {
+                format.setUuid(pstmt, index++, afterOrderId);
+            }
+            pstmt.setInt(index, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                orders = RowMapper.mapAll(rs, OrderRowMapper::new);
+            }
+            loadOrderItems(conn, orders);
+        } catch (SQLException e) {
+            logger.error("Error finding order page after {}: {}", afterOrderId, e.getMessage());
+            throw new RuntimeException("Error finding order page", e);
+        }
+        return orders;
+    }
+    
+    private Stream<Order> streamOrders(String sql, ResultSetStreams.ParameterBinder binder, int fetchSize, String description) {
+        try {
+            return ResultSetStreams.stream(sql, binder, fetchSize, OrderRowMapper::new, this::loadOrderItems);
+        } catch (SQLException e) {
+            logger.error("Error streaming {}: {}", description, e.getMessage());
+            throw new RuntimeException("Error streaming orders", e);
+        }
+    }
+    
+    /**
+     * Loads the items of all given orders with one query per chunk of {@value #ITEM_FETCH_CHUNK_SIZE} orders
+     * instead of one query per order, and attaches them to their owning orders in a single pass.
+     */
+    private void loadOrderItems(Connection conn, List<Order> orders) throws SQLException {
+        if (orders.isEmpty()) {
+            return;
+        }
         
-        String confirmedAtStr = rs.getString("confirmed_at");
-        order.setConfirmedAt(confirmedAtStr != null && !confirmedAtStr.isEmpty() ? LocalDateTime.parse(confirmedAtStr) : null);
+        Map<UUID, List<OrderItem>> itemsByOrderId = new HashMap<>(orders.size() * 2);
+        for (Order order : orders) {
+            itemsByOrderId.put(order.getOrderId(), new ArrayList<>());
+        }
         
-        String deliveredAtStr = rs.getString("delivered_at");
-        order.setDeliveredAt(deliveredAtStr != null && !deliveredAtStr.isEmpty() ? LocalDateTime.parse(deliveredAtStr) : null);
+        for (int from = 0; from < orders.size(); from += ITEM_FETCH_CHUNK_SIZE) {
+            int to = Math.min(from + ITEM_FETCH_CHUNK_SIZE, orders.size());
+            // Round the IN list up to a fixed size so only a few distinct statements are prepared and cached;
+            // the padding repeats the last ID, which does not change the result
+            int parameterCount = inListSize(to - from);
+            String sqlOrderItems = "SELECT * FROM order_items WHERE order_id IN (" + placeholders(parameterCount) + ")";
+            try (PreparedStatement pstmt = conn.prepareStatement(sqlOrderItems)) {
+                for (int i = 0; i < parameterCount; i++) {
+                    format.setUuid(pstmt, i + 1, orders.get(Math.min(from + i, to - 1)).getOrderId());
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        OrderItemRowMapper mapper = new OrderItemRowMapper(rs);
+                        do {
+                            itemsByOrderId.get(mapper.orderId(rs)).add(mapper.map(rs));
+                        } while (rs.next());
+                    }
+                }
+            }
+        }
         
-        order.setSyncedWithCrs(rs.getInt("synced_with_crs") == 1);
+        for (Order order : orders) {
+            order.setItems(itemsByOrderId.get(order.getOrderId()));
+            order.markPersisted();
+        }
+    }
+    
+    private static int inListSize(int count) {
+        int size = 8;
+        while (size < count) {
+            size *= 2;
+        }
+        return Math.min(size, ITEM_FETCH_CHUNK_SIZE);
+    }
+    
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            sb.append(i == 0 ? "?" : ",?");
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Maps order rows using column positions resolved once per result set.
+     */
+    private final class OrderRowMapper implements RowMapper<Order> {
+        private final int orderId;
+        private final int passengerId;
+        private final int seatNumber;
+        private final int totalAmount;
+        private final int status;
+        private final int notes;
+        private final int requestedDeliveryTime;
+        private final int createdAt;
+        private final int updatedAt;
+        private final int confirmedAt;
+        private final int deliveredAt;
+        private final int syncedWithCrs;
+        private final int lastSyncAttempt;
+        private final int crsOrderId;
+        private final int syncVersion;
         
-        String lastSyncAttemptStr = rs.getString("last_sync_attempt");
-        order.setLastSyncAttempt(lastSyncAttemptStr != null && !lastSyncAttemptStr.isEmpty() ? LocalDateTime.parse(lastSyncAttemptStr) : null);
+        OrderRowMapper(ResultSet rs) throws SQLException {
+            orderId = rs.findColumn("order_id");
+            passengerId = rs.findColumn("passenger_id");
+            seatNumber = rs.findColumn("seat_number");
+            totalAmount = rs.findColumn("total_amount");
+            status = rs.findColumn("status");
+            notes = rs.findColumn("notes");
+            requestedDeliveryTime = rs.findColumn("requested_delivery_time");
+            createdAt = rs.findColumn("created_at");
+            updatedAt = rs.findColumn("updated_at");
+            confirmedAt = rs.findColumn("confirmed_at");
+            deliveredAt = rs.findColumn("delivered_at");
+            syncedWithCrs = rs.findColumn("synced_with_crs");
+            lastSyncAttempt = rs.findColumn("last_sync_attempt");
+            crsOrderId = rs.findColumn("crs_order_id");
+            syncVersion = rs.findColumn("sync_version");
+        }
         
-        order.setCrsOrderId(rs.getString("crs_order_id"));
-        order.setSyncVersion(rs.getInt("sync_version"));
-        return order;
+        @Override
+        public Order map(ResultSet rs) throws SQLException {
+            Order order = new Order(format.getUuid(rs, passengerId), rs.getString(seatNumber));
+            order.setOrderId(format.getUuid(rs, orderId));
+            order.setTotalAmount(format.getMoney(rs, totalAmount));
+            order.setStatus(OrderStatus.valueOf(rs.getString(status)));
+            order.setNotes(rs.getString(notes));
+            order.setRequestedDeliveryTime(format.getTimestamp(rs, requestedDeliveryTime));
+            order.setCreatedAt(format.getTimestamp(rs, createdAt));
+            order.setUpdatedAt(format.getTimestamp(rs, updatedAt));
+            order.setConfirmedAt(format.getTimestamp(rs, confirmedAt));
+            order.setDeliveredAt(format.getTimestamp(rs, deliveredAt));
+            order.setSyncedWithCrs(rs.getInt(syncedWithCrs) == 1);
+            order.setLastSyncAttempt(format.getTimestamp(rs, lastSyncAttempt));
+            order.setCrsOrderId(rs.getString(crsOrderId));
+            order.setSyncVersion(rs.getInt(syncVersion));
+            return order;
+        }
     }
     
-    private OrderItem mapRowToOrderItem(ResultSet rs, UUID orderId) throws SQLException {
-        OrderItem orderItem = new OrderItem(orderId, rs.getString("menu_item_name"), rs.getInt("quantity"), BigDecimal.valueOf(rs.getDouble("unit_price")));
-        orderItem.setOrderItemId(UUID.fromString(rs.getString("order_item_id")));
-        String menuItemId = rs.getString("menu_item_id");
-        if (menuItemId != null && !menuItemId.isEmpty()) {
-            orderItem.setMenuItemId(UUID.fromString(menuItemId));
-        } else {
-            orderItem.setMenuItemId(null);
+    /**
+     * Maps order item rows using column positions resolved once per result set.
+     */
+    private final class OrderItemRowMapper implements RowMapper<OrderItem> {
+        private final int orderItemId;
+        private final int orderId;
+        private final int menuItemId;
+        private final int menuItemName;
+        private final int quantity;
+        private final int unitPrice;
+        private final int totalPrice;
+        private final int specialInstructions;
+        private final int substitutedFromItemId;
+        private final int status;
+        private final int createdAt;
+        private final int updatedAt;
+        
+        OrderItemRowMapper(ResultSet rs) throws SQLException {
+            orderItemId = rs.findColumn("order_item_id");
+            orderId = rs.findColumn("order_id");
+            menuItemId = rs.findColumn("menu_item_id");
+            menuItemName = rs.findColumn("menu_item_name");
+            quantity = rs.findColumn("quantity");
+            unitPrice = rs.findColumn("unit_price");
+            totalPrice = rs.findColumn("total_price");
+            specialInstructions = rs.findColumn("special_instructions");
+            substitutedFromItemId = rs.findColumn("substituted_from_item_id");
+            status = rs.findColumn("status");
+            createdAt = rs.findColumn("created_at");
+            updatedAt = rs.findColumn("updated_at");
         }
-        orderItem.setTotalPrice(BigDecimal.valueOf(rs.getDouble("total_price")));
-        orderItem.setSpecialInstructions(rs.getString("special_instructions"));
-        String substitutedFromItemId = rs.getString("substituted_from_item_id");
-        if (substitutedFromItemId != null && !substitutedFromItemId.isEmpty()) {
-            orderItem.setSubstitutedFromItemId(UUID.fromString(substitutedFromItemId));
-        } else {
-            orderItem.setSubstitutedFromItemId(null);
+        
+        UUID orderId(ResultSet rs) throws SQLException {
+            return format.getUuid(rs, orderId);
         }
-        orderItem.setStatus(OrderItemStatus.valueOf(rs.getString("status")));
-        orderItem.setCreatedAt(LocalDateTime.parse(rs.getString("created_at")));
-        String updatedAtStr = rs.getString("updated_at");
-        orderItem.setUpdatedAt(updatedAtStr != null && !updatedAtStr.isEmpty() ? LocalDateTime.parse(updatedAtStr) : null);
-        return orderItem;
-    }
-
-    private void loadOrderItems(Connection conn, Order order) throws SQLException {
-        String sqlOrderItems = "SELECT * FROM order_items WHERE order_id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sqlOrderItems)) {
-            pstmt.setString(1, order.getOrderId().toString());
-            ResultSet rs = pstmt.executeQuery();
-            List<OrderItem> items = new ArrayList<>();
-            while (rs.next()) {
-                items.add(mapRowToOrderItem(rs, order.getOrderId()));
-            }
-            order.setItems(items);
+        
+        @Override
+        public OrderItem map(ResultSet rs) throws SQLException {
+            OrderItem orderItem = new OrderItem(format.getUuid(rs, menuItemId), rs.getString(menuItemName), rs.getInt(quantity), format.getMoney(rs, unitPrice));
+            orderItem.setOrderItemId(format.getUuid(rs, orderItemId));
+            orderItem.setTotalPrice(format.getMoney(rs, totalPrice));
+            orderItem.setSpecialInstructions(rs.getString(specialInstructions));
+            orderItem.setSubstitutedFromItemId(format.getUuid(rs, substitutedFromItemId));
+            orderItem.setStatus(OrderItemStatus.valueOf(rs.getString(status)));
+            orderItem.setCreatedAt(format.getTimestamp(rs, createdAt));
+            orderItem.setUpdatedAt(format.getTimestamp(rs, updatedAt));
+            return orderItem;
         }
     }
 }
-
-
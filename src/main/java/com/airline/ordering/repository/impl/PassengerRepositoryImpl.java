@@ -2,6 +2,7 @@ package com.airline.ordering.repository.impl;
 
 import com.airline.ordering.domain.Passenger;
 import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.BulkWriteResult;
 import com.airline.ordering.repository.PassengerRepository;
 import com.airline.ordering.repository.SQLiteConnection;
 import org.slf4j.Logger;
@@ -9,7 +10,7 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,38 +19,20 @@ public class PassengerRepositoryImpl implements PassengerRepository {
     
     private static final Logger logger = LoggerFactory.getLogger(PassengerRepositoryImpl.class);
     
+    private static final String UPSERT_SQL = "INSERT INTO passengers(passenger_id, first_name, last_name, email, phone_number, seat_number, type, special_requirements, created_at, updated_at) VALUES(?,?,?,?,?,?,?,?,?,?)"
+                                             + " ON CONFLICT(passenger_id) DO UPDATE SET first_name=?, last_name=?, email=?, phone_number=?, seat_number=?, type=?, special_requirements=?, updated_at=?";
+    
+    private static final String DELETE_SQL = "DELETE FROM passengers WHERE passenger_id = ?";
+    
     @Override
     public Passenger save(Passenger passenger) {
-        String sql = "INSERT INTO passengers(passenger_id, first_name, last_name, email, phone_number, seat_number, type, special_requirements, created_at, updated_at) VALUES(?,?,?,?,?,?,?,?,?,?)"
-                     + " ON CONFLICT(passenger_id) DO UPDATE SET first_name=?, last_name=?, email=?, phone_number=?, seat_number=?, type=?, special_requirements=?, updated_at=?";
-        
-        try (Connection conn = SQLiteConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            boolean isNew = findById(passenger.getPassengerId()).isEmpty();
-            
-            pstmt.setString(1, passenger.getPassengerId().toString());
-            pstmt.setString(2, passenger.getFirstName());
-            pstmt.setString(3, passenger.getLastName());
-            pstmt.setString(4, passenger.getEmail());
-            pstmt.setString(5, passenger.getPhoneNumber());
-            pstmt.setString(6, passenger.getSeatNumber());
-            pstmt.setString(7, passenger.getType().name());
-            pstmt.setString(8, passenger.getSpecialRequirements());
-            pstmt.setString(9, passenger.getCreatedAt().toString());
-            pstmt.setString(10, LocalDateTime.now().toString()); // Always update updated_at
-            
-            // For ON CONFLICT UPDATE part
-            pstmt.setString(11, passenger.getFirstName());
-            pstmt.setString(12, passenger.getLastName());
-            pstmt.setString(13, passenger.getEmail());
-            pstmt.setString(14, passenger.getPhoneNumber());
-            pstmt.setString(15, passenger.getSeatNumber());
-            pstmt.setString(16, passenger.getType().name());
-            pstmt.setString(17, passenger.getSpecialRequirements());
-            pstmt.setString(18, LocalDateTime.now().toString());
-            
-            pstmt.executeUpdate();
+        try {
+            SQLiteConnection.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+                    bindUpsert(pstmt, passenger, LocalDateTime.now().toString());
+                    return pstmt.executeUpdate();
+                }
+            });
             logger.info("Passenger saved: {}", passenger.getPassengerId());
             return passenger;
         } catch (SQLException e) {
@@ -58,6 +41,46 @@ public class PassengerRepositoryImpl implements PassengerRepository {
         }
     }
     
+    @Override
+    public BulkWriteResult<UUID> saveAll(Collection<Passenger> passengers) {
+        String now = LocalDateTime.now().toString();
+        try {
+            BulkWriteResult<UUID> result = BatchWriter.writeAll(passengers, Passenger::getPassengerId,
+                    writer -> writer.statement(UPSERT_SQL, (pstmt, passenger) -> {
+                        bindUpsert(pstmt, passenger, now);
+                        pstmt.addBatch();
+                    }));
+            logger.info("Passengers saved: {}", result);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error saving {} passengers: {}", passengers.size(), e.getMessage());
+            throw new RuntimeException("Error saving passengers", e);
+        }
+    }
+    
+    private static void bindUpsert(PreparedStatement pstmt, Passenger passenger, String now) throws SQLException {
+        pstmt.setString(1, passenger.getPassengerId().toString());
+        pstmt.setString(2, passenger.getFirstName());
+        pstmt.setString(3, passenger.getLastName());
+        pstmt.setString(4, passenger.getEmail());
+        pstmt.setString(5, passenger.getPhoneNumber());
+        pstmt.setString(6, passenger.getSeatNumber());
+        pstmt.setString(7, passenger.getType().name());
+        pstmt.setString(8, passenger.getSpecialRequirements());
+        pstmt.setString(9, passenger.getCreatedAt().toString());
+        pstmt.setString(10, now); // Always update updated_at
+        
+        // For ON CONFLICT UPDATE part
+        pstmt.setString(11, passenger.getFirstName());
+        pstmt.setString(12, passenger.getLastName());
+        pstmt.setString(13, passenger.getEmail());
+        pstmt.setString(14, passenger.getPhoneNumber());
+        pstmt.setString(15, passenger.getSeatNumber());
+        pstmt.setString(16, passenger.getType().name());
+        pstmt.setString(17, passenger.getSpecialRequirements());
+        pstmt.setString(18, now);
+    }
+    
     @Override
     public Optional<Passenger> findById(UUID id) {
         String sql = "SELECT * FROM passengers WHERE passenger_id = ?";
@@ -65,40 +88,35 @@ public class PassengerRepositoryImpl implements PassengerRepository {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, id.toString());
             ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRowToPassenger(rs));
-            }
+            return RowMapper.mapFirst(rs, PassengerRowMapper::new);
         } catch (SQLException e) {
             logger.error("Error finding passenger by ID {}: {}", id, e.getMessage());
             throw new RuntimeException("Error finding passenger by ID", e);
         }
-        return Optional.empty();
     }
     
     @Override
     public List<Passenger> findAll() {
-        List<Passenger> passengers = new ArrayList<>();
         String sql = "SELECT * FROM passengers";
         try (Connection conn = SQLiteConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                passengers.add(mapRowToPassenger(rs));
-            }
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return RowMapper.mapAll(rs, PassengerRowMapper::new);
         } catch (SQLException e) {
             logger.error("Error finding all passengers: {}", e.getMessage());
             throw new RuntimeException("Error finding all passengers", e);
         }
-        return passengers;
     }
     
     @Override
     public void deleteById(UUID id) {
-        String sql = "DELETE FROM passengers WHERE passenger_id = ?";
-        try (Connection conn = SQLiteConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, id.toString());
-            pstmt.executeUpdate();
+        try {
+            SQLiteConnection.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+                    pstmt.setString(1, id.toString());
+                    return pstmt.executeUpdate();
+                }
+            });
             logger.info("Passenger deleted: {}", id);
         } catch (SQLException e) {
             logger.error("Error deleting passenger by ID {}: {}", id, e.getMessage());
@@ -106,6 +124,22 @@ public class PassengerRepositoryImpl implements PassengerRepository {
         }
     }
     
+    @Override
+    public BulkWriteResult<UUID> deleteAllById(Collection<UUID> ids) {
+        try {
+            BulkWriteResult<UUID> result = BatchWriter.writeAll(ids, id -> id,
+                    writer -> writer.statement(DELETE_SQL, (pstmt, id) -> {
+                        pstmt.setString(1, id.toString());
+                        pstmt.addBatch();
+                    }));
+            logger.info("Passengers deleted: {}", result);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error deleting {} passengers: {}", ids.size(), e.getMessage());
+            throw new RuntimeException("Error deleting passengers", e);
+        }
+    }
+    
     @Override
     public void delete(Passenger entity) {
         deleteById(entity.getPassengerId());
@@ -115,8 +149,8 @@ public class PassengerRepositoryImpl implements PassengerRepository {
     public long count() {
         String sql = "SELECT COUNT(*) FROM passengers";
         try (Connection conn = SQLiteConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
             if (rs.next()) {
                 return rs.getLong(1);
             }
@@ -134,29 +168,55 @@ public class PassengerRepositoryImpl implements PassengerRepository {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setString(1, seatNumber);
             ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRowToPassenger(rs));
-            }
+            return RowMapper.mapFirst(rs, PassengerRowMapper::new);
         } catch (SQLException e) {
             logger.error("Error finding passenger by seat number {}: {}", seatNumber, e.getMessage());
             throw new RuntimeException("Error finding passenger by seat number", e);
         }
-        return Optional.empty();
     }
     
-    private Passenger mapRowToPassenger(ResultSet rs) throws SQLException {
-        Passenger passenger = new Passenger();
-        passenger.setPassengerId(UUID.fromString(rs.getString("passenger_id")));
-        passenger.setFirstName(rs.getString("first_name"));
-        passenger.setLastName(rs.getString("last_name"));
-        passenger.setEmail(rs.getString("email"));
-        passenger.setPhoneNumber(rs.getString("phone_number"));
-        passenger.setSeatNumber(rs.getString("seat_number"));
-        passenger.setType(PassengerType.valueOf(rs.getString("type")));
-        passenger.setSpecialRequirements(rs.getString("special_requirements"));
-        passenger.setCreatedAt(LocalDateTime.parse(rs.getString("created_at")));
-        passenger.setUpdatedAt(LocalDateTime.parse(rs.getString("updated_at")));
-        return passenger;
+    /**
+     * Maps passenger rows using column positions resolved once per result set.
+     */
+    private static final class PassengerRowMapper implements RowMapper<Passenger> {
+        private final int passengerId;
+        private final int firstName;
+        private final int lastName;
+        private final int email;
+        private final int phoneNumber;
+        private final int seatNumber;
+        private final int type;
+        private final int specialRequirements;
+        private final int createdAt;
+        private final int updatedAt;
+        
+        PassengerRowMapper(ResultSet rs) throws SQLException {
+            passengerId = rs.findColumn("passenger_id");
+            firstName = rs.findColumn("first_name");
+            lastName = rs.findColumn("last_name");
+            email = rs.findColumn("email");
+            phoneNumber = rs.findColumn("phone_number");
+            seatNumber = rs.findColumn("seat_number");
+            type = rs.findColumn("type");
+            specialRequirements = rs.findColumn("special_requirements");
+            createdAt = rs.findColumn("created_at");
+            updatedAt = rs.findColumn("updated_at");
+        }
+        
+        @Override
+        public Passenger map(ResultSet rs) throws SQLException {
+            Passenger passenger = new Passenger();
+            passenger.setPassengerId(UUID.fromString(rs.getString(passengerId)));
+            passenger.setFirstName(rs.getString(firstName));
+            passenger.setLastName(rs.getString(lastName));
+            passenger.setEmail(rs.getString(email));
+            passenger.setPhoneNumber(rs.getString(phoneNumber));
+            passenger.setSeatNumber(rs.getString(seatNumber));
+            passenger.setType(PassengerType.valueOf(rs.getString(type)));
+            passenger.setSpecialRequirements(rs.getString(specialRequirements));
+            passenger.setCreatedAt(LocalDateTime.parse(rs.getString(createdAt)));
+            passenger.setUpdatedAt(LocalDateTime.parse(rs.getString(updatedAt)));
+            return passenger;
+        }
     }
 }
-
@@ -0,0 +1,68 @@
+package com.airline.ordering.repository.impl;
+
+import com.airline.ordering.repository.PullCheckpointRepository;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.sync.pull.PullCheckpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+
+public class PullCheckpointRepositoryImpl implements PullCheckpointRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PullCheckpointRepositoryImpl.class);
+    
+    // The checkpoint of the CRS pull; the table allows pulls from other sources later
+    private static final String CHECKPOINT_NAME = "crs";
+    
+    private static final String UPSERT_CHECKPOINT_SQL = "INSERT INTO pull_checkpoint(name, since, pull_started_at, continuation_token, updated_at)"
+                                                        + " VALUES(?,?,?,?,?) ON CONFLICT(name) DO UPDATE SET since=excluded.since,"
+                                                        + " pull_started_at=excluded.pull_started_at, continuation_token=excluded.continuation_token,"
+                                                        + " updated_at=excluded.updated_at";
+    
+    @Override
+    public PullCheckpoint find() {
+        String sql = "SELECT since, pull_started_at, continuation_token FROM pull_checkpoint WHERE name = ?";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, CHECKPOINT_NAME);
+            ResultSet rs = pstmt.executeQuery();
+            if (!rs.next()) {
+                return PullCheckpoint.initial();
+            }
+            return new PullCheckpoint(toTimestamp(rs.getString(1)), toTimestamp(rs.getString(2)), rs.getString(3));
+        } catch (SQLException e) {
+            logger.error("Error reading pull checkpoint: {}", e.getMessage());
+            throw new RuntimeException("Error reading pull checkpoint", e);
+        }
+    }
+    
+    @Override
+    public void save(PullCheckpoint checkpoint) {
+        try {
+            SQLiteConnection.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_CHECKPOINT_SQL)) {
+                    pstmt.setString(1, CHECKPOINT_NAME);
+                    pstmt.setString(2, toText(checkpoint.getSince()));
+                    pstmt.setString(3, toText(checkpoint.getPullStartedAt()));
+                    pstmt.setString(4, checkpoint.getContinuationToken());
+                    pstmt.setString(5, LocalDateTime.now().toString());
+                    return pstmt.executeUpdate();
+                }
+            });
+            logger.debug("Pull checkpoint saved: {}", checkpoint);
+        } catch (SQLException e) {
+            logger.error("Error saving pull checkpoint {}: {}", checkpoint, e.getMessage());
+            throw new RuntimeException("Error saving pull checkpoint", e);
+        }
+    }
+    
+    private static String toText(LocalDateTime value) {
+        return value != null ? value.toString() : null;
+    }
+    
+    private static LocalDateTime toTimestamp(String value) {
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+}
@@ -0,0 +1,154 @@
+package com.airline.ordering.repository.impl;
+
+import com.airline.ordering.repository.SQLiteConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lazily streams query results over an open cursor instead of materializing them in a list.
+ * <p>
+ * Rows are read in chunks of the fetch size. Each chunk can be post-processed as a whole before it is emitted,
+ * e.g. to attach child rows with one set-based query, so memory use is bounded by the chunk rather than by the
+ * result. The pooled connection stays borrowed until the stream is closed, so callers must close it,
+ * preferably with try-with-resources.
+ */
+final class ResultSetStreams {
+    
+    @FunctionalInterface
+    interface ParameterBinder {
+        void bind(PreparedStatement pstmt) throws SQLException;
+    }
+    
+    @FunctionalInterface
+    interface ChunkLoader<T> {
+        void load(Connection conn, List<T> chunk) throws SQLException;
+    }
+    
+    private ResultSetStreams() {
+        // Private constructor to prevent instantiation
+    }
+    
+    /**
+     * Executes the query and returns a stream over its rows.
+     * @param sql The query.
+     * @param binder Binds the query parameters.
+     * @param fetchSize The number of rows read and post-processed at a time.
+     * @param mapperFactory Creates the row mapper once the first row has been read.
+     * @param chunkLoader Post-processes each chunk on the same connection before its rows are emitted.
+     * @return A sequential stream that releases the cursor and connection when closed.
+     * @throws SQLException if the query cannot be executed; nothing stays open in that case.
+     */
+    static <T> Stream<T> stream(String sql, ParameterBinder binder, int fetchSize,
+                                RowMapper.Factory<T> mapperFactory, ChunkLoader<T> chunkLoader) throws SQLException {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        Connection conn = SQLiteConnection.getConnection();
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        try {
+            pstmt = conn.prepareStatement(sql);
+            pstmt.setFetchSize(fetchSize);
+            binder.bind(pstmt);
+            rs = pstmt.executeQuery();
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(rs, pstmt, conn, e);
+            throw e;
+        }
+        
+        ChunkSpliterator<T> spliterator = new ChunkSpliterator<>(conn, rs, fetchSize, mapperFactory, chunkLoader);
+        ResultSet cursor = rs;
+        PreparedStatement statement = pstmt;
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            SQLException failure = closeQuietly(cursor, statement, conn, null);
+            if (failure != null) {
+                throw new RuntimeException("Error closing result stream", failure);
+            }
+        });
+    }
+    
+    private static SQLException closeQuietly(ResultSet rs, PreparedStatement pstmt, Connection conn, Exception primary) {
+        SQLException failure = null;
+        for (AutoCloseable resource : new AutoCloseable[] {rs, pstmt, conn}) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                if (primary != null) {
+                    primary.addSuppressed(e);
+                } else if (failure == null) {
+                    failure = e instanceof SQLException ? (SQLException) e : new SQLException(e);
+                }
+            }
+        }
+        return failure;
+    }
+    
+    private static final class ChunkSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        
+        private final Connection conn;
+        private final ResultSet rs;
+        private final int fetchSize;
+        private final RowMapper.Factory<T> mapperFactory;
+        private RowMapper<T> mapper;
+        private final ChunkLoader<T> chunkLoader;
+        private final Deque<T> buffer;
+        private boolean exhausted;
+        
+        ChunkSpliterator(Connection conn, ResultSet rs, int fetchSize, RowMapper.Factory<T> mapperFactory, ChunkLoader<T> chunkLoader) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.conn = conn;
+            this.rs = rs;
+            this.fetchSize = fetchSize;
+            this.mapperFactory = mapperFactory;
+            this.chunkLoader = chunkLoader;
+            this.buffer = new ArrayDeque<>(fetchSize);
+        }
+        
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (buffer.isEmpty() && !exhausted) {
+                fill();
+            }
+            T next = buffer.poll();
+            if (next == null) {
+                return false;
+            }
+            action.accept(next);
+            return true;
+        }
+        
+        private void fill() {
+            List<T> chunk = new ArrayList<>(fetchSize);
+            try {
+                while (chunk.size() < fetchSize && rs.next()) {
+                    if (mapper == null) {
+                        mapper = mapperFactory.forResultSet(rs);
+                    }
+                    chunk.add(mapper.map(rs));
+                }
+                if (chunk.size() < fetchSize) {
+                    exhausted = true;
+                }
+                chunkLoader.load(conn, chunk);
+            } catch (SQLException e) {
+                throw new RuntimeException("Error reading result stream", e);
+            }
+            buffer.addAll(chunk);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.airline.ordering.repository.impl;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Maps the current row of a result set to an entity.
+ * <p>
+ * Mappers are created per result set by a {@link Factory}, which resolves the column positions once so that
+ * each row is read by index rather than by looking up every column name again.
+ * @param <T> The type of the mapped entity
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+    
+    T map(ResultSet rs) throws SQLException;
+    
+    /**
+     * Creates a mapper bound to the columns of one result set.
+     * @param <T> The type of the mapped entity
+     */
+    @FunctionalInterface
+    interface Factory<T> {
+        RowMapper<T> forResultSet(ResultSet rs) throws SQLException;
+    }
+    
+    /**
+     * Maps all remaining rows of the result set.
+     */
+    static <T> List<T> mapAll(ResultSet rs, Factory<T> factory) throws SQLException {
+        List<T> rows = new ArrayList<>();
+        if (rs.next()) {
+            RowMapper<T> mapper = factory.forResultSet(rs);
+            do {
+                rows.add(mapper.map(rs));
+            } while (rs.next());
+        }
+        return rows;
+    }
+    
+    /**
+     * Maps the next row of the result set, if there is one.
+     */
+    static <T> Optional<T> mapFirst(ResultSet rs, Factory<T> factory) throws SQLException {
+        if (rs.next()) {
+            return Optional.of(factory.forResultSet(rs).map(rs));
+        }
+        return Optional.empty();
+    }
+}
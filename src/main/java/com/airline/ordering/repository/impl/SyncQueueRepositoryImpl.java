@@ -0,0 +1,169 @@
+package com.airline.ordering.repository.impl;
+
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.SyncQueueRepository;
+import com.airline.ordering.sync.SyncOperation;
+import com.airline.ordering.sync.scheduler.SyncTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public class SyncQueueRepositoryImpl implements SyncQueueRepository {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SyncQueueRepositoryImpl.class);
+    
+    private static final String UPSERT_SQL = "INSERT INTO sync_queue(order_id, operation, enqueued_at, attempts) VALUES(?,?,?,?)"
+                                             + " ON CONFLICT(order_id) DO UPDATE SET operation=excluded.operation, attempts=excluded.attempts";
+    
+    private static final String DELETE_SQL = "DELETE FROM sync_queue WHERE order_id = ?";
+    
+    @Override
+    public SyncTask save(SyncTask task) {
+        try {
+            SQLiteConnection.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+                    bindUpsert(pstmt, task);
+                    return pstmt.executeUpdate();
+                }
+            });
+            logger.debug("Sync task saved: {}", task);
+            return task;
+        } catch (SQLException e) {
+            logger.error("Error saving sync task {}: {}", task.getOrderId(), e.getMessage());
+            throw new RuntimeException("Error saving sync task", e);
+        }
+    }
+    
+    @Override
+    public BulkWriteResult<UUID> saveAll(Collection<SyncTask> tasks) {
+        try {
+            BulkWriteResult<UUID> result = BatchWriter.writeAll(tasks, SyncTask::getOrderId,
+                    writer -> writer.statement(UPSERT_SQL, (pstmt, task) -> {
+                        bindUpsert(pstmt, task);
+                        pstmt.addBatch();
+                    }));
+            logger.debug("Sync tasks saved: {}", result);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error saving {} sync tasks: {}", tasks.size(), e.getMessage());
+            throw new RuntimeException("Error saving sync tasks", e);
+        }
+    }
+    
+    private static void bindUpsert(PreparedStatement pstmt, SyncTask task) throws SQLException {
+        pstmt.setString(1, task.getOrderId().toString());
+        pstmt.setString(2, task.getOperation().name());
+        pstmt.setString(3, task.getEnqueuedAt().toString());
+        pstmt.setInt(4, task.getAttempts());
+    }
+    
+    @Override
+    public Optional<SyncTask> findById(UUID orderId) {
+        String sql = "SELECT * FROM sync_queue WHERE order_id = ?";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, orderId.toString());
+            ResultSet rs = pstmt.executeQuery();
+            return RowMapper.mapFirst(rs, SyncTaskRowMapper::new);
+        } catch (SQLException e) {
+            logger.error("Error finding sync task by order ID {}: {}", orderId, e.getMessage());
+            throw new RuntimeException("Error finding sync task by order ID", e);
+        }
+    }
+    
+    /**
+     * @return Every queued task, oldest first.
+     */
+    @Override
+    public List<SyncTask> findAll() {
+        String sql = "SELECT * FROM sync_queue ORDER BY enqueued_at";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return RowMapper.mapAll(rs, SyncTaskRowMapper::new);
+        } catch (SQLException e) {
+            logger.error("Error finding all sync tasks: {}", e.getMessage());
+            throw new RuntimeException("Error finding all sync tasks", e);
+        }
+    }
+    
+    @Override
+    public void deleteById(UUID orderId) {
+        try {
+            SQLiteConnection.executeWrite(conn -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+                    pstmt.setString(1, orderId.toString());
+                    return pstmt.executeUpdate();
+                }
+            });
+            logger.debug("Sync task deleted: {}", orderId);
+        } catch (SQLException e) {
+            logger.error("Error deleting sync task by order ID {}: {}", orderId, e.getMessage());
+            throw new RuntimeException("Error deleting sync task by order ID", e);
+        }
+    }
+    
+    @Override
+    public BulkWriteResult<UUID> deleteAllById(Collection<UUID> orderIds) {
+        try {
+            BulkWriteResult<UUID> result = BatchWriter.writeAll(orderIds, id -> id,
+                    writer -> writer.statement(DELETE_SQL, (pstmt, id) -> {
+                        pstmt.setString(1, id.toString());
+                        pstmt.addBatch();
+                    }));
+            logger.debug("Sync tasks deleted: {}", result);
+            return result;
+        } catch (SQLException e) {
+            logger.error("Error deleting {} sync tasks: {}", orderIds.size(), e.getMessage());
+            throw new RuntimeException("Error deleting sync tasks", e);
+        }
+    }
+    
+    @Override
+    public void delete(SyncTask task) {
+        deleteById(task.getOrderId());
+    }
+    
+    @Override
+    public long count() {
+        String sql = "SELECT COUNT(*) FROM sync_queue";
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                return rs.getLong(1);
+            }
+        } catch (SQLException e) {
+            logger.error("Error counting sync tasks: {}", e.getMessage());
+            throw new RuntimeException("Error counting sync tasks", e);
+        }
+        return 0;
+    }
+    
+    private static final class SyncTaskRowMapper implements RowMapper<SyncTask> {
+        private final int orderId;
+        private final int operation;
+        private final int enqueuedAt;
+        private final int attempts;
+        
+        SyncTaskRowMapper(ResultSet rs) throws SQLException {
+            orderId = rs.findColumn("order_id");
+            operation = rs.findColumn("operation");
+            enqueuedAt = rs.findColumn("enqueued_at");
+            attempts = rs.findColumn("attempts");
+        }
+        
+        @Override
+        public SyncTask map(ResultSet rs) throws SQLException {
+            return new SyncTask(UUID.fromString(rs.getString(orderId)), SyncOperation.valueOf(rs.getString(operation)),
+                    LocalDateTime.parse(rs.getString(enqueuedAt)), rs.getInt(attempts));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.airline.ordering.repository.journal;
+
+import com.airline.ordering.domain.Order;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * A single order mutation recorded in the {@link OrderJournal}: either the complete state of a saved order or
+ * the deletion of an order. Replaying an entry is idempotent, so entries may safely be applied more than once.
+ */
+final class JournalEntry {
+
+    enum Type {
+        SAVE((byte) 1),
+        DELETE((byte) 2);
+
+        private final byte code;
+
+        Type(byte code) {
+            this.code = code;
+        }
+
+        byte getCode() {
+            return code;
+        }
+
+        static Type fromCode(byte code) throws IOException {
+            for (Type type : values()) {
+                if (type.code == code) {
+                    return type;
+                }
+            }
+            throw new IOException("Unknown journal entry type " + code);
+        }
+    }
+
+    private static final byte[] NO_PAYLOAD = new byte[0];
+
+    private final long sequence;
+    private final Type type;
+    private final UUID orderId;
+    private final byte[] payload;
+
+    JournalEntry(long sequence, Type type, UUID orderId, byte[] payload) {
+        this.sequence = sequence;
+        this.type = type;
+        this.orderId = orderId;
+        this.payload = payload;
+    }
+
+    /**
+     * Creates a not yet sequenced entry recording the current state of the order.
+     */
+    static JournalEntry save(Order order) {
+        return new JournalEntry(-1, Type.SAVE, order.getOrderId(), OrderRecordCodec.encode(order));
+    }
+
+    /**
+     * Creates a not yet sequenced entry recording the deletion of the order.
+     */
+    static JournalEntry delete(UUID orderId) {
+        return new JournalEntry(-1, Type.DELETE, orderId, NO_PAYLOAD);
+    }
+
+    JournalEntry withSequence(long sequence) {
+        return new JournalEntry(sequence, type, orderId, payload);
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    UUID getOrderId() {
+        return orderId;
+    }
+
+    byte[] getPayload() {
+        return payload;
+    }
+
+    boolean isDelete() {
+        return type == Type.DELETE;
+    }
+
+    /**
+     * Decodes a fresh copy of the saved order.
+     * @throws IllegalStateException if this entry records a deletion.
+     */
+    Order toOrder() throws IOException {
+        if (type != Type.SAVE) {
+            throw new IllegalStateException("Journal entry " + sequence + " does not contain an order");
+        }
+        return OrderRecordCodec.decode(payload);
+    }
+
+    @Override
+    public String toString() {
+        return "JournalEntry{" +
+                "sequence=" + sequence +
+                ", type=" + type +
+                ", orderId=" + orderId +
+                ", bytes=" + payload.length +
+                '}';
+    }
+}
@@ -0,0 +1,440 @@
+package com.airline.ordering.repository.journal;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderStatus;
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind {@link OrderRepository} that acknowledges order writes as soon as they are in the
+ * {@link OrderJournal}.
+ * <p>
+ * Saves and deletes are appended to the journal and return once it has been synced to disk, which is as durable
+ * as a committed database write but much cheaper, and concurrent writers share a single sync. A background
+ * flusher periodically applies the journaled mutations to the underlying repository in one batched transaction,
+ * keeping only the latest state of each order, and checkpoints the journal once everything written to it has
+ * been applied. After a crash, {@link #recover()} replays whatever the journal still holds.
+ * <p>
+ * Journal entries hold the complete state of an order, but are applied as changes: before a save is flushed, the
+ * order is given the state the underlying repository holds, which is the order as the flusher last applied it,
+ * kept for recently flushed orders, or, failing that, as loaded from the repository. The underlying repository
+ * then writes, and logs for the CRS, only what changed since.
+ * <p>
+ * {@link #findById(Object)} sees journaled changes immediately. Queries that span orders first wait for pending
+ * changes to be flushed, so they never miss an acknowledged write.
+ */
+public class JournalingOrderRepository implements OrderRepository, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JournalingOrderRepository.class);
+
+    // Orders whose applied state is kept to diff their next save against; older ones are reloaded when saved
+    static final int APPLIED_CACHE_SIZE = 1_024;
+
+    private final OrderRepository delegate;
+    private final OrderJournal journal;
+    private final ScheduledExecutorService flusher;
+
+    // Latest journaled but not yet applied mutation per order
+    private final Map<UUID, JournalEntry> pending = new ConcurrentHashMap<>();
+    // Appends acknowledged by the journal but not yet visible in pending
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Last state applied per recently flushed order, as stored by the delegate; only touched on the flusher thread
+    private final Map<UUID, Order> applied = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Order> eldest) {
+            return size() > APPLIED_CACHE_SIZE;
+        }
+    };
+
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong appliedEntries = new AtomicLong();
+
+    private volatile Thread flusherThread;
+
+    /**
+     * Creates a repository that journals writes and flushes them to the delegate in the background.
+     * @param delegate The repository the journaled mutations are applied to.
+     * @param journal The journal writes are recorded in.
+     * @param flushIntervalMs The delay between background flushes.
+     */
+    public JournalingOrderRepository(OrderRepository delegate, OrderJournal journal, long flushIntervalMs) {
+        if (flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("flushIntervalMs must be positive");
+        }
+        this.delegate = delegate;
+        this.journal = journal;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-journal-flusher");
+            thread.setDaemon(true);
+            flusherThread = thread;
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Applies the entries left in the journal by a previous run to the underlying repository.
+     * Must be called once at startup, before the repository is used.
+     * @return The number of journal entries replayed.
+     */
+    public int recover() {
+        List<JournalEntry> entries = journal.getRecoveredEntries();
+        if (entries.isEmpty()) {
+            return 0;
+        }
+        for (JournalEntry entry : entries) {
+            track(entry);
+        }
+        flush();
+        logger.info("Replayed {} order journal entries ({} orders still pending)", entries.size(), pending.size());
+        return entries.size();
+    }
+
+    @Override
+    public Order save(Order order) {
+        append(List.of(JournalEntry.save(order)));
+        return order;
+    }
+
+    @Override
+    public BulkWriteResult<UUID> saveAll(Collection<Order> orders) {
+        long start = System.nanoTime();
+        List<JournalEntry> entries = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            entries.add(JournalEntry.save(order));
+        }
+        append(entries);
+        return BulkWriteResult.<UUID>builder()
+                .addSucceeded(entries.size())
+                .elapsedMs((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    @Override
+    public Optional<Order> findById(UUID id) {
+        JournalEntry entry = pending.get(id);
+        if (entry == null) {
+            return delegate.findById(id);
+        }
+        if (entry.isDelete()) {
+            return Optional.empty();
+        }
+        try {
+            // As far as the caller can tell, the journaled state is the stored one
+            Order order = entry.toOrder();
+            order.markPersisted();
+            return Optional.of(order);
+        } catch (IOException e) {
+            logger.error("Error decoding journaled order {}: {}", id, e.getMessage());
+            throw new RuntimeException("Error decoding journaled order", e);
+        }
+    }
+
+    @Override
+    public List<Order> findAll() {
+        flush();
+        return delegate.findAll();
+    }
+
+    @Override
+    public void deleteById(UUID id) {
+        append(List.of(JournalEntry.delete(id)));
+    }
+
+    @Override
+    public BulkWriteResult<UUID> deleteAllById(Collection<UUID> ids) {
+        long start = System.nanoTime();
+        List<JournalEntry> entries = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            entries.add(JournalEntry.delete(id));
+        }
+        append(entries);
+        return BulkWriteResult.<UUID>builder()
+                .addSucceeded(entries.size())
+                .elapsedMs((System.nanoTime() - start) / 1_000_000)
+                .build();
+    }
+
+    @Override
+    public void delete(Order entity) {
+        deleteById(entity.getOrderId());
+    }
+
+    @Override
+    public long count() {
+        flush();
+        return delegate.count();
+    }
+
+    @Override
+    public List<Order> findByPassengerId(UUID passengerId) {
+        flush();
+        return delegate.findByPassengerId(passengerId);
+    }
+
+    @Override
+    public List<Order> findBySeatNumber(String seatNumber) {
+        flush();
+        return delegate.findBySeatNumber(seatNumber);
+    }
+
+    @Override
+    public List<Order> findByStatus(OrderStatus status) {
+        flush();
+        return delegate.findByStatus(status);
+    }
+
+    @Override
+    public List<Order> findOrdersRequiringSync() {
+        flush();
+        return delegate.findOrdersRequiringSync();
+    }
+
+    /**
+     * Writes through rather than journaling, after the pending saves, so the underlying repository sees every
+     * journaled local change when it checks whether an order may take the CRS's version. Orders whose local
+     * changes could not be flushed are skipped.
+     */
+    @Override
+    public BulkWriteResult<UUID> saveAllFromCrs(Collection<Order> orders) {
+        return onFlusher(() -> {
+            flushPending();
+            BulkWriteResult.Builder<UUID> unflushed = BulkWriteResult.builder();
+            List<Order> writable = new ArrayList<>(orders.size());
+            for (Order order : orders) {
+                if (pending.containsKey(order.getOrderId())) {
+                    unflushed.addSkipped(order.getOrderId());
+                    continue;
+                }
+                applied.remove(order.getOrderId());
+                writable.add(order);
+            }
+            BulkWriteResult<UUID> written = delegate.saveAllFromCrs(writable);
+            return unflushed.merge(written).elapsedMs(written.getElapsedMs()).build();
+        });
+    }
+
+    @Override
+    public Stream<Order> streamAll(int fetchSize) {
+        flush();
+        return delegate.streamAll(fetchSize);
+    }
+
+    @Override
+    public Stream<Order> streamByStatus(OrderStatus status, int fetchSize) {
+        flush();
+        return delegate.streamByStatus(status, fetchSize);
+    }
+
+    @Override
+    public Stream<Order> streamOrdersRequiringSync(int fetchSize) {
+        flush();
+        return delegate.streamOrdersRequiringSync(fetchSize);
+    }
+
+    @Override
+    public List<Order> findPage(UUID afterOrderId, int limit) {
+        flush();
+        return delegate.findPage(afterOrderId, limit);
+    }
+
+    /**
+     * Applies all pending journaled changes to the underlying repository and waits for them to commit.
+     * Changes the underlying repository rejects stay pending and are retried on the next flush.
+     */
+    public void flush() {
+        onFlusher(() -> {
+            flushPending();
+            return null;
+        });
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getFlushCount() {
+        return flushes.get();
+    }
+
+    public long getAppliedEntryCount() {
+        return appliedEntries.get();
+    }
+
+    /**
+     * Stops the background flusher after a final flush and closes the journal. Anything that could not be
+     * flushed stays in the journal and is replayed by {@link #recover()} on the next start.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Error flushing order journal on close: {}", e.getMessage());
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    /**
+     * Runs the task on the flusher thread, so it is serialized with flushes, and waits for it.
+     */
+    private <T> T onFlusher(Callable<T> task) {
+        try {
+            if (Thread.currentThread() == flusherThread) {
+                return task.call();
+            }
+            return flusher.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while flushing order journal", e);
+        } catch (ExecutionException e) {
+            logger.error("Error flushing order journal: {}", e.getCause().getMessage());
+            throw new RuntimeException("Error flushing order journal", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error flushing order journal: {}", e.getMessage());
+            throw new RuntimeException("Error flushing order journal", e);
+        }
+    }
+
+    private void append(List<JournalEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        inFlight.incrementAndGet();
+        try {
+            CompletableFuture<Long> appended = journal.append(entries);
+            long sequence = appended.get();
+            for (JournalEntry entry : entries) {
+                track(entry.withSequence(sequence++));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while journaling orders", e);
+        } catch (ExecutionException e) {
+            logger.error("Error journaling {} order changes: {}", entries.size(), e.getCause().getMessage());
+            throw new RuntimeException("Error journaling orders", e.getCause());
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void track(JournalEntry entry) {
+        pending.merge(entry.getOrderId(), entry,
+                (current, candidate) -> candidate.getSequence() > current.getSequence() ? candidate : current);
+    }
+
+    private void flushQuietly() {
+        try {
+            flushPending();
+        } catch (RuntimeException e) {
+            logger.error("Error flushing order journal: {}", e.getMessage());
+        }
+    }
+
+    private void flushPending() {
+        List<JournalEntry> batch = new ArrayList<>(pending.values());
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long maxSequence = 0;
+        List<Order> saves = new ArrayList<>();
+        List<UUID> deletes = new ArrayList<>();
+        Set<UUID> failed = new HashSet<>();
+        for (JournalEntry entry : batch) {
+            maxSequence = Math.max(maxSequence, entry.getSequence());
+            if (entry.isDelete()) {
+                deletes.add(entry.getOrderId());
+                applied.remove(entry.getOrderId());
+                continue;
+            }
+            try {
+                Order order = entry.toOrder();
+                Order stored = storedState(order.getOrderId());
+                if (stored != null) {
+                    order.restorePersistedState(stored);
+                }
+                saves.add(order);
+            } catch (IOException e) {
+                logger.error("Error decoding journaled order {}: {}", entry.getOrderId(), e.getMessage());
+                failed.add(entry.getOrderId());
+            }
+        }
+
+        if (!saves.isEmpty()) {
+            Set<UUID> failedSaves = new HashSet<>(delegate.saveAll(saves).getFailedIds());
+            for (Order order : saves) {
+                if (failedSaves.contains(order.getOrderId())) {
+                    applied.remove(order.getOrderId());
+                } else {
+                    applied.put(order.getOrderId(), order);
+                }
+            }
+            failed.addAll(failedSaves);
+        }
+        if (!deletes.isEmpty()) {
+            failed.addAll(delegate.deleteAllById(deletes).getFailedIds());
+        }
+
+        for (JournalEntry entry : batch) {
+            if (!failed.contains(entry.getOrderId()) && pending.remove(entry.getOrderId(), entry)) {
+                appliedEntries.incrementAndGet();
+            }
+        }
+        flushes.incrementAndGet();
+        if (!failed.isEmpty()) {
+            logger.warn("{} journaled orders could not be applied and will be retried: {}", failed.size(), failed);
+        }
+
+        // The journal itself refuses to truncate if anything beyond maxSequence has been written since
+        if (pending.isEmpty() && inFlight.get() == 0) {
+            try {
+                journal.checkpoint(maxSequence).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                // Not fatal: the entries are applied and replaying them again is harmless
+                logger.error("Error checkpointing order journal: {}", e.getCause().getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return The order as the underlying repository holds it, or null if it holds no such order.
+     */
+    private Order storedState(UUID orderId) {
+        Order stored = applied.get(orderId);
+        return stored != null ? stored : delegate.findById(orderId).orElse(null);
+    }
+}
@@ -0,0 +1,372 @@
+package com.airline.ordering.repository.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, fsync-batched log of order mutations.
+ * <p>
+ * Appends are queued to a single sync thread that writes every waiting append with one gathering write and one
+ * {@code fsync} (group commit), so the cost of forcing the file to disk is shared by all callers that arrived
+ * while the previous sync was running. An append is acknowledged only once its entries are on disk.
+ * <p>
+ * Each entry is framed with its length and a CRC32 of its contents. When the journal is opened, the file is
+ * scanned up to the first incomplete or corrupt frame, which can only be the tail of an append that was cut off
+ * by a crash and was therefore never acknowledged; that tail is discarded. The surviving entries are available
+ * from {@link #getRecoveredEntries()} for replay. Once every appended entry has been applied to the database,
+ * {@link #checkpoint(long)} empties the file.
+ */
+public class OrderJournal implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderJournal.class);
+
+    // length (4) + crc (4)
+    private static final int FRAME_HEADER_BYTES = 8;
+    // sequence (8) + type (1) + order id (16)
+    private static final int ENTRY_HEADER_BYTES = 25;
+    private static final int MAX_ENTRY_BYTES = 16 * 1024 * 1024;
+
+    private static final Request SHUTDOWN = new Request(Collections.emptyList(), -1);
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<JournalEntry> recoveredEntries;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Thread syncThread;
+
+    // Only modified by the sync thread once it has started
+    private long nextSequence;
+    private long lastWrittenSequence;
+
+    private final AtomicLong appendedEntries = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong checkpoints = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    private OrderJournal(Path path, FileChannel channel, List<JournalEntry> recoveredEntries, long lastSequence) {
+        this.path = path;
+        this.channel = channel;
+        this.recoveredEntries = recoveredEntries;
+        this.lastWrittenSequence = lastSequence;
+        this.nextSequence = lastSequence + 1;
+        this.syncThread = new Thread(this::run, "order-journal-sync");
+        this.syncThread.setDaemon(true);
+        this.syncThread.start();
+    }
+
+    /**
+     * Opens the journal at the given path, creating it if necessary, and recovers the entries it contains.
+     * @param path The journal file.
+     * @return The open journal.
+     * @throws IOException if the file cannot be opened or read.
+     */
+    public static OrderJournal open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        try {
+            List<JournalEntry> entries = new ArrayList<>();
+            long validBytes = readEntries(channel, entries);
+            long size = channel.size();
+            if (validBytes < size) {
+                logger.warn("Discarding {} bytes of incomplete order journal tail in {}", size - validBytes, path);
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+            channel.position(validBytes);
+            long lastSequence = entries.isEmpty() ? 0 : entries.get(entries.size() - 1).getSequence();
+            if (!entries.isEmpty()) {
+                logger.info("Order journal {} contains {} entries awaiting replay", path, entries.size());
+            }
+            return new OrderJournal(path, channel, Collections.unmodifiableList(entries), lastSequence);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the entries found in the file when the journal was opened, in append order.
+     * They may already have been applied before a crash; replaying them again is harmless.
+     */
+    List<JournalEntry> getRecoveredEntries() {
+        return recoveredEntries;
+    }
+
+    /**
+     * Appends the entries and completes once they are durably on disk.
+     * @param entries The entries to append; their sequence numbers are assigned by the journal.
+     * @return A future completed with the sequence number assigned to the first entry, the others following
+     *         consecutively, or completed exceptionally if the write failed.
+     */
+    CompletableFuture<Long> append(List<JournalEntry> entries) {
+        return enqueue(new Request(entries, -1));
+    }
+
+    /**
+     * Empties the journal if no entry after {@code appliedSequence} has been written. Entries appended after
+     * that sequence keep the journal intact until a later checkpoint covers them.
+     * @param appliedSequence The sequence number up to which all entries have been applied to the database.
+     * @return A future completed with the size of the journal in bytes after the checkpoint.
+     */
+    CompletableFuture<Long> checkpoint(long appliedSequence) {
+        return enqueue(new Request(Collections.emptyList(), appliedSequence));
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getAppendedEntryCount() {
+        return appendedEntries.get();
+    }
+
+    public long getSyncCount() {
+        return syncs.get();
+    }
+
+    public long getCheckpointCount() {
+        return checkpoints.get();
+    }
+
+    /**
+     * Stops accepting appends, lets queued appends finish and closes the file. Entries that have not been
+     * checkpointed stay in the file and are recovered the next time it is opened.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            queue.put(SHUTDOWN);
+            syncThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<Request> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        for (Request request : abandoned) {
+            request.future.completeExceptionally(new IOException("Order journal is closed"));
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error closing order journal {}: {}", path, e.getMessage());
+        }
+        logger.info("Order journal {} closed: {} entries appended in {} syncs", path, appendedEntries.get(), syncs.get());
+    }
+
+    private CompletableFuture<Long> enqueue(Request request) {
+        if (!running) {
+            request.future.completeExceptionally(new IOException("Order journal is closed"));
+            return request.future;
+        }
+        queue.add(request);
+        if (!running && queue.remove(request)) {
+            request.future.completeExceptionally(new IOException("Order journal is closed"));
+        }
+        return request.future;
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                if (!running) {
+                    return;
+                }
+                continue;
+            }
+            queue.drainTo(batch);
+            boolean shutdown = batch.remove(SHUTDOWN);
+            process(batch);
+            batch.clear();
+            if (shutdown) {
+                return;
+            }
+        }
+    }
+
+    private void process(List<Request> batch) {
+        long startPosition;
+        long firstSequence = nextSequence;
+        try {
+            startPosition = channel.position();
+        } catch (IOException e) {
+            failAll(batch, e);
+            return;
+        }
+
+        List<ByteBuffer> frames = new ArrayList<>();
+        long sequence = firstSequence;
+        for (Request request : batch) {
+            request.firstSequence = sequence;
+            for (JournalEntry entry : request.entries) {
+                frames.add(frame(entry, sequence++));
+            }
+        }
+
+        try {
+            if (!frames.isEmpty()) {
+                ByteBuffer[] buffers = frames.toArray(new ByteBuffer[0]);
+                while (buffers[buffers.length - 1].hasRemaining()) {
+                    channel.write(buffers);
+                }
+                channel.force(false);
+                syncs.incrementAndGet();
+                appendedEntries.addAndGet(frames.size());
+                nextSequence = sequence;
+                lastWrittenSequence = sequence - 1;
+            }
+            for (Request request : batch) {
+                if (request.checkpoint >= 0 && request.checkpoint >= lastWrittenSequence && channel.size() > 0) {
+                    channel.truncate(0);
+                    channel.position(0);
+                    channel.force(false);
+                    checkpoints.incrementAndGet();
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error writing order journal {}: {}", path, e.getMessage());
+            discardPartialWrite(startPosition);
+            failAll(batch, e);
+            return;
+        }
+
+        long size = currentSize();
+        for (Request request : batch) {
+            request.future.complete(request.checkpoint >= 0 ? size : request.firstSequence);
+        }
+    }
+
+    private void discardPartialWrite(long startPosition) {
+        // A torn frame would hide every later entry from recovery, so cut the file back to the last good frame
+        try {
+            channel.truncate(startPosition);
+            channel.position(startPosition);
+        } catch (IOException e) {
+            logger.error("Error discarding partial order journal write in {}: {}", path, e.getMessage());
+        }
+    }
+
+    private long currentSize() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void failAll(List<Request> batch, IOException e) {
+        for (Request request : batch) {
+            request.future.completeExceptionally(e);
+        }
+    }
+
+    private static ByteBuffer frame(JournalEntry entry, long sequence) {
+        byte[] payload = entry.getPayload();
+        int length = ENTRY_HEADER_BYTES + payload.length;
+        ByteBuffer buffer = ByteBuffer.allocate(FRAME_HEADER_BYTES + length);
+        buffer.position(FRAME_HEADER_BYTES);
+        buffer.putLong(sequence);
+        buffer.put(entry.getType().getCode());
+        buffer.putLong(entry.getOrderId().getMostSignificantBits());
+        buffer.putLong(entry.getOrderId().getLeastSignificantBits());
+        buffer.put(payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), FRAME_HEADER_BYTES, length);
+        buffer.putInt(0, length);
+        buffer.putInt(4, (int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads all intact entries from the start of the file.
+     * @return The number of bytes occupied by intact frames.
+     */
+    private static long readEntries(FileChannel channel, List<JournalEntry> entries) throws IOException {
+        channel.position(0);
+        // Not closed: closing the stream would close the channel
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 64 * 1024));
+        long validBytes = 0;
+        CRC32 crc = new CRC32();
+        while (true) {
+            int length;
+            int checksum;
+            byte[] body;
+            try {
+                length = in.readInt();
+                checksum = in.readInt();
+                if (length < ENTRY_HEADER_BYTES || length > MAX_ENTRY_BYTES) {
+                    return validBytes;
+                }
+                body = new byte[length];
+                in.readFully(body);
+            } catch (EOFException e) {
+                return validBytes;
+            }
+
+            crc.reset();
+            crc.update(body, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                return validBytes;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            long sequence = buffer.getLong();
+            JournalEntry.Type type = JournalEntry.Type.fromCode(buffer.get());
+            UUID orderId = new UUID(buffer.getLong(), buffer.getLong());
+            byte[] payload = new byte[buffer.remaining()];
+            buffer.get(payload);
+            entries.add(new JournalEntry(sequence, type, orderId, payload));
+            validBytes += FRAME_HEADER_BYTES + length;
+        }
+    }
+
+    /**
+     * A queued append or checkpoint and the future its caller waits on.
+     */
+    private static final class Request {
+        private final List<JournalEntry> entries;
+        private final long checkpoint;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+        private long firstSequence;
+
+        private Request(List<JournalEntry> entries, long checkpoint) {
+            this.entries = entries;
+            this.checkpoint = checkpoint;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.airline.ordering.repository.journal;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderItemStatus;
+import com.airline.ordering.domain.OrderStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Binary encoding of a complete order, including its items, as stored in the order journal.
+ * <p>
+ * Every persisted field is written explicitly so that decoding restores the order exactly as it was saved,
+ * including its timestamps and totals; setters that would otherwise touch {@code updatedAt} are called before
+ * the stored timestamps are put back.
+ */
+final class OrderRecordCodec {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private OrderRecordCodec() {
+        // Utility class
+    }
+
+    static byte[] encode(Order order) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            writeUuid(out, order.getOrderId());
+            writeUuid(out, order.getPassengerId());
+            writeString(out, order.getSeatNumber());
+            writeString(out, order.getStatus().name());
+            writeString(out, order.getNotes());
+            writeTimestamp(out, order.getRequestedDeliveryTime());
+            writeTimestamp(out, order.getCreatedAt());
+            writeTimestamp(out, order.getUpdatedAt());
+            writeTimestamp(out, order.getConfirmedAt());
+            writeTimestamp(out, order.getDeliveredAt());
+            out.writeBoolean(order.isSyncedWithCrs());
+            writeTimestamp(out, order.getLastSyncAttempt());
+            writeString(out, order.getCrsOrderId());
+            out.writeInt(order.getSyncVersion());
+            writeDecimal(out, order.getTotalAmount());
+
+            List<OrderItem> items = order.getItems();
+            out.writeInt(items.size());
+            for (OrderItem item : items) {
+                writeUuid(out, item.getOrderItemId());
+                writeUuid(out, item.getMenuItemId());
+                writeString(out, item.getMenuItemName());
+                out.writeInt(item.getQuantity());
+                writeDecimal(out, Objects.requireNonNull(item.getUnitPrice(),
+                        "Order item " + item.getOrderItemId() + " has no unit price"));
+                writeDecimal(out, item.getTotalPrice());
+                writeString(out, item.getSpecialInstructions());
+                writeUuid(out, item.getSubstitutedFromItemId());
+                writeString(out, item.getStatus().name());
+                writeTimestamp(out, item.getCreatedAt());
+                writeTimestamp(out, item.getUpdatedAt());
+            }
+        } catch (IOException e) {
+            // Writing to a byte array cannot fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Order decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported order record version " + version);
+        }
+
+        Order order = new Order();
+        order.setOrderId(readUuid(in));
+        order.setPassengerId(readUuid(in));
+        order.setSeatNumber(readString(in));
+        order.setStatus(OrderStatus.valueOf(readString(in)));
+        order.setNotes(readString(in));
+        order.setRequestedDeliveryTime(readTimestamp(in));
+        LocalDateTime createdAt = readTimestamp(in);
+        LocalDateTime updatedAt = readTimestamp(in);
+        LocalDateTime confirmedAt = readTimestamp(in);
+        LocalDateTime deliveredAt = readTimestamp(in);
+        boolean syncedWithCrs = in.readBoolean();
+        LocalDateTime lastSyncAttempt = readTimestamp(in);
+        String crsOrderId = readString(in);
+        int syncVersion = in.readInt();
+        BigDecimal totalAmount = readDecimal(in);
+
+        int itemCount = in.readInt();
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = new OrderItem();
+            item.setOrderItemId(readUuid(in));
+            item.setMenuItemId(readUuid(in));
+            item.setMenuItemName(readString(in));
+            int quantity = in.readInt();
+            item.setUnitPrice(readDecimal(in));
+            item.setQuantity(quantity);
+            item.setTotalPrice(readDecimal(in));
+            item.setSpecialInstructions(readString(in));
+            item.setSubstitutedFromItemId(readUuid(in));
+            item.setStatus(OrderItemStatus.valueOf(readString(in)));
+            item.setCreatedAt(readTimestamp(in));
+            item.setUpdatedAt(readTimestamp(in));
+            items.add(item);
+        }
+
+        order.setItems(items);
+        order.setTotalAmount(totalAmount);
+        order.setConfirmedAt(confirmedAt);
+        order.setDeliveredAt(deliveredAt);
+        order.setSyncedWithCrs(syncedWithCrs);
+        order.setLastSyncAttempt(lastSyncAttempt);
+        order.setCrsOrderId(crsOrderId);
+        order.setSyncVersion(syncVersion);
+        order.setCreatedAt(createdAt);
+        order.setUpdatedAt(updatedAt);
+        return order;
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getMostSignificantBits());
+            out.writeLong(value.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(value.getNano());
+        }
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        return in.readBoolean() ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        out.writeInt(value.scale());
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readInt();
+        byte[] unscaled = new byte[in.readInt()];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+}
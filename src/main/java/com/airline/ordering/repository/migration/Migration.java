@@ -0,0 +1,29 @@
+package com.airline.ordering.repository.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A single, versioned step in the evolution of the onboard database schema.
+ * Migrations are applied in ascending version order, each in its own transaction, and recorded
+ * in the {@code schema_version} table so they run exactly once per device.
+ */
+public interface Migration {
+
+    /**
+     * Returns the schema version this migration produces. Versions must be positive and unique.
+     */
+    int getVersion();
+
+    /**
+     * Returns a short human-readable description, recorded alongside the version.
+     */
+    String getDescription();
+
+    /**
+     * Applies the migration.
+     * @param connection The connection to use; the surrounding transaction is managed by the caller.
+     * @throws SQLException if the migration fails, in which case none of its changes are kept.
+     */
+    void apply(Connection connection) throws SQLException;
+}
@@ -0,0 +1,182 @@
+package com.airline.ordering.repository.migration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Catalog of the schema migrations shipped with the application.
+ * <p>
+ * Released migrations must never be edited; schema changes are made by appending a new version.
+ */
+public final class Migrations {
+
+    private static final Migration V1_BASELINE = SqlMigration.of(1, "Baseline schema",
+            "CREATE TABLE IF NOT EXISTS passengers (\n" +
+            "    passenger_id TEXT PRIMARY KEY,\n" +
+            "    first_name TEXT NOT NULL,\n" +
+            "    last_name TEXT NOT NULL,\n" +
+            "    email TEXT,\n" +
+            "    phone_number TEXT,\n" +
+            "    seat_number TEXT NOT NULL,\n" +
+            "    type TEXT NOT NULL,\n" +
+            "    special_requirements TEXT,\n" +
+            "    created_at TEXT NOT NULL,\n" +
+            "    updated_at TEXT NOT NULL\n" +
+            ");",
+            "CREATE TABLE IF NOT EXISTS menu_items (\n" +
+            "    item_id TEXT PRIMARY KEY,\n" +
+            "    name TEXT NOT NULL,\n" +
+            "    description TEXT,\n" +
+            "    price REAL NOT NULL,\n" +
+            "    category TEXT NOT NULL,\n" +
+            "    available_for_types TEXT,\n" +
+            "    allergens TEXT,\n" +
+            "    dietary_tags TEXT,\n" +
+            "    status TEXT NOT NULL,\n" +
+            "    inventory_count INTEGER NOT NULL,\n" +
+            "    substitutable_items TEXT,\n" +
+            "    combo_items TEXT,\n" +
+            "    created_at TEXT NOT NULL,\n" +
+            "    updated_at TEXT NOT NULL\n" +
+            ");",
+            "CREATE TABLE IF NOT EXISTS orders (\n" +
+            "    order_id TEXT PRIMARY KEY,\n" +
+            "    passenger_id TEXT NOT NULL,\n" +
+            "    seat_number TEXT NOT NULL,\n" +
+            "    total_amount REAL NOT NULL,\n" +
+            "    status TEXT NOT NULL,\n" +
+            "    notes TEXT,\n" +
+            "    requested_delivery_time TEXT,\n" +
+            "    created_at TEXT NOT NULL,\n" +
+            "    updated_at TEXT NOT NULL,\n" +
+            "    confirmed_at TEXT,\n" +
+            "    delivered_at TEXT,\n" +
+            "    synced_with_crs INTEGER NOT NULL,\n" +
+            "    last_sync_attempt TEXT,\n" +
+            "    crs_order_id TEXT,\n" +
+            "    sync_version INTEGER NOT NULL\n" +
+            ");",
+            "CREATE TABLE IF NOT EXISTS order_items (\n" +
+            "    order_item_id TEXT PRIMARY KEY,\n" +
+            "    order_id TEXT NOT NULL,\n" +
+            "    menu_item_id TEXT NOT NULL,\n" +
+            "    menu_item_name TEXT NOT NULL,\n" +
+            "    quantity INTEGER NOT NULL,\n" +
+            "    unit_price REAL NOT NULL,\n" +
+            "    total_price REAL NOT NULL,\n" +
+            "    special_instructions TEXT,\n" +
+            "    substituted_from_item_id TEXT,\n" +
+            "    status TEXT NOT NULL,\n" +
+            "    created_at TEXT NOT NULL,\n" +
+            "    updated_at TEXT NOT NULL,\n" +
+            "    FOREIGN KEY (order_id) REFERENCES orders(order_id) ON DELETE CASCADE\n" +
+            ");");
+
+    /**
+     * Indexes for the repository lookups. order_items(order_id) also serves the foreign key cascade, and the
+     * partial index keeps the sync backlog query proportional to the number of unsynced orders.
+     */
+    private static final Migration V2_LOOKUP_INDEXES = SqlMigration.of(2, "Lookup indexes",
+            "CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items (order_id)",
+            "CREATE INDEX IF NOT EXISTS idx_orders_passenger_id ON orders (passenger_id)",
+            "CREATE INDEX IF NOT EXISTS idx_orders_seat_number ON orders (seat_number)",
+            "CREATE INDEX IF NOT EXISTS idx_orders_status ON orders (status)",
+            "CREATE INDEX IF NOT EXISTS idx_orders_unsynced ON orders (status) WHERE synced_with_crs = 0",
+            "CREATE INDEX IF NOT EXISTS idx_passengers_seat_number ON passengers (seat_number)",
+            "CREATE INDEX IF NOT EXISTS idx_menu_items_category ON menu_items (category, status)",
+            "CREATE INDEX IF NOT EXISTS idx_menu_items_status ON menu_items (status)",
+            "ANALYZE");
+
+    /**
+     * Full-text index over the searchable menu columns, kept in sync with menu_items by triggers.
+     * The index stores its own copy of the text keyed by item_id rather than pointing at menu_items rowids,
+     * which VACUUM may renumber. The JSON tag columns are indexed as-is; the tokenizer drops the brackets and quotes.
+     */
+    private static final Migration V3_MENU_SEARCH_INDEX = SqlMigration.of(3, "Menu full-text search index",
+            "CREATE VIRTUAL TABLE IF NOT EXISTS menu_items_fts USING fts5(\n" +
+            "    item_id UNINDEXED, name, description, dietary_tags, allergens,\n" +
+            "    tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3'\n" +
+            ");",
+            "CREATE TRIGGER IF NOT EXISTS menu_items_fts_insert AFTER INSERT ON menu_items BEGIN\n" +
+            "    INSERT INTO menu_items_fts (item_id, name, description, dietary_tags, allergens)\n" +
+            "    VALUES (new.item_id, new.name, new.description, new.dietary_tags, new.allergens);\n" +
+            "END;",
+            "CREATE TRIGGER IF NOT EXISTS menu_items_fts_delete AFTER DELETE ON menu_items BEGIN\n" +
+            "    DELETE FROM menu_items_fts WHERE item_id = old.item_id;\n" +
+            "END;",
+            "CREATE TRIGGER IF NOT EXISTS menu_items_fts_update\n" +
+            "AFTER UPDATE OF name, description, dietary_tags, allergens ON menu_items BEGIN\n" +
+            "    DELETE FROM menu_items_fts WHERE item_id = old.item_id;\n" +
+            "    INSERT INTO menu_items_fts (item_id, name, description, dietary_tags, allergens)\n" +
+            "    VALUES (new.item_id, new.name, new.description, new.dietary_tags, new.allergens);\n" +
+            "END;",
+            "INSERT INTO menu_items_fts (item_id, name, description, dietary_tags, allergens)\n" +
+            "SELECT item_id, name, description, dietary_tags, allergens FROM menu_items");
+
+    /**
+     * Orders waiting to be pushed to the CRS, so the sync backlog and its priorities survive a restart. One row per
+     * order: repeated changes to an order while it waits update the row instead of adding one.
+     */
+    private static final Migration V4_SYNC_QUEUE = SqlMigration.of(4, "Sync queue",
+            "CREATE TABLE IF NOT EXISTS sync_queue (\n" +
+            "    order_id TEXT PRIMARY KEY,\n" +
+            "    operation TEXT NOT NULL,\n" +
+            "    enqueued_at TEXT NOT NULL,\n" +
+            "    attempts INTEGER NOT NULL\n" +
+            ");");
+
+    /**
+     * Append-only log of order changes still to be pushed to the CRS. Each row is the delta of one save, numbered by a
+     * sequence that is never reused, and the checkpoint holds the highest sequence the CRS has acknowledged.
+     */
+    private static final Migration V5_ORDER_CHANGE_LOG = SqlMigration.of(5, "Order change log",
+            "CREATE TABLE IF NOT EXISTS order_change_log (\n" +
+            "    sequence INTEGER PRIMARY KEY AUTOINCREMENT,\n" +
+            "    order_id TEXT NOT NULL,\n" +
+            "    sync_version INTEGER NOT NULL,\n" +
+            "    delta TEXT NOT NULL,\n" +
+            "    recorded_at TEXT NOT NULL\n" +
+            ");",
+            "CREATE TABLE IF NOT EXISTS change_log_checkpoint (\n" +
+            "    name TEXT PRIMARY KEY,\n" +
+            "    sequence INTEGER NOT NULL\n" +
+            ");");
+
+    /**
+     * Progress of pulling remote order updates from the CRS: the server time the last complete pull covered, and for a
+     * pull still in progress the server time it started at and the continuation token of its next page.
+     */
+    private static final Migration V6_PULL_CHECKPOINT = SqlMigration.of(6, "Pull checkpoint",
+            "CREATE TABLE IF NOT EXISTS pull_checkpoint (\n" +
+            "    name TEXT PRIMARY KEY,\n" +
+            "    since TEXT,\n" +
+            "    pull_started_at TEXT,\n" +
+            "    continuation_token TEXT,\n" +
+            "    updated_at TEXT NOT NULL\n" +
+            ");");
+
+    private static final List<Migration> ALL;
+
+    static {
+        List<Migration> migrations = new ArrayList<>();
+        migrations.add(V1_BASELINE);
+        migrations.add(V2_LOOKUP_INDEXES);
+        migrations.add(V3_MENU_SEARCH_INDEX);
+        migrations.add(V4_SYNC_QUEUE);
+        migrations.add(V5_ORDER_CHANGE_LOG);
+        migrations.add(V6_PULL_CHECKPOINT);
+        ALL = Collections.unmodifiableList(migrations);
+    }
+
+    private Migrations() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Returns all migrations in version order.
+     */
+    public static List<Migration> all() {
+        return ALL;
+    }
+}
@@ -0,0 +1,134 @@
+package com.airline.ordering.repository.migration;
+
+import com.airline.ordering.repository.connection.SQLiteWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Brings the onboard database up to the latest schema version.
+ * <p>
+ * The applied version is tracked in the {@code schema_version} table. Pending migrations are applied on the
+ * writer thread in ascending order, each in its own transaction together with its {@code schema_version} row,
+ * so a device that loses power mid-upgrade resumes from the last completed step on the next start.
+ * A database already at a newer version than this build knows about is left untouched.
+ */
+public class SchemaMigrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaMigrator.class);
+
+    private static final String CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS schema_version (\n" +
+                                                       "    version INTEGER PRIMARY KEY,\n" +
+                                                       "    description TEXT NOT NULL,\n" +
+                                                       "    applied_at TEXT NOT NULL\n" +
+                                                       ");";
+
+    private final List<Migration> migrations;
+
+    /**
+     * Creates a migrator for the given migrations.
+     * @param migrations The known migrations, in any order.
+     * @throws IllegalArgumentException if two migrations share a version.
+     */
+    public SchemaMigrator(List<? extends Migration> migrations) {
+        List<Migration> sorted = new ArrayList<>(migrations);
+        sorted.sort(Comparator.comparingInt(Migration::getVersion));
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).getVersion() == sorted.get(i - 1).getVersion()) {
+                throw new IllegalArgumentException("Duplicate migration version: " + sorted.get(i).getVersion());
+            }
+        }
+        this.migrations = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Returns the latest schema version known to this migrator, or 0 if there are no migrations.
+     */
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    /**
+     * Applies all pending migrations.
+     * @param writer The writer used to run the migrations.
+     * @return The number of migrations applied.
+     * @throws SQLException if a migration fails; earlier migrations stay applied.
+     */
+    public int migrate(SQLiteWriter writer) throws SQLException {
+        int currentVersion = writer.execute(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(CREATE_VERSION_TABLE);
+            }
+            return getCurrentVersion(conn);
+        });
+
+        if (currentVersion > getLatestVersion()) {
+            logger.warn("Database schema version {} is newer than the latest known version {}; skipping migrations",
+                    currentVersion, getLatestVersion());
+            return 0;
+        }
+
+        int applied = 0;
+        for (Migration migration : migrations) {
+            if (migration.getVersion() <= currentVersion) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                writer.execute(conn -> {
+                    migration.apply(conn);
+                    recordVersion(conn, migration);
+                    return null;
+                });
+            } catch (SQLException e) {
+                logger.error("Error applying schema migration {}: {}", migration.getVersion(), e.getMessage());
+                throw e;
+            }
+            logger.info("Applied schema migration V{} ({}) in {} ms", migration.getVersion(),
+                    migration.getDescription(), (System.nanoTime() - start) / 1_000_000);
+            applied++;
+        }
+
+        if (applied > 0) {
+            writer.execute(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("PRAGMA optimize");
+                }
+                return null;
+            });
+        }
+        return applied;
+    }
+
+    /**
+     * Returns the highest applied schema version, or 0 for a database without migrations.
+     * @param connection The connection to query.
+     * @throws SQLException if the version table cannot be read.
+     */
+    public static int getCurrentVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private void recordVersion(Connection connection, Migration migration) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.getVersion());
+            pstmt.setString(2, migration.getDescription());
+            pstmt.setString(3, LocalDateTime.now().toString());
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.airline.ordering.repository.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Migration} made up of plain SQL statements executed in order.
+ */
+public final class SqlMigration implements Migration {
+
+    private final int version;
+    private final String description;
+    private final List<String> statements;
+
+    private SqlMigration(int version, String description, List<String> statements) {
+        if (version <= 0) {
+            throw new IllegalArgumentException("Migration version must be positive: " + version);
+        }
+        if (statements.isEmpty()) {
+            throw new IllegalArgumentException("Migration " + version + " has no statements");
+        }
+        this.version = version;
+        this.description = description;
+        this.statements = statements;
+    }
+
+    /**
+     * Creates a migration from the given statements.
+     * @param version The schema version the migration produces.
+     * @param description A short description of the change.
+     * @param statements The SQL statements to execute, in order.
+     */
+    public static SqlMigration of(int version, String description, String... statements) {
+        return new SqlMigration(version, description, Collections.unmodifiableList(Arrays.asList(statements)));
+    }
+
+    @Override
+    public int getVersion() {
+        return version;
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    public List<String> getStatements() {
+        return statements;
+    }
+
+    @Override
+    public void apply(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + " " + description;
+    }
+}
@@ -0,0 +1,229 @@
+package com.airline.ordering.repository.migration;
+
+import com.airline.ordering.repository.connection.SQLiteWriter;
+import com.airline.ordering.repository.connection.StorageFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Converts the {@code orders} and {@code order_items} tables between {@link StorageFormat}s.
+ * <p>
+ * SQLite cannot change a column type in place, so both tables are rebuilt: new tables are created with the
+ * target column types, every row is read with the current format's codec and written with the target's, the
+ * old tables are dropped and the new ones renamed into place, and the indexes are recreated. The whole rebuild
+ * runs in a single writer transaction, so an interrupted conversion leaves the original tables untouched.
+ */
+public class StorageFormatConverter {
+
+    private static final Logger logger = LoggerFactory.getLogger(StorageFormatConverter.class);
+
+    private enum Kind { UUID, TIMESTAMP, MONEY, PLAIN }
+
+    private static final class Column {
+        private final String name;
+        private final Kind kind;
+        private final String plainType;
+        private final boolean notNull;
+
+        private Column(String name, Kind kind, String plainType, boolean notNull) {
+            this.name = name;
+            this.kind = kind;
+            this.plainType = plainType;
+            this.notNull = notNull;
+        }
+
+        private String declaration(StorageFormat format) {
+            String type;
+            switch (kind) {
+                case UUID:
+                    type = format.getUuidColumnType();
+                    break;
+                case TIMESTAMP:
+                    type = format.getTimestampColumnType();
+                    break;
+                case MONEY:
+                    type = format.getMoneyColumnType();
+                    break;
+                default:
+                    type = plainType;
+            }
+            return name + " " + type + (notNull ? " NOT NULL" : "");
+        }
+    }
+
+    private static final List<Column> ORDER_COLUMNS = Arrays.asList(
+            new Column("order_id", Kind.UUID, null, true),
+            new Column("passenger_id", Kind.UUID, null, true),
+            new Column("seat_number", Kind.PLAIN, "TEXT", true),
+            new Column("total_amount", Kind.MONEY, null, true),
+            new Column("status", Kind.PLAIN, "TEXT", true),
+            new Column("notes", Kind.PLAIN, "TEXT", false),
+            new Column("requested_delivery_time", Kind.TIMESTAMP, null, false),
+            new Column("created_at", Kind.TIMESTAMP, null, true),
+            new Column("updated_at", Kind.TIMESTAMP, null, true),
+            new Column("confirmed_at", Kind.TIMESTAMP, null, false),
+            new Column("delivered_at", Kind.TIMESTAMP, null, false),
+            new Column("synced_with_crs", Kind.PLAIN, "INTEGER", true),
+            new Column("last_sync_attempt", Kind.TIMESTAMP, null, false),
+            new Column("crs_order_id", Kind.PLAIN, "TEXT", false),
+            new Column("sync_version", Kind.PLAIN, "INTEGER", true));
+
+    private static final List<Column> ORDER_ITEM_COLUMNS = Arrays.asList(
+            new Column("order_item_id", Kind.UUID, null, true),
+            new Column("order_id", Kind.UUID, null, true),
+            new Column("menu_item_id", Kind.UUID, null, true),
+            new Column("menu_item_name", Kind.PLAIN, "TEXT", true),
+            new Column("quantity", Kind.PLAIN, "INTEGER", true),
+            new Column("unit_price", Kind.MONEY, null, true),
+            new Column("total_price", Kind.MONEY, null, true),
+            new Column("special_instructions", Kind.PLAIN, "TEXT", false),
+            new Column("substituted_from_item_id", Kind.UUID, null, false),
+            new Column("status", Kind.PLAIN, "TEXT", true),
+            new Column("created_at", Kind.TIMESTAMP, null, true),
+            new Column("updated_at", Kind.TIMESTAMP, null, true));
+
+    /**
+     * Converts the order tables to the given format if they are not already stored in it.
+     * @param writer The writer used to run the conversion.
+     * @param target The desired storage format.
+     * @return {@literal true} if the tables were converted, {@literal false} if they already used the format.
+     * @throws SQLException if the conversion fails; the tables are then left in their original format.
+     */
+    public boolean ensureFormat(SQLiteWriter writer, StorageFormat target) throws SQLException {
+        long start = System.nanoTime();
+        StorageFormat[] converted = new StorageFormat[1];
+        int rows;
+        try {
+            rows = writer.execute(conn -> {
+                StorageFormat current = detectFormat(conn);
+                if (current == target) {
+                    return -1;
+                }
+                converted[0] = current;
+                return convert(conn, current, target);
+            });
+        } catch (SQLException e) {
+            logger.error("Error converting order tables to {} storage: {}", target, e.getMessage());
+            throw e;
+        }
+        if (rows < 0) {
+            return false;
+        }
+        logger.info("Converted order tables from {} to {} storage ({} rows) in {} ms",
+                converted[0], target, rows, (System.nanoTime() - start) / 1_000_000);
+        return true;
+    }
+
+    /**
+     * Returns the format the order tables are currently stored in, judged by the declared type of
+     * {@code orders.order_id}.
+     * @param connection The connection to query.
+     * @throws SQLException if the orders table does not exist or has an unknown layout.
+     */
+    public static StorageFormat detectFormat(Connection connection) throws SQLException {
+        String sql = "SELECT type FROM pragma_table_info('orders') WHERE name = 'order_id'";
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            if (!rs.next()) {
+                throw new SQLException("Table orders does not exist");
+            }
+            String type = rs.getString(1);
+            for (StorageFormat format : StorageFormat.values()) {
+                if (format.getUuidColumnType().equalsIgnoreCase(type)) {
+                    return format;
+                }
+            }
+            throw new SQLException("Unknown storage format for orders.order_id of type " + type);
+        }
+    }
+
+    private int convert(Connection conn, StorageFormat source, StorageFormat target) throws SQLException {
+        List<String> indexes = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT sql FROM sqlite_master WHERE type = 'index' " +
+                     "AND tbl_name IN ('orders', 'order_items') AND sql IS NOT NULL")) {
+            while (rs.next()) {
+                indexes.add(rs.getString(1));
+            }
+        }
+
+        int rows;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(createTable("orders_new", ORDER_COLUMNS, target, "PRIMARY KEY (order_id)"));
+            stmt.execute(createTable("order_items_new", ORDER_ITEM_COLUMNS, target, "PRIMARY KEY (order_item_id)",
+                    "FOREIGN KEY (order_id) REFERENCES orders_new(order_id) ON DELETE CASCADE"));
+            rows = copyRows(conn, "orders", "orders_new", ORDER_COLUMNS, source, target);
+            rows += copyRows(conn, "order_items", "order_items_new", ORDER_ITEM_COLUMNS, source, target);
+
+            stmt.execute("DROP TABLE order_items");
+            stmt.execute("DROP TABLE orders");
+            stmt.execute("ALTER TABLE orders_new RENAME TO orders");
+            stmt.execute("ALTER TABLE order_items_new RENAME TO order_items");
+            for (String index : indexes) {
+                stmt.execute(index);
+            }
+            try (ResultSet rs = stmt.executeQuery("PRAGMA foreign_key_check")) {
+                if (rs.next()) {
+                    throw new SQLException("Foreign key violation in " + rs.getString(1) + " after conversion");
+                }
+            }
+            stmt.execute("PRAGMA optimize");
+        }
+        return rows;
+    }
+
+    private static String createTable(String table, List<Column> columns, StorageFormat format, String... constraints) {
+        List<String> definitions = columns.stream()
+                .map(column -> column.declaration(format))
+                .collect(Collectors.toList());
+        definitions.addAll(Arrays.asList(constraints));
+        return "CREATE TABLE " + table + " (\n    " + String.join(",\n    ", definitions) + "\n)";
+    }
+
+    private static int copyRows(Connection conn, String from, String to, List<Column> columns,
+                                StorageFormat source, StorageFormat target) throws SQLException {
+        String names = columns.stream().map(column -> column.name).collect(Collectors.joining(", "));
+        String placeholders = columns.stream().map(column -> "?").collect(Collectors.joining(", "));
+        int rows = 0;
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery("SELECT " + names + " FROM " + from);
+             PreparedStatement insert = conn.prepareStatement(
+                     "INSERT INTO " + to + " (" + names + ") VALUES (" + placeholders + ")")) {
+            while (rs.next()) {
+                for (int i = 0; i < columns.size(); i++) {
+                    Column column = columns.get(i);
+                    int index = i + 1;
+                    switch (column.kind) {
+                        case UUID:
+                            target.setUuid(insert, index, source.getUuid(rs, column.name));
+                            break;
+                        case TIMESTAMP:
+                            target.setTimestamp(insert, index, source.getTimestamp(rs, column.name));
+                            break;
+                        case MONEY:
+                            target.setMoney(insert, index, source.getMoney(rs, column.name));
+                            break;
+                        default:
+                            insert.setObject(index, rs.getObject(column.name));
+                    }
+                }
+                insert.addBatch();
+                if (++rows % 500 == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        return rows;
+    }
+}
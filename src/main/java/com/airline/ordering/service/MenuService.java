@@ -3,6 +3,7 @@ package com.airline.ordering.service;
 import com.airline.ordering.domain.MenuItem;
 import com.airline.ordering.domain.MenuCategory;
 import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.service.inventory.ReservationToken;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -120,6 +121,50 @@ public interface MenuService {
      */
     void releaseInventory(UUID itemId, int quantity);
     
+    /**
+     * Holds inventory for a holder, such as the item of a draft order, until the holder's holds are committed or
+     * released. A hold that is neither is released automatically after a timeout.
+     * 
+     * @param holderId The holder, e.g. the order item ID
+     * @param itemId The menu item ID
+     * @param quantity The quantity to hold
+     * @return The hold, or empty if there is insufficient inventory
+     */
+    Optional<ReservationToken> holdInventory(UUID holderId, UUID itemId, int quantity);
+    
+    /**
+     * Releases a single hold, e.g. when the change it was taken for fails.
+     * 
+     * @param hold The hold to release
+     */
+    void cancelInventoryHold(ReservationToken hold);
+    
+    /**
+     * Turns the outstanding holds of a holder into permanent inventory decrements.
+     * 
+     * @param holderId The holder
+     * @return The quantity committed, which leaves out holds that have timed out
+     */
+    int commitInventoryHolds(UUID holderId);
+    
+    /**
+     * Releases the outstanding holds of a holder.
+     * 
+     * @param holderId The holder
+     * @return The quantity released, which leaves out holds that have timed out
+     */
+    int releaseInventoryHolds(UUID holderId);
+    
+    /**
+     * Reduces the outstanding holds of a holder to the given quantity and releases the rest, without ever letting
+     * go of the quantity kept.
+     * 
+     * @param holderId The holder
+     * @param quantity The quantity to keep held
+     * @return The quantity still held, which is less than asked for if holds have timed out
+     */
+    int shrinkInventoryHolds(UUID holderId, int quantity);
+    
     /**
      * Updates inventory count for a menu item.
      * 
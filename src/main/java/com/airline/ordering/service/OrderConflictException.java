@@ -0,0 +1,36 @@
+package com.airline.ordering.service;
+
+import java.util.UUID;
+
+/**
+ * Exception thrown when an order is saved from a copy that is older than the stored order,
+ * i.e. its sync version no longer matches because another device changed the order in the meantime.
+ */
+public class OrderConflictException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final UUID orderId;
+    private final int expectedVersion;
+    private final int actualVersion;
+    
+    public OrderConflictException(UUID orderId, int expectedVersion, int actualVersion) {
+        super("Order " + orderId + " was modified concurrently: expected version " + expectedVersion
+                + " but found " + actualVersion);
+        this.orderId = orderId;
+        this.expectedVersion = expectedVersion;
+        this.actualVersion = actualVersion;
+    }
+    
+    public UUID getOrderId() {
+        return orderId;
+    }
+    
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+    
+    public int getActualVersion() {
+        return actualVersion;
+    }
+}
@@ -0,0 +1,43 @@
+package com.airline.ordering.service.impl;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by many keys. Each key always maps to the same lock, so operations on one key are
+ * serialized while operations on keys that map to different stripes run in parallel, without allocating a lock
+ * per key or ever holding a global lock.
+ */
+final class LockStripes {
+    
+    private final ReentrantLock[] locks;
+    private final int mask;
+    
+    /**
+     * @param minimumStripes The minimum number of locks; rounded up to a power of two.
+     */
+    LockStripes(int minimumStripes) {
+        if (minimumStripes < 1) {
+            throw new IllegalArgumentException("minimumStripes must be at least 1");
+        }
+        int stripes = Integer.highestOneBit(minimumStripes);
+        if (stripes < minimumStripes) {
+            stripes <<= 1;
+        }
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = stripes - 1;
+    }
+    
+    ReentrantLock forKey(Object key) {
+        int hash = key.hashCode();
+        // Spread the high bits so keys differing only there do not share a stripe
+        hash ^= hash >>> 16;
+        return locks[hash & mask];
+    }
+    
+    int size() {
+        return locks.length;
+    }
+}
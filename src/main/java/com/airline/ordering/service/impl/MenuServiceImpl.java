@@ -0,0 +1,293 @@
+package com.airline.ordering.service.impl;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.MenuItemRepository;
+import com.airline.ordering.service.MenuService;
+import com.airline.ordering.service.inventory.InventoryEngine;
+import com.airline.ordering.service.inventory.ReservationToken;
+import com.airline.ordering.service.menu.MenuGraph;
+import com.airline.ordering.service.menu.MenuSnapshot;
+import com.airline.ordering.service.menu.MenuTagIndex;
+import com.airline.ordering.service.menu.MenuViews;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Default {@link MenuService}, reading the menu from a {@link MenuItemRepository}.
+ * <p>
+ * Inventory is owned by an {@link InventoryEngine}: reservations and releases are lock-free in memory and the
+ * engine persists the counts in the background. Inventory held for draft orders is reserved in the engine and
+ * released by it if the hold is not committed within the hold timeout. A service that created its own engine
+ * closes it on {@link #close()}, persisting the counts not yet written.
+ * <p>
+ * Menu listings are served from {@link MenuViews} that are kept up to date as items are saved, deleted, sell out
+ * or come back into stock. Listed items are the read-only snapshots the views hold, shared by every caller, and
+ * carry the live inventory count; copy one to change it. Combo and substitution rules are answered from a
+ * {@link MenuGraph}; substitution is transitive.
+ */
+public class MenuServiceImpl implements MenuService, AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MenuServiceImpl.class);
+    
+    public static final Duration DEFAULT_HOLD_TIMEOUT = Duration.ofMinutes(30);
+    
+    private final MenuItemRepository menuItemRepository;
+    private final InventoryEngine inventory;
+    private final boolean ownsInventory;
+    private final Duration holdTimeout;
+    private final MenuViews views;
+    private final MenuGraph graph = new MenuGraph();
+    
+    /**
+     * Creates a service with an inventory engine of its own, loaded from the repository and closed with the
+     * service.
+     * @param menuItemRepository The repository the menu is read from.
+     */
+    public MenuServiceImpl(MenuItemRepository menuItemRepository) {
+        this(menuItemRepository, new InventoryEngine(menuItemRepository), true, DEFAULT_HOLD_TIMEOUT);
+    }
+    
+    /**
+     * Creates a service on a shared inventory engine, loading the stored stock of items it does not track yet.
+     * The engine stays open when the service is closed.
+     * @param menuItemRepository The repository the menu is read from.
+     * @param inventory The inventory engine.
+     */
+    public MenuServiceImpl(MenuItemRepository menuItemRepository, InventoryEngine inventory) {
+        this(menuItemRepository, inventory, DEFAULT_HOLD_TIMEOUT);
+    }
+    
+    /**
+     * Creates a service on a shared inventory engine whose inventory holds last the given time.
+     * @param menuItemRepository The repository the menu is read from.
+     * @param inventory The inventory engine.
+     * @param holdTimeout How long inventory stays held if the hold is neither committed nor released.
+     */
+    public MenuServiceImpl(MenuItemRepository menuItemRepository, InventoryEngine inventory, Duration holdTimeout) {
+        this(menuItemRepository, inventory, false, holdTimeout);
+    }
+    
+    private MenuServiceImpl(MenuItemRepository menuItemRepository, InventoryEngine inventory, boolean ownsInventory,
+                            Duration holdTimeout) {
+        this.menuItemRepository = menuItemRepository;
+        this.inventory = inventory;
+        this.ownsInventory = ownsInventory;
+        this.holdTimeout = holdTimeout;
+        this.views = new MenuViews(inventory, new MenuTagIndex());
+        List<MenuItem> menu = menuItemRepository.findAll();
+        inventory.load(menu);
+        views.load(menu);
+        graph.load(menu);
+        inventory.addStockListener(views);
+    }
+    
+    @Override
+    public Optional<MenuItem> getMenuItem(UUID itemId) {
+        return menuItemRepository.findById(itemId).map(this::withLiveInventory);
+    }
+    
+    @Override
+    public List<MenuItem> getAvailableMenuItems(PassengerType passengerType) {
+        return views.available(passengerType);
+    }
+    
+    @Override
+    public List<MenuItem> getMenuItemsByCategory(MenuCategory category, PassengerType passengerType) {
+        return views.available(passengerType, category);
+    }
+    
+    @Override
+    public List<MenuItem> searchMenuItems(String searchTerm, PassengerType passengerType) {
+        List<MenuItem> matches = new ArrayList<>();
+        for (MenuItem item : menuItemRepository.searchByNameOrDescription(searchTerm)) {
+            if (isOrderable(item, passengerType)) {
+                matches.add(withLiveInventory(item));
+            }
+        }
+        return matches;
+    }
+    
+    @Override
+    public List<MenuItem> getMenuItemsByDietaryRequirements(Set<String> dietaryTags, PassengerType passengerType) {
+        return views.withDietaryTags(passengerType, dietaryTags);
+    }
+    
+    @Override
+    public boolean isItemAvailable(UUID itemId, PassengerType passengerType, int quantity) {
+        return menuItemRepository.findById(itemId)
+                .filter(item -> item.isAvailableFor(passengerType))
+                .isPresent() && inventory.getAvailable(itemId) >= quantity;
+    }
+    
+    @Override
+    public boolean isValidCombo(UUID itemId1, UUID itemId2) {
+        return graph.isValidCombo(itemId1, itemId2);
+    }
+    
+    @Override
+    public boolean isValidCombo(List<UUID> itemIds) {
+        return graph.isValidCombo(itemIds);
+    }
+    
+    @Override
+    public boolean canSubstitute(UUID originalItemId, UUID substitutionItemId, PassengerType passengerType) {
+        return graph.canSubstitute(originalItemId, substitutionItemId, passengerType)
+                && inventory.getAvailable(substitutionItemId) > 0;
+    }
+    
+    @Override
+    public List<MenuItem> getPossibleSubstitutions(UUID itemId, PassengerType passengerType) {
+        List<MenuItem> substitutions = new ArrayList<>();
+        for (UUID substitutionId : graph.substitutionsFor(itemId, passengerType)) {
+            if (inventory.getAvailable(substitutionId) > 0) {
+                menuItemRepository.findById(substitutionId).map(this::withLiveInventory).ifPresent(substitutions::add);
+            }
+        }
+        return substitutions;
+    }
+    
+    @Override
+    public boolean reserveInventory(UUID itemId, int quantity) {
+        return inventory.tryConsume(itemId, quantity);
+    }
+    
+    @Override
+    public void releaseInventory(UUID itemId, int quantity) {
+        inventory.restock(itemId, quantity);
+    }
+    
+    @Override
+    public Optional<ReservationToken> holdInventory(UUID holderId, UUID itemId, int quantity) {
+        return inventory.reserve(holderId, itemId, quantity, holdTimeout);
+    }
+    
+    @Override
+    public void cancelInventoryHold(ReservationToken hold) {
+        inventory.cancel(hold);
+    }
+    
+    @Override
+    public int commitInventoryHolds(UUID holderId) {
+        return inventory.commitAll(holderId);
+    }
+    
+    @Override
+    public int releaseInventoryHolds(UUID holderId) {
+        return inventory.cancelAll(holderId);
+    }
+    
+    @Override
+    public int shrinkInventoryHolds(UUID holderId, int quantity) {
+        return inventory.shrinkAll(holderId, quantity);
+    }
+    
+    @Override
+    public void updateInventory(UUID itemId, int newCount) {
+        inventory.setStock(itemId, newCount);
+        logger.info("Inventory of MenuItem {} set to {}", itemId, newCount);
+    }
+    
+    @Override
+    public int getInventoryCount(UUID itemId) {
+        return inventory.getAvailable(itemId);
+    }
+    
+    @Override
+    public List<String> validateOrderItems(List<UUID> orderItems, PassengerType passengerType) {
+        List<String> errors = new ArrayList<>();
+        for (UUID itemId : orderItems) {
+            Optional<MenuItem> item = menuItemRepository.findById(itemId);
+            if (item.isEmpty()) {
+                errors.add("Menu item not found: " + itemId);
+            } else if (!item.get().isAvailableFor(passengerType)) {
+                errors.add(item.get().getName() + " is not available for " + passengerType + " passengers");
+            } else if (inventory.getAvailable(itemId) <= 0) {
+                errors.add(item.get().getName() + " is out of stock");
+            }
+        }
+        return errors;
+    }
+    
+    @Override
+    public List<MenuCategory> getAvailableCategories(PassengerType passengerType) {
+        return views.categories(passengerType);
+    }
+    
+    /**
+     * Saves a menu item. The stock of an item that is already on the menu stays with the inventory engine, so an
+     * edit made from a stale copy cannot undo reservations; use {@link #updateInventory} to change it.
+     */
+    @Override
+    public MenuItem saveMenuItem(MenuItem menuItem) {
+        if (!inventory.track(menuItem.getItemId(), menuItem.getInventoryCount())) {
+            menuItem.setInventoryCount(inventory.getAvailable(menuItem.getItemId())
+                    + inventory.getHeld(menuItem.getItemId()));
+        }
+        MenuItem saved = menuItemRepository.save(menuItem);
+        views.upsert(saved);
+        graph.upsert(saved);
+        return saved;
+    }
+    
+    @Override
+    public void deleteMenuItem(UUID itemId) {
+        menuItemRepository.deleteById(itemId);
+        inventory.remove(itemId);
+        views.remove(itemId);
+        graph.remove(itemId);
+    }
+    
+    /**
+     * @return The tag masks of the menu items, kept in step with the menu.
+     */
+    public MenuTagIndex getTagIndex() {
+        return views.getTagIndex();
+    }
+    
+    /**
+     * @return The menu as of the last change, compiled for order validation.
+     */
+    public MenuSnapshot getMenuSnapshot() {
+        return views.snapshot();
+    }
+    
+    /**
+     * Rebuilds the menu views from the repository, e.g. after the CRS reported menu changes.
+     */
+    public void reloadMenu() {
+        List<MenuItem> menu = menuItemRepository.findAll();
+        inventory.load(menu);
+        views.load(menu);
+        graph.load(menu);
+    }
+    
+    /**
+     * Closes the inventory engine if the service created it, persisting the counts it has not written yet.
+     */
+    @Override
+    public void close() {
+        if (ownsInventory) {
+            inventory.close();
+        }
+    }
+    
+    private boolean isOrderable(MenuItem item, PassengerType passengerType) {
+        return item.isAvailableFor(passengerType) && inventory.getAvailable(item.getItemId()) > 0;
+    }
+    
+    private MenuItem withLiveInventory(MenuItem item) {
+        if (inventory.isTracked(item.getItemId())) {
+            item.setInventoryCount(inventory.getAvailable(item.getItemId()));
+        }
+        return item;
+    }
+}
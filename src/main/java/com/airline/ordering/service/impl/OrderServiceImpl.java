@@ -0,0 +1,491 @@
+package com.airline.ordering.service.impl;
+
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderItemStatus;
+import com.airline.ordering.domain.OrderStatus;
+import com.airline.ordering.domain.Passenger;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.OrderRepository;
+import com.airline.ordering.repository.PassengerRepository;
+import com.airline.ordering.service.MenuService;
+import com.airline.ordering.service.OrderConflictException;
+import com.airline.ordering.service.OrderService;
+import com.airline.ordering.service.inventory.ReservationToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * Implementation of OrderService for many crew and seat-back devices working on one aircraft server.
+ * <p>
+ * Every change to an order is a read-modify-write of that order under a lock taken from a fixed set of
+ * {@link LockStripes}, keyed by order id: changes to the same order are applied one at a time, while changes to
+ * unrelated orders almost never share a lock and proceed in parallel. No lock spans more than one order.
+ * <p>
+ * Each committed change increments the order's sync version once; recording the outcome of a sync with the CRS
+ * does not, so the version the CRS acknowledged stays current. {@link #saveOrder(Order)} accepts a modified copy
+ * only if the version it was read at still matches the stored order and otherwise throws
+ * {@link OrderConflictException}, so a device working from a stale copy cannot overwrite newer changes.
+ * <p>
+ * The items of a draft order hold their inventory through {@link MenuService#holdInventory}, keyed by order item,
+ * so an abandoned draft gives its inventory back once the holds time out. Submitting the order commits the holds;
+ * items whose hold has timed out take their inventory again, and the submit fails if it has run out. Items added
+ * to a submitted order take their inventory outright.
+ */
+public class OrderServiceImpl implements OrderService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OrderServiceImpl.class);
+    
+    private static final int DEFAULT_LOCK_STRIPES = Math.max(64, Runtime.getRuntime().availableProcessors() * 16);
+    
+    private final OrderRepository orderRepository;
+    private final PassengerRepository passengerRepository;
+    private final MenuService menuService;
+    private final LockStripes locks;
+    
+    private final AtomicLong conflicts = new AtomicLong();
+    
+    public OrderServiceImpl(OrderRepository orderRepository, PassengerRepository passengerRepository,
+                            MenuService menuService) {
+        this(orderRepository, passengerRepository, menuService, DEFAULT_LOCK_STRIPES);
+    }
+    
+    /**
+     * @param lockStripes The minimum number of locks orders are spread over.
+     */
+    public OrderServiceImpl(OrderRepository orderRepository, PassengerRepository passengerRepository,
+                            MenuService menuService, int lockStripes) {
+        this.orderRepository = orderRepository;
+        this.passengerRepository = passengerRepository;
+        this.menuService = menuService;
+        this.locks = new LockStripes(lockStripes);
+    }
+    
+    @Override
+    public Order createOrder(Passenger passenger) {
+        if (passenger == null) {
+            throw new IllegalArgumentException("Passenger must not be null");
+        }
+        Order order = new Order(passenger.getPassengerId(), passenger.getSeatNumber());
+        return orderRepository.save(order);
+    }
+    
+    @Override
+    public Optional<Order> getOrder(UUID orderId) {
+        return orderRepository.findById(orderId);
+    }
+    
+    @Override
+    public List<Order> getOrdersByPassenger(UUID passengerId) {
+        return orderRepository.findByPassengerId(passengerId);
+    }
+    
+    @Override
+    public List<Order> getOrdersBySeat(String seatNumber) {
+        return orderRepository.findBySeatNumber(seatNumber);
+    }
+    
+    @Override
+    public Order addItemToOrder(UUID orderId, UUID menuItemId, int quantity, String specialInstructions) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1: " + quantity);
+        }
+        MenuItem menuItem = menuService.getMenuItem(menuItemId)
+                .orElseThrow(() -> new IllegalArgumentException("Menu item not found: " + menuItemId));
+        
+        return update(orderId, (order, inventory) -> {
+            requireModifiable(order);
+            PassengerType passengerType = passengerType(order);
+            if (passengerType != null && !menuItem.isAvailableFor(passengerType)) {
+                throw new IllegalArgumentException(menuItem.getName() + " is not available for " + passengerType);
+            }
+            OrderItem item = new OrderItem(menuItemId, menuItem.getName(), quantity, menuItem.getPrice());
+            inventory.reserve(item, quantity);
+            item.setSpecialInstructions(specialInstructions);
+            order.addItem(item);
+        });
+    }
+    
+    @Override
+    public Order removeItemFromOrder(UUID orderId, UUID orderItemId) {
+        return update(orderId, (order, inventory) -> {
+            requireModifiable(order);
+            OrderItem item = requireItem(order, orderItemId);
+            order.removeItem(orderItemId);
+            inventory.release(item);
+        });
+    }
+    
+    @Override
+    public Order updateItemQuantity(UUID orderId, UUID orderItemId, int newQuantity) {
+        if (newQuantity < 1) {
+            throw new IllegalArgumentException("Quantity must be at least 1: " + newQuantity);
+        }
+        return update(orderId, (order, inventory) -> {
+            requireModifiable(order);
+            OrderItem item = requireItem(order, orderItemId);
+            int delta = newQuantity - item.getQuantity();
+            if (delta > 0) {
+                inventory.reserve(item, delta);
+            } else if (delta < 0) {
+                inventory.reduce(item, -delta);
+            }
+            item.setQuantity(newQuantity);
+            order.updateItem(item);
+        });
+    }
+    
+    @Override
+    public Order substituteItem(UUID orderId, UUID orderItemId, UUID newMenuItemId) {
+        MenuItem replacement = menuService.getMenuItem(newMenuItemId)
+                .orElseThrow(() -> new IllegalArgumentException("Menu item not found: " + newMenuItemId));
+        
+        return update(orderId, (order, inventory) -> {
+            requireModifiable(order);
+            OrderItem original = requireItem(order, orderItemId);
+            PassengerType passengerType = passengerType(order);
+            if (!menuService.canSubstitute(original.getMenuItemId(), newMenuItemId, passengerType)) {
+                throw new IllegalArgumentException(original.getMenuItemName() + " cannot be substituted with "
+                        + replacement.getName());
+            }
+            OrderItem substitute = new OrderItem(newMenuItemId, replacement.getName(), original.getQuantity(),
+                                                 replacement.getPrice());
+            inventory.reserve(substitute, original.getQuantity());
+            substitute.setSpecialInstructions(original.getSpecialInstructions());
+            substitute.setSubstitutedFromItemId(original.getMenuItemId());
+            order.removeItem(orderItemId);
+            order.addItem(substitute);
+            inventory.release(original);
+        });
+    }
+    
+    @Override
+    public Order submitOrder(UUID orderId) {
+        return update(orderId, (order, inventory) -> {
+            List<String> errors = validateOrder(order);
+            if (!errors.isEmpty()) {
+                throw new IllegalArgumentException("Order " + orderId + " cannot be submitted: " + errors);
+            }
+            if (order.getStatus() != OrderStatus.DRAFT) {
+                throw new IllegalArgumentException("Order " + orderId + " cannot be submitted in status "
+                        + order.getStatus());
+            }
+            inventory.commitHolds(order);
+            order.submit();
+        });
+    }
+    
+    @Override
+    public Order confirmOrder(UUID orderId) {
+        return update(orderId, (order, inventory) -> {
+            if (order.getStatus() != OrderStatus.PENDING) {
+                throw new IllegalArgumentException("Order " + orderId + " cannot be confirmed in status "
+                        + order.getStatus());
+            }
+            order.confirm();
+            for (OrderItem item : order.getItems()) {
+                if (item.getStatus() == OrderItemStatus.PENDING) {
+                    item.setStatus(OrderItemStatus.CONFIRMED);
+                    order.updateItem(item);
+                }
+            }
+        });
+    }
+    
+    @Override
+    public Order cancelOrder(UUID orderId, String reason) {
+        return update(orderId, (order, inventory) -> {
+            if (!order.isCancellable()) {
+                throw new IllegalArgumentException("Order " + orderId + " cannot be cancelled in status "
+                        + order.getStatus());
+            }
+            order.cancel();
+            if (reason != null && !reason.trim().isEmpty()) {
+                String notes = order.getNotes();
+                order.setNotes(notes == null || notes.isEmpty() ? "Cancelled: " + reason
+                                                                : notes + "\nCancelled: " + reason);
+            }
+            
+            for (OrderItem item : order.getItems()) {
+                if (item.getStatus().isActive()) {
+                    inventory.release(item);
+                }
+                item.setStatus(OrderItemStatus.CANCELLED);
+                order.updateItem(item);
+            }
+        });
+    }
+    
+    @Override
+    public List<String> validateOrder(Order order) {
+        List<String> errors = new ArrayList<>();
+        if (order == null) {
+            errors.add("Order must not be null");
+            return errors;
+        }
+        if (order.getPassengerId() == null) {
+            errors.add("Order has no passenger");
+        }
+        if (order.getSeatNumber() == null || order.getSeatNumber().trim().isEmpty()) {
+            errors.add("Order has no seat number");
+        }
+        if (order.isEmpty()) {
+            errors.add("Order has no items");
+        }
+        BigDecimal itemTotal = BigDecimal.ZERO;
+        for (OrderItem item : order.getItems()) {
+            if (item.getQuantity() < 1) {
+                errors.add("Item " + item.getMenuItemName() + " has invalid quantity " + item.getQuantity());
+            }
+            if (item.getUnitPrice() == null || item.getUnitPrice().signum() < 0) {
+                errors.add("Item " + item.getMenuItemName() + " has an invalid price");
+            } else {
+                itemTotal = itemTotal.add(item.getTotalPrice());
+            }
+        }
+        if (order.getTotalAmount() == null || order.getTotalAmount().compareTo(itemTotal) != 0) {
+            errors.add("Order total " + order.getTotalAmount() + " does not match item total " + itemTotal);
+        }
+        return errors;
+    }
+    
+    @Override
+    public List<Order> getOrdersRequiringSync() {
+        return orderRepository.findOrdersRequiringSync();
+    }
+    
+    @Override
+    public void markOrderAsSynced(UUID orderId, String crsOrderId) {
+        update(orderId, (order, inventory) -> {
+            order.markAsSynced(crsOrderId);
+        }, false);
+    }
+    
+    @Override
+    public void markOrderSyncFailed(UUID orderId) {
+        update(orderId, (order, inventory) -> {
+            order.markSyncFailed();
+        }, false);
+    }
+    
+    /**
+     * Saves a copy of an order that was modified outside this service. The copy must have been read at the sync
+     * version of the stored order; the stored version is then incremented and written back to the copy.
+     * New orders are saved as they are.
+     * @throws OrderConflictException if the stored order has been changed since the copy was read.
+     */
+    @Override
+    public Order saveOrder(Order order) {
+        if (order == null) {
+            throw new IllegalArgumentException("Order must not be null");
+        }
+        ReentrantLock lock = locks.forKey(order.getOrderId());
+        lock.lock();
+        try {
+            Optional<Order> stored = orderRepository.findById(order.getOrderId());
+            if (stored.isPresent()) {
+                int storedVersion = stored.get().getSyncVersion();
+                // Not the current version, which modifying a synced copy has already moved on
+                int readVersion = order.getPersistedSyncVersion();
+                if (storedVersion != readVersion) {
+                    conflicts.incrementAndGet();
+                    throw new OrderConflictException(order.getOrderId(), readVersion, storedVersion);
+                }
+                order.setSyncVersion(storedVersion + 1);
+            }
+            return orderRepository.save(order);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Returns the number of saves rejected because they were made from a stale copy.
+     */
+    public long getConflictCount() {
+        return conflicts.get();
+    }
+    
+    private Order update(UUID orderId, BiConsumer<Order, InventoryChange> change) {
+        return update(orderId, change, true);
+    }
+    
+    /**
+     * Loads the order, applies the change and saves it while holding the order's lock. Inventory reserved by the
+     * change is given back if the change or the save fails; inventory it frees is released only after the save.
+     * @param newVersion true if the change is one the CRS has to learn about, which takes the order to the next
+     *                   sync version.
+     */
+    private Order update(UUID orderId, BiConsumer<Order, InventoryChange> change, boolean newVersion) {
+        if (orderId == null) {
+            throw new IllegalArgumentException("Order ID must not be null");
+        }
+        ReentrantLock lock = locks.forKey(orderId);
+        lock.lock();
+        try {
+            Order order = orderRepository.findById(orderId)
+                    .orElseThrow(() -> new IllegalArgumentException("Order not found: " + orderId));
+            InventoryChange inventory = new InventoryChange(menuService, order.getStatus() == OrderStatus.DRAFT);
+            Order saved;
+            try {
+                int readVersion = order.getSyncVersion();
+                change.accept(order, inventory);
+                if (newVersion) {
+                    // Set rather than incremented, as modifying a synced order has moved the version on already
+                    order.setSyncVersion(readVersion + 1);
+                }
+                saved = orderRepository.save(order);
+            } catch (RuntimeException e) {
+                inventory.undoReservations();
+                throw e;
+            }
+            inventory.applyReleases();
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private PassengerType passengerType(Order order) {
+        if (order.getPassengerId() == null) {
+            return null;
+        }
+        return passengerRepository.findById(order.getPassengerId())
+                .map(Passenger::getType)
+                .orElse(null);
+    }
+    
+    private static void requireModifiable(Order order) {
+        if (!order.isModifiable()) {
+            throw new IllegalArgumentException("Order " + order.getOrderId() + " cannot be modified in status "
+                    + order.getStatus());
+        }
+    }
+    
+    private static OrderItem requireItem(Order order, UUID orderItemId) {
+        OrderItem item = order.findItem(orderItemId);
+        if (item == null) {
+            throw new IllegalArgumentException("Order item " + orderItemId + " not found in order "
+                    + order.getOrderId());
+        }
+        return item;
+    }
+    
+    /**
+     * Inventory reserved and released by one change to an order. Items of a draft order hold their inventory and
+     * give it back by releasing their holds; items of a submitted order take and return it outright.
+     */
+    private static final class InventoryChange {
+        private final MenuService menuService;
+        private final boolean draft;
+        private final List<ReservationToken> holds = new ArrayList<>();
+        private final Map<UUID, Integer> reserved = new LinkedHashMap<>();
+        private final List<UUID> releasedHolders = new ArrayList<>();
+        private final List<OrderItem> shrunk = new ArrayList<>();
+        private final Map<UUID, Integer> released = new LinkedHashMap<>();
+        
+        private InventoryChange(MenuService menuService, boolean draft) {
+            this.menuService = menuService;
+            this.draft = draft;
+        }
+        
+        private void reserve(OrderItem item, int quantity) {
+            if (!draft) {
+                take(item.getMenuItemId(), quantity);
+                return;
+            }
+            ReservationToken hold = menuService.holdInventory(item.getOrderItemId(), item.getMenuItemId(), quantity)
+                    .orElseThrow(() -> insufficientInventory(item.getMenuItemId()));
+            holds.add(hold);
+        }
+        
+        /**
+         * Gives back the inventory of an item the change removes from the order.
+         */
+        private void release(OrderItem item) {
+            if (draft) {
+                releasedHolders.add(item.getOrderItemId());
+            } else {
+                released.merge(item.getMenuItemId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        
+        /**
+         * Gives back part of the inventory of an item whose quantity the change reduces.
+         */
+        private void reduce(OrderItem item, int quantity) {
+            if (draft) {
+                shrunk.add(item);
+            } else {
+                released.merge(item.getMenuItemId(), quantity, Integer::sum);
+            }
+        }
+        
+        /**
+         * Commits the holds of a draft's items as it is submitted. Items whose hold has timed out take their
+         * inventory again.
+         */
+        private void commitHolds(Order order) {
+            for (OrderItem item : order.getItems()) {
+                if (!item.getStatus().isActive()) {
+                    continue;
+                }
+                int committed = menuService.commitInventoryHolds(item.getOrderItemId());
+                if (committed > 0) {
+                    // Committed for good, so undone like inventory taken outright
+                    reserved.merge(item.getMenuItemId(), committed, Integer::sum);
+                }
+                if (committed < item.getQuantity()) {
+                    take(item.getMenuItemId(), item.getQuantity() - committed);
+                }
+            }
+        }
+        
+        private void take(UUID menuItemId, int quantity) {
+            if (!menuService.reserveInventory(menuItemId, quantity)) {
+                throw insufficientInventory(menuItemId);
+            }
+            reserved.merge(menuItemId, quantity, Integer::sum);
+        }
+        
+        private void undoReservations() {
+            holds.forEach(menuService::cancelInventoryHold);
+            reserved.forEach(menuService::releaseInventory);
+        }
+        
+        private void applyReleases() {
+            try {
+                releasedHolders.forEach(menuService::releaseInventoryHolds);
+                for (OrderItem item : shrunk) {
+                    // Whatever is no longer held because holds timed out, the item takes on submit
+                    menuService.shrinkInventoryHolds(item.getOrderItemId(), item.getQuantity());
+                }
+            } catch (RuntimeException e) {
+                logger.error("Error releasing inventory holds: {}", e.getMessage());
+            }
+            released.forEach((menuItemId, quantity) -> {
+                try {
+                    menuService.releaseInventory(menuItemId, quantity);
+                } catch (RuntimeException e) {
+                    logger.error("Error releasing inventory for menu item {}: {}", menuItemId, e.getMessage());
+                }
+            });
+        }
+        
+        private static IllegalArgumentException insufficientInventory(UUID menuItemId) {
+            return new IllegalArgumentException("Insufficient inventory for menu item " + menuItemId);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.airline.ordering.service.impl;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.Passenger;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.PassengerRepository;
+import com.airline.ordering.service.MenuService;
+import com.airline.ordering.service.ValidationService;
+import com.airline.ordering.service.menu.MenuSnapshot;
+import com.airline.ordering.service.menu.MenuTagIndex;
+import com.airline.ordering.service.menu.TagDictionary;
+import com.airline.ordering.service.menu.TagMask;
+import com.airline.ordering.service.validation.ValidationEngine;
+import com.airline.ordering.service.validation.ValidationRules;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Implementation of ValidationService on top of the {@link MenuService}.
+ * <p>
+ * Orders and items are checked by a {@link ValidationEngine} running the {@link ValidationRules#standard standard
+ * rules} in one pass against a {@link MenuSnapshot}, so a call sees a single version of the menu and makes no
+ * repository calls once the passenger's type is known. Passenger types are read from the repository on first use
+ * and remembered, as they do not change during a flight.
+ * <p>
+ * Dietary requirements and allergens are matched through the masks of a {@link MenuTagIndex}: the passenger
+ * profile is encoded once per call, after which each item costs one subset test and one intersection test.
+ */
+public class ValidationServiceImpl implements ValidationService {
+    
+    private final MenuService menuService;
+    private final PassengerRepository passengerRepository;
+    private final MenuTagIndex tagIndex;
+    private final Supplier<MenuSnapshot> menu;
+    private final ValidationEngine fullCheck;
+    private final ValidationEngine quickCheck;
+    private final ValidationEngine stockCheck;
+    private final Map<UUID, PassengerType> passengerTypes = new ConcurrentHashMap<>();
+    
+    public ValidationServiceImpl(MenuServiceImpl menuService, PassengerRepository passengerRepository) {
+        this(menuService, passengerRepository, menuService.getTagIndex(), menuService::getMenuSnapshot);
+    }
+    
+    /**
+     * @param menuService Answers combo, substitution and live stock questions.
+     * @param passengerRepository The repository passenger types are read from.
+     * @param tagIndex The tag index whose dictionary encodes passenger allergens and requirements.
+     * @param menu Supplies the current menu snapshot.
+     */
+    public ValidationServiceImpl(MenuService menuService, PassengerRepository passengerRepository,
+                                 MenuTagIndex tagIndex, Supplier<MenuSnapshot> menu) {
+        this.menuService = menuService;
+        this.passengerRepository = passengerRepository;
+        this.tagIndex = tagIndex;
+        this.menu = menu;
+        this.fullCheck = ValidationRules.standard(menuService, false);
+        this.quickCheck = ValidationRules.standard(menuService, true);
+        this.stockCheck = ValidationEngine.builder().finishRule(ValidationRules.inStock(menuService::getInventoryCount)).build();
+    }
+    
+    @Override
+    public ValidationResult validateOrder(Order order) {
+        return validateOrder(order, false);
+    }
+    
+    /**
+     * @param order The order to validate.
+     * @param shortCircuit true to stop at the first error, e.g. when only {@link ValidationResult#isValid()} matters.
+     * @return The errors and warnings found.
+     */
+    public ValidationResult validateOrder(Order order, boolean shortCircuit) {
+        ValidationEngine engine = shortCircuit ? quickCheck : fullCheck;
+        return engine.validate(order, passengerTypeOf(order), menu.get());
+    }
+    
+    @Override
+    public ValidationResult validateOrderItem(OrderItem orderItem, PassengerType passengerType) {
+        return fullCheck.validateItem(orderItem, passengerType, menu.get());
+    }
+    
+    @Override
+    public ValidationResult validateCombo(List<UUID> itemIds, PassengerType passengerType) {
+        List<String> errors = new ArrayList<>(validatePassengerEligibility(itemIds, passengerType).getErrors());
+        if (errors.isEmpty() && !menuService.isValidCombo(itemIds)) {
+            errors.add("Items cannot be ordered together as a combo");
+        }
+        return ValidationResult.withErrors(errors);
+    }
+    
+    @Override
+    public ValidationResult validateSubstitution(UUID originalItemId, UUID substitutionItemId,
+                                                 PassengerType passengerType) {
+        if (menu.get().get(originalItemId) == null) {
+            return ValidationResult.withErrors(List.of("Menu item not found: " + originalItemId));
+        }
+        if (!menuService.canSubstitute(originalItemId, substitutionItemId, passengerType)) {
+            return ValidationResult.withErrors(List.of("Substitution of " + originalItemId + " with "
+                    + substitutionItemId + " is not allowed"));
+        }
+        return ValidationResult.valid();
+    }
+    
+    /**
+     * Checks that the stock to serve the order is still on board. Items added through the order service hold
+     * their stock already, so this is meant for orders that did not reserve any, such as ones pulled from the CRS.
+     */
+    @Override
+    public ValidationResult validateInventoryAvailability(Order order) {
+        return stockCheck.validate(order, null, menu.get());
+    }
+    
+    @Override
+    public ValidationResult validatePassengerEligibility(List<UUID> itemIds, PassengerType passengerType) {
+        MenuSnapshot snapshot = menu.get();
+        List<String> errors = new ArrayList<>();
+        for (UUID itemId : itemIds) {
+            MenuSnapshot.Entry entry = snapshot.get(itemId);
+            String error = entry == null ? "Menu item not found: " + itemId
+                    : ValidationRules.eligibilityError(entry, passengerType);
+            if (error != null) {
+                errors.add(error);
+            }
+        }
+        return ValidationResult.withErrors(errors);
+    }
+    
+    @Override
+    public ValidationResult validateOrderTiming(Order order) {
+        LocalDateTime requested = order.getRequestedDeliveryTime();
+        if (requested != null && requested.isBefore(order.getCreatedAt())) {
+            return ValidationResult.withErrors(List.of("Requested delivery time is before the order was placed"));
+        }
+        return ValidationResult.valid();
+    }
+    
+    @Override
+    public ValidationResult validateDietaryRequirements(List<UUID> itemIds, List<String> allergens,
+                                                        List<String> dietaryRequirements) {
+        TagDictionary dictionary = tagIndex.getDictionary();
+        // Allergens no item contains cannot conflict; requirements no item carries are missing from every item
+        TagMask forbidden = dictionary.knownMaskOf(allergens, null);
+        List<String> unknownRequirements = new ArrayList<>();
+        TagMask required = dictionary.knownMaskOf(dietaryRequirements, unknownRequirements);
+        MenuSnapshot snapshot = menu.get();
+        List<String> errors = new ArrayList<>();
+        for (UUID itemId : itemIds) {
+            MenuSnapshot.Entry entry = snapshot.get(itemId);
+            if (entry == null) {
+                errors.add("Menu item not found: " + itemId);
+                continue;
+            }
+            TagMask conflicts = entry.getAllergens().and(forbidden);
+            if (!conflicts.isEmpty()) {
+                errors.add(entry.getName() + " contains " + describe(conflicts));
+            }
+            TagMask missing = required.andNot(entry.getDietaryTags());
+            if (!missing.isEmpty() || !unknownRequirements.isEmpty()) {
+                errors.add(entry.getName() + " is not " + describe(missing, unknownRequirements));
+            }
+        }
+        return ValidationResult.withErrors(errors);
+    }
+    
+    private String describe(TagMask mask) {
+        return describe(mask, List.of());
+    }
+    
+    private String describe(TagMask mask, List<String> unknownTags) {
+        List<String> names = tagIndex.getDictionary().namesOf(mask);
+        names.addAll(unknownTags);
+        Collections.sort(names);
+        return String.join(", ", names);
+    }
+    
+    /**
+     * @return The type of the order's passenger, or null if the order has none or the passenger is unknown.
+     */
+    private PassengerType passengerTypeOf(Order order) {
+        UUID passengerId = order.getPassengerId();
+        if (passengerId == null) {
+            return null;
+        }
+        return passengerTypes.computeIfAbsent(passengerId,
+                id -> passengerRepository.findById(id).map(Passenger::getType).orElse(null));
+    }
+}
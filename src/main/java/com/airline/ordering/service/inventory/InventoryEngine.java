@@ -0,0 +1,639 @@
+package com.airline.ordering.service.inventory;
+
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.MenuItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free in-memory owner of menu item inventory.
+ * <p>
+ * Every tracked item gets a dense slot index. A slot packs the available and the held (reserved but not yet
+ * committed) quantity into one {@code long}, so a reservation moves stock from available to held in a single
+ * compare-and-set and the count can never go negative, however many devices serve the last meal at once. Slots
+ * live in fixed-size chunks that are never moved when the engine grows, and each slot is padded to its own cache
+ * line so devices working on different items do not contend.
+ * <p>
+ * Reservations that are neither committed nor cancelled before their timeout are released by a background reaper.
+ * A reservation may be taken for a holder, such as the item of a draft order, and ended or shrunk together with the
+ * holder's other reservations.
+ * Changes to the stored count (available plus held) are persisted asynchronously to
+ * {@code menu_items.inventory_count}, batched per interval, so held stock survives a restart as stock.
+ * <p>
+ * {@link StockListener}s are told when an item sells out or comes back into stock.
+ */
+public class InventoryEngine implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(InventoryEngine.class);
+    
+    /**
+     * Notified on the thread that changed the stock when an item's available quantity drops to zero or rises
+     * from zero. Notifications for one item may arrive out of order, so listeners should re-read the current
+     * quantity rather than assume a direction.
+     */
+    @FunctionalInterface
+    public interface StockListener {
+        void onStockChanged(UUID itemId);
+    }
+    
+    public static final long DEFAULT_PERSIST_INTERVAL_MS = 250;
+    public static final long DEFAULT_REAPER_INTERVAL_MS = 1_000;
+    
+    private static final int CHUNK_SHIFT = 8;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    // Longs per slot, so that every slot sits on its own 64-byte cache line
+    private static final int STRIDE = 8;
+    private static final long AVAILABLE_MASK = 0xFFFF_FFFFL;
+    
+    private final MenuItemRepository repository;
+    private final ScheduledExecutorService scheduler;
+    
+    private final Map<UUID, Integer> slots = new ConcurrentHashMap<>();
+    private final Object growLock = new Object();
+    private volatile Chunk[] chunks = new Chunk[0];
+    private int allocated;
+    
+    private final Queue<Integer> dirtySlots = new ConcurrentLinkedQueue<>();
+    private final Map<Long, ReservationToken> reservations = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<ReservationToken>> reservationsByHolder = new ConcurrentHashMap<>();
+    private final AtomicLong nextReservationId = new AtomicLong();
+    private final List<StockListener> stockListeners = new CopyOnWriteArrayList<>();
+    
+    private final AtomicLong expiredReservations = new AtomicLong();
+    private final AtomicLong persistedCounts = new AtomicLong();
+    
+    /**
+     * Creates an engine that persists and reaps on the default intervals.
+     * @param repository The repository inventory counts are persisted to.
+     */
+    public InventoryEngine(MenuItemRepository repository) {
+        this(repository, DEFAULT_PERSIST_INTERVAL_MS, DEFAULT_REAPER_INTERVAL_MS);
+    }
+    
+    /**
+     * Creates an engine with a background persister and reservation reaper.
+     * @param repository The repository inventory counts are persisted to.
+     * @param persistIntervalMs The delay between writes of changed counts.
+     * @param reaperIntervalMs The delay between scans for expired reservations.
+     */
+    public InventoryEngine(MenuItemRepository repository, long persistIntervalMs, long reaperIntervalMs) {
+        if (persistIntervalMs <= 0 || reaperIntervalMs <= 0) {
+            throw new IllegalArgumentException("persistIntervalMs and reaperIntervalMs must be positive");
+        }
+        this.repository = repository;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-engine");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flushQuietly, persistIntervalMs, persistIntervalMs, TimeUnit.MILLISECONDS);
+        this.scheduler.scheduleWithFixedDelay(this::expireReservations, reaperIntervalMs, reaperIntervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Starts tracking the stored inventory of menu items. Items that are already tracked keep their live counts.
+     * @param menuItems The menu items to track.
+     */
+    public void load(Collection<MenuItem> menuItems) {
+        for (MenuItem menuItem : menuItems) {
+            track(menuItem.getItemId(), menuItem.getInventoryCount());
+        }
+    }
+    
+    /**
+     * Starts tracking an item with the given stock, unless it is already tracked.
+     * @param itemId The menu item ID.
+     * @param count The stock the item starts with.
+     * @return true if the item was not tracked before.
+     */
+    public boolean track(UUID itemId, int count) {
+        if (slots.containsKey(itemId)) {
+            return false;
+        }
+        boolean[] created = new boolean[1];
+        slots.computeIfAbsent(itemId, id -> {
+            created[0] = true;
+            return allocate(id, Math.max(0, count));
+        });
+        return created[0];
+    }
+    
+    public void addStockListener(StockListener listener) {
+        stockListeners.add(listener);
+    }
+    
+    public boolean isTracked(UUID itemId) {
+        return slots.containsKey(itemId);
+    }
+    
+    /**
+     * Stops tracking an item and drops the outstanding reservations on it, so they cannot put stock back should
+     * the item be tracked again.
+     * @param itemId The menu item ID.
+     */
+    public void remove(UUID itemId) {
+        Integer slot = slots.remove(itemId);
+        if (slot != null) {
+            counts(slot).set(cell(slot), 0L);
+            for (ReservationToken token : reservations.values()) {
+                if (token.getSlot() == slot && reservations.remove(token.getId(), token)) {
+                    unindex(token);
+                }
+            }
+        }
+    }
+    
+    /**
+     * @param itemId The menu item ID.
+     * @return The quantity that can still be reserved, 0 for untracked items.
+     */
+    public int getAvailable(UUID itemId) {
+        Integer slot = slots.get(itemId);
+        return slot == null ? 0 : available(counts(slot).get(cell(slot)));
+    }
+    
+    /**
+     * @param itemId The menu item ID.
+     * @return The quantity held by outstanding reservations, 0 for untracked items.
+     */
+    public int getHeld(UUID itemId) {
+        Integer slot = slots.get(itemId);
+        return slot == null ? 0 : held(counts(slot).get(cell(slot)));
+    }
+    
+    /**
+     * Permanently takes stock, if enough is available.
+     * @param itemId The menu item ID.
+     * @param quantity The quantity to take.
+     * @return true if the stock was taken, false if there is not enough or the item is not tracked.
+     */
+    public boolean tryConsume(UUID itemId, int quantity) {
+        requirePositive(quantity);
+        Integer slot = slots.get(itemId);
+        if (slot == null || !take(slot, quantity, false)) {
+            return false;
+        }
+        markDirty(slot);
+        return true;
+    }
+    
+    /**
+     * Returns stock, e.g. when an item is removed from an order.
+     * @param itemId The menu item ID.
+     * @param quantity The quantity to return.
+     */
+    public void restock(UUID itemId, int quantity) {
+        requirePositive(quantity);
+        Integer slot = slots.get(itemId);
+        if (slot == null) {
+            logger.warn("Ignoring restock of {} for untracked menu item {}", quantity, itemId);
+            return;
+        }
+        AtomicLongArray counts = counts(slot);
+        int cell = cell(slot);
+        long current;
+        do {
+            current = counts.get(cell);
+        } while (!counts.compareAndSet(cell, current,
+                pack(Math.addExact(available(current), quantity), held(current))));
+        markDirty(slot);
+        if (available(current) == 0) {
+            stockChanged(slot);
+        }
+    }
+    
+    /**
+     * Sets the stock of an item after a physical count, which includes what outstanding reservations hold.
+     * Untracked items start being tracked.
+     * @param itemId The menu item ID.
+     * @param count The counted stock.
+     */
+    public void setStock(UUID itemId, int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative");
+        }
+        if (track(itemId, count)) {
+            markDirty(slots.get(itemId));
+            return;
+        }
+        Integer slot = slots.get(itemId);
+        if (slot == null) {
+            return;
+        }
+        AtomicLongArray counts = counts(slot);
+        int cell = cell(slot);
+        long current;
+        long next;
+        do {
+            current = counts.get(cell);
+            next = pack(Math.max(0, count - held(current)), held(current));
+        } while (!counts.compareAndSet(cell, current, next));
+        markDirty(slot);
+        if ((available(current) == 0) != (available(next) == 0)) {
+            stockChanged(slot);
+        }
+    }
+    
+    /**
+     * Holds stock until the returned token is committed or cancelled, or the timeout passes.
+     * @param itemId The menu item ID.
+     * @param quantity The quantity to hold.
+     * @param timeout How long the hold lasts if it is abandoned.
+     * @return The reservation, or empty if there is not enough stock or the item is not tracked.
+     */
+    public Optional<ReservationToken> reserve(UUID itemId, int quantity, Duration timeout) {
+        return reserve(null, itemId, quantity, timeout);
+    }
+    
+    /**
+     * Holds stock for a holder until the returned token is committed or cancelled, on its own or with the holder's
+     * other reservations, or the timeout passes. A holder's reservations must not be taken while they are being
+     * committed, cancelled or shrunk together.
+     * @param holderId The holder, or null for a reservation that is only ended through its token.
+     * @param itemId The menu item ID.
+     * @param quantity The quantity to hold.
+     * @param timeout How long the hold lasts if it is abandoned.
+     * @return The reservation, or empty if there is not enough stock or the item is not tracked.
+     */
+    public Optional<ReservationToken> reserve(UUID holderId, UUID itemId, int quantity, Duration timeout) {
+        requirePositive(quantity);
+        Integer slot = slots.get(itemId);
+        if (slot == null || !take(slot, quantity, true)) {
+            return Optional.empty();
+        }
+        ReservationToken token = new ReservationToken(nextReservationId.incrementAndGet(), holderId, itemId, slot,
+                quantity, System.nanoTime() + timeout.toNanos());
+        // Indexed first, so a reservation that ends at once is never left behind in the index
+        index(token);
+        reservations.put(token.getId(), token);
+        return Optional.of(token);
+    }
+    
+    /**
+     * Turns a reservation into a permanent decrement.
+     * @param token The reservation.
+     * @return true if committed, false if it had already ended (committed, cancelled or expired).
+     */
+    public boolean commit(ReservationToken token) {
+        if (!reservations.remove(token.getId(), token)) {
+            return false;
+        }
+        unindex(token);
+        if (isCurrent(token)) {
+            unhold(token.getSlot(), token.getQuantity(), false);
+            markDirty(token.getSlot());
+        }
+        return true;
+    }
+    
+    /**
+     * Returns the stock held by a reservation.
+     * @param token The reservation.
+     * @return true if released, false if it had already ended (committed, cancelled or expired).
+     */
+    public boolean cancel(ReservationToken token) {
+        if (!reservations.remove(token.getId(), token)) {
+            return false;
+        }
+        unindex(token);
+        release(token);
+        return true;
+    }
+    
+    /**
+     * Turns all outstanding reservations of a holder into permanent decrements.
+     * @param holderId The holder.
+     * @return The quantity committed, which leaves out reservations that had already ended.
+     */
+    public int commitAll(UUID holderId) {
+        int committed = 0;
+        for (ReservationToken token : reservationsOf(holderId)) {
+            if (commit(token)) {
+                committed += token.getQuantity();
+            }
+        }
+        return committed;
+    }
+    
+    /**
+     * Returns the stock held by all outstanding reservations of a holder.
+     * @param holderId The holder.
+     * @return The quantity released, which leaves out reservations that had already ended.
+     */
+    public int cancelAll(UUID holderId) {
+        int cancelled = 0;
+        for (ReservationToken token : reservationsOf(holderId)) {
+            if (cancel(token)) {
+                cancelled += token.getQuantity();
+            }
+        }
+        return cancelled;
+    }
+    
+    /**
+     * Shrinks the outstanding reservations of a holder so that together they hold no more than the given quantity,
+     * and returns the rest of their stock. The holder keeps its stock held throughout, so others cannot take it
+     * between a release and a new reservation. Reservations the holder keeps are not extended.
+     * @param holderId The holder.
+     * @param quantity The quantity the holder's reservations may still hold.
+     * @return The quantity still held, which is less than asked for if reservations had already ended.
+     */
+    public int shrinkAll(UUID holderId, int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("quantity must not be negative");
+        }
+        int kept = 0;
+        for (ReservationToken token : reservationsOf(holderId)) {
+            if (reservations.get(token.getId()) != token) {
+                continue;
+            }
+            int keep = Math.min(token.getQuantity(), quantity - kept);
+            if (keep == token.getQuantity() || (keep > 0 && shrink(token, keep))) {
+                kept += keep;
+            } else if (keep == 0) {
+                cancel(token);
+            }
+        }
+        return kept;
+    }
+    
+    /**
+     * Releases every reservation whose timeout has passed. Runs periodically in the background.
+     * @return The number of reservations released.
+     */
+    public int expireReservations() {
+        long now = System.nanoTime();
+        int expired = 0;
+        for (ReservationToken token : reservations.values()) {
+            if (token.isExpiredAt(now) && reservations.remove(token.getId(), token)) {
+                unindex(token);
+                release(token);
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            expiredReservations.addAndGet(expired);
+            logger.info("Released {} abandoned inventory reservations", expired);
+        }
+        return expired;
+    }
+    
+    /**
+     * Writes the counts changed since the last flush to the repository. Runs periodically in the background.
+     * Counts that fail to persist are retried on the next flush.
+     * @return The number of items written.
+     */
+    public synchronized int flush() {
+        Map<UUID, Integer> changed = new LinkedHashMap<>();
+        Map<UUID, Integer> changedSlots = new LinkedHashMap<>();
+        Integer slot;
+        while ((slot = dirtySlots.poll()) != null) {
+            Chunk chunk = chunks[slot >>> CHUNK_SHIFT];
+            int offset = slot & CHUNK_MASK;
+            // Clear before reading, so a change racing with this flush marks the slot again
+            chunk.dirty.set(offset, 0);
+            UUID itemId = chunk.ids.get(offset);
+            if (!slot.equals(slots.get(itemId))) {
+                continue;
+            }
+            long current = chunk.counts.get(offset * STRIDE);
+            changed.put(itemId, available(current) + held(current));
+            changedSlots.put(itemId, slot);
+        }
+        if (changed.isEmpty()) {
+            return 0;
+        }
+        
+        BulkWriteResult<UUID> result;
+        try {
+            result = repository.updateInventoryCounts(changed);
+        } catch (RuntimeException e) {
+            changedSlots.values().forEach(this::markDirty);
+            throw e;
+        }
+        for (UUID failed : result.getFailedIds()) {
+            markDirty(changedSlots.get(failed));
+        }
+        persistedCounts.addAndGet(changed.size() - result.getFailedIds().size());
+        return changed.size();
+    }
+    
+    public int getReservationCount() {
+        return reservations.size();
+    }
+    
+    public long getExpiredReservationCount() {
+        return expiredReservations.get();
+    }
+    
+    public long getPersistedCount() {
+        return persistedCounts.get();
+    }
+    
+    /**
+     * Stops the background tasks and persists the remaining changes.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+    
+    private int allocate(UUID itemId, int count) {
+        synchronized (growLock) {
+            int slot = allocated;
+            int chunkIndex = slot >>> CHUNK_SHIFT;
+            Chunk[] current = chunks;
+            if (chunkIndex == current.length) {
+                Chunk[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[chunkIndex] = new Chunk();
+                current = grown;
+            }
+            Chunk chunk = current[chunkIndex];
+            chunk.ids.set(slot & CHUNK_MASK, itemId);
+            chunk.counts.set(cell(slot), pack(count, 0));
+            chunks = current;
+            allocated = slot + 1;
+            return slot;
+        }
+    }
+    
+    private boolean take(int slot, int quantity, boolean hold) {
+        AtomicLongArray counts = counts(slot);
+        int cell = cell(slot);
+        while (true) {
+            long current = counts.get(cell);
+            int available = available(current);
+            if (available < quantity) {
+                return false;
+            }
+            int held = hold ? held(current) + quantity : held(current);
+            if (counts.compareAndSet(cell, current, pack(available - quantity, held))) {
+                if (available == quantity) {
+                    stockChanged(slot);
+                }
+                return true;
+            }
+        }
+    }
+    
+    private void unhold(int slot, int quantity, boolean restore) {
+        AtomicLongArray counts = counts(slot);
+        int cell = cell(slot);
+        long current;
+        long next;
+        do {
+            current = counts.get(cell);
+            int available = restore ? available(current) + quantity : available(current);
+            next = pack(available, Math.max(0, held(current) - quantity));
+        } while (!counts.compareAndSet(cell, current, next));
+        if (restore && available(current) == 0) {
+            stockChanged(slot);
+        }
+    }
+    
+    private boolean shrink(ReservationToken token, int quantity) {
+        ReservationToken shrunk = token.withQuantity(quantity);
+        // Indexed first, so committing or cancelling the holder meanwhile finds whichever token is outstanding
+        index(shrunk);
+        if (!reservations.replace(token.getId(), token, shrunk)) {
+            unindex(shrunk);
+            return false;
+        }
+        unindex(token);
+        if (isCurrent(token)) {
+            unhold(token.getSlot(), token.getQuantity() - quantity, true);
+        }
+        return true;
+    }
+    
+    private void release(ReservationToken token) {
+        if (isCurrent(token)) {
+            unhold(token.getSlot(), token.getQuantity(), true);
+        }
+    }
+    
+    private Set<ReservationToken> reservationsOf(UUID holderId) {
+        Set<ReservationToken> tokens = reservationsByHolder.get(holderId);
+        return tokens != null ? tokens : Set.of();
+    }
+    
+    private void index(ReservationToken token) {
+        if (token.getHolderId() == null) {
+            return;
+        }
+        reservationsByHolder.compute(token.getHolderId(), (id, tokens) -> {
+            Set<ReservationToken> held = tokens != null ? tokens : ConcurrentHashMap.newKeySet();
+            held.add(token);
+            return held;
+        });
+    }
+    
+    private void unindex(ReservationToken token) {
+        if (token.getHolderId() == null) {
+            return;
+        }
+        reservationsByHolder.computeIfPresent(token.getHolderId(), (id, tokens) -> {
+            tokens.remove(token);
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+    
+    /**
+     * @return true if the reservation's item is still tracked in the slot the reservation was taken from.
+     */
+    private boolean isCurrent(ReservationToken token) {
+        Integer slot = slots.get(token.getItemId());
+        return slot != null && slot == token.getSlot();
+    }
+    
+    private void markDirty(int slot) {
+        AtomicIntegerArray dirty = chunks[slot >>> CHUNK_SHIFT].dirty;
+        int offset = slot & CHUNK_MASK;
+        if (dirty.get(offset) == 0 && dirty.compareAndSet(offset, 0, 1)) {
+            dirtySlots.add(slot);
+        }
+    }
+    
+    private void stockChanged(int slot) {
+        if (stockListeners.isEmpty()) {
+            return;
+        }
+        UUID itemId = chunks[slot >>> CHUNK_SHIFT].ids.get(slot & CHUNK_MASK);
+        for (StockListener listener : stockListeners) {
+            try {
+                listener.onStockChanged(itemId);
+            } catch (RuntimeException e) {
+                logger.error("Error notifying stock change of menu item {}: {}", itemId, e.getMessage());
+            }
+        }
+    }
+    
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Error persisting inventory counts: {}", e.getMessage());
+        }
+    }
+    
+    private AtomicLongArray counts(int slot) {
+        return chunks[slot >>> CHUNK_SHIFT].counts;
+    }
+    
+    private static int cell(int slot) {
+        return (slot & CHUNK_MASK) * STRIDE;
+    }
+    
+    private static long pack(int available, int held) {
+        return ((long) held << 32) | (available & AVAILABLE_MASK);
+    }
+    
+    private static int available(long counts) {
+        return (int) counts;
+    }
+    
+    private static int held(long counts) {
+        return (int) (counts >>> 32);
+    }
+    
+    private static void requirePositive(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("quantity must be positive");
+        }
+    }
+    
+    private static final class Chunk {
+        private final AtomicLongArray counts = new AtomicLongArray(CHUNK_SIZE * STRIDE);
+        private final AtomicIntegerArray dirty = new AtomicIntegerArray(CHUNK_SIZE);
+        private final AtomicReferenceArray<UUID> ids = new AtomicReferenceArray<>(CHUNK_SIZE);
+    }
+}
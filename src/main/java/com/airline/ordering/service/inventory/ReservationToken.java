@@ -0,0 +1,79 @@
+package com.airline.ordering.service.inventory;
+
+import java.util.UUID;
+
+/**
+ * A temporary hold on inventory, returned by {@link InventoryEngine#reserve}.
+ * <p>
+ * The held quantity is unavailable to everyone else until the token is committed, cancelled, or expires, in which
+ * case the engine releases it automatically.
+ */
+public final class ReservationToken {
+    
+    private final long id;
+    private final UUID holderId;
+    private final UUID itemId;
+    private final int slot;
+    private final int quantity;
+    private final long deadlineNanos;
+    
+    ReservationToken(long id, UUID holderId, UUID itemId, int slot, int quantity, long deadlineNanos) {
+        this.id = id;
+        this.holderId = holderId;
+        this.itemId = itemId;
+        this.slot = slot;
+        this.quantity = quantity;
+        this.deadlineNanos = deadlineNanos;
+    }
+    
+    public long getId() {
+        return id;
+    }
+    
+    /**
+     * @return The holder the stock is held for, or null if the reservation has none.
+     */
+    public UUID getHolderId() {
+        return holderId;
+    }
+    
+    public UUID getItemId() {
+        return itemId;
+    }
+    
+    /**
+     * The engine slot the stock is held in, which the item only keeps for as long as it stays tracked.
+     */
+    int getSlot() {
+        return slot;
+    }
+    
+    public int getQuantity() {
+        return quantity;
+    }
+    
+    /**
+     * @return A token for the same reservation holding the given quantity, with the same deadline.
+     */
+    ReservationToken withQuantity(int quantity) {
+        return new ReservationToken(id, holderId, itemId, slot, quantity, deadlineNanos);
+    }
+    
+    public boolean isExpired() {
+        return isExpiredAt(System.nanoTime());
+    }
+    
+    boolean isExpiredAt(long nowNanos) {
+        return nowNanos - deadlineNanos >= 0;
+    }
+    
+    @Override
+    public String toString() {
+        return "ReservationToken{" +
+                "id=" + id +
+                ", holderId=" + holderId +
+                ", itemId=" + itemId +
+                ", quantity=" + quantity +
+                '}';
+    }
+}
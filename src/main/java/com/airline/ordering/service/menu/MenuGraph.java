@@ -0,0 +1,429 @@
+package com.airline.ordering.service.menu;
+
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-memory graph of the combo and substitution rules between menu items.
+ * <p>
+ * Each item gets a dense node id, and each node a row of bits over all node ids: one row for the items it can
+ * be combined with (symmetric, as either item may declare the pairing) and one for the items it can be directly
+ * substituted with. From those, the transitive substitution closure of every node is precomputed and filtered
+ * per passenger type, so substitution queries are single bit tests and a combo of k items is k row tests.
+ * <p>
+ * The graph is an immutable snapshot replaced on every change. A change to one item only copies and recomputes
+ * the rows it can affect: its own, those of its combo partners, and the closures of the nodes that can reach it.
+ * Node ids of removed items are not reused until the graph is rebuilt, on {@link #load} or when it has to grow.
+ */
+public class MenuGraph {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MenuGraph.class);
+    
+    private static final PassengerType[] PASSENGER_TYPES = PassengerType.values();
+    private static final int MIN_CAPACITY = 64;
+    
+    // Guarded by this; the rules the rows are built from
+    private final Map<UUID, MenuItem> items = new HashMap<>();
+    
+    private volatile Graph graph = Graph.empty(MIN_CAPACITY);
+    
+    /**
+     * Replaces the whole graph.
+     * @param menuItems The menu items; they are copied.
+     */
+    public synchronized void load(Collection<MenuItem> menuItems) {
+        items.clear();
+        for (MenuItem menuItem : menuItems) {
+            items.put(menuItem.getItemId(), new MenuItem(menuItem));
+        }
+        rebuildAll(Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, items.size())) * 2));
+    }
+    
+    /**
+     * Adds or replaces an item and updates the rows it affects.
+     * @param menuItem The menu item; it is copied.
+     */
+    public synchronized void upsert(MenuItem menuItem) {
+        UUID itemId = menuItem.getItemId();
+        MenuItem previous = items.put(itemId, new MenuItem(menuItem));
+        Graph current = graph;
+        Integer node = current.ids.get(itemId);
+        if (node == null && current.size == current.capacity) {
+            rebuildAll(current.capacity * 2);
+            return;
+        }
+        Graph next = current.copy();
+        if (node == null) {
+            node = next.size++;
+            next.nodes[node] = itemId;
+            next.ids.put(itemId, node);
+        }
+        update(next, node, previous, items.get(itemId));
+        graph = next;
+    }
+    
+    /**
+     * Removes an item and every edge to or from it.
+     * @param itemId The menu item ID.
+     */
+    public synchronized void remove(UUID itemId) {
+        MenuItem previous = items.remove(itemId);
+        Integer node = graph.ids.get(itemId);
+        if (previous == null || node == null) {
+            return;
+        }
+        Graph next = graph.copy();
+        update(next, node, previous, null);
+        next.nodes[node] = null;
+        next.ids.remove(itemId);
+        graph = next;
+    }
+    
+    /**
+     * @return true if the two items may be ordered together.
+     */
+    public boolean isValidCombo(UUID itemId1, UUID itemId2) {
+        Graph current = graph;
+        int first = current.nodeOf(itemId1);
+        int second = current.nodeOf(itemId2);
+        return first >= 0 && second >= 0 && first != second && Graph.test(current.combo[first], second);
+    }
+    
+    /**
+     * @return true if there are at least two distinct items and every one of them may be combined with all others.
+     */
+    public boolean isValidCombo(List<UUID> itemIds) {
+        Graph current = graph;
+        long[] members = new long[current.words];
+        int distinct = 0;
+        for (UUID itemId : itemIds) {
+            int node = current.nodeOf(itemId);
+            if (node < 0) {
+                return false;
+            }
+            if (!Graph.test(members, node)) {
+                Graph.set(members, node);
+                distinct++;
+            }
+        }
+        if (distinct < 2) {
+            return false;
+        }
+        for (int w = 0; w < members.length; w++) {
+            for (long bits = members[w]; bits != 0; bits &= bits - 1) {
+                int node = (w << 6) + Long.numberOfTrailingZeros(bits);
+                if (!Graph.coversExcept(current.combo[node], members, node)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return true if the original item may be replaced by the substitution, directly or through a chain of
+     *         substitutions, and the substitution is offered to the passenger type.
+     */
+    public boolean canSubstitute(UUID originalItemId, UUID substitutionItemId, PassengerType passengerType) {
+        Graph current = graph;
+        int original = current.nodeOf(originalItemId);
+        int substitution = current.nodeOf(substitutionItemId);
+        return original >= 0 && substitution >= 0
+                && Graph.test(current.substitutions[passengerType.ordinal()][original], substitution);
+    }
+    
+    /**
+     * @return The items the original item may be replaced by for the passenger type, in node order.
+     */
+    public List<UUID> substitutionsFor(UUID itemId, PassengerType passengerType) {
+        Graph current = graph;
+        int node = current.nodeOf(itemId);
+        if (node < 0) {
+            return List.of();
+        }
+        long[] row = current.substitutions[passengerType.ordinal()][node];
+        List<UUID> substitutions = new ArrayList<>();
+        for (int w = 0; w < row.length; w++) {
+            for (long bits = row[w]; bits != 0; bits &= bits - 1) {
+                substitutions.add(current.nodes[(w << 6) + Long.numberOfTrailingZeros(bits)]);
+            }
+        }
+        return substitutions;
+    }
+    
+    public int size() {
+        return graph.ids.size();
+    }
+    
+    private void rebuildAll(int capacity) {
+        Graph next = Graph.empty(capacity);
+        for (UUID itemId : items.keySet()) {
+            next.nodes[next.size] = itemId;
+            next.ids.put(itemId, next.size++);
+        }
+        for (int node = 0; node < next.size; node++) {
+            MenuItem item = items.get(next.nodes[node]);
+            next.direct[node] = new long[next.words];
+            next.combo[node] = new long[next.words];
+            writeEdges(next, node, item);
+        }
+        for (MenuItem item : items.values()) {
+            int node = next.ids.get(item.getItemId());
+            for (UUID partner : item.getComboItems()) {
+                Integer other = next.ids.get(partner);
+                if (other != null && other != node) {
+                    Graph.set(next.combo[other], node);
+                }
+            }
+        }
+        for (int node = 0; node < next.size; node++) {
+            next.closure[node] = closureOf(next, node);
+            filter(next, node);
+        }
+        graph = next;
+        logger.debug("Menu graph built with {} items", next.size);
+    }
+    
+    /**
+     * Brings the rows of one node, its combo partners and everything that can reach it by substitution up to date.
+     */
+    private void update(Graph next, int node, MenuItem previous, MenuItem current) {
+        // Nodes whose closure may change are those that reach this node now; its incoming edges are unchanged
+        List<Integer> reaching = new ArrayList<>();
+        for (int other = 0; other < next.size; other++) {
+            if (other != node && next.nodes[other] != null && Graph.test(next.closure[other], node)) {
+                reaching.add(other);
+            }
+        }
+        
+        // Combo rows are symmetric, so old and new partners change too
+        if (previous != null) {
+            for (int partner : Graph.bits(next.combo[node])) {
+                next.combo[partner] = next.combo[partner].clone();
+                Graph.clear(next.combo[partner], node);
+            }
+        }
+        next.direct[node] = new long[next.words];
+        next.combo[node] = new long[next.words];
+        UUID itemId = next.nodes[node];
+        List<Integer> referrers = new ArrayList<>();
+        for (int other = 0; other < next.size; other++) {
+            MenuItem otherItem = next.nodes[other] == null ? null : items.get(next.nodes[other]);
+            if (other == node || otherItem == null) {
+                continue;
+            }
+            if (current != null && otherItem.getComboItems().contains(itemId)) {
+                Graph.set(next.combo[node], other);
+            }
+            if (current != null && otherItem.getSubstitutableItems().contains(itemId)
+                    && !Graph.test(next.direct[other], node)) {
+                // First appearance of an item others already referred to
+                next.direct[other] = next.direct[other].clone();
+                Graph.set(next.direct[other], node);
+                referrers.add(other);
+            } else if (current == null && Graph.test(next.direct[other], node)) {
+                next.direct[other] = next.direct[other].clone();
+                Graph.clear(next.direct[other], node);
+                referrers.add(other);
+            }
+        }
+        if (current != null) {
+            writeEdges(next, node, current);
+            for (int partner : Graph.bits(next.combo[node])) {
+                next.combo[partner] = next.combo[partner].clone();
+                Graph.set(next.combo[partner], node);
+            }
+        }
+        
+        List<Integer> affected = new ArrayList<>(reaching);
+        affected.add(node);
+        for (int referrer : referrers) {
+            if (!affected.contains(referrer)) {
+                affected.add(referrer);
+            }
+            for (int other = 0; other < next.size; other++) {
+                if (next.nodes[other] != null && Graph.test(next.closure[other], referrer) && !affected.contains(other)) {
+                    affected.add(other);
+                }
+            }
+        }
+        for (int other : affected) {
+            next.closure[other] = closureOf(next, other);
+        }
+        // Availability of this node may have changed, which shows in every filtered row that reaches it
+        for (int other : affected) {
+            filter(next, other);
+        }
+        if (current == null) {
+            next.closure[node] = new long[next.words];
+            filter(next, node);
+        }
+    }
+    
+    private void writeEdges(Graph graph, int node, MenuItem item) {
+        for (UUID partner : item.getComboItems()) {
+            Integer other = graph.ids.get(partner);
+            if (other != null && other != node) {
+                Graph.set(graph.combo[node], other);
+            }
+        }
+        for (UUID substitution : item.getSubstitutableItems()) {
+            Integer other = graph.ids.get(substitution);
+            if (other != null && other != node) {
+                Graph.set(graph.direct[node], other);
+            }
+        }
+        for (PassengerType type : PASSENGER_TYPES) {
+            long[] available = graph.available[type.ordinal()];
+            if (item.isAvailableFor(type) != Graph.test(available, node)) {
+                graph.available[type.ordinal()] = available = available.clone();
+                if (item.isAvailableFor(type)) {
+                    Graph.set(available, node);
+                } else {
+                    Graph.clear(available, node);
+                }
+            }
+        }
+    }
+    
+    private static long[] closureOf(Graph graph, int start) {
+        long[] reached = new long[graph.words];
+        Deque<Integer> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            long[] row = graph.direct[queue.poll()];
+            for (int next : Graph.bits(row)) {
+                if (next != start && !Graph.test(reached, next)) {
+                    Graph.set(reached, next);
+                    queue.add(next);
+                }
+            }
+        }
+        return reached;
+    }
+    
+    private static void filter(Graph graph, int node) {
+        for (PassengerType type : PASSENGER_TYPES) {
+            long[][] rows = graph.substitutions[type.ordinal()];
+            long[] available = graph.available[type.ordinal()];
+            long[] row = new long[graph.words];
+            for (int w = 0; w < row.length; w++) {
+                row[w] = graph.closure[node][w] & available[w];
+            }
+            rows[node] = row;
+        }
+    }
+    
+    /**
+     * One immutable generation of the graph. Rows are shared between generations and copied before they change.
+     */
+    private static final class Graph {
+        private final int capacity;
+        private final int words;
+        private final Map<UUID, Integer> ids;
+        private final UUID[] nodes;
+        private final long[][] combo;
+        private final long[][] direct;
+        private final long[][] closure;
+        private final long[][] available;
+        private final long[][][] substitutions;
+        private int size;
+        
+        private Graph(int capacity, Map<UUID, Integer> ids, UUID[] nodes, long[][] combo, long[][] direct, long[][] closure,
+                      long[][] available, long[][][] substitutions, int size) {
+            this.capacity = capacity;
+            this.words = (capacity + 63) >>> 6;
+            this.ids = ids;
+            this.nodes = nodes;
+            this.combo = combo;
+            this.direct = direct;
+            this.closure = closure;
+            this.available = available;
+            this.substitutions = substitutions;
+            this.size = size;
+        }
+        
+        private static Graph empty(int capacity) {
+            int words = (capacity + 63) >>> 6;
+            long[][] available = new long[PASSENGER_TYPES.length][];
+            long[][][] substitutions = new long[PASSENGER_TYPES.length][][];
+            long[] none = new long[words];
+            for (int t = 0; t < PASSENGER_TYPES.length; t++) {
+                available[t] = none;
+                substitutions[t] = filled(capacity, none);
+            }
+            return new Graph(capacity, new HashMap<>(), new UUID[capacity], filled(capacity, none), filled(capacity, none),
+                    filled(capacity, none), available, substitutions, 0);
+        }
+        
+        private Graph copy() {
+            long[][][] substitutionsCopy = new long[substitutions.length][][];
+            for (int t = 0; t < substitutions.length; t++) {
+                substitutionsCopy[t] = substitutions[t].clone();
+            }
+            return new Graph(capacity, new HashMap<>(ids), nodes.clone(), combo.clone(), direct.clone(), closure.clone(),
+                    available.clone(), substitutionsCopy, size);
+        }
+        
+        private int nodeOf(UUID itemId) {
+            Integer node = ids.get(itemId);
+            return node != null ? node : -1;
+        }
+        
+        private static long[][] filled(int rows, long[] row) {
+            long[][] matrix = new long[rows][];
+            Arrays.fill(matrix, row);
+            return matrix;
+        }
+        
+        private static boolean test(long[] row, int bit) {
+            return (row[bit >>> 6] & (1L << bit)) != 0;
+        }
+        
+        private static void set(long[] row, int bit) {
+            row[bit >>> 6] |= 1L << bit;
+        }
+        
+        private static void clear(long[] row, int bit) {
+            row[bit >>> 6] &= ~(1L << bit);
+        }
+        
+        /**
+         * @return true if {@code row} contains every member other than {@code self}.
+         */
+        private static boolean coversExcept(long[] row, long[] members, int self) {
+            for (int w = 0; w < members.length; w++) {
+                long missing = members[w] & ~row[w];
+                if (w == self >>> 6) {
+                    missing &= ~(1L << self);
+                }
+                if (missing != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private static List<Integer> bits(long[] row) {
+            List<Integer> set = new ArrayList<>();
+            for (int w = 0; w < row.length; w++) {
+                for (long bits = row[w]; bits != 0; bits &= bits - 1) {
+                    set.add((w << 6) + Long.numberOfTrailingZeros(bits));
+                }
+            }
+            return set;
+        }
+    }
+}
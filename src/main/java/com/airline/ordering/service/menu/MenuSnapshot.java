@@ -0,0 +1,136 @@
+package com.airline.ordering.service.menu;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of the facts order validation needs about every menu item.
+ * <p>
+ * Each item is compiled once, when it changes, into an {@link Entry} whose eligibility is a bit per passenger type
+ * and whose tags are the masks of a {@link MenuTagIndex}. A change produces a new snapshot sharing the entries of
+ * all other items, so a validator that reads one snapshot sees a consistent menu for the whole order.
+ */
+public final class MenuSnapshot {
+    
+    public static final MenuSnapshot EMPTY = new MenuSnapshot(Map.of());
+    
+    private final Map<UUID, Entry> entries;
+    
+    private MenuSnapshot(Map<UUID, Entry> entries) {
+        this.entries = entries;
+    }
+    
+    /**
+     * @param menuItems The menu items.
+     * @param tagIndex The index holding the items' tags; items it does not know get empty masks.
+     * @return A snapshot of exactly the given items.
+     */
+    public static MenuSnapshot of(Collection<MenuItem> menuItems, MenuTagIndex tagIndex) {
+        Map<UUID, Entry> entries = new HashMap<>();
+        for (MenuItem menuItem : menuItems) {
+            entries.put(menuItem.getItemId(), new Entry(menuItem, tagIndex.get(menuItem.getItemId())));
+        }
+        return new MenuSnapshot(entries);
+    }
+    
+    /**
+     * @return A snapshot with the item added or replaced.
+     */
+    public MenuSnapshot with(MenuItem menuItem, MenuTagIndex tagIndex) {
+        Map<UUID, Entry> next = new HashMap<>(entries);
+        next.put(menuItem.getItemId(), new Entry(menuItem, tagIndex.get(menuItem.getItemId())));
+        return new MenuSnapshot(next);
+    }
+    
+    /**
+     * @return A snapshot without the item.
+     */
+    public MenuSnapshot without(UUID itemId) {
+        if (!entries.containsKey(itemId)) {
+            return this;
+        }
+        Map<UUID, Entry> next = new HashMap<>(entries);
+        next.remove(itemId);
+        return new MenuSnapshot(next);
+    }
+    
+    /**
+     * @param itemId The menu item ID.
+     * @return The compiled item, or null if it is not on the menu.
+     */
+    public Entry get(UUID itemId) {
+        return itemId == null ? null : entries.get(itemId);
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    /**
+     * The validation facts of one menu item.
+     */
+    public static final class Entry {
+        private final UUID itemId;
+        private final String name;
+        private final BigDecimal price;
+        private final MenuCategory category;
+        // Bit per PassengerType ordinal; only set while the item is AVAILABLE
+        private final int eligibleTypes;
+        private final TagMask dietaryTags;
+        private final TagMask allergens;
+        
+        private Entry(MenuItem menuItem, MenuTagIndex.ItemTags tags) {
+            this.itemId = menuItem.getItemId();
+            this.name = menuItem.getName();
+            this.price = menuItem.getPrice();
+            this.category = menuItem.getCategory();
+            int eligible = 0;
+            for (PassengerType type : PassengerType.values()) {
+                if (menuItem.isAvailableFor(type)) {
+                    eligible |= 1 << type.ordinal();
+                }
+            }
+            this.eligibleTypes = eligible;
+            this.dietaryTags = tags != null ? tags.getDietaryTags() : TagMask.EMPTY;
+            this.allergens = tags != null ? tags.getAllergens() : TagMask.EMPTY;
+        }
+        
+        public UUID getItemId() {
+            return itemId;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public BigDecimal getPrice() {
+            return price;
+        }
+        
+        public MenuCategory getCategory() {
+            return category;
+        }
+        
+        public TagMask getDietaryTags() {
+            return dietaryTags;
+        }
+        
+        public TagMask getAllergens() {
+            return allergens;
+        }
+        
+        /**
+         * @return true if the item is on sale and offered to the passenger type.
+         */
+        public boolean isAvailableFor(PassengerType passengerType) {
+            return (eligibleTypes & (1 << passengerType.ordinal())) != 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.airline.ordering.service.menu;
+
+import com.airline.ordering.domain.MenuItem;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The dietary tags and allergens of every menu item, encoded as {@link TagMask}s of one {@link TagDictionary}.
+ * <p>
+ * Matching a tray against a passenger profile then takes a couple of mask operations per item instead of
+ * copying and hashing the item's tag sets.
+ */
+public class MenuTagIndex {
+    
+    private final TagDictionary dictionary;
+    private final Map<UUID, ItemTags> byItem = new ConcurrentHashMap<>();
+    
+    public MenuTagIndex() {
+        this(new TagDictionary());
+    }
+    
+    public MenuTagIndex(TagDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+    
+    /**
+     * Encodes the tags of a menu item, replacing any previous entry for it.
+     * @param menuItem The menu item.
+     * @return The encoded tags.
+     */
+    public ItemTags put(MenuItem menuItem) {
+        ItemTags tags = new ItemTags(menuItem.getItemId(), menuItem.getName(),
+                dictionary.maskOf(menuItem.getDietaryTags()), dictionary.maskOf(menuItem.getAllergens()));
+        byItem.put(menuItem.getItemId(), tags);
+        return tags;
+    }
+    
+    public void remove(UUID itemId) {
+        byItem.remove(itemId);
+    }
+    
+    public void clear() {
+        byItem.clear();
+    }
+    
+    /**
+     * @param itemId The menu item ID.
+     * @return The encoded tags of the item, or null if it is not indexed.
+     */
+    public ItemTags get(UUID itemId) {
+        return byItem.get(itemId);
+    }
+    
+    public TagDictionary getDictionary() {
+        return dictionary;
+    }
+    
+    /**
+     * The encoded tags of one menu item.
+     */
+    public static final class ItemTags {
+        private final UUID itemId;
+        private final String name;
+        private final TagMask dietaryTags;
+        private final TagMask allergens;
+        
+        private ItemTags(UUID itemId, String name, TagMask dietaryTags, TagMask allergens) {
+            this.itemId = itemId;
+            this.name = name;
+            this.dietaryTags = dietaryTags;
+            this.allergens = allergens;
+        }
+        
+        public UUID getItemId() {
+            return itemId;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public TagMask getDietaryTags() {
+            return dietaryTags;
+        }
+        
+        public TagMask getAllergens() {
+            return allergens;
+        }
+        
+        /**
+         * @return true if the item carries every required dietary tag and none of the forbidden allergens.
+         */
+        public boolean matches(TagMask requiredDietaryTags, TagMask forbiddenAllergens) {
+            return dietaryTags.containsAll(requiredDietaryTags) && !allergens.intersects(forbiddenAllergens);
+        }
+    }
+}
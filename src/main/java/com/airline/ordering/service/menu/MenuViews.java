@@ -0,0 +1,332 @@
+package com.airline.ordering.service.menu;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.service.inventory.InventoryEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Materialized views of the orderable menu, one per passenger type and category.
+ * <p>
+ * Each view is an immutable array of the items that are available to the passenger type and in stock, sorted by
+ * name, alongside the {@link MenuTagIndex} masks of those items so that dietary and allergen filters are mask
+ * tests rather than string set lookups. Reading a view is a volatile read and two array lookups. When an item is
+ * saved, removed, or sells out, only the views of its category for the passenger types it is offered to are
+ * rebuilt and swapped in; all other views are shared with the previous generation.
+ * <p>
+ * The items in the views are read-only snapshots shared by every reader and handed out as they are; their mutators
+ * throw {@link UnsupportedOperationException}. Their inventory count is read live from the inventory engine.
+ */
+public class MenuViews implements InventoryEngine.StockListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(MenuViews.class);
+    
+    private static final PassengerType[] PASSENGER_TYPES = PassengerType.values();
+    private static final MenuCategory[] CATEGORIES = sortedCategories();
+    private static final int[] CATEGORY_INDEX = categoryIndexes();
+    private static final Comparator<MenuItem> DISPLAY_ORDER = Comparator
+            .comparing((MenuItem item) -> item.getName(), String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(MenuItem::getItemId);
+    
+    private final InventoryEngine inventory;
+    private final MenuTagIndex tagIndex;
+    
+    // Guarded by this; the source the views are rebuilt from
+    private final Map<UUID, MenuItem> items = new HashMap<>();
+    private final Map<MenuCategory, Map<UUID, MenuItem>> itemsByCategory = new HashMap<>();
+    private final Set<UUID> inStock = new HashSet<>();
+    
+    private volatile TypeView[] views = emptyViews();
+    private volatile MenuSnapshot snapshot = MenuSnapshot.EMPTY;
+    
+    public MenuViews(InventoryEngine inventory) {
+        this(inventory, new MenuTagIndex());
+    }
+    
+    /**
+     * Creates views that keep the given tag index up to date with the menu they hold.
+     * @param inventory The inventory engine that decides which items are in stock.
+     * @param tagIndex The tag index to maintain.
+     */
+    public MenuViews(InventoryEngine inventory, MenuTagIndex tagIndex) {
+        this.inventory = inventory;
+        this.tagIndex = tagIndex;
+    }
+    
+    /**
+     * Replaces the whole menu and rebuilds every view.
+     * @param menuItems The menu items; read-only snapshots of them are taken.
+     */
+    public synchronized void load(Collection<MenuItem> menuItems) {
+        items.clear();
+        itemsByCategory.clear();
+        inStock.clear();
+        tagIndex.clear();
+        for (MenuItem menuItem : menuItems) {
+            store(new ReadOnlyMenuItem(menuItem, inventory));
+        }
+        TypeView[] rebuilt = new TypeView[PASSENGER_TYPES.length];
+        for (PassengerType type : PASSENGER_TYPES) {
+            View[] byCategory = new View[CATEGORIES.length];
+            for (int c = 0; c < CATEGORIES.length; c++) {
+                byCategory[c] = buildView(type, CATEGORIES[c]);
+            }
+            rebuilt[type.ordinal()] = new TypeView(byCategory);
+        }
+        views = rebuilt;
+        snapshot = MenuSnapshot.of(items.values(), tagIndex);
+        logger.debug("Menu views built for {} items", items.size());
+    }
+    
+    /**
+     * Adds or replaces an item and rebuilds the views it leaves or enters.
+     * @param menuItem The menu item; a read-only snapshot of it is taken.
+     */
+    public synchronized void upsert(MenuItem menuItem) {
+        MenuItem previous = unstore(menuItem.getItemId());
+        MenuItem current = new ReadOnlyMenuItem(menuItem, inventory);
+        store(current);
+        rebuild(previous, current);
+        snapshot = snapshot.with(current, tagIndex);
+    }
+    
+    /**
+     * Removes an item from every view.
+     * @param itemId The menu item ID.
+     */
+    public synchronized void remove(UUID itemId) {
+        MenuItem previous = unstore(itemId);
+        if (previous != null) {
+            rebuild(previous, null);
+            snapshot = snapshot.without(itemId);
+        }
+    }
+    
+    /**
+     * Re-reads whether an item is in stock and rebuilds its views if that changed.
+     */
+    @Override
+    public synchronized void onStockChanged(UUID itemId) {
+        MenuItem item = items.get(itemId);
+        if (item == null) {
+            return;
+        }
+        boolean hasStock = hasStock(item);
+        if (hasStock != inStock.contains(itemId)) {
+            if (hasStock) {
+                inStock.add(itemId);
+            } else {
+                inStock.remove(itemId);
+            }
+            rebuild(item, item);
+        }
+    }
+    
+    /**
+     * @return The orderable items for a passenger type, grouped by category in menu order and sorted by name.
+     */
+    public List<MenuItem> available(PassengerType passengerType) {
+        return views[passengerType.ordinal()].all;
+    }
+    
+    /**
+     * @return The orderable items of one category for a passenger type, sorted by name.
+     */
+    public List<MenuItem> available(PassengerType passengerType, MenuCategory category) {
+        return views[passengerType.ordinal()].byCategory[categoryIndex(category)].items;
+    }
+    
+    /**
+     * @return The categories with at least one orderable item for a passenger type, in menu order.
+     */
+    public List<MenuCategory> categories(PassengerType passengerType) {
+        return views[passengerType.ordinal()].categories;
+    }
+    
+    /**
+     * @return The orderable items for a passenger type that carry every one of the dietary tags.
+     */
+    public List<MenuItem> withDietaryTags(PassengerType passengerType, Set<String> dietaryTags) {
+        return select(passengerType, dietaryTags, Set.of());
+    }
+    
+    /**
+     * @return The orderable items for a passenger type that contain none of the allergens.
+     */
+    public List<MenuItem> freeOfAllergens(PassengerType passengerType, Set<String> allergens) {
+        return select(passengerType, Set.of(), allergens);
+    }
+    
+    /**
+     * @return The orderable items for a passenger type that carry every one of the dietary tags and contain none
+     *         of the allergens.
+     */
+    public List<MenuItem> select(PassengerType passengerType, Set<String> dietaryTags, Set<String> allergens) {
+        TypeView typeView = views[passengerType.ordinal()];
+        if (dietaryTags.isEmpty() && allergens.isEmpty()) {
+            return typeView.all;
+        }
+        List<String> unknownTags = new ArrayList<>();
+        TagMask required = tagIndex.getDictionary().knownMaskOf(dietaryTags, unknownTags);
+        if (!unknownTags.isEmpty()) {
+            // No item carries a tag the dictionary has never seen
+            return List.of();
+        }
+        TagMask forbidden = tagIndex.getDictionary().knownMaskOf(allergens, null);
+        List<MenuItem> selected = new ArrayList<>();
+        for (View view : typeView.byCategory) {
+            for (int i = 0; i < view.tags.length; i++) {
+                if (view.tags[i].matches(required, forbidden)) {
+                    selected.add(view.items.get(i));
+                }
+            }
+        }
+        return selected;
+    }
+    
+    public MenuTagIndex getTagIndex() {
+        return tagIndex;
+    }
+    
+    /**
+     * @return The validation facts of every item on the menu, stock levels aside, as of the last change.
+     */
+    public MenuSnapshot snapshot() {
+        return snapshot;
+    }
+    
+    private void store(MenuItem item) {
+        items.put(item.getItemId(), item);
+        tagIndex.put(item);
+        itemsByCategory.computeIfAbsent(item.getCategory(), key -> new LinkedHashMap<>()).put(item.getItemId(), item);
+        if (hasStock(item)) {
+            inStock.add(item.getItemId());
+        }
+    }
+    
+    private MenuItem unstore(UUID itemId) {
+        MenuItem previous = items.remove(itemId);
+        if (previous != null) {
+            itemsByCategory.get(previous.getCategory()).remove(itemId);
+            tagIndex.remove(itemId);
+            inStock.remove(itemId);
+        }
+        return previous;
+    }
+    
+    private boolean hasStock(MenuItem item) {
+        return inventory.getAvailable(item.getItemId()) > 0;
+    }
+    
+    private void rebuild(MenuItem previous, MenuItem current) {
+        Set<PassengerType> types = EnumSet.noneOf(PassengerType.class);
+        Set<MenuCategory> categories = EnumSet.noneOf(MenuCategory.class);
+        for (MenuItem item : Arrays.asList(previous, current)) {
+            if (item != null) {
+                types.addAll(item.getAvailableForTypes());
+                categories.add(item.getCategory());
+            }
+        }
+        TypeView[] rebuilt = views.clone();
+        for (PassengerType type : types) {
+            View[] byCategory = rebuilt[type.ordinal()].byCategory.clone();
+            for (MenuCategory category : categories) {
+                byCategory[categoryIndex(category)] = buildView(type, category);
+            }
+            rebuilt[type.ordinal()] = new TypeView(byCategory);
+        }
+        views = rebuilt;
+    }
+    
+    private View buildView(PassengerType type, MenuCategory category) {
+        List<MenuItem> selected = new ArrayList<>();
+        for (MenuItem item : itemsByCategory.getOrDefault(category, Map.of()).values()) {
+            if (item.isAvailableFor(type) && inStock.contains(item.getItemId())) {
+                selected.add(item);
+            }
+        }
+        selected.sort(DISPLAY_ORDER);
+        MenuTagIndex.ItemTags[] tags = new MenuTagIndex.ItemTags[selected.size()];
+        for (int i = 0; i < tags.length; i++) {
+            tags[i] = tagIndex.get(selected.get(i).getItemId());
+        }
+        return new View(selected, tags);
+    }
+    
+    private static int categoryIndex(MenuCategory category) {
+        return CATEGORY_INDEX[category.ordinal()];
+    }
+    
+    private static MenuCategory[] sortedCategories() {
+        MenuCategory[] categories = MenuCategory.values();
+        Arrays.sort(categories, Comparator.comparingInt(MenuCategory::getSortOrder));
+        return categories;
+    }
+    
+    private static int[] categoryIndexes() {
+        int[] indexes = new int[CATEGORIES.length];
+        for (int c = 0; c < CATEGORIES.length; c++) {
+            indexes[CATEGORIES[c].ordinal()] = c;
+        }
+        return indexes;
+    }
+    
+    private static TypeView[] emptyViews() {
+        TypeView[] empty = new TypeView[PASSENGER_TYPES.length];
+        View[] noItems = new View[CATEGORIES.length];
+        Arrays.fill(noItems, new View(List.of(), new MenuTagIndex.ItemTags[0]));
+        Arrays.fill(empty, new TypeView(noItems));
+        return empty;
+    }
+    
+    /**
+     * All views of one passenger type, plus the concatenation of its category views.
+     */
+    private static final class TypeView {
+        private final View[] byCategory;
+        private final List<MenuItem> all;
+        private final List<MenuCategory> categories;
+        
+        private TypeView(View[] byCategory) {
+            this.byCategory = byCategory;
+            List<MenuItem> allItems = new ArrayList<>();
+            List<MenuCategory> nonEmpty = new ArrayList<>();
+            for (int c = 0; c < byCategory.length; c++) {
+                if (!byCategory[c].items.isEmpty()) {
+                    allItems.addAll(byCategory[c].items);
+                    nonEmpty.add(CATEGORIES[c]);
+                }
+            }
+            this.all = List.copyOf(allItems);
+            this.categories = List.copyOf(nonEmpty);
+        }
+    }
+    
+    /**
+     * The sorted items of one passenger type and category, with their tag masks at the same positions.
+     */
+    private static final class View {
+        private final List<MenuItem> items;
+        private final MenuTagIndex.ItemTags[] tags;
+        
+        private View(List<MenuItem> items, MenuTagIndex.ItemTags[] tags) {
+            this.items = List.copyOf(items);
+            this.tags = tags;
+        }
+    }
+}
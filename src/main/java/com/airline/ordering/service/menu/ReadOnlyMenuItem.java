@@ -0,0 +1,128 @@
+package com.airline.ordering.service.menu;
+
+import com.airline.ordering.domain.ItemStatus;
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.service.inventory.InventoryEngine;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A snapshot of a menu item held by the {@link MenuViews}, shared by every reader.
+ * <p>
+ * Every mutator throws {@link UnsupportedOperationException}; copy the item with {@link MenuItem#MenuItem(MenuItem)}
+ * to change it. The inventory count is read live from the inventory engine while it tracks the item.
+ */
+final class ReadOnlyMenuItem extends MenuItem {
+    
+    private final InventoryEngine inventory;
+    
+    ReadOnlyMenuItem(MenuItem item, InventoryEngine inventory) {
+        super(item);
+        this.inventory = inventory;
+    }
+    
+    @Override
+    public int getInventoryCount() {
+        UUID itemId = getItemId();
+        return inventory.isTracked(itemId) ? inventory.getAvailable(itemId) : super.getInventoryCount();
+    }
+    
+    @Override
+    public boolean isInStock() {
+        return getInventoryCount() > 0 && getStatus() == ItemStatus.AVAILABLE;
+    }
+    
+    @Override
+    public void setItemId(UUID itemId) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setName(String name) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setDescription(String description) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setPrice(BigDecimal price) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setCategory(MenuCategory category) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setAvailableForTypes(Set<PassengerType> availableForTypes) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void addAvailableForType(PassengerType type) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setAllergens(Set<String> allergens) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setDietaryTags(Set<String> dietaryTags) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setStatus(ItemStatus status) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setInventoryCount(int inventoryCount) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setSubstitutableItems(Set<UUID> substitutableItems) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setComboItems(Set<UUID> comboItems) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setCreatedAt(LocalDateTime createdAt) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        throw readOnly();
+    }
+    
+    @Override
+    public void decrementInventory() {
+        throw readOnly();
+    }
+    
+    @Override
+    public void incrementInventory() {
+        throw readOnly();
+    }
+    
+    private UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Menu item " + getItemId() + " is read-only; copy it to change it");
+    }
+}
@@ -0,0 +1,127 @@
+package com.airline.ordering.service.menu;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns allergen and dietary tag strings into small, dense integer ids for use in {@link TagMask}s.
+ * <p>
+ * Tags are case-insensitive. Ids are handed out in first-seen order and never reused, so a mask stays valid
+ * for the lifetime of the dictionary. Lookups are lock-free; only interning a new tag synchronizes.
+ */
+public class TagDictionary {
+    
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private volatile int size;
+    
+    /**
+     * @param tag The tag, in any case.
+     * @return The id of the tag, assigning a new one if it was not seen before.
+     */
+    public int intern(String tag) {
+        String key = normalize(tag);
+        Integer id = ids.get(key);
+        return id != null ? id : register(key);
+    }
+    
+    /**
+     * @param tag The tag, in any case.
+     * @return The id of the tag, or -1 if it was never interned.
+     */
+    public int idOf(String tag) {
+        return ids.getOrDefault(normalize(tag), -1);
+    }
+    
+    /**
+     * @param id A tag id issued by this dictionary.
+     * @return The normalized tag.
+     */
+    public String nameOf(int id) {
+        if (id < 0 || id >= size) {
+            throw new IllegalArgumentException("Unknown tag id: " + id);
+        }
+        return names[id];
+    }
+    
+    /**
+     * Builds the mask of the given tags, interning the ones not seen before.
+     * @param tags The tags, in any case.
+     * @return The mask of their ids.
+     */
+    public TagMask maskOf(Collection<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return TagMask.EMPTY;
+        }
+        int[] tagIds = new int[tags.size()];
+        int i = 0;
+        for (String tag : tags) {
+            tagIds[i++] = intern(tag);
+        }
+        return TagMask.of(tagIds);
+    }
+    
+    /**
+     * Builds the mask of the given tags without interning any, so queries for arbitrary tags do not grow the
+     * dictionary. A tag that was never interned is on no menu item.
+     * @param tags The tags, in any case.
+     * @param unknown Receives the normalized tags that were never interned; may be null if they do not matter.
+     * @return The mask of the ids of the known tags.
+     */
+    public TagMask knownMaskOf(Collection<String> tags, Collection<String> unknown) {
+        if (tags == null || tags.isEmpty()) {
+            return TagMask.EMPTY;
+        }
+        int[] tagIds = new int[tags.size()];
+        int known = 0;
+        for (String tag : tags) {
+            String key = normalize(tag);
+            Integer id = ids.get(key);
+            if (id != null) {
+                tagIds[known++] = id;
+            } else if (unknown != null) {
+                unknown.add(key);
+            }
+        }
+        return TagMask.of(Arrays.copyOf(tagIds, known));
+    }
+    
+    /**
+     * @param mask A mask built from this dictionary.
+     * @return The normalized tags of the mask, in id order.
+     */
+    public List<String> namesOf(TagMask mask) {
+        List<String> tags = new ArrayList<>();
+        mask.forEach(id -> tags.add(nameOf(id)));
+        return tags;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    private synchronized int register(String key) {
+        Integer existing = ids.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+        }
+        names[id] = key;
+        // Publish the name before the id, so nameOf never sees an id it cannot resolve
+        size = id + 1;
+        ids.put(key, id);
+        return id;
+    }
+    
+    private static String normalize(String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+}
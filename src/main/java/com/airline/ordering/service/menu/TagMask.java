@@ -0,0 +1,177 @@
+package com.airline.ordering.service.menu;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable set of tag ids issued by a {@link TagDictionary}.
+ * <p>
+ * The first 64 ids live in a single {@code long}, which covers every allergen and dietary tag on a real menu, so
+ * set operations are usually one or two machine instructions. Higher ids spill into an overflow bitmap that is
+ * only allocated when used.
+ */
+public final class TagMask {
+    
+    public static final TagMask EMPTY = new TagMask(0L, null);
+    
+    private final long bits;
+    // Words for ids 64 and up, without trailing zero words; null if there are none
+    private final long[] overflow;
+    
+    private TagMask(long bits, long[] overflow) {
+        this.bits = bits;
+        this.overflow = overflow;
+    }
+    
+    /**
+     * @param ids The tag ids, all non-negative.
+     * @return A mask with exactly the given ids set.
+     */
+    public static TagMask of(int... ids) {
+        long bits = 0L;
+        long[] overflow = null;
+        for (int id : ids) {
+            if (id < 0) {
+                throw new IllegalArgumentException("Tag id must not be negative: " + id);
+            }
+            if (id < Long.SIZE) {
+                bits |= 1L << id;
+            } else {
+                int word = (id >>> 6) - 1;
+                if (overflow == null || overflow.length <= word) {
+                    overflow = overflow == null ? new long[word + 1] : Arrays.copyOf(overflow, word + 1);
+                }
+                overflow[word] |= 1L << id;
+            }
+        }
+        return create(bits, overflow);
+    }
+    
+    public boolean contains(int id) {
+        if (id < Long.SIZE) {
+            return id >= 0 && (bits & (1L << id)) != 0;
+        }
+        int word = (id >>> 6) - 1;
+        return overflow != null && word < overflow.length && (overflow[word] & (1L << id)) != 0;
+    }
+    
+    /**
+     * @return true if every id in {@code other} is also in this mask.
+     */
+    public boolean containsAll(TagMask other) {
+        if ((other.bits & ~bits) != 0) {
+            return false;
+        }
+        if (other.overflow == null) {
+            return true;
+        }
+        for (int i = 0; i < other.overflow.length; i++) {
+            if ((other.overflow[i] & ~overflowWord(i)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * @return true if this mask and {@code other} share at least one id.
+     */
+    public boolean intersects(TagMask other) {
+        if ((bits & other.bits) != 0) {
+            return true;
+        }
+        if (overflow == null || other.overflow == null) {
+            return false;
+        }
+        int words = Math.min(overflow.length, other.overflow.length);
+        for (int i = 0; i < words; i++) {
+            if ((overflow[i] & other.overflow[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * @return The ids in both this mask and {@code other}.
+     */
+    public TagMask and(TagMask other) {
+        if (overflow == null || other.overflow == null) {
+            return create(bits & other.bits, null);
+        }
+        long[] words = new long[Math.min(overflow.length, other.overflow.length)];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = overflow[i] & other.overflow[i];
+        }
+        return create(bits & other.bits, words);
+    }
+    
+    /**
+     * @return The ids in this mask but not in {@code other}.
+     */
+    public TagMask andNot(TagMask other) {
+        if (overflow == null || other.overflow == null) {
+            return create(bits & ~other.bits, overflow);
+        }
+        long[] words = overflow.clone();
+        for (int i = 0; i < Math.min(words.length, other.overflow.length); i++) {
+            words[i] &= ~other.overflow[i];
+        }
+        return create(bits & ~other.bits, words);
+    }
+    
+    public boolean isEmpty() {
+        return bits == 0L && overflow == null;
+    }
+    
+    /**
+     * Passes every id in the mask to the action, in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        for (long remaining = bits; remaining != 0; remaining &= remaining - 1) {
+            action.accept(Long.numberOfTrailingZeros(remaining));
+        }
+        if (overflow != null) {
+            for (int i = 0; i < overflow.length; i++) {
+                for (long remaining = overflow[i]; remaining != 0; remaining &= remaining - 1) {
+                    action.accept((i + 1) * Long.SIZE + Long.numberOfTrailingZeros(remaining));
+                }
+            }
+        }
+    }
+    
+    private long overflowWord(int index) {
+        return overflow != null && index < overflow.length ? overflow[index] : 0L;
+    }
+    
+    private static TagMask create(long bits, long[] overflow) {
+        int length = overflow == null ? 0 : overflow.length;
+        while (length > 0 && overflow[length - 1] == 0L) {
+            length--;
+        }
+        if (length == 0) {
+            return bits == 0L ? EMPTY : new TagMask(bits, null);
+        }
+        return new TagMask(bits, length == overflow.length ? overflow : Arrays.copyOf(overflow, length));
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TagMask other = (TagMask) o;
+        return bits == other.bits && Arrays.equals(overflow, other.overflow);
+    }
+    
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(bits) + Arrays.hashCode(overflow);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder ids = new StringBuilder("TagMask[");
+        forEach(id -> ids.append(ids.length() > 8 ? "," : "").append(id));
+        return ids.append(']').toString();
+    }
+}
@@ -0,0 +1,233 @@
+package com.airline.ordering.service.validation;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderItemStatus;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.service.ValidationService.ValidationResult;
+import com.airline.ordering.service.menu.MenuSnapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Validates orders against a compiled pipeline of business rules.
+ * <p>
+ * The rules are fixed when the engine is built and run in three stages: order rules, then item rules for each
+ * item in a single pass over the order, then finishing rules over what the pass collected. Every item is looked up
+ * once in the {@link MenuSnapshot} the call was given, so the whole order is judged against one version of the
+ * menu without touching a repository. With short-circuiting enabled, validation stops at the first error.
+ */
+public class ValidationEngine {
+    
+    private final OrderRule[] orderRules;
+    private final ItemRule[] itemRules;
+    private final FinishRule[] finishRules;
+    private final boolean shortCircuit;
+    
+    private ValidationEngine(Builder builder) {
+        this.orderRules = builder.orderRules.toArray(new OrderRule[0]);
+        this.itemRules = builder.itemRules.toArray(new ItemRule[0]);
+        this.finishRules = builder.finishRules.toArray(new FinishRule[0]);
+        this.shortCircuit = builder.shortCircuit;
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    /**
+     * Validates a whole order.
+     * @param order The order.
+     * @param passengerType The type of the ordering passenger, or null if the passenger is unknown.
+     * @param menu The menu to validate against.
+     * @return The errors and warnings of every rule, or up to the first error when short-circuiting.
+     */
+    public ValidationResult validate(Order order, PassengerType passengerType, MenuSnapshot menu) {
+        Context context = new Context(order, passengerType, menu, finishRules.length > 0);
+        for (OrderRule rule : orderRules) {
+            rule.check(order, context);
+            if (context.isDone()) {
+                return context.toResult();
+            }
+        }
+        for (OrderItem item : order.getItems()) {
+            if (!checkItem(item, context)) {
+                return context.toResult();
+            }
+        }
+        for (FinishRule rule : finishRules) {
+            rule.check(context);
+            if (context.isDone()) {
+                break;
+            }
+        }
+        return context.toResult();
+    }
+    
+    /**
+     * Runs only the item rules against a single item.
+     */
+    public ValidationResult validateItem(OrderItem item, PassengerType passengerType, MenuSnapshot menu) {
+        Context context = new Context(null, passengerType, menu, false);
+        checkItem(item, context);
+        return context.toResult();
+    }
+    
+    /**
+     * @return false if validation should stop.
+     */
+    private boolean checkItem(OrderItem item, Context context) {
+        if (item.getStatus() == OrderItemStatus.CANCELLED) {
+            return true;
+        }
+        MenuSnapshot.Entry entry = context.menu.get(item.getMenuItemId());
+        if (context.quantities != null) {
+            context.quantities.merge(item.getMenuItemId(), item.getQuantity(), Integer::sum);
+        }
+        for (ItemRule rule : itemRules) {
+            boolean proceed = rule.check(item, entry, context);
+            if (context.isDone()) {
+                return false;
+            }
+            if (!proceed) {
+                break;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * A rule on the order as a whole, run before its items.
+     */
+    @FunctionalInterface
+    public interface OrderRule {
+        void check(Order order, Context context);
+    }
+    
+    /**
+     * A rule on one item of the order.
+     */
+    @FunctionalInterface
+    public interface ItemRule {
+        /**
+         * @param item The order item; cancelled items are not passed to the rules.
+         * @param entry The menu item it refers to, or null if that is not on the menu.
+         * @param context The validation in progress.
+         * @return false to skip the remaining item rules for this item.
+         */
+        boolean check(OrderItem item, MenuSnapshot.Entry entry, Context context);
+    }
+    
+    /**
+     * A rule run after every item has been seen, typically over {@link Context#getQuantities()}.
+     */
+    @FunctionalInterface
+    public interface FinishRule {
+        void check(Context context);
+    }
+    
+    /**
+     * The state of one validation call, passed to every rule.
+     */
+    public final class Context {
+        private final Order order;
+        private final PassengerType passengerType;
+        private final MenuSnapshot menu;
+        // Total quantity per menu item over the items seen so far; only kept if finishing rules need it
+        private final Map<UUID, Integer> quantities;
+        private List<String> errors;
+        private List<String> warnings;
+        
+        private Context(Order order, PassengerType passengerType, MenuSnapshot menu, boolean tallyQuantities) {
+            this.order = order;
+            this.passengerType = passengerType;
+            this.menu = menu;
+            this.quantities = tallyQuantities ? new LinkedHashMap<>() : null;
+        }
+        
+        /**
+         * @return The order, or null when a single item is validated.
+         */
+        public Order getOrder() {
+            return order;
+        }
+        
+        /**
+         * @return The passenger type, or null if the passenger is unknown.
+         */
+        public PassengerType getPassengerType() {
+            return passengerType;
+        }
+        
+        public MenuSnapshot getMenu() {
+            return menu;
+        }
+        
+        /**
+         * @return The total ordered quantity per menu item, excluding cancelled items, in order of appearance.
+         */
+        public Map<UUID, Integer> getQuantities() {
+            return quantities != null ? quantities : Map.of();
+        }
+        
+        public void error(String message) {
+            if (errors == null) {
+                errors = new ArrayList<>();
+            }
+            errors.add(message);
+        }
+        
+        public void warning(String message) {
+            if (warnings == null) {
+                warnings = new ArrayList<>();
+            }
+            warnings.add(message);
+        }
+        
+        private boolean isDone() {
+            return shortCircuit && errors != null;
+        }
+        
+        private ValidationResult toResult() {
+            return ValidationResult.withErrorsAndWarnings(errors, warnings);
+        }
+    }
+    
+    public static class Builder {
+        private final List<OrderRule> orderRules = new ArrayList<>();
+        private final List<ItemRule> itemRules = new ArrayList<>();
+        private final List<FinishRule> finishRules = new ArrayList<>();
+        private boolean shortCircuit;
+        
+        public Builder orderRule(OrderRule rule) {
+            orderRules.add(rule);
+            return this;
+        }
+        
+        public Builder itemRule(ItemRule rule) {
+            itemRules.add(rule);
+            return this;
+        }
+        
+        public Builder finishRule(FinishRule rule) {
+            finishRules.add(rule);
+            return this;
+        }
+        
+        /**
+         * @param shortCircuit true to stop at the first error instead of collecting all of them.
+         */
+        public Builder shortCircuit(boolean shortCircuit) {
+            this.shortCircuit = shortCircuit;
+            return this;
+        }
+        
+        public ValidationEngine build() {
+            return new ValidationEngine(this);
+        }
+    }
+}
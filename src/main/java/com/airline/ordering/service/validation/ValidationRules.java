@@ -0,0 +1,166 @@
+package com.airline.ordering.service.validation;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.service.MenuService;
+import com.airline.ordering.service.menu.MenuSnapshot;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.ToIntFunction;
+
+/**
+ * The standard order validation rules, for assembling a {@link ValidationEngine}.
+ */
+public final class ValidationRules {
+    
+    private ValidationRules() {
+    }
+    
+    /**
+     * Stock is not checked: items added through the order service hold their stock already, so comparing them
+     * with what is left would reject every order that took the last units. Orders that reserved nothing are
+     * checked with {@link #inStock} on its own.
+     * @param menuService Answers substitution questions from memory.
+     * @param shortCircuit true to stop at the first error.
+     * @return An engine running every standard rule, cheapest first.
+     */
+    public static ValidationEngine standard(MenuService menuService, boolean shortCircuit) {
+        return ValidationEngine.builder()
+                .orderRule(seatAssigned())
+                .orderRule(hasItems())
+                .orderRule(passengerKnown())
+                .orderRule(deliveryNotInPast())
+                .itemRule(validQuantity())
+                .itemRule(onMenu())
+                .itemRule(eligible())
+                .itemRule(priceUnchanged())
+                .itemRule(allowedSubstitution(menuService))
+                .shortCircuit(shortCircuit)
+                .build();
+    }
+    
+    public static ValidationEngine.OrderRule seatAssigned() {
+        return (order, context) -> {
+            if (order.getSeatNumber() == null || order.getSeatNumber().trim().isEmpty()) {
+                context.error("Order has no seat number");
+            }
+        };
+    }
+    
+    public static ValidationEngine.OrderRule hasItems() {
+        return (order, context) -> {
+            if (order.isEmpty()) {
+                context.error("Order has no items");
+            }
+        };
+    }
+    
+    public static ValidationEngine.OrderRule passengerKnown() {
+        return (order, context) -> {
+            if (context.getPassengerType() == null) {
+                context.error("Order has no known passenger");
+            }
+        };
+    }
+    
+    public static ValidationEngine.OrderRule deliveryNotInPast() {
+        return (order, context) -> {
+            LocalDateTime requested = order.getRequestedDeliveryTime();
+            if (requested != null && requested.isBefore(order.getCreatedAt())) {
+                context.error("Requested delivery time is before the order was placed");
+            }
+        };
+    }
+    
+    public static ValidationEngine.ItemRule validQuantity() {
+        return (item, entry, context) -> {
+            if (item.getQuantity() < 1) {
+                context.error("Item " + item.getMenuItemName() + " has invalid quantity " + item.getQuantity());
+            }
+            return true;
+        };
+    }
+    
+    /**
+     * Stops the item rules for items that are not on the menu.
+     */
+    public static ValidationEngine.ItemRule onMenu() {
+        return (item, entry, context) -> {
+            if (entry == null) {
+                context.error("Menu item not found: " + item.getMenuItemId());
+                return false;
+            }
+            return true;
+        };
+    }
+    
+    /**
+     * The item must be offered to the passenger type, and crew cannot be served alcohol.
+     */
+    public static ValidationEngine.ItemRule eligible() {
+        return (item, entry, context) -> {
+            PassengerType type = context.getPassengerType();
+            String error = type != null ? eligibilityError(entry, type) : null;
+            if (error != null) {
+                context.error(error);
+            }
+            return true;
+        };
+    }
+    
+    /**
+     * @return Why the item cannot be served to the passenger type, or null if it can.
+     */
+    public static String eligibilityError(MenuSnapshot.Entry entry, PassengerType passengerType) {
+        if (!entry.isAvailableFor(passengerType)) {
+            return entry.getName() + " is not available for " + passengerType.getDisplayName() + " passengers";
+        }
+        if (passengerType.isCrew() && entry.getCategory() == MenuCategory.ALCOHOL) {
+            return entry.getName() + " cannot be served to crew";
+        }
+        return null;
+    }
+    
+    public static ValidationEngine.ItemRule priceUnchanged() {
+        return (item, entry, context) -> {
+            if (item.getUnitPrice() != null && item.getUnitPrice().compareTo(entry.getPrice()) != 0) {
+                context.warning(entry.getName() + " is now priced at " + entry.getPrice());
+            }
+            return true;
+        };
+    }
+    
+    public static ValidationEngine.ItemRule allowedSubstitution(MenuService menuService) {
+        return (item, entry, context) -> {
+            UUID original = item.getSubstitutedFromItemId();
+            if (original == null || context.getPassengerType() == null) {
+                return true;
+            }
+            if (context.getMenu().get(original) == null) {
+                context.error("Menu item not found: " + original);
+            } else if (!menuService.canSubstitute(original, item.getMenuItemId(), context.getPassengerType())) {
+                context.error("Substitution of " + original + " with " + item.getMenuItemId() + " is not allowed");
+            }
+            return true;
+        };
+    }
+    
+    /**
+     * Checks the total quantity of every menu item in the order against the stock still on board.
+     * @param stock The live available count of a menu item.
+     */
+    public static ValidationEngine.FinishRule inStock(ToIntFunction<UUID> stock) {
+        return context -> {
+            for (Map.Entry<UUID, Integer> quantity : context.getQuantities().entrySet()) {
+                int available = stock.applyAsInt(quantity.getKey());
+                if (available < quantity.getValue()) {
+                    MenuSnapshot.Entry entry = context.getMenu().get(quantity.getKey());
+                    String name = entry != null ? entry.getName() : quantity.getKey().toString();
+                    context.error("Only " + available + " of " + quantity.getValue() + " x " + name + " in stock");
+                }
+            }
+        };
+    }
+}
@@ -1,6 +1,8 @@
 package com.airline.ordering.sync;
 
 import com.airline.ordering.domain.Order;
+import com.airline.ordering.sync.changelog.OrderDelta;
+import com.airline.ordering.sync.codec.PayloadCodec;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -27,6 +29,25 @@ public interface CRSClient {
      */
     CRSResponse pushOrders(List<Order> orders);
     
+    /**
+     * Pushes multiple orders to the CRS in a batch operation, with the request body encoded by the given codec.
+     * The response reports the size of the body sent under {@link com.airline.ordering.sync.codec.PayloadCodecs#PAYLOAD_BYTES}.
+     * 
+     * @param orders the list of orders to push
+     * @param codec the codec to encode the request body with; its format must be one the CRS accepts
+     * @return CRSResponse containing the result of the batch operation
+     */
+    CRSResponse pushOrders(List<Order> orders, PayloadCodec codec);
+    
+    /**
+     * Pushes order changes from the local change log to the CRS, which applies them in sequence order.
+     * A successful response acknowledges every change in the list.
+     * 
+     * @param changes the changes to push, ordered by sequence
+     * @return CRSResponse containing the result of the operation
+     */
+    CRSResponse pushChanges(List<OrderDelta> changes);
+    
     /**
      * Pulls a single order from the CRS by ID.
      * 
@@ -51,6 +72,18 @@ public interface CRSClient {
      */
     CRSResponse pullUpdatedOrdersSince(java.time.LocalDateTime since);
     
+    /**
+     * Pulls one page of the orders that have been updated since the specified timestamp, so a large backlog of
+     * updates is never held in memory at once. Pages are served in a stable order; the response's
+     * {@code continuationToken} metadata names the next page and is absent on the last one.
+     * 
+     * @param since the timestamp to check for updates since, or null for every order
+     * @param continuationToken the token of the page to pull, or null for the first page
+     * @param pageSize the maximum number of orders in the page
+     * @return CRSResponse containing the page's orders; a 410 status if the token has expired
+     */
+    CRSResponse pullUpdatedOrdersPage(java.time.LocalDateTime since, String continuationToken, int pageSize);
+    
     /**
      * Pulls orders for a specific passenger.
      * 
@@ -118,6 +151,14 @@ public interface CRSClient {
      */
     int getMaxBatchSize();
     
+    /**
+     * Gets the request body formats the CRS accepts, as negotiated when authenticating.
+     * Every CRS accepts {@link com.airline.ordering.sync.codec.JsonPayloadCodec#FORMAT}.
+     * 
+     * @return the accepted {@link PayloadCodec#getFormat()} names
+     */
+    List<String> getAcceptedPayloadFormats();
+    
     /**
      * Gets the rate limit information for the CRS API.
      * 
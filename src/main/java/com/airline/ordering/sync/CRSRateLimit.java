@@ -4,6 +4,8 @@ import java.time.LocalDateTime;
 
 /**
  * Represents rate limiting information for the CRS API.
+ * <p>
+ * The limits count requests, not orders: a batch request costs one request however many orders it carries.
  */
 public class CRSRateLimit {
     
@@ -65,8 +67,12 @@ public class CRSRateLimit {
         return remainingRequests > 0 && retryAfterSeconds == 0;
     }
     
-    public boolean canMakeBatchRequest(int batchSize) {
-        return remainingRequests >= batchSize && retryAfterSeconds == 0;
+    /**
+     * @param requests The number of requests to make, e.g. batches sent together, each costing one request.
+     * @return true if that many requests remain and no retry-after delay is in force.
+     */
+    public boolean canMakeBatchRequest(int requests) {
+        return remainingRequests >= requests && retryAfterSeconds == 0;
     }
     
     public double getUsagePercentage() {
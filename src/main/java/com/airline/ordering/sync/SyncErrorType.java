@@ -71,6 +71,36 @@ public enum SyncErrorType {
         return defaultRetryable;
     }
     
+    /**
+     * Classifies a failed CRS request by its HTTP status code.
+     * 
+     * @param statusCode the status code, or 0 if no response was received
+     * @return the error type
+     */
+    public static SyncErrorType fromStatusCode(int statusCode) {
+        switch (statusCode) {
+            case 0:
+                return NETWORK_ERROR;
+            case 401:
+            case 403:
+                return AUTHENTICATION_ERROR;
+            case 408:
+            case 504:
+                return TIMEOUT_ERROR;
+            case 409:
+                return CONFLICT_ERROR;
+            case 422:
+                return BUSINESS_RULE_ERROR;
+            case 429:
+                return RATE_LIMIT_ERROR;
+            default:
+                if (statusCode >= 500) {
+                    return SERVER_ERROR;
+                }
+                return statusCode >= 400 ? VALIDATION_ERROR : UNKNOWN_ERROR;
+        }
+    }
+    
     /**
      * Checks if this error type typically requires user intervention.
      */
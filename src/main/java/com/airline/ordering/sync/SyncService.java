@@ -51,6 +51,15 @@ public interface SyncService {
      */
     SyncResult pushChangesToCRS();
     
+    /**
+     * Pushes only what changed locally since the last change the CRS acknowledged, read from the order
+     * change log, instead of whole unsynced orders. Changes are pushed in sequence order and acknowledged
+     * batch by batch, so an interrupted push resumes after the last acknowledged batch.
+     * 
+     * @return SyncResult containing details of the push operation
+     */
+    SyncResult pushDeltasToCRS();
+    
     /**
      * Checks if synchronization is currently possible.
      * This includes network connectivity and CRS availability checks.
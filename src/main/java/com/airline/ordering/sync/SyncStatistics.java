@@ -93,13 +93,21 @@ public class SyncStatistics {
     }
     
     public double getRecordsPerSecond() {
-        long seconds = duration.getSeconds();
-        return seconds > 0 ? (double) totalRecords / seconds : 0;
+        long millis = duration.toMillis();
+        return millis > 0 ? totalRecords * 1000.0 / millis : 0;
+    }
+    
+    /**
+     * Returns the rate at which records were synchronized successfully, the throughput of the operation.
+     */
+    public double getSuccessfulRecordsPerSecond() {
+        long millis = duration.toMillis();
+        return millis > 0 ? successfulRecords * 1000.0 / millis : 0;
     }
     
     public double getBytesPerSecond() {
-        long seconds = duration.getSeconds();
-        return seconds > 0 ? (double) bytesTransferred / seconds : 0;
+        long millis = duration.toMillis();
+        return millis > 0 ? bytesTransferred * 1000.0 / millis : 0;
     }
     
     public double getAverageRequestTime() {
@@ -187,6 +195,7 @@ public class SyncStatistics {
         summary.append(successfulRecords).append("/").append(totalRecords).append(" successful");
         summary.append(" (").append(String.format("%.1f", getSuccessRate())).append("%)");
         summary.append(" in ").append(duration.getSeconds()).append("s");
+        summary.append(" (").append(String.format("%.1f", getSuccessfulRecordsPerSecond())).append("/s)");
         
         if (failedRecords > 0) {
             summary.append(", ").append(failedRecords).append(" failed");
@@ -0,0 +1,100 @@
+package com.airline.ordering.sync.changelog;
+
+import com.airline.ordering.repository.ChangeLogRepository;
+import com.airline.ordering.sync.CRSClient;
+import com.airline.ordering.sync.CRSResponse;
+import com.airline.ordering.sync.SyncError;
+import com.airline.ordering.sync.SyncErrorType;
+import com.airline.ordering.sync.SyncOperation;
+import com.airline.ordering.sync.SyncResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Pushes the order change log to the CRS, for {@link com.airline.ordering.sync.SyncService#pushDeltasToCRS()}.
+ * <p>
+ * Changes are read after the acknowledged sequence in batches of the CRS's maximum batch size, and the checkpoint
+ * advances after each batch the CRS accepts, marking the orders it brings up to date as synced. The upload is
+ * proportional to what changed rather than to the orders it changed, and a push that fails part way resumes with
+ * the first unacknowledged batch.
+ */
+public class ChangeLogPusher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ChangeLogPusher.class);
+    
+    private final CRSClient crsClient;
+    private final ChangeLogRepository changeLog;
+    
+    public ChangeLogPusher(CRSClient crsClient, ChangeLogRepository changeLog) {
+        this.crsClient = crsClient;
+        this.changeLog = changeLog;
+    }
+    
+    /**
+     * Pushes every change not yet acknowledged. Pushes are serialized, so a change is never sent twice by
+     * concurrent callers.
+     * @return The outcome, listing the orders whose changes were pushed or failed.
+     */
+    public synchronized SyncResult push() {
+        int batchSize = Math.max(1, crsClient.getMaxBatchSize());
+        long acknowledged = changeLog.getAcknowledgedSequence();
+        Set<UUID> processed = new LinkedHashSet<>();
+        int pushed = 0;
+        while (true) {
+            List<OrderDelta> batch = changeLog.findAfter(acknowledged, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            CRSResponse response = crsClient.pushChanges(batch);
+            if (!response.isSuccess()) {
+                logger.warn("CRS rejected {} order changes after sequence {}: {}", batch.size(), acknowledged,
+                        response.getMessage());
+                return failure(batch, response, processed);
+            }
+            acknowledged = batch.get(batch.size() - 1).getSequence();
+            changeLog.acknowledge(acknowledged);
+            pushed += batch.size();
+            for (OrderDelta delta : batch) {
+                processed.add(delta.getOrderId());
+            }
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+        logger.info("Pushed {} order changes for {} orders, acknowledged up to sequence {}", pushed, processed.size(),
+                acknowledged);
+        return SyncResult.builder()
+                .success(true)
+                .timestamp(LocalDateTime.now())
+                .operation(SyncOperation.PUSH)
+                .processedOrderIds(new ArrayList<>(processed))
+                .message("Pushed " + pushed + " order changes")
+                .build();
+    }
+    
+    private static SyncResult failure(List<OrderDelta> batch, CRSResponse response, Set<UUID> processed) {
+        SyncErrorType errorType = SyncErrorType.fromStatusCode(response.getStatusCode());
+        Set<UUID> failed = new LinkedHashSet<>();
+        SyncResult.Builder result = SyncResult.builder()
+                .success(false)
+                .timestamp(LocalDateTime.now())
+                .operation(SyncOperation.PUSH)
+                .processedOrderIds(new ArrayList<>(processed))
+                .message("CRS rejected order changes: " + response.getMessage());
+        for (OrderDelta delta : batch) {
+            if (failed.add(delta.getOrderId())) {
+                result.addFailedOrderId(delta.getOrderId());
+                result.addError(new SyncError(delta.getOrderId(), errorType, String.valueOf(response.getStatusCode()),
+                        response.getMessage(), null, errorType.isDefaultRetryable(), null));
+            }
+        }
+        return result.build();
+    }
+}
@@ -0,0 +1,102 @@
+package com.airline.ordering.sync.changelog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * One entry of the order change log: what a single save changed about an order, as a JSON document.
+ * <p>
+ * The delta has an {@code op} of CREATE, UPDATE or DELETE; the changed order fields under {@code fields}, leaving
+ * out the order's sync state; {@code totalAmount} if it changed; the added or modified items in full under
+ * {@code upsertedItems}; and the ids of {@code removedItemIds}. A CREATE carries every field and item.
+ * Entries are immutable and ordered by their sequence, which is never reused.
+ */
+public final class OrderDelta {
+    
+    /**
+     * The name {@link #getChangedFields()} gives to a change of the order's items or total amount.
+     */
+    public static final String ITEMS = "items";
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    private final long sequence;
+    private final UUID orderId;
+    private final int syncVersion;
+    private final String delta;
+    private final LocalDateTime recordedAt;
+    
+    public OrderDelta(long sequence, UUID orderId, int syncVersion, String delta, LocalDateTime recordedAt) {
+        this.sequence = sequence;
+        this.orderId = Objects.requireNonNull(orderId, "orderId");
+        this.syncVersion = syncVersion;
+        this.delta = Objects.requireNonNull(delta, "delta");
+        this.recordedAt = Objects.requireNonNull(recordedAt, "recordedAt");
+    }
+    
+    public long getSequence() {
+        return sequence;
+    }
+    
+    public UUID getOrderId() {
+        return orderId;
+    }
+    
+    /**
+     * @return The order's sync version when the change was saved.
+     */
+    public int getSyncVersion() {
+        return syncVersion;
+    }
+    
+    /**
+     * @return The change as a JSON document.
+     */
+    public String getDelta() {
+        return delta;
+    }
+    
+    public LocalDateTime getRecordedAt() {
+        return recordedAt;
+    }
+    
+    /**
+     * @return The property names of the order fields the change set, and {@value #ITEMS} if it changed the items
+     *         or the total amount.
+     * @throws IllegalStateException if the delta is not valid JSON.
+     */
+    public Set<String> getChangedFields() {
+        JsonNode root;
+        try {
+            root = OBJECT_MAPPER.readTree(delta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed change " + sequence + " of order " + orderId, e);
+        }
+        Set<String> fields = new LinkedHashSet<>();
+        for (Iterator<String> names = root.path("fields").fieldNames(); names.hasNext(); ) {
+            fields.add(names.next());
+        }
+        if (root.has("totalAmount") || root.has("upsertedItems") || root.has("removedItemIds")) {
+            fields.add(ITEMS);
+        }
+        return fields;
+    }
+    
+    @Override
+    public String toString() {
+        return "OrderDelta{" +
+                "sequence=" + sequence +
+                ", orderId=" + orderId +
+                ", syncVersion=" + syncVersion +
+                ", delta=" + delta +
+                '}';
+    }
+}
@@ -0,0 +1,220 @@
+package com.airline.ordering.sync.codec;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderItemStatus;
+import com.airline.ordering.domain.OrderStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Schema-based binary encoding of orders. Fields are written in a fixed order without names: IDs as 128-bit UUIDs,
+ * integers and prices as varints, enums by ordinal and strings interned per payload, with a bitmask saying which
+ * nullable fields are present. Timestamps are seconds relative to the previous order's creation time plus nanos,
+ * so those of a batch take a few bytes each.
+ * <p>
+ * The schema is versioned by {@link #FORMAT}; enum constants may only be appended without changing it.
+ */
+public final class BinaryPayloadCodec implements PayloadCodec {
+    
+    public static final String FORMAT = "crs-binary-1";
+    public static final String CONTENT_TYPE = "application/vnd.airline.crs-orders";
+    
+    private static final int VERSION = 1;
+    
+    private static final int PASSENGER_ID = 1;
+    private static final int REQUESTED_DELIVERY_TIME = 1 << 1;
+    private static final int CREATED_AT = 1 << 2;
+    private static final int UPDATED_AT = 1 << 3;
+    private static final int CONFIRMED_AT = 1 << 4;
+    private static final int DELIVERED_AT = 1 << 5;
+    private static final int LAST_SYNC_ATTEMPT = 1 << 6;
+    private static final int SYNCED_WITH_CRS = 1 << 7;
+    
+    private static final int MENU_ITEM_ID = 1;
+    private static final int SUBSTITUTED_FROM_ITEM_ID = 1 << 1;
+    private static final int ITEM_CREATED_AT = 1 << 2;
+    private static final int ITEM_UPDATED_AT = 1 << 3;
+    
+    private static final OrderStatus[] ORDER_STATUSES = OrderStatus.values();
+    private static final OrderItemStatus[] ITEM_STATUSES = OrderItemStatus.values();
+    
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+    
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+    
+    @Override
+    public byte[] encode(List<Order> orders) {
+        WireWriter out = new WireWriter(64 + orders.size() * 160);
+        out.writeByte(VERSION);
+        out.writeVarInt(orders.size());
+        long base = 0;
+        for (Order order : orders) {
+            int present = (order.getPassengerId() != null ? PASSENGER_ID : 0)
+                    | (order.getRequestedDeliveryTime() != null ? REQUESTED_DELIVERY_TIME : 0)
+                    | (order.getCreatedAt() != null ? CREATED_AT : 0)
+                    | (order.getUpdatedAt() != null ? UPDATED_AT : 0)
+                    | (order.getConfirmedAt() != null ? CONFIRMED_AT : 0)
+                    | (order.getDeliveredAt() != null ? DELIVERED_AT : 0)
+                    | (order.getLastSyncAttempt() != null ? LAST_SYNC_ATTEMPT : 0)
+                    | (order.isSyncedWithCrs() ? SYNCED_WITH_CRS : 0);
+            out.writeVarInt(present);
+            out.writeUuid(order.getOrderId());
+            if (order.getPassengerId() != null) {
+                out.writeUuid(order.getPassengerId());
+            }
+            out.writeString(order.getSeatNumber());
+            out.writeVarInt(order.getStatus().ordinal());
+            out.writeString(order.getNotes());
+            if (order.getCreatedAt() != null) {
+                writeTimestamp(out, order.getCreatedAt(), base);
+                base = order.getCreatedAt().toEpochSecond(ZoneOffset.UTC);
+            }
+            writeTimestamp(out, order.getRequestedDeliveryTime(), base);
+            writeTimestamp(out, order.getUpdatedAt(), base);
+            writeTimestamp(out, order.getConfirmedAt(), base);
+            writeTimestamp(out, order.getDeliveredAt(), base);
+            writeTimestamp(out, order.getLastSyncAttempt(), base);
+            out.writeString(order.getCrsOrderId());
+            out.writeVarInt(order.getSyncVersion());
+            out.writeDecimal(order.getTotalAmount());
+            
+            List<OrderItem> items = order.getItems();
+            out.writeVarInt(items.size());
+            for (OrderItem item : items) {
+                out.writeVarInt((item.getMenuItemId() != null ? MENU_ITEM_ID : 0)
+                        | (item.getSubstitutedFromItemId() != null ? SUBSTITUTED_FROM_ITEM_ID : 0)
+                        | (item.getCreatedAt() != null ? ITEM_CREATED_AT : 0)
+                        | (item.getUpdatedAt() != null ? ITEM_UPDATED_AT : 0));
+                out.writeUuid(item.getOrderItemId());
+                if (item.getMenuItemId() != null) {
+                    out.writeUuid(item.getMenuItemId());
+                }
+                if (item.getSubstitutedFromItemId() != null) {
+                    out.writeUuid(item.getSubstitutedFromItemId());
+                }
+                out.writeString(item.getMenuItemName());
+                out.writeVarInt(item.getQuantity());
+                out.writeDecimal(Objects.requireNonNull(item.getUnitPrice(),
+                        "Order item " + item.getOrderItemId() + " has no unit price"));
+                out.writeDecimal(item.getTotalPrice());
+                out.writeString(item.getSpecialInstructions());
+                out.writeVarInt(item.getStatus().ordinal());
+                writeTimestamp(out, item.getCreatedAt(), base);
+                writeTimestamp(out, item.getUpdatedAt(), base);
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    @Override
+    public List<Order> decode(byte[] payload) throws IOException {
+        WireReader in = new WireReader(payload, 0);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported payload version " + version);
+        }
+        int orderCount = in.readLength();
+        List<Order> orders = new ArrayList<>(orderCount);
+        long base = 0;
+        for (int o = 0; o < orderCount; o++) {
+            int present = in.readVarInt();
+            Order order = new Order();
+            order.setOrderId(in.readUuid());
+            order.setPassengerId((present & PASSENGER_ID) != 0 ? in.readUuid() : null);
+            order.setSeatNumber(in.readString());
+            order.setStatus(readEnum(in, ORDER_STATUSES));
+            order.setNotes(in.readString());
+            LocalDateTime createdAt = null;
+            if ((present & CREATED_AT) != 0) {
+                createdAt = readTimestamp(in, base);
+                base = createdAt.toEpochSecond(ZoneOffset.UTC);
+            }
+            order.setRequestedDeliveryTime(readTimestamp(in, present, REQUESTED_DELIVERY_TIME, base));
+            LocalDateTime updatedAt = readTimestamp(in, present, UPDATED_AT, base);
+            LocalDateTime confirmedAt = readTimestamp(in, present, CONFIRMED_AT, base);
+            LocalDateTime deliveredAt = readTimestamp(in, present, DELIVERED_AT, base);
+            LocalDateTime lastSyncAttempt = readTimestamp(in, present, LAST_SYNC_ATTEMPT, base);
+            String crsOrderId = in.readString();
+            int syncVersion = in.readVarInt();
+            BigDecimal totalAmount = in.readDecimal();
+            
+            int itemCount = in.readLength();
+            List<OrderItem> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                int itemPresent = in.readVarInt();
+                OrderItem item = new OrderItem();
+                item.setOrderItemId(in.readUuid());
+                item.setMenuItemId((itemPresent & MENU_ITEM_ID) != 0 ? in.readUuid() : null);
+                item.setSubstitutedFromItemId((itemPresent & SUBSTITUTED_FROM_ITEM_ID) != 0 ? in.readUuid() : null);
+                item.setMenuItemName(in.readString());
+                int quantity = in.readVarInt();
+                item.setUnitPrice(in.readDecimal());
+                item.setQuantity(quantity);
+                item.setTotalPrice(in.readDecimal());
+                item.setSpecialInstructions(in.readString());
+                item.setStatus(readEnum(in, ITEM_STATUSES));
+                item.setCreatedAt(readTimestamp(in, itemPresent, ITEM_CREATED_AT, base));
+                item.setUpdatedAt(readTimestamp(in, itemPresent, ITEM_UPDATED_AT, base));
+                items.add(item);
+            }
+            
+            // Same order as the journal codec, so setters that touch updatedAt run before it is put back
+            order.setItems(items);
+            order.setTotalAmount(totalAmount);
+            order.setConfirmedAt(confirmedAt);
+            order.setDeliveredAt(deliveredAt);
+            order.setSyncedWithCrs((present & SYNCED_WITH_CRS) != 0);
+            order.setLastSyncAttempt(lastSyncAttempt);
+            order.setCrsOrderId(crsOrderId);
+            order.setSyncVersion(syncVersion);
+            order.setCreatedAt(createdAt);
+            order.setUpdatedAt(updatedAt);
+            orders.add(order);
+        }
+        if (in.hasRemaining()) {
+            throw new IOException("Unexpected data after " + orderCount + " orders");
+        }
+        return orders;
+    }
+    
+    private static void writeTimestamp(WireWriter out, LocalDateTime value, long base) {
+        if (value != null) {
+            out.writeSignedVarLong(value.toEpochSecond(ZoneOffset.UTC) - base);
+            out.writeVarInt(value.getNano());
+        }
+    }
+    
+    private static LocalDateTime readTimestamp(WireReader in, int present, int flag, long base) throws IOException {
+        return (present & flag) != 0 ? readTimestamp(in, base) : null;
+    }
+    
+    private static LocalDateTime readTimestamp(WireReader in, long base) throws IOException {
+        long seconds = base + in.readSignedVarLong();
+        int nanos = in.readVarInt();
+        if (nanos < 0 || nanos > 999_999_999) {
+            throw new IOException("Invalid nanoseconds " + nanos);
+        }
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+    
+    private static <E extends Enum<E>> E readEnum(WireReader in, E[] values) throws IOException {
+        int ordinal = in.readVarInt();
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw new IOException("Unknown " + values[0].getDeclaringClass().getSimpleName() + " " + ordinal);
+        }
+        return values[ordinal];
+    }
+}
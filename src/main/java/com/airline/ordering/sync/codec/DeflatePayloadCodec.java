@@ -0,0 +1,146 @@
+package com.airline.ordering.sync.codec;
+
+import com.airline.ordering.domain.Order;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Frames the body of another codec with zlib compression. The frame starts with a flag byte: bodies too small to
+ * gain from compression, or that do not shrink, are stored as they are after the flag, others are deflated after
+ * the flag and a varint giving their inflated size.
+ */
+public final class DeflatePayloadCodec implements PayloadCodec {
+    
+    public static final String FORMAT_SUFFIX = "+deflate";
+    
+    private static final int STORED = 0;
+    private static final int DEFLATED = 1;
+    // Bounds the buffer a corrupt or hostile size could make a decoder allocate
+    private static final int MAX_INFLATED_SIZE = 64 * 1024 * 1024;
+    
+    private final PayloadCodec codec;
+    private final int level;
+    private final int minSize;
+    
+    /**
+     * Compresses bodies of at least 256 bytes at the default level.
+     */
+    public DeflatePayloadCodec(PayloadCodec codec) {
+        this(codec, Deflater.DEFAULT_COMPRESSION, 256);
+    }
+    
+    /**
+     * @param codec The codec whose bodies are compressed.
+     * @param level The {@link Deflater} compression level.
+     * @param minSize The smallest body that is compressed.
+     */
+    public DeflatePayloadCodec(PayloadCodec codec, int level, int minSize) {
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level " + level);
+        }
+        if (minSize < 0) {
+            throw new IllegalArgumentException("minSize must not be negative");
+        }
+        this.codec = codec;
+        this.level = level;
+        this.minSize = minSize;
+    }
+    
+    @Override
+    public String getFormat() {
+        return codec.getFormat() + FORMAT_SUFFIX;
+    }
+    
+    @Override
+    public String getContentType() {
+        return codec.getContentType();
+    }
+    
+    @Override
+    public byte[] encode(List<Order> orders) {
+        byte[] body = codec.encode(orders);
+        if (body.length >= minSize) {
+            byte[] deflated = deflate(body);
+            if (deflated != null) {
+                return deflated;
+            }
+        }
+        byte[] frame = new byte[body.length + 1];
+        frame[0] = STORED;
+        System.arraycopy(body, 0, frame, 1, body.length);
+        return frame;
+    }
+    
+    @Override
+    public List<Order> decode(byte[] payload) throws IOException {
+        if (payload.length == 0) {
+            throw new IOException("Empty payload");
+        }
+        if (payload[0] == STORED) {
+            return codec.decode(Arrays.copyOfRange(payload, 1, payload.length));
+        }
+        if (payload[0] != DEFLATED) {
+            throw new IOException("Unknown payload framing " + payload[0]);
+        }
+        WireReader in = new WireReader(payload, 1);
+        int size = in.readVarInt();
+        if (size < 0 || size > MAX_INFLATED_SIZE) {
+            throw new IOException("Invalid inflated size " + size);
+        }
+        return codec.decode(inflate(payload, in.position(), size));
+    }
+    
+    /**
+     * @return The framed, deflated body, or null if deflating does not make it smaller.
+     */
+    private byte[] deflate(byte[] body) {
+        WireWriter header = new WireWriter(6);
+        header.writeByte(DEFLATED);
+        header.writeVarInt(body.length);
+        byte[] prefix = header.toByteArray();
+        
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            byte[] frame = new byte[body.length];
+            System.arraycopy(prefix, 0, frame, 0, prefix.length);
+            int size = prefix.length;
+            while (!deflater.finished() && size < frame.length) {
+                size += deflater.deflate(frame, size, frame.length - size);
+            }
+            return deflater.finished() ? Arrays.copyOf(frame, size) : null;
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    private static byte[] inflate(byte[] payload, int offset, int size) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(payload, offset, payload.length - offset);
+            byte[] body = new byte[size];
+            int inflated = 0;
+            while (inflated < size && !inflater.finished()) {
+                int count = inflater.inflate(body, inflated, size - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Deflated payload truncated");
+                }
+                inflated += count;
+            }
+            if (inflated != size) {
+                throw new IOException("Deflated payload does not match its size of " + size + " bytes");
+            }
+            return body;
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt deflated payload: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.airline.ordering.sync.codec;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderItemStatus;
+import com.airline.ordering.domain.OrderStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Plain JSON, which every CRS accepts: an array of orders with IDs as UUID strings, ISO timestamps and amounts as
+ * decimal strings so their scale survives.
+ */
+public final class JsonPayloadCodec implements PayloadCodec {
+    
+    public static final String FORMAT = "json";
+    public static final String CONTENT_TYPE = "application/json";
+    
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+    
+    @Override
+    public String getContentType() {
+        return CONTENT_TYPE;
+    }
+    
+    @Override
+    public byte[] encode(List<Order> orders) {
+        ArrayNode array = OBJECT_MAPPER.createArrayNode();
+        for (Order order : orders) {
+            ObjectNode node = array.addObject();
+            node.put("orderId", toText(order.getOrderId()));
+            node.put("passengerId", toText(order.getPassengerId()));
+            node.put("seatNumber", order.getSeatNumber());
+            node.put("status", order.getStatus().name());
+            node.put("notes", order.getNotes());
+            node.put("requestedDeliveryTime", toText(order.getRequestedDeliveryTime()));
+            node.put("createdAt", toText(order.getCreatedAt()));
+            node.put("updatedAt", toText(order.getUpdatedAt()));
+            node.put("confirmedAt", toText(order.getConfirmedAt()));
+            node.put("deliveredAt", toText(order.getDeliveredAt()));
+            node.put("syncedWithCrs", order.isSyncedWithCrs());
+            node.put("lastSyncAttempt", toText(order.getLastSyncAttempt()));
+            node.put("crsOrderId", order.getCrsOrderId());
+            node.put("syncVersion", order.getSyncVersion());
+            node.put("totalAmount", toText(order.getTotalAmount()));
+            ArrayNode items = node.putArray("items");
+            for (OrderItem item : order.getItems()) {
+                ObjectNode itemNode = items.addObject();
+                itemNode.put("orderItemId", toText(item.getOrderItemId()));
+                itemNode.put("menuItemId", toText(item.getMenuItemId()));
+                itemNode.put("menuItemName", item.getMenuItemName());
+                itemNode.put("quantity", item.getQuantity());
+                itemNode.put("unitPrice", toText(item.getUnitPrice()));
+                itemNode.put("totalPrice", toText(item.getTotalPrice()));
+                itemNode.put("specialInstructions", item.getSpecialInstructions());
+                itemNode.put("substitutedFromItemId", toText(item.getSubstitutedFromItemId()));
+                itemNode.put("status", item.getStatus().name());
+                itemNode.put("createdAt", toText(item.getCreatedAt()));
+                itemNode.put("updatedAt", toText(item.getUpdatedAt()));
+            }
+        }
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(array);
+        } catch (JsonProcessingException e) {
+            // A tree of strings and numbers always serializes
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    @Override
+    public List<Order> decode(byte[] payload) throws IOException {
+        JsonNode array = OBJECT_MAPPER.readTree(payload);
+        if (array == null || !array.isArray()) {
+            throw new IOException("Expected a JSON array of orders");
+        }
+        List<Order> orders = new ArrayList<>(array.size());
+        try {
+            for (JsonNode node : array) {
+                Order order = new Order();
+                order.setOrderId(UUID.fromString(node.path("orderId").asText()));
+                order.setPassengerId(toUuid(node.get("passengerId")));
+                order.setSeatNumber(textOf(node.get("seatNumber")));
+                order.setStatus(OrderStatus.valueOf(node.path("status").asText()));
+                order.setNotes(textOf(node.get("notes")));
+                order.setRequestedDeliveryTime(toTimestamp(node.get("requestedDeliveryTime")));
+                
+                List<OrderItem> items = new ArrayList<>();
+                for (JsonNode itemNode : node.path("items")) {
+                    OrderItem item = new OrderItem();
+                    item.setOrderItemId(UUID.fromString(itemNode.path("orderItemId").asText()));
+                    item.setMenuItemId(toUuid(itemNode.get("menuItemId")));
+                    item.setMenuItemName(textOf(itemNode.get("menuItemName")));
+                    item.setUnitPrice(toDecimal(itemNode.get("unitPrice")));
+                    item.setQuantity(itemNode.path("quantity").asInt());
+                    item.setTotalPrice(toDecimal(itemNode.get("totalPrice")));
+                    item.setSpecialInstructions(textOf(itemNode.get("specialInstructions")));
+                    item.setSubstitutedFromItemId(toUuid(itemNode.get("substitutedFromItemId")));
+                    item.setStatus(OrderItemStatus.valueOf(itemNode.path("status").asText()));
+                    item.setCreatedAt(toTimestamp(itemNode.get("createdAt")));
+                    item.setUpdatedAt(toTimestamp(itemNode.get("updatedAt")));
+                    items.add(item);
+                }
+                
+                // Same order as the journal codec, so setters that touch updatedAt run before it is put back
+                order.setItems(items);
+                order.setTotalAmount(toDecimal(node.get("totalAmount")));
+                order.setConfirmedAt(toTimestamp(node.get("confirmedAt")));
+                order.setDeliveredAt(toTimestamp(node.get("deliveredAt")));
+                order.setSyncedWithCrs(node.path("syncedWithCrs").asBoolean());
+                order.setLastSyncAttempt(toTimestamp(node.get("lastSyncAttempt")));
+                order.setCrsOrderId(textOf(node.get("crsOrderId")));
+                order.setSyncVersion(node.path("syncVersion").asInt());
+                order.setCreatedAt(toTimestamp(node.get("createdAt")));
+                order.setUpdatedAt(toTimestamp(node.get("updatedAt")));
+                orders.add(order);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid order in JSON payload: " + e.getMessage(), e);
+        }
+        return orders;
+    }
+    
+    private static String toText(Object value) {
+        return value != null ? value.toString() : null;
+    }
+    
+    private static String textOf(JsonNode node) {
+        return node == null || node.isNull() ? null : node.asText();
+    }
+    
+    private static UUID toUuid(JsonNode node) {
+        String text = textOf(node);
+        return text != null ? UUID.fromString(text) : null;
+    }
+    
+    private static LocalDateTime toTimestamp(JsonNode node) {
+        String text = textOf(node);
+        return text != null ? LocalDateTime.parse(text) : null;
+    }
+    
+    private static BigDecimal toDecimal(JsonNode node) {
+        String text = textOf(node);
+        return text != null ? new BigDecimal(text) : null;
+    }
+}
@@ -0,0 +1,41 @@
+package com.airline.ordering.sync.codec;
+
+import com.airline.ordering.domain.Order;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Encodes the orders of a CRS request body and decodes them back. Implementations are stateless and thread-safe,
+ * so one instance serves every request.
+ */
+public interface PayloadCodec {
+    
+    /**
+     * @return The name the codec is negotiated by with the CRS, for example {@code json} or
+     * {@code crs-binary-1+deflate}.
+     */
+    String getFormat();
+    
+    /**
+     * @return The media type of the encoded body.
+     */
+    String getContentType();
+    
+    /**
+     * Encodes the orders, including their items, totals and timestamps.
+     *
+     * @param orders the orders to encode
+     * @return the encoded body
+     */
+    byte[] encode(List<Order> orders);
+    
+    /**
+     * Decodes a body produced by {@link #encode(List)}.
+     *
+     * @param payload the encoded body
+     * @return the orders, as they were encoded
+     * @throws IOException if the body is not in this codec's format
+     */
+    List<Order> decode(byte[] payload) throws IOException;
+}
@@ -0,0 +1,70 @@
+package com.airline.ordering.sync.codec;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The payload codecs this client supports, in order of preference, and the negotiation of one with the CRS.
+ */
+public final class PayloadCodecs {
+    
+    /**
+     * The {@link com.airline.ordering.sync.CRSResponse} metadata key under which a client reports the size in bytes
+     * of the request body it sent.
+     */
+    public static final String PAYLOAD_BYTES = "payloadBytes";
+    
+    public static final PayloadCodec JSON = new JsonPayloadCodec();
+    public static final PayloadCodec JSON_DEFLATE = new DeflatePayloadCodec(JSON);
+    public static final PayloadCodec BINARY = new BinaryPayloadCodec();
+    public static final PayloadCodec BINARY_DEFLATE = new DeflatePayloadCodec(BINARY);
+    
+    private static final List<PayloadCodec> PREFERRED = Collections.unmodifiableList(
+            Arrays.asList(BINARY_DEFLATE, BINARY, JSON_DEFLATE, JSON));
+    
+    private PayloadCodecs() {
+        // Utility class
+    }
+    
+    /**
+     * @return The supported codecs, most compact first.
+     */
+    public static List<PayloadCodec> supported() {
+        return PREFERRED;
+    }
+    
+    /**
+     * @return The supported codec with the given format name, if any.
+     */
+    public static Optional<PayloadCodec> forFormat(String format) {
+        for (PayloadCodec codec : PREFERRED) {
+            if (codec.getFormat().equalsIgnoreCase(format)) {
+                return Optional.of(codec);
+            }
+        }
+        return Optional.empty();
+    }
+    
+    /**
+     * Chooses the most compact codec the CRS accepts.
+     *
+     * @param acceptedFormats the format names the CRS accepts, in any order; may be null or empty for a CRS that
+     *                        does not advertise them
+     * @return the codec to use; plain JSON when no other format is accepted
+     */
+    public static PayloadCodec negotiate(Collection<String> acceptedFormats) {
+        if (acceptedFormats != null) {
+            for (PayloadCodec codec : PREFERRED) {
+                for (String format : acceptedFormats) {
+                    if (codec.getFormat().equalsIgnoreCase(format)) {
+                        return codec;
+                    }
+                }
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,123 @@
+package com.airline.ordering.sync.codec;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads what {@link WireWriter} wrote, failing with an {@link IOException} rather than reading past the payload.
+ * Not thread-safe.
+ */
+final class WireReader {
+    
+    private final List<String> strings = new ArrayList<>();
+    private final byte[] buffer;
+    private int position;
+    
+    WireReader(byte[] buffer, int offset) {
+        this.buffer = buffer;
+        this.position = offset;
+    }
+    
+    int position() {
+        return position;
+    }
+    
+    boolean hasRemaining() {
+        return position < buffer.length;
+    }
+    
+    int readByte() throws IOException {
+        require(1);
+        return buffer[position++] & 0xFF;
+    }
+    
+    long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint at offset " + position);
+    }
+    
+    int readVarInt() throws IOException {
+        long value = readVarLong();
+        if (value > 0xFFFFFFFFL) {
+            throw new IOException("Varint out of range at offset " + position);
+        }
+        return (int) value;
+    }
+    
+    /**
+     * Reads a varint that counts or sizes something, so it cannot exceed the bytes left.
+     */
+    int readLength() throws IOException {
+        int length = readVarInt();
+        if (length < 0 || length > buffer.length - position) {
+            throw new IOException("Invalid length " + length + " at offset " + position);
+        }
+        return length;
+    }
+    
+    long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+    
+    UUID readUuid() throws IOException {
+        require(16);
+        return new UUID(readLong(), readLong());
+    }
+    
+    String readString() throws IOException {
+        int tag = readVarInt();
+        if (tag == 0) {
+            return null;
+        }
+        if (tag > 1) {
+            if (tag - 2 >= strings.size()) {
+                throw new IOException("Unknown string reference " + (tag - 2));
+            }
+            return strings.get(tag - 2);
+        }
+        int length = readLength();
+        String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+        position += length;
+        strings.add(value);
+        return value;
+    }
+    
+    BigDecimal readDecimal() throws IOException {
+        int scale = (int) readSignedVarLong();
+        if (readByte() == 0) {
+            return BigDecimal.valueOf(readSignedVarLong(), scale);
+        }
+        int length = readLength();
+        byte[] unscaled = new byte[length];
+        System.arraycopy(buffer, position, unscaled, 0, length);
+        position += length;
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+    
+    private long readLong() {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buffer[position++] & 0xFF);
+        }
+        return value;
+    }
+    
+    private void require(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            throw new IOException("Payload truncated at offset " + position);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.airline.ordering.sync.codec;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Appends the primitives of the binary order format to a growing byte array: base 128 varints, zigzag encoded when
+ * signed, UUIDs as 16 raw bytes and strings interned per payload. Not thread-safe.
+ */
+final class WireWriter {
+    
+    private final Map<String, Integer> strings = new HashMap<>();
+    private byte[] buffer;
+    private int size;
+    
+    WireWriter(int initialCapacity) {
+        this.buffer = new byte[Math.max(16, initialCapacity)];
+    }
+    
+    void writeByte(int value) {
+        ensureCapacity(1);
+        buffer[size++] = (byte) value;
+    }
+    
+    void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[size++] = (byte) value;
+    }
+    
+    void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+    
+    void writeSignedVarLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+    
+    void writeUuid(UUID value) {
+        ensureCapacity(16);
+        writeLong(value.getMostSignificantBits());
+        writeLong(value.getLeastSignificantBits());
+    }
+    
+    /**
+     * Writes 0 for null, a back reference for a string already written to this payload, or the UTF-8 bytes of a
+     * new string. Menu item names and seat prefixes repeat across the orders of a batch, so most strings are
+     * written once.
+     */
+    void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            return;
+        }
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarInt(index + 2);
+            return;
+        }
+        strings.put(value, strings.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(1);
+        writeVarInt(bytes.length);
+        writeBytes(bytes);
+    }
+    
+    /**
+     * Writes the scale and the unscaled value, as a varint when it fits in a long, which any price does.
+     */
+    void writeDecimal(BigDecimal value) {
+        writeSignedVarLong(value.scale());
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < 64) {
+            writeByte(0);
+            writeSignedVarLong(unscaled.longValue());
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            writeByte(1);
+            writeVarInt(bytes.length);
+            writeBytes(bytes);
+        }
+    }
+    
+    byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+    
+    private void writeLong(long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            buffer[size++] = (byte) (value >>> shift);
+        }
+    }
+    
+    private void writeBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+    
+    private void ensureCapacity(int extra) {
+        if (size + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+        }
+    }
+}
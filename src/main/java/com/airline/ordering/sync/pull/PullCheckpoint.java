@@ -0,0 +1,107 @@
+package com.airline.ordering.sync.pull;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * How far pulling remote order updates from the CRS has got. {@link #getSince()} is the CRS server time up to which
+ * every update has been applied; a pull in progress also records the server time it started at, which becomes the
+ * next {@code since} once it completes, and the continuation token of the next page it has to apply.
+ * Checkpoints are immutable.
+ */
+public final class PullCheckpoint {
+    
+    private static final PullCheckpoint INITIAL = new PullCheckpoint(null, null, null);
+    
+    private final LocalDateTime since;
+    private final LocalDateTime pullStartedAt;
+    private final String continuationToken;
+    
+    public PullCheckpoint(LocalDateTime since, LocalDateTime pullStartedAt, String continuationToken) {
+        if (continuationToken != null && pullStartedAt == null) {
+            throw new IllegalArgumentException("A continuation token needs the time its pull started at");
+        }
+        this.since = since;
+        this.pullStartedAt = pullStartedAt;
+        this.continuationToken = continuationToken;
+    }
+    
+    /**
+     * @return The checkpoint of a device that has never pulled, so the first pull fetches every order.
+     */
+    public static PullCheckpoint initial() {
+        return INITIAL;
+    }
+    
+    /**
+     * @return The server time up to which every update has been applied, or null if no pull has completed.
+     */
+    public LocalDateTime getSince() {
+        return since;
+    }
+    
+    /**
+     * @return The server time the pull in progress started at, or null if none is in progress.
+     */
+    public LocalDateTime getPullStartedAt() {
+        return pullStartedAt;
+    }
+    
+    /**
+     * @return The token of the next page of the pull in progress, or null to start from the first page.
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+    
+    /**
+     * @return Whether a pull was interrupted after applying some of its pages, and can resume from the next one.
+     */
+    public boolean isResumable() {
+        return continuationToken != null;
+    }
+    
+    /**
+     * @return The checkpoint of a pull starting at the given server time, from its first page.
+     */
+    public PullCheckpoint start(LocalDateTime serverTime) {
+        return new PullCheckpoint(since, Objects.requireNonNull(serverTime, "serverTime"), null);
+    }
+    
+    /**
+     * @param nextToken The continuation token of the page after the one just applied, or null if it was the last.
+     * @return The checkpoint after applying a page: the pull resumes at the next page, or completes.
+     */
+    public PullCheckpoint advance(String nextToken) {
+        if (pullStartedAt == null) {
+            throw new IllegalStateException("No pull in progress");
+        }
+        return nextToken != null
+                ? new PullCheckpoint(since, pullStartedAt, nextToken)
+                : new PullCheckpoint(pullStartedAt, null, null);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        PullCheckpoint that = (PullCheckpoint) o;
+        return Objects.equals(since, that.since) &&
+               Objects.equals(pullStartedAt, that.pullStartedAt) &&
+               Objects.equals(continuationToken, that.continuationToken);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(since, pullStartedAt, continuationToken);
+    }
+    
+    @Override
+    public String toString() {
+        return "PullCheckpoint{" +
+                "since=" + since +
+                ", pullStartedAt=" + pullStartedAt +
+                ", continuationToken=" + continuationToken +
+                '}';
+    }
+}
@@ -0,0 +1,309 @@
+package com.airline.ordering.sync.pull;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.ChangeLogRepository;
+import com.airline.ordering.repository.OrderRepository;
+import com.airline.ordering.repository.PullCheckpointRepository;
+import com.airline.ordering.sync.CRSClient;
+import com.airline.ordering.sync.CRSResponse;
+import com.airline.ordering.sync.ConflictInfo;
+import com.airline.ordering.sync.ConflictResolution;
+import com.airline.ordering.sync.ConflictResolver;
+import com.airline.ordering.sync.SyncError;
+import com.airline.ordering.sync.SyncErrorType;
+import com.airline.ordering.sync.SyncOperation;
+import com.airline.ordering.sync.SyncResult;
+import com.airline.ordering.sync.SyncStatistics;
+import com.airline.ordering.sync.changelog.OrderDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Pulls remote order updates from the CRS page by page, for {@link com.airline.ordering.sync.SyncService#pullUpdatesFromCRS()}.
+ * <p>
+ * Each page goes through conflict detection and is persisted before the next is requested, so memory holds one
+ * page however long the device was offline. The continuation token of the next page is checkpointed after every
+ * page, and a pull that is interrupted resumes from there rather than starting over. A page may be applied again
+ * if the device stops between persisting it and checkpointing, which leaves the same orders behind.
+ * <p>
+ * Orders without local changes take the CRS's version, saved without entering the change log. The save is
+ * conditional, as a crew device may change an order between the check and the write: an order changed meanwhile
+ * keeps its local changes and is reported as a conflict. Orders with local changes the CRS has not seen keep them
+ * unless the versions conflict. Without a conflict, the order takes the CRS's value of every field its pending
+ * change log entries leave alone, and is saved to be pushed with its local changes. Conflicts that can be
+ * auto-resolved are, and the resolved order is saved to be pushed; the others are left alone and reported for
+ * manual resolution.
+ */
+public class StreamingOrderPuller {
+    
+    /**
+     * The {@link CRSResponse} metadata key of the next page's continuation token.
+     */
+    public static final String CONTINUATION_TOKEN = "continuationToken";
+    
+    /**
+     * The status with which the CRS rejects a continuation token it no longer recognizes.
+     */
+    public static final int TOKEN_EXPIRED_STATUS = 410;
+    
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    
+    private static final Logger logger = LoggerFactory.getLogger(StreamingOrderPuller.class);
+    
+    private final CRSClient crsClient;
+    private final OrderRepository orderRepository;
+    private final ChangeLogRepository changeLog;
+    private final ConflictResolver conflictResolver;
+    private final PullCheckpointRepository checkpoints;
+    private final int pageSize;
+    
+    public StreamingOrderPuller(CRSClient crsClient, OrderRepository orderRepository, ChangeLogRepository changeLog,
+                                ConflictResolver conflictResolver, PullCheckpointRepository checkpoints) {
+        this(crsClient, orderRepository, changeLog, conflictResolver, checkpoints, DEFAULT_PAGE_SIZE);
+    }
+    
+    public StreamingOrderPuller(CRSClient crsClient, OrderRepository orderRepository, ChangeLogRepository changeLog,
+                                ConflictResolver conflictResolver, PullCheckpointRepository checkpoints, int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        this.crsClient = crsClient;
+        this.orderRepository = orderRepository;
+        this.changeLog = changeLog;
+        this.conflictResolver = conflictResolver;
+        this.checkpoints = checkpoints;
+        this.pageSize = pageSize;
+    }
+    
+    /**
+     * Pulls and applies every page of updates since the last complete pull, resuming an interrupted one.
+     * Pulls are serialized.
+     * @return The outcome, listing the orders updated, the orders left unresolved and the conflicts found.
+     */
+    public synchronized SyncResult pull() {
+        return new Pull().run();
+    }
+    
+    /**
+     * The state of one call to {@link #pull()}; only its counters and IDs grow with the number of pages.
+     */
+    private final class Pull {
+        private final LocalDateTime startTime = LocalDateTime.now();
+        private final Set<UUID> processed = new LinkedHashSet<>();
+        private final Map<UUID, SyncError> failed = new LinkedHashMap<>();
+        private final List<ConflictInfo> conflicts = new ArrayList<>();
+        private int received;
+        private int requests;
+        
+        SyncResult run() {
+            PullCheckpoint checkpoint = checkpoints.find();
+            if (checkpoint.isResumable()) {
+                logger.info("Resuming CRS pull started at {}", checkpoint.getPullStartedAt());
+            } else {
+                checkpoint = checkpoint.start(crsClient.getServerTimestamp());
+            }
+            boolean restarted = false;
+            while (true) {
+                CRSResponse response = crsClient.pullUpdatedOrdersPage(checkpoint.getSince(),
+                        checkpoint.getContinuationToken(), pageSize);
+                requests++;
+                if (!response.isSuccess()) {
+                    if (response.getStatusCode() == TOKEN_EXPIRED_STATUS && checkpoint.isResumable() && !restarted) {
+                        // Pages already applied are pulled again, which leaves the same orders behind
+                        logger.warn("CRS continuation token expired; restarting the pull since {}", checkpoint.getSince());
+                        checkpoint = checkpoint.start(crsClient.getServerTimestamp());
+                        restarted = true;
+                        continue;
+                    }
+                    logger.warn("CRS pull failed after {} pages: {}", requests - 1, response.getMessage());
+                    return toResult(response);
+                }
+                List<Order> page = response.getOrders();
+                received += page.size();
+                apply(page);
+                checkpoint = checkpoint.advance(response.getMetadataAsString(CONTINUATION_TOKEN));
+                checkpoints.save(checkpoint);
+                if (!checkpoint.isResumable()) {
+                    break;
+                }
+            }
+            logger.info("Pulled {} order updates in {} pages, up to {}", received, requests, checkpoint.getSince());
+            return toResult(null);
+        }
+        
+        private void apply(List<Order> page) {
+            List<Order> fromCrs = new ArrayList<>(page.size());
+            List<Order> resolved = new ArrayList<>();
+            for (Order remote : page) {
+                Optional<Order> local = orderRepository.findById(remote.getOrderId());
+                if (local.isEmpty() || local.get().isSyncedWithCrs()) {
+                    remote.setSyncedWithCrs(true);
+                    // Saved only if the local copy is still as read here
+                    local.ifPresent(remote::restorePersistedState);
+                    fromCrs.add(remote);
+                    continue;
+                }
+                ConflictInfo conflict = conflictResolver.detectConflict(local.get(), remote);
+                if (conflict == null) {
+                    // The local changes stand on top of the CRS's version; the change log pushes them
+                    if (takeRemoteFields(local.get(), remote)) {
+                        resolved.add(local.get());
+                    } else {
+                        processed.add(remote.getOrderId());
+                    }
+                    continue;
+                }
+                conflicts.add(conflict);
+                Order resolution = resolve(conflict);
+                if (resolution != null) {
+                    resolved.add(resolution);
+                } else {
+                    failed.put(remote.getOrderId(), new SyncError(remote.getOrderId(), SyncErrorType.CONFLICT_ERROR,
+                            conflict.getConflictType().name(), conflict.getDescription(), null, false, null));
+                }
+            }
+            if (!fromCrs.isEmpty()) {
+                record(fromCrs, orderRepository.saveAllFromCrs(fromCrs));
+            }
+            if (!resolved.isEmpty()) {
+                // Saved as local changes, so the change log pushes the merged or resolved order to the CRS
+                record(resolved, orderRepository.saveAll(resolved));
+            }
+        }
+        
+        /**
+         * Gives the local order the remote value of every field its pending changes leave alone.
+         * @return true if a field took a remote value, so the order needs saving.
+         */
+        private boolean takeRemoteFields(Order local, Order remote) {
+            Set<String> changedLocally = new HashSet<>();
+            for (OrderDelta delta : changeLog.findPending(local.getOrderId())) {
+                changedLocally.addAll(delta.getChangedFields());
+            }
+            boolean taken = false;
+            if (!changedLocally.contains("passengerId")
+                    && !Objects.equals(local.getPassengerId(), remote.getPassengerId())) {
+                local.setPassengerId(remote.getPassengerId());
+                taken = true;
+            }
+            if (!changedLocally.contains("seatNumber")
+                    && !Objects.equals(local.getSeatNumber(), remote.getSeatNumber())) {
+                local.setSeatNumber(remote.getSeatNumber());
+                taken = true;
+            }
+            if (!changedLocally.contains("status") && local.getStatus() != remote.getStatus()) {
+                local.setStatus(remote.getStatus());
+                taken = true;
+            }
+            if (!changedLocally.contains("notes") && !Objects.equals(local.getNotes(), remote.getNotes())) {
+                local.setNotes(remote.getNotes());
+                taken = true;
+            }
+            if (!changedLocally.contains("requestedDeliveryTime")
+                    && !Objects.equals(local.getRequestedDeliveryTime(), remote.getRequestedDeliveryTime())) {
+                local.setRequestedDeliveryTime(remote.getRequestedDeliveryTime());
+                taken = true;
+            }
+            // After the status, which stamps these when it changes
+            if (!changedLocally.contains("confirmedAt")
+                    && !Objects.equals(local.getConfirmedAt(), remote.getConfirmedAt())) {
+                local.setConfirmedAt(remote.getConfirmedAt());
+                taken = true;
+            }
+            if (!changedLocally.contains("deliveredAt")
+                    && !Objects.equals(local.getDeliveredAt(), remote.getDeliveredAt())) {
+                local.setDeliveredAt(remote.getDeliveredAt());
+                taken = true;
+            }
+            if (!changedLocally.contains(OrderDelta.ITEMS) && !local.getItems().equals(remote.getItems())) {
+                local.setItems(remote.getItems());
+                local.setTotalAmount(remote.getTotalAmount());
+                taken = true;
+            }
+            if (local.getCrsOrderId() == null && remote.getCrsOrderId() != null) {
+                local.setCrsOrderId(remote.getCrsOrderId());
+                taken = true;
+            }
+            return taken;
+        }
+        
+        /**
+         * @return The resolved order, or null if the conflict needs manual resolution.
+         */
+        private Order resolve(ConflictInfo conflict) {
+            if (!conflictResolver.canAutoResolve(conflict)) {
+                return null;
+            }
+            try {
+                ConflictResolution resolution = conflictResolver.resolveConflict(conflict,
+                        conflictResolver.getRecommendedStrategy(conflict));
+                return resolution.getResolvedOrder();
+            } catch (RuntimeException e) {
+                logger.warn("Auto-resolution failed for order {}: {}", conflict.getOrderId(), e.getMessage());
+                return null;
+            }
+        }
+        
+        private void record(List<Order> orders, BulkWriteResult<UUID> result) {
+            Map<UUID, String> failures = new LinkedHashMap<>();
+            for (BulkWriteResult.Failure<UUID> failure : result.getFailures()) {
+                failures.put(failure.getId(), failure.getMessage());
+            }
+            Set<UUID> skipped = new HashSet<>(result.getSkippedIds());
+            for (Order order : orders) {
+                String message = failures.get(order.getOrderId());
+                if (skipped.contains(order.getOrderId())) {
+                    logger.info("Order {} changed locally while pulling; keeping the local changes", order.getOrderId());
+                    failed.put(order.getOrderId(), new SyncError(order.getOrderId(), SyncErrorType.CONFLICT_ERROR,
+                            null, "Order changed locally while the CRS update was applied", null, false, null));
+                } else if (message == null) {
+                    processed.add(order.getOrderId());
+                } else {
+                    failed.put(order.getOrderId(), new SyncError(order.getOrderId(), SyncErrorType.DATA_ERROR,
+                            null, message, null, true, null));
+                }
+            }
+        }
+        
+        private SyncResult toResult(CRSResponse failure) {
+            SyncStatistics statistics = SyncStatistics.builder()
+                    .startTime(startTime)
+                    .endTime(LocalDateTime.now())
+                    .totalRecords(received)
+                    .successfulRecords(processed.size())
+                    .failedRecords(failed.size())
+                    .conflictedRecords(conflicts.size())
+                    .networkRequests(requests)
+                    .build();
+            SyncResult.Builder result = SyncResult.builder()
+                    .success(failure == null && failed.isEmpty())
+                    .timestamp(LocalDateTime.now())
+                    .operation(SyncOperation.PULL)
+                    .processedOrderIds(new ArrayList<>(processed))
+                    .failedOrderIds(new ArrayList<>(failed.keySet()))
+                    .errors(new ArrayList<>(failed.values()))
+                    .conflicts(new ArrayList<>(conflicts))
+                    .statistics(statistics);
+            if (failure != null) {
+                SyncErrorType errorType = SyncErrorType.fromStatusCode(failure.getStatusCode());
+                result.addError(new SyncError(null, errorType, String.valueOf(failure.getStatusCode()),
+                        failure.getMessage(), null, errorType.isDefaultRetryable(), null));
+                return result.message("CRS pull interrupted, will resume: " + failure.getMessage()).build();
+            }
+            return result.message(statistics.getSummary()).build();
+        }
+    }
+}
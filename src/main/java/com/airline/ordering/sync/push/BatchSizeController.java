@@ -0,0 +1,49 @@
+package com.airline.ordering.sync.push;
+
+/**
+ * Chooses batch sizes additive-increase, multiplicative-decrease: the size grows by a fixed step after every batch
+ * the CRS answers within the target latency and halves after a slow answer or a failed request. Not thread-safe.
+ */
+final class BatchSizeController {
+    
+    private final long targetLatencyMs;
+    private int maxSize;
+    private int step;
+    private int size;
+    
+    BatchSizeController(int initialSize, int maxSize, long targetLatencyMs) {
+        this.targetLatencyMs = targetLatencyMs;
+        setMaxSize(maxSize);
+        this.size = Math.max(1, Math.min(initialSize, this.maxSize));
+    }
+    
+    int current() {
+        return size;
+    }
+    
+    /**
+     * @param maxSize The largest batch the CRS accepts; the current size is clamped to it.
+     */
+    void setMaxSize(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+        // Reach the maximum from one order in about ten good answers
+        this.step = Math.max(1, this.maxSize / 10);
+        this.size = Math.min(size, this.maxSize);
+    }
+    
+    void onAnswered(long latencyMs) {
+        if (latencyMs > targetLatencyMs) {
+            decrease();
+        } else {
+            size = Math.min(maxSize, size + step);
+        }
+    }
+    
+    void onFailed() {
+        decrease();
+    }
+    
+    private void decrease() {
+        size = Math.max(1, size / 2);
+    }
+}
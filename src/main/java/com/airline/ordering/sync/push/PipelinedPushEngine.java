@@ -0,0 +1,476 @@
+package com.airline.ordering.sync.push;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.sync.CRSClient;
+import com.airline.ordering.sync.CRSRateLimit;
+import com.airline.ordering.sync.CRSResponse;
+import com.airline.ordering.sync.SyncError;
+import com.airline.ordering.sync.SyncErrorType;
+import com.airline.ordering.sync.SyncOperation;
+import com.airline.ordering.sync.SyncResult;
+import com.airline.ordering.sync.SyncStatistics;
+import com.airline.ordering.sync.codec.PayloadCodec;
+import com.airline.ordering.sync.codec.PayloadCodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Pushes orders to the CRS through {@link CRSClient#pushOrders(List)}, keeping several batches in flight so the
+ * round trips of a short connectivity window overlap.
+ * <p>
+ * Batch sizes adapt to the CRS: they grow after every batch answered within the target latency and halve after a
+ * slow answer or a transient failure, never exceeding {@link CRSClient#getMaxBatchSize()}. Each batch is one CRS
+ * request, however many orders it carries, and none is sent unless {@link CRSRateLimit#canMakeBatchRequest(int)}
+ * allows it together with the batches still in flight, which the rate limit does not account for until they are
+ * answered. Dispatch waits out a retry-after or reset period up to a limit.
+ * <p>
+ * The CRS reports orders it rejects individually as {@link CRSResponse.CRSError}s whose field is
+ * {@value #ORDER_ID_FIELD} and whose rejected value is the order ID. Only those orders are retried, each on its own,
+ * and only while their error is retryable. When a whole batch is rejected for a reason that is not transient, its
+ * orders are retried one by one so the offending ones are isolated. The result names every order that failed with
+ * a {@link SyncError}, and its statistics give the throughput of the push.
+ * <p>
+ * With a {@link PayloadCodec}, batches go through {@link CRSClient#pushOrders(List, PayloadCodec)} instead, and the
+ * statistics count the bytes of the encoded bodies the client reports.
+ */
+public class PipelinedPushEngine implements AutoCloseable {
+    
+    /**
+     * The {@link CRSResponse.CRSError#getField()} of an error about a single order of a batch.
+     */
+    public static final String ORDER_ID_FIELD = "orderId";
+    
+    private static final Logger logger = LoggerFactory.getLogger(PipelinedPushEngine.class);
+    
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(250);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(8);
+    
+    private final CRSClient crsClient;
+    private final Supplier<CRSRateLimit> rateLimits;
+    private final PayloadCodec payloadCodec;
+    private final int maxInFlight;
+    private final int maxAttempts;
+    private final long maxWaitNanos;
+    private final ExecutorService executor;
+    // Kept across pushes, so the next push starts at the size the CRS last sustained
+    private final BatchSizeController batchSize;
+    
+    private PipelinedPushEngine(Builder builder) {
+        this.crsClient = builder.crsClient;
+        this.rateLimits = builder.rateLimits != null ? builder.rateLimits : crsClient::getRateLimit;
+        this.payloadCodec = builder.payloadCodec;
+        this.maxInFlight = builder.maxInFlight;
+        this.maxAttempts = builder.maxAttempts;
+        this.maxWaitNanos = builder.maxWait.toNanos();
+        this.batchSize = new BatchSizeController(builder.initialBatchSize, crsClient.getMaxBatchSize(),
+                builder.targetLatency.toMillis());
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxInFlight, task -> {
+            Thread thread = new Thread(task, "crs-push-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    public static Builder builder(CRSClient crsClient) {
+        return new Builder(crsClient);
+    }
+    
+    /**
+     * Pushes the orders and waits until each has been accepted or has failed for good. Pushes are serialized.
+     * @param orders The orders to push.
+     * @return The outcome per order, with statistics on the push.
+     */
+    public synchronized SyncResult push(List<Order> orders) {
+        return new Push(orders).run();
+    }
+    
+    /**
+     * @return The size of the next batch, as adapted to the CRS so far.
+     */
+    public synchronized int getCurrentBatchSize() {
+        return batchSize.current();
+    }
+    
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * The state of one call to {@link #push(List)}, confined to the calling thread.
+     */
+    private final class Push {
+        private final LocalDateTime startTime = LocalDateTime.now();
+        private final List<Order> orders = new ArrayList<>();
+        private final ArrayDeque<Order> queue = new ArrayDeque<>();
+        // Orders to be sent one per batch, to isolate those the CRS rejects
+        private final ArrayDeque<Order> isolated = new ArrayDeque<>();
+        private final Map<UUID, Integer> attempts = new HashMap<>();
+        private final Set<UUID> processed = new LinkedHashSet<>();
+        private final Map<UUID, SyncError> failed = new LinkedHashMap<>();
+        private final CompletionService<Answer> answers = new ExecutorCompletionService<>(executor);
+        // Batches sent but not answered yet, so not yet taken off the remaining requests of the rate limit
+        private int inFlight;
+        private int requests;
+        private int retries;
+        private long bytesTransferred;
+        private long holdUntilNanos = System.nanoTime();
+        private long backoffNanos;
+        private long waitedNanos;
+        private SyncError holdReason;
+        
+        Push(List<Order> orders) {
+            for (Order order : orders) {
+                if (order != null) {
+                    this.orders.add(order);
+                }
+            }
+            queue.addAll(this.orders);
+        }
+        
+        SyncResult run() {
+            batchSize.setMaxSize(crsClient.getMaxBatchSize());
+            try {
+                while (!queue.isEmpty() || !isolated.isEmpty() || inFlight > 0) {
+                    dispatch();
+                    if (inFlight > 0) {
+                        Answer answer = answers.take().get();
+                        inFlight--;
+                        handle(answer);
+                    } else if (!waitForHold()) {
+                        break;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                holdReason = new SyncError(null, SyncErrorType.UNKNOWN_ERROR, null, "Push interrupted");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Error pushing orders", e.getCause());
+            }
+            failRemaining();
+            return toResult();
+        }
+        
+        /**
+         * Sends batches until the pipeline is full, nothing is left to send or dispatch is on hold.
+         */
+        private void dispatch() {
+            while (inFlight < maxInFlight && (!queue.isEmpty() || !isolated.isEmpty())
+                    && System.nanoTime() - holdUntilNanos >= 0) {
+                CRSRateLimit limit = rateLimits.get();
+                if (limit != null && !limit.canMakeBatchRequest(inFlight + 1)) {
+                    if (!limit.canMakeRequest()) {
+                        long seconds = limit.getRetryAfterSeconds() > 0
+                                ? limit.getRetryAfterSeconds() : Math.max(1, limit.getSecondsUntilReset());
+                        hold(TimeUnit.SECONDS.toNanos(seconds), new SyncError(null, SyncErrorType.RATE_LIMIT_ERROR,
+                                "429", "CRS rate limit reached"));
+                    }
+                    // Otherwise the batches in flight spend the remaining requests; their answers bring a fresh limit
+                    return;
+                }
+                ArrayDeque<Order> source = isolated.isEmpty() ? queue : isolated;
+                int size = source == isolated ? 1 : Math.min(batchSize.current(), queue.size());
+                List<Order> batch = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    batch.add(source.poll());
+                }
+                answers.submit(() -> send(batch));
+                inFlight++;
+                requests++;
+            }
+        }
+        
+        /**
+         * Sleeps until dispatch may resume, unless that would exceed the time a push may wait in total.
+         * @return false if the push should give up.
+         */
+        private boolean waitForHold() throws InterruptedException {
+            long remaining = holdUntilNanos - System.nanoTime();
+            if (remaining <= 0) {
+                return true;
+            }
+            if (waitedNanos + remaining > maxWaitNanos) {
+                logger.warn("CRS push on hold for {} ms; giving up on {} orders", TimeUnit.NANOSECONDS.toMillis(remaining),
+                        queue.size() + isolated.size());
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(remaining);
+            waitedNanos += remaining;
+            return true;
+        }
+        
+        private void hold(long nanos, SyncError reason) {
+            long until = System.nanoTime() + nanos;
+            if (until - holdUntilNanos > 0) {
+                holdUntilNanos = until;
+            }
+            holdReason = reason;
+        }
+        
+        private void handle(Answer answer) {
+            CRSResponse response = answer.response;
+            Map<UUID, CRSResponse.CRSError> rejected = rejectedOrders(response);
+            Integer payloadBytes = response.getMetadataAsInteger(PayloadCodecs.PAYLOAD_BYTES);
+            if (payloadBytes != null) {
+                bytesTransferred += payloadBytes;
+            }
+            if (response.isSuccess()) {
+                batchSize.onAnswered(answer.latencyMs);
+                backoffNanos = 0;
+                for (Order order : answer.batch) {
+                    CRSResponse.CRSError error = rejected.get(order.getOrderId());
+                    if (error == null) {
+                        processed.add(order.getOrderId());
+                    } else {
+                        retryOrFail(order, errorTypeOf(error, SyncErrorType.UNKNOWN_ERROR), error.getErrorCode(),
+                                error.getMessage(), true);
+                    }
+                }
+                return;
+            }
+            SyncErrorType type = SyncErrorType.fromStatusCode(response.getStatusCode());
+            String code = String.valueOf(response.getStatusCode());
+            if (type.isDefaultRetryable()) {
+                batchSize.onFailed();
+                backoffNanos = backoffNanos == 0 ? MIN_BACKOFF_NANOS : Math.min(MAX_BACKOFF_NANOS, backoffNanos * 2);
+                hold(backoffNanos, new SyncError(null, type, code, response.getMessage()));
+            }
+            for (Order order : answer.batch) {
+                CRSResponse.CRSError error = rejected.get(order.getOrderId());
+                if (error != null) {
+                    retryOrFail(order, errorTypeOf(error, type), error.getErrorCode(), error.getMessage(), true);
+                } else if (!rejected.isEmpty()) {
+                    // Rejected along with the orders at fault, so it is sent again without counting an attempt
+                    queue.addFirst(order);
+                } else if (type.isDefaultRetryable()) {
+                    retryOrFail(order, type, code, response.getMessage(), false);
+                } else if (answer.batch.size() > 1) {
+                    isolated.add(order);
+                    retries++;
+                } else {
+                    fail(order, type, code, response.getMessage());
+                }
+            }
+        }
+        
+        private void retryOrFail(Order order, SyncErrorType type, String code, String message, boolean isolate) {
+            int attempt = attempts.merge(order.getOrderId(), 1, Integer::sum);
+            if (!type.isDefaultRetryable() || attempt >= maxAttempts) {
+                fail(order, type, code, message);
+            } else {
+                (isolate ? isolated : queue).add(order);
+                retries++;
+            }
+        }
+        
+        private void fail(Order order, SyncErrorType type, String code, String message) {
+            failed.put(order.getOrderId(), new SyncError(order.getOrderId(), type, code, message, null,
+                    type.isDefaultRetryable(), null));
+        }
+        
+        /**
+         * Fails the orders left over when the push gives up, including any still in flight after an interrupt.
+         */
+        private void failRemaining() {
+            SyncError reason = holdReason != null
+                    ? holdReason : new SyncError(null, SyncErrorType.UNKNOWN_ERROR, null, "Push stopped");
+            for (Order order : orders) {
+                if (!processed.contains(order.getOrderId()) && !failed.containsKey(order.getOrderId())) {
+                    fail(order, reason.getErrorType(), reason.getErrorCode(), reason.getMessage());
+                }
+            }
+            queue.clear();
+            isolated.clear();
+        }
+        
+        private SyncResult toResult() {
+            SyncStatistics statistics = SyncStatistics.builder()
+                    .startTime(startTime)
+                    .endTime(LocalDateTime.now())
+                    .totalRecords(orders.size())
+                    .successfulRecords(processed.size())
+                    .failedRecords(failed.size())
+                    .networkRequests(requests)
+                    .retryAttempts(retries)
+                    .bytesTransferred(bytesTransferred)
+                    .build();
+            logger.info("Pushed {} of {} orders in {} requests ({} orders/s, next batch size {})", processed.size(),
+                    orders.size(), requests, String.format("%.1f", statistics.getSuccessfulRecordsPerSecond()),
+                    batchSize.current());
+            return SyncResult.builder()
+                    .success(failed.isEmpty())
+                    .timestamp(LocalDateTime.now())
+                    .operation(SyncOperation.BATCH_SYNC)
+                    .processedOrderIds(new ArrayList<>(processed))
+                    .failedOrderIds(new ArrayList<>(failed.keySet()))
+                    .errors(new ArrayList<>(failed.values()))
+                    .statistics(statistics)
+                    .message(statistics.getSummary())
+                    .build();
+        }
+    }
+    
+    private Answer send(List<Order> batch) {
+        long start = System.nanoTime();
+        CRSResponse response;
+        try {
+            response = payloadCodec != null ? crsClient.pushOrders(batch, payloadCodec) : crsClient.pushOrders(batch);
+        } catch (RuntimeException e) {
+            logger.error("Error pushing {} orders: {}", batch.size(), e.getMessage());
+            response = CRSResponse.failure(0, e.getMessage());
+        }
+        long latencyMs = response.getResponseTimeMs() > 0
+                ? response.getResponseTimeMs() : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new Answer(batch, response, latencyMs);
+    }
+    
+    private static Map<UUID, CRSResponse.CRSError> rejectedOrders(CRSResponse response) {
+        Map<UUID, CRSResponse.CRSError> rejected = new HashMap<>();
+        for (CRSResponse.CRSError error : response.getErrors()) {
+            if (ORDER_ID_FIELD.equals(error.getField()) && error.getRejectedValue() != null) {
+                try {
+                    rejected.put(UUID.fromString(error.getRejectedValue().toString()), error);
+                } catch (IllegalArgumentException e) {
+                    logger.warn("CRS error names an invalid order ID: {}", error.getRejectedValue());
+                }
+            }
+        }
+        return rejected;
+    }
+    
+    /**
+     * @return The error type named by the error code, or the fallback if the code is not one.
+     */
+    private static SyncErrorType errorTypeOf(CRSResponse.CRSError error, SyncErrorType fallback) {
+        if (error.getErrorCode() != null) {
+            for (SyncErrorType type : SyncErrorType.values()) {
+                if (type.name().equals(error.getErrorCode())) {
+                    return type;
+                }
+            }
+        }
+        return fallback;
+    }
+    
+    private static final class Answer {
+        private final List<Order> batch;
+        private final CRSResponse response;
+        private final long latencyMs;
+        
+        private Answer(List<Order> batch, CRSResponse response, long latencyMs) {
+            this.batch = batch;
+            this.response = response;
+            this.latencyMs = latencyMs;
+        }
+    }
+    
+    public static class Builder {
+        private final CRSClient crsClient;
+        private Supplier<CRSRateLimit> rateLimits;
+        private PayloadCodec payloadCodec;
+        private int maxInFlight = 4;
+        private int initialBatchSize = 10;
+        private Duration targetLatency = Duration.ofSeconds(2);
+        private int maxAttempts = 3;
+        private Duration maxWait = Duration.ofMinutes(1);
+        
+        private Builder(CRSClient crsClient) {
+            this.crsClient = crsClient;
+        }
+        
+        /**
+         * @param rateLimits Supplies the current rate limit before each batch; by default the client is asked.
+         */
+        public Builder rateLimits(Supplier<CRSRateLimit> rateLimits) {
+            this.rateLimits = rateLimits;
+            return this;
+        }
+        
+        /**
+         * @param payloadCodec The codec to encode batches with, usually
+         *                     {@link PayloadCodecs#negotiate(java.util.Collection)} of the formats the CRS accepts;
+         *                     by default the client's own encoding is used.
+         */
+        public Builder payloadCodec(PayloadCodec payloadCodec) {
+            this.payloadCodec = payloadCodec;
+            return this;
+        }
+        
+        /**
+         * @param maxInFlight The maximum number of batches awaiting an answer at once.
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight < 1) {
+                throw new IllegalArgumentException("maxInFlight must be at least 1");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+        
+        public Builder initialBatchSize(int initialBatchSize) {
+            if (initialBatchSize < 1) {
+                throw new IllegalArgumentException("initialBatchSize must be at least 1");
+            }
+            this.initialBatchSize = initialBatchSize;
+            return this;
+        }
+        
+        /**
+         * @param targetLatency Batches answered slower than this shrink the batch size.
+         */
+        public Builder targetLatency(Duration targetLatency) {
+            if (targetLatency.isNegative() || targetLatency.isZero()) {
+                throw new IllegalArgumentException("targetLatency must be positive");
+            }
+            this.targetLatency = targetLatency;
+            return this;
+        }
+        
+        /**
+         * @param maxAttempts The number of times an order is sent before a retryable failure becomes final.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+        
+        /**
+         * @param maxWait The longest a push waits in total for rate limits and backoff before giving up.
+         */
+        public Builder maxWait(Duration maxWait) {
+            if (maxWait.isNegative()) {
+                throw new IllegalArgumentException("maxWait must not be negative");
+            }
+            this.maxWait = maxWait;
+            return this;
+        }
+        
+        public PipelinedPushEngine build() {
+            return new PipelinedPushEngine(this);
+        }
+    }
+}
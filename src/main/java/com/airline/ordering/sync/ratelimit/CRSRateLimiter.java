@@ -0,0 +1,361 @@
+package com.airline.ordering.sync.ratelimit;
+
+import com.airline.ordering.sync.CRSRateLimit;
+import com.airline.ordering.sync.CRSResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+/**
+ * Client-side enforcement of the CRS rate limit, so a device never sends a request the CRS would refuse.
+ * <p>
+ * Each window of the {@link CRSRateLimit} with a limit is a token bucket: the minute window holds at most the burst
+ * limit and refills at the per-minute rate, and the hour and day windows hold and refill their own limits. A request
+ * needs a permit from every window. Buckets are lock-free, and a request refused by a later window returns what it
+ * took from the earlier ones, so a concurrent request may occasionally be refused when it could have been let
+ * through, but the limits are never exceeded.
+ * <p>
+ * The limiter corrects itself from what the CRS reports, through {@link #update(CRSRateLimit)} and
+ * {@link #update(CRSResponse)}: changed limits replace the windows, carrying over how full they were; a lower
+ * remaining count than the local one empties the minute window down to it; and a retry-after delay or a 429 answer
+ * holds every request until the delay has passed and the minute window refills from empty, so devices coming back
+ * online together do not start another burst of refused requests. The hour and day windows keep their tokens
+ * through a hold, as they refill far too slowly to restart empty.
+ */
+public class CRSRateLimiter {
+    
+    /**
+     * The {@link CRSResponse} metadata keys the limiter reads; each holds a number.
+     */
+    public static final String REQUESTS_PER_MINUTE = "requestsPerMinute";
+    public static final String REQUESTS_PER_HOUR = "requestsPerHour";
+    public static final String REQUESTS_PER_DAY = "requestsPerDay";
+    public static final String BURST_LIMIT = "burstLimit";
+    public static final String REMAINING_REQUESTS = "remainingRequests";
+    public static final String RETRY_AFTER_SECONDS = "retryAfterSeconds";
+    
+    private static final Logger logger = LoggerFactory.getLogger(CRSRateLimiter.class);
+    
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long HOUR_NANOS = TimeUnit.HOURS.toNanos(1);
+    private static final long DAY_NANOS = TimeUnit.DAYS.toNanos(1);
+    
+    private final LongSupplier clock;
+    private final AtomicReference<Windows> windows;
+    // Nothing is let through before this time; needed when no window has a limit
+    private final AtomicLong holdUntilNanos;
+    
+    public CRSRateLimiter(CRSRateLimit rateLimit) {
+        this(rateLimit, System::nanoTime);
+    }
+    
+    CRSRateLimiter(CRSRateLimit rateLimit, LongSupplier clock) {
+        this.clock = clock;
+        long now = clock.getAsLong();
+        this.holdUntilNanos = new AtomicLong(now);
+        this.windows = new AtomicReference<>(Windows.none());
+        update(rateLimit);
+    }
+    
+    /**
+     * Takes a permit if every window has one now.
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+    
+    public boolean tryAcquire(int permits) {
+        return tryAcquireOrDelay(permits) == 0;
+    }
+    
+    /**
+     * Takes the permits, waiting for them as long as the timeout allows.
+     * @return false if the permits would not be available within the timeout; nothing is taken then.
+     */
+    public boolean tryAcquire(int permits, Duration timeout) throws InterruptedException {
+        long deadline = clock.getAsLong() + timeout.toNanos();
+        long wait;
+        while ((wait = tryAcquireOrDelay(permits)) > 0) {
+            if (wait > deadline - clock.getAsLong()) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+        return true;
+    }
+    
+    /**
+     * Takes a permit, waiting as long as needed.
+     */
+    public void acquire() throws InterruptedException {
+        acquire(1);
+    }
+    
+    public void acquire(int permits) throws InterruptedException {
+        long wait;
+        while ((wait = tryAcquireOrDelay(permits)) > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+    
+    /**
+     * Takes the permits without blocking the caller.
+     * @return A future completed once the permits are taken. Cancelling it stops waiting; permits taken by the time
+     * it is cancelled are returned.
+     */
+    public CompletableFuture<Void> acquireAsync(int permits) {
+        checkPermits(permits);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        attempt(permits, future);
+        return future;
+    }
+    
+    private void attempt(int permits, CompletableFuture<Void> future) {
+        if (future.isDone()) {
+            return;
+        }
+        long wait;
+        try {
+            wait = tryAcquireOrDelay(permits);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        if (wait == 0) {
+            if (!future.complete(null)) {
+                refund(permits);
+            }
+        } else {
+            CompletableFuture.runAsync(() -> attempt(permits, future),
+                    CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS));
+        }
+    }
+    
+    /**
+     * Takes the permits if every window has them now.
+     * @return 0 if they were taken, otherwise the nanoseconds until they may be available.
+     * @throws IllegalArgumentException if the permits exceed what a window can ever hold.
+     */
+    public long tryAcquireOrDelay(int permits) {
+        checkPermits(permits);
+        long now = clock.getAsLong();
+        long held = holdUntilNanos.get() - now;
+        if (held > 0) {
+            return held;
+        }
+        TokenBucket[] buckets = windows.get().buckets;
+        for (int i = 0; i < buckets.length; i++) {
+            if (permits > buckets[i].getCapacity()) {
+                refund(buckets, i, permits);
+                throw new IllegalArgumentException(permits + " permits exceed the CRS limit of "
+                        + buckets[i].getCapacity());
+            }
+            long wait = buckets[i].tryTake(permits, now);
+            if (wait > 0) {
+                refund(buckets, i, permits);
+                return wait;
+            }
+        }
+        return 0;
+    }
+    
+    /**
+     * @return The permits every window could give right now, or {@link Integer#MAX_VALUE} if none has a limit.
+     */
+    public int availablePermits() {
+        long now = clock.getAsLong();
+        if (holdUntilNanos.get() - now > 0) {
+            return 0;
+        }
+        int available = Integer.MAX_VALUE;
+        for (TokenBucket bucket : windows.get().buckets) {
+            available = Math.min(available, bucket.available(now));
+        }
+        return available;
+    }
+    
+    /**
+     * Applies a rate limit reported by the CRS. Window limits of {@link Integer#MAX_VALUE} remove the window, and
+     * limits of 0 or less leave it as it is.
+     */
+    public void update(CRSRateLimit rateLimit) {
+        if (rateLimit == null) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Windows current;
+        Windows next;
+        do {
+            current = windows.get();
+            next = current.with(rateLimit.getRequestsPerMinute(), rateLimit.getRequestsPerHour(),
+                    rateLimit.getRequestsPerDay(), rateLimit.getBurstLimit(), now);
+        } while (next != current && !windows.compareAndSet(current, next));
+        if (next != current) {
+            logger.info("CRS rate limit now {}/min (burst {}), {}/h, {}/day", next.perMinute, next.burst,
+                    next.perHour, next.perDay);
+        }
+        if (rateLimit.getRemainingRequests() >= 0 && rateLimit.getRemainingRequests() < Integer.MAX_VALUE) {
+            limitRemaining(rateLimit.getRemainingRequests(), now);
+        }
+        if (rateLimit.getRetryAfterSeconds() > 0) {
+            holdFor(TimeUnit.SECONDS.toNanos(rateLimit.getRetryAfterSeconds()), now);
+        }
+    }
+    
+    /**
+     * Applies the rate limit information of a CRS response: the window limits, remaining requests and retry-after
+     * delay under the metadata keys of this class, and a 429 status, which empties every window.
+     */
+    public void update(CRSResponse response) {
+        long now = clock.getAsLong();
+        Integer perMinute = intMetadata(response, REQUESTS_PER_MINUTE);
+        Integer perHour = intMetadata(response, REQUESTS_PER_HOUR);
+        Integer perDay = intMetadata(response, REQUESTS_PER_DAY);
+        Integer burst = intMetadata(response, BURST_LIMIT);
+        if (perMinute != null || perHour != null || perDay != null || burst != null) {
+            update(new CRSRateLimit(orZero(perMinute), orZero(perHour), orZero(perDay), Integer.MAX_VALUE, null,
+                    orZero(burst), 0));
+        }
+        Integer remaining = intMetadata(response, REMAINING_REQUESTS);
+        if (remaining != null) {
+            limitRemaining(remaining, now);
+        } else if (response.getStatusCode() == 429) {
+            limitRemaining(0, now);
+        }
+        Integer retryAfter = intMetadata(response, RETRY_AFTER_SECONDS);
+        if (retryAfter != null && retryAfter > 0) {
+            holdFor(TimeUnit.SECONDS.toNanos(retryAfter), now);
+        } else if (response.getStatusCode() == 429) {
+            logger.warn("CRS refused a request with 429 and no retry-after; throttling to the refill rate");
+        }
+    }
+    
+    private void limitRemaining(int remaining, long now) {
+        // The remaining count refers to the minute window
+        TokenBucket minuteBucket = windows.get().minuteBucket;
+        if (minuteBucket != null) {
+            minuteBucket.limitAvailable(remaining, now);
+        }
+    }
+    
+    private void holdFor(long nanos, long now) {
+        long until = now + nanos;
+        holdUntilNanos.accumulateAndGet(until, (current, next) -> next - current > 0 ? next : current);
+        // Only the minute window restarts empty; emptying the hour and day windows would throttle for that long
+        TokenBucket minuteBucket = windows.get().minuteBucket;
+        if (minuteBucket != null) {
+            minuteBucket.emptyUntil(until);
+        }
+        logger.info("CRS requests held for {} s", TimeUnit.NANOSECONDS.toSeconds(nanos));
+    }
+    
+    private void refund(int permits) {
+        TokenBucket[] buckets = windows.get().buckets;
+        refund(buckets, buckets.length, permits);
+    }
+    
+    private static void refund(TokenBucket[] buckets, int count, int permits) {
+        for (int i = 0; i < count; i++) {
+            buckets[i].refund(permits);
+        }
+    }
+    
+    private static void checkPermits(int permits) {
+        if (permits < 1) {
+            throw new IllegalArgumentException("permits must be at least 1");
+        }
+    }
+    
+    private static Integer intMetadata(CRSResponse response, String key) {
+        Object value = response.getMetadata(key);
+        if (value instanceof Number) {
+            return (int) Math.min(Integer.MAX_VALUE, ((Number) value).longValue());
+        }
+        return response.getMetadataAsInteger(key);
+    }
+    
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+    
+    /**
+     * The configured limits and their buckets, minute window first. Immutable; replaced as a whole.
+     */
+    private static final class Windows {
+        private final int perMinute;
+        private final int perHour;
+        private final int perDay;
+        private final int burst;
+        private final TokenBucket minuteBucket;
+        private final TokenBucket hourBucket;
+        private final TokenBucket dayBucket;
+        private final TokenBucket[] buckets;
+        
+        private Windows(int perMinute, int perHour, int perDay, int burst,
+                        TokenBucket minuteBucket, TokenBucket hourBucket, TokenBucket dayBucket) {
+            this.perMinute = perMinute;
+            this.perHour = perHour;
+            this.perDay = perDay;
+            this.burst = burst;
+            this.minuteBucket = minuteBucket;
+            this.hourBucket = hourBucket;
+            this.dayBucket = dayBucket;
+            List<TokenBucket> present = new ArrayList<>(3);
+            for (TokenBucket bucket : new TokenBucket[] {minuteBucket, hourBucket, dayBucket}) {
+                if (bucket != null) {
+                    present.add(bucket);
+                }
+            }
+            this.buckets = present.toArray(new TokenBucket[0]);
+        }
+        
+        static Windows none() {
+            return new Windows(0, 0, 0, 0, null, null, null);
+        }
+        
+        /**
+         * @return These windows if the limits are unchanged, otherwise new ones as full as these.
+         */
+        Windows with(int perMinute, int perHour, int perDay, int burst, long now) {
+            int minute = merge(this.perMinute, perMinute);
+            int hour = merge(this.perHour, perHour);
+            int day = merge(this.perDay, perDay);
+            int burstLimit = merge(this.burst, burst);
+            if (minute == this.perMinute && hour == this.perHour && day == this.perDay && burstLimit == this.burst) {
+                return this;
+            }
+            TokenBucket minuteWindow = null;
+            if (minute > 0) {
+                int capacity = burstLimit > 0 ? Math.min(burstLimit, minute) : minute;
+                minuteWindow = new TokenBucket(capacity, MINUTE_NANOS, minute, fillRatio(minuteBucket, now), now);
+            }
+            TokenBucket hourWindow = hour > 0
+                    ? new TokenBucket(hour, HOUR_NANOS, hour, fillRatio(hourBucket, now), now) : null;
+            TokenBucket dayWindow = day > 0
+                    ? new TokenBucket(day, DAY_NANOS, day, fillRatio(dayBucket, now), now) : null;
+            return new Windows(minute, hour, day, burstLimit, minuteWindow, hourWindow, dayWindow);
+        }
+        
+        private static double fillRatio(TokenBucket bucket, long now) {
+            return bucket != null ? bucket.fillRatio(now) : 0;
+        }
+        
+        /**
+         * Integer.MAX_VALUE removes the window, values of 0 or less keep the current limit.
+         */
+        private static int merge(int current, int reported) {
+            if (reported == Integer.MAX_VALUE) {
+                return 0;
+            }
+            return reported > 0 ? reported : current;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.airline.ordering.sync.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A token bucket kept as a single atomic "theoretical arrival time", the generic cell rate algorithm: the bucket is
+ * full when that time is not after now and each token taken moves it one emission interval later. Taking tokens is
+ * one compare-and-set, so the bucket is lock-free.
+ */
+final class TokenBucket {
+    
+    private final int capacity;
+    private final long intervalNanos;
+    private final AtomicLong arrival;
+    
+    /**
+     * @param capacity The most tokens the bucket holds, the burst it allows.
+     * @param windowNanos The window over which limit tokens are refilled.
+     * @param limit The number of tokens refilled per window.
+     * @param fillRatio The share of the capacity initially used, between 0 (full bucket) and 1 (empty bucket).
+     */
+    TokenBucket(int capacity, long windowNanos, int limit, double fillRatio, long now) {
+        this.capacity = capacity;
+        this.intervalNanos = Math.max(1, windowNanos / limit);
+        this.arrival = new AtomicLong(now + (long) (Math.min(1, Math.max(0, fillRatio)) * capacity * intervalNanos));
+    }
+    
+    int getCapacity() {
+        return capacity;
+    }
+    
+    /**
+     * Takes the tokens if the bucket holds them.
+     * @return 0 if they were taken, otherwise the nanoseconds until it will hold them.
+     */
+    long tryTake(int tokens, long now) {
+        long cost = tokens * intervalNanos;
+        long limit = (long) capacity * intervalNanos;
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + cost;
+            long excess = next - now - limit;
+            if (excess > 0) {
+                return excess;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * Returns tokens taken by a request that did not go ahead.
+     */
+    void refund(int tokens) {
+        arrival.addAndGet(-tokens * intervalNanos);
+    }
+    
+    /**
+     * Empties the bucket until the given time.
+     */
+    void emptyUntil(long until) {
+        arrival.accumulateAndGet(until + (long) capacity * intervalNanos, Math::max);
+    }
+    
+    /**
+     * Lowers the tokens held to at most the given number, leaving the bucket alone if it holds fewer.
+     */
+    void limitAvailable(int tokens, long now) {
+        long held = Math.max(0, Math.min(capacity, tokens));
+        arrival.accumulateAndGet(now + (capacity - held) * intervalNanos, Math::max);
+    }
+    
+    /**
+     * @return The number of whole tokens held.
+     */
+    int available(long now) {
+        long used = Math.max(0, arrival.get() - now);
+        return (int) Math.max(0, capacity - (used + intervalNanos - 1) / intervalNanos);
+    }
+    
+    /**
+     * @return The share of the capacity in use, for carrying the state over to a bucket with other limits.
+     */
+    double fillRatio(long now) {
+        return Math.min(1, Math.max(0, arrival.get() - now) / ((double) capacity * intervalNanos));
+    }
+}
@@ -0,0 +1,44 @@
+package com.airline.ordering.sync.scheduler;
+
+import com.airline.ordering.sync.SyncOperation;
+
+/**
+ * The lanes of the {@link SyncScheduler}, from most to least urgent. A lane is only served while every more urgent
+ * lane is empty.
+ */
+public enum SyncPriority {
+    
+    /**
+     * Critical orders that must reach the CRS before anything else.
+     */
+    EMERGENCY,
+    
+    /**
+     * Single orders a passenger or crew member is waiting on.
+     */
+    HIGH,
+    
+    /**
+     * Regular pushes and retries.
+     */
+    NORMAL,
+    
+    /**
+     * Background catch-up, such as the post-landing sweep of a whole flight.
+     */
+    BACKGROUND;
+    
+    public static SyncPriority of(SyncOperation operation) {
+        if (operation == SyncOperation.EMERGENCY_SYNC) {
+            return EMERGENCY;
+        }
+        if (operation.isHighPriority()) {
+            return HIGH;
+        }
+        return operation == SyncOperation.BACKGROUND_SYNC ? BACKGROUND : NORMAL;
+    }
+    
+    public boolean isMoreUrgentThan(SyncPriority other) {
+        return ordinal() < other.ordinal();
+    }
+}
@@ -0,0 +1,622 @@
+package com.airline.ordering.sync.scheduler;
+
+import com.airline.ordering.repository.SyncQueueRepository;
+import com.airline.ordering.sync.CRSRateLimit;
+import com.airline.ordering.sync.SyncError;
+import com.airline.ordering.sync.SyncErrorType;
+import com.airline.ordering.sync.SyncOperation;
+import com.airline.ordering.sync.SyncResult;
+import com.airline.ordering.sync.SyncService;
+import com.airline.ordering.sync.ratelimit.CRSRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, prioritized queue of orders waiting to be pushed to the CRS, worked off by a small pool of threads
+ * through a {@link SyncService}.
+ * <p>
+ * Every order is queued at most once: further changes to a waiting order are coalesced into its task, moving it to a
+ * more urgent {@link SyncPriority} lane if the new operation calls for it, and changes to an order that is being
+ * pushed queue it again once the push completes. Workers always serve the most urgent non-empty lane, taking up to
+ * a batch of orders from it at a time. The queue is written through to a {@link SyncQueueRepository}, so the
+ * backlog survives a restart, and it is bounded: when full, new orders are refused and stay unsynced until the next
+ * full sync. Store writes are made after the queue's lock is released, in the order the queue changed, so
+ * enqueueing and dispatching never wait on SQLite.
+ * <p>
+ * The number of workers allowed to call the CRS at once follows the burst limit of the last {@link CRSRateLimit},
+ * and every call takes a permit from a {@link CRSRateLimiter}, which may be shared with other CRS callers; a rate
+ * limit with a retry-after delay holds all dispatching for that long. Connectivity loss is handled with
+ * {@link #pause()} and {@link #resume()}; transient failures back dispatching off exponentially and retry the
+ * orders up to a maximum number of attempts.
+ */
+public class SyncScheduler implements AutoCloseable {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SyncScheduler.class);
+    
+    private static final SyncPriority[] PRIORITIES = SyncPriority.values();
+    private static final long MIN_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(1);
+    
+    private final SyncService syncService;
+    private final SyncQueueRepository store;
+    private final int capacity;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Thread[] workers;
+    private final CRSRateLimiter rateLimiter;
+    
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition ready = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+    // Held while making store writes, so they are made one at a time in order
+    private final ReentrantLock storeWriter = new ReentrantLock();
+    
+    // Guarded by lock. A lane may hold stale entries for tasks that moved to a more urgent lane or already ran;
+    // they are skipped when polled.
+    private final Map<UUID, SyncTask> pending = new HashMap<>();
+    private final List<ArrayDeque<UUID>> lanes = new ArrayList<>();
+    private final Map<UUID, SyncTask> inFlight = new HashMap<>();
+    private final Map<UUID, SyncOperation> changedInFlight = new HashMap<>();
+    // Store writes in the order the queue changed, so a delete never overtakes the requeue of the same order
+    private final ArrayDeque<Runnable> storeWrites = new ArrayDeque<>();
+    private int activeWorkers;
+    private int workerLimit;
+    private boolean paused;
+    private long holdUntilNanos;
+    private long backoffNanos;
+    private boolean closed;
+    
+    private SyncScheduler(Builder builder) {
+        this.syncService = builder.syncService;
+        this.store = builder.store;
+        this.capacity = builder.capacity;
+        this.batchSize = builder.batchSize;
+        this.maxAttempts = builder.maxAttempts;
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            lanes.add(new ArrayDeque<>());
+        }
+        this.paused = builder.startPaused;
+        this.holdUntilNanos = System.nanoTime();
+        this.workers = new Thread[builder.maxWorkers];
+        this.rateLimiter = builder.rateLimiter != null
+                ? builder.rateLimiter : new CRSRateLimiter(CRSRateLimit.unlimited());
+        this.workerLimit = workers.length;
+        if (builder.rateLimit != null) {
+            applyRateLimit(builder.rateLimit);
+        }
+        restore();
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = new Thread(this::runWorker, "sync-worker-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+    
+    public static Builder builder(SyncService syncService, SyncQueueRepository store) {
+        return new Builder(syncService, store);
+    }
+    
+    /**
+     * Queues an order, or coalesces the request into the task already queued for it.
+     * @param orderId The order ID.
+     * @param operation The operation that asks for the sync; it decides the priority lane.
+     * @return false if the queue is full and the order was not queued.
+     */
+    public boolean enqueue(UUID orderId, SyncOperation operation) {
+        return enqueueAll(List.of(orderId), operation) == 1;
+    }
+    
+    /**
+     * Queues orders with a single write to the store, e.g. every unsynced order of a flight after landing. The write
+     * is made before this returns.
+     * @return The number of orders queued or coalesced; the rest were refused because the queue is full.
+     */
+    public int enqueueAll(Collection<UUID> orderIds, SyncOperation operation) {
+        LocalDateTime now = LocalDateTime.now();
+        List<SyncTask> changed = new ArrayList<>();
+        int accepted = 0;
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Sync scheduler is closed");
+            }
+            for (UUID orderId : orderIds) {
+                SyncTask existing = pending.get(orderId);
+                if (existing != null) {
+                    SyncTask merged = existing.mergedWith(operation);
+                    if (merged != existing) {
+                        pending.put(orderId, merged);
+                        lanes.get(merged.getPriority().ordinal()).add(orderId);
+                        changed.add(merged);
+                    }
+                } else if (inFlight.containsKey(orderId)) {
+                    changedInFlight.merge(orderId, operation,
+                            (previous, next) -> SyncPriority.of(next).isMoreUrgentThan(SyncPriority.of(previous))
+                                    ? next : previous);
+                } else if (pending.size() >= capacity) {
+                    continue;
+                } else {
+                    SyncTask task = new SyncTask(orderId, operation, now, 0);
+                    pending.put(orderId, task);
+                    lanes.get(task.getPriority().ordinal()).add(orderId);
+                    changed.add(task);
+                }
+                accepted++;
+            }
+            if (!changed.isEmpty()) {
+                storeWrites.add(() -> persist(changed));
+                ready.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!changed.isEmpty()) {
+            writeStore();
+        }
+        if (accepted < orderIds.size()) {
+            logger.warn("Sync queue full at {} orders; {} orders left for the next full sync", capacity,
+                    orderIds.size() - accepted);
+        }
+        return accepted;
+    }
+    
+    /**
+     * Stops handing out work, e.g. when connectivity drops. Pushes already running are completed.
+     */
+    public void pause() {
+        lock.lock();
+        try {
+            paused = true;
+            logger.info("Sync scheduler paused with {} orders queued", pending.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Resumes handing out work immediately, dropping any backoff or rate limit hold.
+     */
+    public void resume() {
+        lock.lock();
+        try {
+            paused = false;
+            holdUntilNanos = System.nanoTime();
+            backoffNanos = 0;
+            ready.signalAll();
+            logger.info("Sync scheduler resumed with {} orders queued", pending.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Adapts to the CRS rate limit: at most its burst limit of workers call the CRS at once, the rate limiter
+     * enforces its windows, and nothing is dispatched until its retry-after delay has passed. A burst limit of 0
+     * or less is not reported, as in {@link CRSRateLimit#rateLimited(long)}, and leaves the workers as they are.
+     */
+    public void applyRateLimit(CRSRateLimit rateLimit) {
+        rateLimiter.update(rateLimit);
+        lock.lock();
+        try {
+            if (rateLimit.getBurstLimit() > 0) {
+                workerLimit = Math.min(workers.length, rateLimit.getBurstLimit());
+            }
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Waits until no order is queued or being pushed.
+     * @return false if the timeout elapsed first.
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        long remaining = timeout.toNanos();
+        lock.lock();
+        try {
+            while (!pending.isEmpty() || !inFlight.isEmpty()) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = idle.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public boolean isPaused() {
+        lock.lock();
+        try {
+            return paused;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * @return The number of orders waiting, not counting those being pushed.
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public int getInFlightCount() {
+        lock.lock();
+        try {
+            return inFlight.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Stops the workers after their current push. Queued orders stay in the store for the next start.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            ready.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+    
+    private void restore() {
+        List<SyncTask> stored = store.findAll();
+        for (SyncTask task : stored) {
+            pending.put(task.getOrderId(), task);
+            lanes.get(task.getPriority().ordinal()).add(task.getOrderId());
+        }
+        if (!stored.isEmpty()) {
+            logger.info("Restored {} queued orders from the sync queue", stored.size());
+        }
+    }
+    
+    private void runWorker() {
+        List<SyncTask> batch;
+        while ((batch = take()) != null) {
+            SyncResult result;
+            try {
+                result = batch.size() == 1
+                        ? syncService.synchronizeOrder(batch.get(0).getOrderId())
+                        : syncService.synchronizeBatch(orderIdsOf(batch));
+            } catch (RuntimeException e) {
+                logger.error("Error synchronizing {} orders: {}", batch.size(), e.getMessage());
+                List<SyncError> errors = new ArrayList<>();
+                for (SyncTask task : batch) {
+                    errors.add(SyncError.serverError(task.getOrderId(), e.getMessage(), e));
+                }
+                result = SyncResult.failure(batch.get(0).getOperation(), e.getMessage(), errors);
+            }
+            complete(batch, result);
+        }
+    }
+    
+    /**
+     * Blocks until a batch may be dispatched and takes it from the most urgent lane.
+     * @return The batch, or null once the scheduler is closed.
+     */
+    private List<SyncTask> take() {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    return null;
+                }
+                long held = holdUntilNanos - System.nanoTime();
+                if (paused || activeWorkers >= workerLimit || pending.isEmpty()) {
+                    ready.awaitUninterruptibly();
+                } else if (held > 0) {
+                    ready.awaitNanos(held);
+                } else {
+                    // Only a batch with orders in it takes a permit; each batch is one CRS request, see CRSRateLimit
+                    List<SyncTask> batch = pollBatch();
+                    if (batch.isEmpty()) {
+                        ready.awaitUninterruptibly();
+                        continue;
+                    }
+                    long throttled = rateLimiter.tryAcquireOrDelay(1);
+                    if (throttled == 0) {
+                        activeWorkers++;
+                        return batch;
+                    }
+                    unpoll(batch);
+                    ready.awaitNanos(throttled);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private List<SyncTask> pollBatch() {
+        List<SyncTask> batch = new ArrayList<>();
+        for (SyncPriority priority : PRIORITIES) {
+            ArrayDeque<UUID> lane = lanes.get(priority.ordinal());
+            while (batch.size() < batchSize && !lane.isEmpty()) {
+                UUID orderId = lane.poll();
+                SyncTask task = pending.get(orderId);
+                if (task != null && task.getPriority() == priority) {
+                    pending.remove(orderId);
+                    inFlight.put(orderId, task);
+                    batch.add(task);
+                }
+            }
+            if (!batch.isEmpty()) {
+                return batch;
+            }
+        }
+        return batch;
+    }
+    
+    /**
+     * Puts a batch the rate limiter refused back at the head of its lane, so it keeps its place in the queue.
+     */
+    private void unpoll(List<SyncTask> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            SyncTask task = batch.get(i);
+            inFlight.remove(task.getOrderId());
+            pending.put(task.getOrderId(), task);
+            lanes.get(task.getPriority().ordinal()).addFirst(task.getOrderId());
+        }
+    }
+    
+    private void complete(List<SyncTask> batch, SyncResult result) {
+        Set<UUID> processed = new HashSet<>(result.getProcessedOrderIds());
+        Set<UUID> failed = new HashSet<>(result.getFailedOrderIds());
+        Map<UUID, SyncError> errors = new HashMap<>();
+        for (SyncError error : result.getErrors()) {
+            if (error.getOrderId() != null) {
+                errors.put(error.getOrderId(), error);
+            }
+        }
+        
+        lock.lock();
+        try {
+            List<UUID> done = new ArrayList<>();
+            List<SyncTask> requeued = new ArrayList<>();
+            boolean transientFailure = false;
+            for (SyncTask task : batch) {
+                UUID orderId = task.getOrderId();
+                inFlight.remove(orderId);
+                SyncOperation changed = changedInFlight.remove(orderId);
+                boolean succeeded = processed.contains(orderId) || (result.isSuccess() && !failed.contains(orderId));
+                SyncError error = errors.get(orderId);
+                SyncTask next = null;
+                if (!succeeded) {
+                    transientFailure |= error == null || isTransient(error.getErrorType());
+                    if (error != null && !error.isRetryable()) {
+                        logger.warn("Order {} cannot be synchronized: {}", orderId, error.getMessage());
+                    } else if (task.getAttempts() + 1 >= maxAttempts) {
+                        logger.warn("Giving up on order {} after {} attempts", orderId, maxAttempts);
+                    } else {
+                        next = task.retried();
+                    }
+                }
+                if (changed != null) {
+                    // Changed again while being pushed; the new state still has to go out
+                    next = (next != null ? next : new SyncTask(orderId, changed, LocalDateTime.now(), 0))
+                            .mergedWith(changed);
+                }
+                if (next != null) {
+                    pending.put(orderId, next);
+                    lanes.get(next.getPriority().ordinal()).add(orderId);
+                    requeued.add(next);
+                } else {
+                    done.add(orderId);
+                }
+            }
+            if (transientFailure) {
+                backoffNanos = backoffNanos == 0 ? MIN_BACKOFF_NANOS : Math.min(MAX_BACKOFF_NANOS, backoffNanos * 2);
+                hold(backoffNanos);
+                logger.info("Sync failed transiently; backing off for {} ms",
+                        TimeUnit.NANOSECONDS.toMillis(backoffNanos));
+            } else {
+                backoffNanos = 0;
+            }
+            if (!requeued.isEmpty()) {
+                storeWrites.add(() -> persist(requeued));
+            }
+            if (!done.isEmpty()) {
+                storeWrites.add(() -> delete(done));
+            }
+            activeWorkers--;
+            ready.signalAll();
+            if (pending.isEmpty() && inFlight.isEmpty()) {
+                idle.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        writeStore();
+    }
+    
+    private void hold(long nanos) {
+        long until = System.nanoTime() + nanos;
+        if (until - holdUntilNanos > 0) {
+            holdUntilNanos = until;
+        }
+    }
+    
+    /**
+     * Writes tasks through to the store. A failed write is logged and the tasks stay queued in memory, as losing
+     * them on a restart is better than not pushing them at all.
+     */
+    private void persist(List<SyncTask> tasks) {
+        try {
+            if (tasks.size() == 1) {
+                store.save(tasks.get(0));
+            } else {
+                store.saveAll(tasks);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error persisting {} sync tasks: {}", tasks.size(), e.getMessage());
+        }
+    }
+    
+    private void delete(List<UUID> orderIds) {
+        try {
+            store.deleteAllById(orderIds);
+        } catch (RuntimeException e) {
+            logger.error("Error removing {} synchronized orders from the sync queue: {}", orderIds.size(),
+                    e.getMessage());
+        }
+    }
+    
+    /**
+     * Makes the store writes collected so far, those of other threads included, in the order they were collected.
+     * Called without holding the queue's lock.
+     */
+    private void writeStore() {
+        storeWriter.lock();
+        try {
+            Runnable write;
+            while ((write = nextStoreWrite()) != null) {
+                write.run();
+            }
+        } finally {
+            storeWriter.unlock();
+        }
+    }
+    
+    private Runnable nextStoreWrite() {
+        lock.lock();
+        try {
+            return storeWrites.poll();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private static boolean isTransient(SyncErrorType type) {
+        return type == SyncErrorType.NETWORK_ERROR || type == SyncErrorType.TIMEOUT_ERROR
+                || type == SyncErrorType.SERVER_ERROR || type == SyncErrorType.RATE_LIMIT_ERROR;
+    }
+    
+    private static List<UUID> orderIdsOf(List<SyncTask> batch) {
+        List<UUID> orderIds = new ArrayList<>(batch.size());
+        for (SyncTask task : batch) {
+            orderIds.add(task.getOrderId());
+        }
+        return orderIds;
+    }
+    
+    public static class Builder {
+        private final SyncService syncService;
+        private final SyncQueueRepository store;
+        private int capacity = 10_000;
+        private int batchSize = 25;
+        private int maxAttempts = 5;
+        private int maxWorkers = 4;
+        private CRSRateLimit rateLimit;
+        private CRSRateLimiter rateLimiter;
+        private boolean startPaused;
+        
+        private Builder(SyncService syncService, SyncQueueRepository store) {
+            this.syncService = syncService;
+            this.store = store;
+        }
+        
+        /**
+         * @param capacity The maximum number of orders waiting, not counting those being pushed.
+         */
+        public Builder capacity(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("capacity must be at least 1");
+            }
+            this.capacity = capacity;
+            return this;
+        }
+        
+        /**
+         * @param batchSize The maximum number of orders pushed with one batch call.
+         */
+        public Builder batchSize(int batchSize) {
+            if (batchSize < 1) {
+                throw new IllegalArgumentException("batchSize must be at least 1");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+        
+        public Builder maxAttempts(int maxAttempts) {
+            if (maxAttempts < 1) {
+                throw new IllegalArgumentException("maxAttempts must be at least 1");
+            }
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+        
+        /**
+         * @param maxWorkers The number of worker threads; the rate limit may allow fewer to run at once.
+         */
+        public Builder maxWorkers(int maxWorkers) {
+            if (maxWorkers < 1) {
+                throw new IllegalArgumentException("maxWorkers must be at least 1");
+            }
+            this.maxWorkers = maxWorkers;
+            return this;
+        }
+        
+        public Builder rateLimit(CRSRateLimit rateLimit) {
+            this.rateLimit = rateLimit;
+            return this;
+        }
+        
+        /**
+         * @param rateLimiter The limiter every CRS call takes a permit from; by default one of the scheduler's own.
+         */
+        public Builder rateLimiter(CRSRateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+        
+        /**
+         * @param startPaused true to queue orders without dispatching them until {@link SyncScheduler#resume()}.
+         */
+        public Builder startPaused(boolean startPaused) {
+            this.startPaused = startPaused;
+            return this;
+        }
+        
+        public SyncScheduler build() {
+            return new SyncScheduler(this);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.airline.ordering.sync.scheduler;
+
+import com.airline.ordering.sync.SyncOperation;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * An order waiting in the {@link SyncScheduler}, with the operation that queued it and the number of failed
+ * attempts so far. Immutable; there is at most one task per order.
+ */
+public final class SyncTask {
+    
+    private final UUID orderId;
+    private final SyncOperation operation;
+    private final LocalDateTime enqueuedAt;
+    private final int attempts;
+    
+    public SyncTask(UUID orderId, SyncOperation operation, LocalDateTime enqueuedAt, int attempts) {
+        this.orderId = Objects.requireNonNull(orderId, "orderId");
+        this.operation = Objects.requireNonNull(operation, "operation");
+        this.enqueuedAt = Objects.requireNonNull(enqueuedAt, "enqueuedAt");
+        this.attempts = attempts;
+    }
+    
+    public UUID getOrderId() {
+        return orderId;
+    }
+    
+    public SyncOperation getOperation() {
+        return operation;
+    }
+    
+    public LocalDateTime getEnqueuedAt() {
+        return enqueuedAt;
+    }
+    
+    public int getAttempts() {
+        return attempts;
+    }
+    
+    public SyncPriority getPriority() {
+        return SyncPriority.of(operation);
+    }
+    
+    /**
+     * Coalesces another request for the same order into this task.
+     * @return This task, or a copy carrying the other operation if that is more urgent.
+     */
+    public SyncTask mergedWith(SyncOperation other) {
+        if (SyncPriority.of(other).isMoreUrgentThan(getPriority())) {
+            return new SyncTask(orderId, other, enqueuedAt, attempts);
+        }
+        return this;
+    }
+    
+    /**
+     * @return A copy with one more failed attempt.
+     */
+    public SyncTask retried() {
+        return new SyncTask(orderId, operation, enqueuedAt, attempts + 1);
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        SyncTask other = (SyncTask) o;
+        return attempts == other.attempts && orderId.equals(other.orderId) && operation == other.operation
+                && enqueuedAt.equals(other.enqueuedAt);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(orderId, operation, enqueuedAt, attempts);
+    }
+    
+    @Override
+    public String toString() {
+        return "SyncTask{" +
+                "orderId=" + orderId +
+                ", operation=" + operation.name() +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
@@ -0,0 +1,99 @@
+package com.airline.ordering.domain;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compares the incrementally maintained {@link Order} totals with recomputing them by streaming over every item,
+ * as the order did before, for a large group order that keeps changing.
+ * <p>
+ * Not part of the unit test run; execute {@link #main(String[])} with the test classpath.
+ */
+public class OrderAggregateBenchmark {
+    
+    private static final int ORDER_SIZE = 200;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 100_000;
+    
+    private static volatile long sink;
+    
+    public static void main(String[] args) {
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < ORDER_SIZE; i++) {
+            items.add(new OrderItem(UUID.randomUUID(), "Item " + i, 1 + i % 3, new BigDecimal("7.50")));
+        }
+        Order order = new Order(UUID.randomUUID(), "1A");
+        StreamedOrder streamed = new StreamedOrder();
+        for (OrderItem item : items) {
+            order.addItem(new OrderItem(item));
+            streamed.addItem(new OrderItem(item));
+        }
+        
+        System.out.printf("%-8s %16s %16s%n", "round", "stream ns/change", "running ns/change");
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                OrderItem item = streamed.findItem(items.get(i % ORDER_SIZE).getOrderItemId());
+                item.setQuantity(1 + i % 4);
+                streamed.updateItem(item);
+                sink += streamed.totalAmount.unscaledValue().longValue() + streamed.getTotalQuantity();
+            }
+            long streamedNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                OrderItem item = order.findItem(items.get(i % ORDER_SIZE).getOrderItemId());
+                item.setQuantity(1 + i % 4);
+                order.updateItem(item);
+                sink += order.getTotalAmount().unscaledValue().longValue() + order.getTotalQuantity();
+            }
+            long runningNanos = System.nanoTime() - start;
+            System.out.printf("%-8d %16.1f %16.1f%n", round, (double) streamedNanos / ITERATIONS,
+                    (double) runningNanos / ITERATIONS);
+        }
+    }
+    
+    /**
+     * The stream-based item handling the order used to have.
+     */
+    private static final class StreamedOrder {
+        private final List<OrderItem> items = new ArrayList<>();
+        private BigDecimal totalAmount = BigDecimal.ZERO;
+        
+        void addItem(OrderItem item) {
+            items.add(item);
+            recalculateTotalAmount();
+        }
+        
+        void updateItem(OrderItem updatedItem) {
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i).getOrderItemId().equals(updatedItem.getOrderItemId())) {
+                    items.set(i, updatedItem);
+                    break;
+                }
+            }
+            recalculateTotalAmount();
+        }
+        
+        OrderItem findItem(UUID orderItemId) {
+            return items.stream()
+                    .filter(item -> item.getOrderItemId().equals(orderItemId))
+                    .findFirst()
+                    .orElse(null);
+        }
+        
+        int getTotalQuantity() {
+            return items.stream()
+                    .mapToInt(OrderItem::getQuantity)
+                    .sum();
+        }
+        
+        private void recalculateTotalAmount() {
+            totalAmount = items.stream()
+                    .map(OrderItem::getTotalPrice)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+}
@@ -182,6 +182,70 @@ class OrderTest {
         assertEquals(new BigDecimal("39.00"), order.getTotalAmount()); // (12*2) + (5*3)
     }
     
+    @Test
+    void testChangesSincePersisted() {
+        OrderItem coffee = createTestOrderItem("Coffee", new BigDecimal("3.00"), 1);
+        OrderItem water = createTestOrderItem("Water", new BigDecimal("2.00"), 1);
+        order.addItem(coffee);
+        order.addItem(water);
+        assertTrue(order.getChanges().isNewOrder());
+        assertEquals(2, order.getChanges().getUpsertedItems().size());
+        
+        order.markPersisted();
+        assertFalse(order.getChanges().hasChanges());
+        
+        OrderItem juice = createTestOrderItem("Juice", new BigDecimal("4.00"), 1);
+        order.addItem(juice);
+        coffee.setSpecialInstructions("No sugar");
+        order.removeItem(water.getOrderItemId());
+        
+        OrderChanges changes = order.getChanges();
+        assertFalse(changes.isNewOrder());
+        assertFalse(changes.isHeaderChanged());
+        assertTrue(changes.isTotalChanged());
+        assertEquals(2, changes.getUpsertedItems().size());
+        assertTrue(changes.getUpsertedItems().contains(juice));
+        assertTrue(changes.getUpsertedItems().contains(coffee));
+        assertEquals(1, changes.getRemovedItemIds().size());
+        assertEquals(water.getOrderItemId(), changes.getRemovedItemIds().get(0));
+        
+        order.markPersisted();
+        order.setNotes("Window seat");
+        assertTrue(order.getChanges().isHeaderChanged());
+        assertTrue(order.getChanges().getUpsertedItems().isEmpty());
+        
+        order.clearPersistedState();
+        assertTrue(order.getChanges().isNewOrder());
+    }
+    
+    @Test
+    void testTotalsAreMaintainedAcrossItemChanges() {
+        OrderItem tea = createTestOrderItem("Tea", new BigDecimal("2.5"), 2);
+        OrderItem cake = createTestOrderItem("Cake", new BigDecimal("3.25"), 1);
+        OrderItem soup = createTestOrderItem("Soup", new BigDecimal("6.00"), 1);
+        order.addItem(tea);
+        order.addItem(cake);
+        order.addItem(soup);
+        assertEquals(new BigDecimal("14.25"), order.getTotalAmount());
+        
+        order.removeItem(cake.getOrderItemId());
+        assertEquals(new BigDecimal("11.00"), order.getTotalAmount());
+        assertSame(soup, order.findItem(soup.getOrderItemId()));
+        soup.setQuantity(3);
+        order.updateItem(soup);
+        assertEquals(new BigDecimal("23.00"), order.getTotalAmount());
+        assertEquals(5, order.getTotalQuantity());
+        
+        // Totals finer than minor units are summed exactly
+        OrderItem fuel = createTestOrderItem("Fuel surcharge", new BigDecimal("0.125"), 1);
+        order.addItem(fuel);
+        assertEquals(new BigDecimal("23.125"), order.getTotalAmount());
+        order.removeItem(fuel.getOrderItemId());
+        order.removeItem(soup.getOrderItemId());
+        assertEquals(new BigDecimal("5.0"), order.getTotalAmount());
+        assertEquals(2, order.getTotalQuantity());
+    }
+    
     private OrderItem createTestOrderItem(String name, BigDecimal price, int quantity) {
         return new OrderItem(UUID.randomUUID(), name, quantity, price);
     }
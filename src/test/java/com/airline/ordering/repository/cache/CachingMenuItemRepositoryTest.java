@@ -0,0 +1,102 @@
+package com.airline.ordering.repository.cache;
+
+import com.airline.ordering.domain.ItemStatus;
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.MenuItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingMenuItemRepositoryTest {
+
+    private MenuItemRepository delegate;
+    private CachingMenuItemRepository cache;
+    private MenuItem coffee;
+    private MenuItem steak;
+
+    @BeforeEach
+    void setUp() {
+        coffee = new MenuItem("Coffee", "Hot coffee", new BigDecimal("3.50"), MenuCategory.BEVERAGE);
+        coffee.addAvailableForType(PassengerType.ECONOMY);
+        coffee.addAvailableForType(PassengerType.BUSINESS);
+        steak = new MenuItem("Steak", "Grilled steak", new BigDecimal("25.00"), MenuCategory.MAIN_COURSE);
+        steak.addAvailableForType(PassengerType.BUSINESS);
+        steak.setStatus(ItemStatus.OUT_OF_STOCK);
+
+        delegate = mock(MenuItemRepository.class);
+        when(delegate.findAll()).thenReturn(Arrays.asList(coffee, steak));
+        cache = new CachingMenuItemRepository(delegate);
+    }
+
+    @Test
+    void testReadsServedFromSingleLoad() {
+        assertEquals(2, cache.findAll().size());
+        assertEquals(1, cache.findByCategory(MenuCategory.BEVERAGE).size());
+        assertEquals(1, cache.findByStatus(ItemStatus.OUT_OF_STOCK).size());
+        assertEquals(2, cache.findByPassengerType(PassengerType.BUSINESS).size());
+        assertTrue(cache.findByPassengerType(PassengerType.FIRST_CLASS).isEmpty());
+        assertEquals("Steak", cache.findById(steak.getItemId()).orElseThrow().getName());
+        assertEquals(2, cache.count());
+
+        verify(delegate, times(1)).findAll();
+        assertEquals(1, cache.getLoadCount());
+    }
+
+    @Test
+    void testReturnedItemsDoNotAffectCache() {
+        List<MenuItem> items = cache.findByCategory(MenuCategory.BEVERAGE);
+        items.get(0).setPrice(new BigDecimal("99.00"));
+        items.clear();
+
+        List<MenuItem> reloaded = cache.findByCategory(MenuCategory.BEVERAGE);
+        assertEquals(1, reloaded.size());
+        assertEquals(new BigDecimal("3.50"), reloaded.get(0).getPrice());
+    }
+
+    @Test
+    void testSaveAndDeleteInvalidate() {
+        cache.findAll();
+        cache.save(coffee);
+        assertFalse(cache.isLoaded());
+        cache.findAll();
+        cache.deleteById(steak.getItemId());
+        assertFalse(cache.isLoaded());
+        cache.findAll();
+
+        verify(delegate).save(coffee);
+        verify(delegate).deleteById(steak.getItemId());
+        verify(delegate, times(3)).findAll();
+    }
+
+    @Test
+    void testCrsNotificationsInvalidate() {
+        MenuCacheInvalidationListener listener = new MenuCacheInvalidationListener(cache);
+
+        cache.findAll();
+        listener.onInventoryUpdated(coffee.getItemId(), 0, 10);
+        assertFalse(cache.isLoaded());
+
+        cache.findAll();
+        listener.onMenuItemUnavailable(steak.getItemId(), "Not loaded");
+        assertFalse(cache.isLoaded());
+
+        cache.findAll();
+        listener.onOrderConfirmed(coffee.getItemId(), "CONF-1");
+        assertTrue(cache.isLoaded());
+    }
+
+    @Test
+    void testSearchDelegated() {
+        cache.searchByNameOrDescription("cof");
+        verify(delegate).searchByNameOrDescription("cof");
+        verify(delegate, never()).findAll();
+    }
+}
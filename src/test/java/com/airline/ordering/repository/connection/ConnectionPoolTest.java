@@ -0,0 +1,115 @@
+package com.airline.ordering.repository.connection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        DatabaseConfig config = DatabaseConfig.builder()
+                .databasePath(tempDir.resolve("pool-test.db").toString())
+                .maxPoolSize(2)
+                .connectionTimeoutMs(200)
+                .build();
+        pool = new ConnectionPool(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void testConnectionIsReusedAfterClose() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+        }
+
+        PoolMetrics metrics = pool.getMetrics();
+        assertEquals(2, metrics.getTotalBorrows());
+        assertEquals(1, metrics.getTotalConnectionsCreated());
+        assertEquals(0, metrics.getActiveConnections());
+        assertEquals(1, metrics.getIdleConnections());
+    }
+
+    @Test
+    void testPragmasAppliedToPooledConnections() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA foreign_keys")) {
+            assertTrue(rs.next());
+            assertEquals(1, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testBorrowTimesOutWhenPoolExhausted() throws SQLException {
+        try (Connection first = pool.getConnection();
+             Connection second = pool.getConnection()) {
+            assertNotSame(first, second);
+            assertFalse(first.isClosed() || second.isClosed());
+            assertEquals(2, pool.getMetrics().getActiveConnections());
+            assertThrows(SQLTimeoutException.class, () -> pool.getConnection());
+        }
+        assertEquals(1, pool.getMetrics().getBorrowTimeouts());
+        assertEquals(0, pool.getMetrics().getActiveConnections());
+    }
+
+    @Test
+    void testReturnedHandleCannotBeReused() throws SQLException {
+        Connection conn = pool.getConnection();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+    }
+
+    @Test
+    void testOpenTransactionRolledBackOnReturn() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE t (id INTEGER PRIMARY KEY)");
+        }
+
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            stmt.execute("INSERT INTO t (id) VALUES (1)");
+            // Returned without commit
+        }
+
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM t")) {
+            assertTrue(conn.getAutoCommit());
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testClosedPoolRejectsBorrow() {
+        pool.close();
+        assertThrows(SQLException.class, () -> pool.getConnection());
+    }
+}
@@ -0,0 +1,126 @@
+package com.airline.ordering.repository.connection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SQLiteWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SQLiteWriter writer;
+    private ConnectionPool readers;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DatabaseConfig config = DatabaseConfig.builder()
+                .databasePath(tempDir.resolve("writer-test.db").toString())
+                .build();
+        writer = new SQLiteWriter(config);
+        readers = new ConnectionPool(config);
+        writer.execute(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE t (id INTEGER PRIMARY KEY, value TEXT)");
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+        readers.close();
+    }
+
+    @Test
+    void testDatabaseSwitchedToWal() throws SQLException {
+        try (Connection conn = readers.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            assertTrue(rs.next());
+            assertEquals("wal", rs.getString(1).toLowerCase());
+        }
+    }
+
+    @Test
+    void testCommittedWriteVisibleToReaders() throws SQLException {
+        writer.execute(conn -> insert(conn, 1, "first"));
+        assertEquals(1, count());
+    }
+
+    @Test
+    void testFailedWriteRolledBack() {
+        assertThrows(SQLException.class, () -> writer.execute(conn -> {
+            insert(conn, 1, "first");
+            insert(conn, 1, "duplicate");
+            return null;
+        }));
+        assertEquals(1, writer.getFailedWrites());
+        assertDoesNotThrow(() -> assertEquals(0, count()));
+    }
+
+    @Test
+    void testNestedWriteJoinsCurrentTransaction() throws SQLException {
+        writer.execute(conn -> {
+            insert(conn, 1, "outer");
+            return writer.execute(inner -> insert(inner, 2, "inner"));
+        });
+        assertEquals(2, count());
+    }
+
+    @Test
+    void testConcurrentWritersAreSerialized() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int id = i;
+            futures.add(executor.submit(() -> writer.execute(conn -> insert(conn, id, "row-" + id))));
+        }
+        for (Future<Integer> future : futures) {
+            assertEquals(1, future.get());
+        }
+        executor.shutdown();
+
+        assertEquals(200, count());
+        assertEquals(201, writer.getCompletedWrites());
+    }
+
+    @Test
+    void testClosedWriterRejectsWrites() {
+        writer.close();
+        assertThrows(SQLException.class, () -> writer.execute(conn -> insert(conn, 1, "late")));
+    }
+
+    private static int insert(Connection conn, int id, String value) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO t (id, value) VALUES (?, ?)")) {
+            pstmt.setInt(1, id);
+            pstmt.setString(2, value);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    private int count() throws SQLException {
+        try (Connection conn = readers.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM t")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
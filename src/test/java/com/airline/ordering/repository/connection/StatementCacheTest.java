@@ -0,0 +1,127 @@
+package com.airline.ordering.repository.connection;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Connection physical;
+    private StatementCache cache;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DatabaseConfig config = DatabaseConfig.builder()
+                .databasePath(tempDir.resolve("statement-cache-test.db").toString())
+                .build();
+        physical = ConnectionFactory.open(config);
+        try (Statement stmt = physical.createStatement()) {
+            stmt.execute("CREATE TABLE items (id INTEGER PRIMARY KEY, name TEXT)");
+            stmt.execute("INSERT INTO items VALUES (1, 'tea'), (2, 'coffee')");
+        }
+        cache = new StatementCache(physical, 2);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        cache.close();
+        physical.close();
+    }
+
+    @Test
+    void testClosedStatementIsReused() throws SQLException {
+        assertEquals("tea", nameOf(1));
+        assertEquals("coffee", nameOf(2));
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testStatementInUseIsNotSharedAndParametersAreCleared() throws SQLException {
+        String sql = "SELECT name FROM items WHERE id = ?";
+        try (PreparedStatement first = cache.prepare(sql);
+             PreparedStatement second = cache.prepare(sql)) {
+            first.setInt(1, 1);
+            second.setInt(1, 2);
+            try (ResultSet rs1 = first.executeQuery(); ResultSet rs2 = second.executeQuery()) {
+                assertTrue(rs1.next());
+                assertTrue(rs2.next());
+                assertEquals("tea", rs1.getString(1));
+                assertEquals("coffee", rs2.getString(1));
+            }
+        }
+        assertEquals(2, cache.getMissCount());
+        assertEquals(1, cache.size());
+
+        // A reused statement must not keep the previous borrower's parameters
+        try (PreparedStatement reused = cache.prepare(sql);
+             ResultSet rs = reused.executeQuery()) {
+            assertFalse(rs.next());
+        }
+    }
+
+    @Test
+    void testLeastRecentlyUsedStatementIsEvicted() throws SQLException {
+        for (String sql : new String[] {"SELECT 1", "SELECT 2", "SELECT 1", "SELECT 3"}) {
+            try (PreparedStatement pstmt = cache.prepare(sql)) {
+                pstmt.executeQuery();
+            }
+        }
+        assertEquals(2, cache.size());
+
+        try (PreparedStatement pstmt = cache.prepare("SELECT 2")) {
+            pstmt.executeQuery();
+        }
+        assertEquals(1, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    void testClosedHandleCannotBeUsed() throws SQLException {
+        PreparedStatement pstmt = cache.prepare("SELECT name FROM items WHERE id = ?");
+        ResultSet rs = pstmt.executeQuery();
+        pstmt.close();
+
+        assertTrue(pstmt.isClosed());
+        assertTrue(rs.isClosed());
+        assertThrows(SQLException.class, () -> pstmt.setInt(1, 1));
+    }
+
+    @Test
+    void testWrappedConnectionRoutesPrepareStatementThroughCache() throws SQLException {
+        Connection wrapped = cache.wrap(physical);
+        for (int i = 0; i < 3; i++) {
+            try (PreparedStatement pstmt = wrapped.prepareStatement("SELECT COUNT(*) FROM items");
+                 ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(2, rs.getInt(1));
+            }
+        }
+        assertEquals(2, cache.getHitCount());
+        assertFalse(wrapped.isClosed());
+    }
+
+    private String nameOf(int id) throws SQLException {
+        try (PreparedStatement pstmt = cache.prepare("SELECT name FROM items WHERE id = ?")) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
@@ -36,7 +36,8 @@ class MenuItemRepositoryImplTest {
     
     @AfterEach
     void tearDown() {
-        // Clean up database file after each test
+        // Release pooled connections, then clean up database file after each test
+        SQLiteConnection.shutdown();
         File dbFile = new File(DB_FILE);
         if (dbFile.exists()) {
             dbFile.delete();
@@ -146,6 +147,23 @@ class MenuItemRepositoryImplTest {
         assertEquals("Salad", availableItems.get(0).getName());
     }
     
+    @Test
+    void testFindByPassengerType() {
+        MenuItem item1 = new MenuItem("Tea", "Black tea", new BigDecimal("2.00"), MenuCategory.BEVERAGE);
+        item1.addAvailableForType(PassengerType.ECONOMY);
+        MenuItem item2 = new MenuItem("Champagne", "Brut", new BigDecimal("15.00"), MenuCategory.ALCOHOL);
+        item2.addAvailableForType(PassengerType.PREMIUM_ECONOMY);
+        item2.addAvailableForType(PassengerType.BUSINESS);
+        menuItemRepository.save(item1);
+        menuItemRepository.save(item2);
+        
+        List<MenuItem> economyItems = menuItemRepository.findByPassengerType(PassengerType.ECONOMY);
+        assertEquals(1, economyItems.size());
+        assertEquals("Tea", economyItems.get(0).getName());
+        assertEquals(1, menuItemRepository.findByPassengerType(PassengerType.BUSINESS).size());
+        assertTrue(menuItemRepository.findByPassengerType(PassengerType.FIRST_CLASS).isEmpty());
+    }
+    
     @Test
     void testSearchByNameOrDescription() {
         MenuItem item1 = new MenuItem("Chicken Wrap", "Grilled chicken wrap", new BigDecimal("9.00"), MenuCategory.MAIN_COURSE);
@@ -167,5 +185,50 @@ class MenuItemRepositoryImplTest {
         assertEquals(1, results3.size());
         assertEquals("Chocolate Cake", results3.get(0).getName());
     }
+    
+    @Test
+    void testSearchMatchesWordPrefixesAndTags() {
+        MenuItem item1 = new MenuItem("Chicken Wrap", "Grilled chicken wrap", new BigDecimal("9.00"), MenuCategory.MAIN_COURSE);
+        item1.setAllergens(Set.of("gluten"));
+        MenuItem item2 = new MenuItem("Fruit Bowl", "Seasonal fruit", new BigDecimal("5.00"), MenuCategory.SNACK);
+        item2.setDietaryTags(Set.of("vegan"));
+        menuItemRepository.save(item1);
+        menuItemRepository.save(item2);
+        
+        assertEquals("Chicken Wrap", menuItemRepository.searchByNameOrDescription("chi").get(0).getName());
+        assertEquals("Chicken Wrap", menuItemRepository.searchByNameOrDescription("grilled wr").get(0).getName());
+        assertEquals("Fruit Bowl", menuItemRepository.searchByNameOrDescription("Vegan").get(0).getName());
+        assertEquals("Chicken Wrap", menuItemRepository.searchByNameOrDescription("glut").get(0).getName());
+        assertTrue(menuItemRepository.searchByNameOrDescription("chicken vegan").isEmpty());
+        assertEquals(1, menuItemRepository.searchByNameOrDescription("wrap!").size());
+        assertDoesNotThrow(() -> menuItemRepository.searchByNameOrDescription("\"wrap OR NEAR("));
+        assertEquals(2, menuItemRepository.searchByNameOrDescription("  ").size());
+    }
+    
+    @Test
+    void testSearchRanksNameMatchesFirst() {
+        MenuItem described = new MenuItem("Club Sandwich", "Served with a side of tomato soup", new BigDecimal("12.00"), MenuCategory.MAIN_COURSE);
+        MenuItem named = new MenuItem("Tomato Soup", "Slow cooked", new BigDecimal("6.00"), MenuCategory.APPETIZER);
+        menuItemRepository.save(described);
+        menuItemRepository.save(named);
+        
+        List<MenuItem> results = menuItemRepository.searchByNameOrDescription("tomato");
+        assertEquals(2, results.size());
+        assertEquals("Tomato Soup", results.get(0).getName());
+    }
+    
+    @Test
+    void testSearchIndexFollowsUpdatesAndDeletes() {
+        MenuItem item = new MenuItem("Espresso", "Strong coffee", new BigDecimal("3.00"), MenuCategory.BEVERAGE);
+        menuItemRepository.save(item);
+        assertEquals(1, menuItemRepository.searchByNameOrDescription("espresso").size());
+        
+        item.setName("Latte");
+        menuItemRepository.save(item);
+        assertTrue(menuItemRepository.searchByNameOrDescription("espresso").isEmpty());
+        assertEquals(1, menuItemRepository.searchByNameOrDescription("latte").size());
+        
+        menuItemRepository.deleteById(item.getItemId());
+        assertTrue(menuItemRepository.searchByNameOrDescription("latte").isEmpty());
+    }
 }
-
@@ -0,0 +1,119 @@
+package com.airline.ordering.repository.impl;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compares the batched order-item loading used by {@link OrderRepositoryImpl#findAll()} with the
+ * previous one-query-per-order (N+1) path on a wide-body flight sized data set.
+ * <p>
+ * Not part of the unit test run; execute {@link #main(String[])} with the test classpath.
+ */
+public class OrderItemLoadingBenchmark {
+
+    private static final int ORDER_COUNT = 600;
+    private static final int ITEMS_PER_ORDER = 4;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 20;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("order-item-benchmark");
+        SQLiteConnection.configure(DatabaseConfig.builder()
+                .databasePath(dir.resolve("benchmark.db").toString())
+                .build());
+        SQLiteConnection.initializeDatabase();
+
+        OrderRepositoryImpl repository = new OrderRepositoryImpl();
+        for (int i = 0; i < ORDER_COUNT; i++) {
+            Order order = new Order(UUID.randomUUID(), (i / 6 + 1) + String.valueOf((char) ('A' + i % 6)));
+            for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                order.addItem(new OrderItem(UUID.randomUUID(), "Item " + j, 1, new BigDecimal("4.50")));
+            }
+            repository.save(order);
+        }
+
+        double perOrderMs = measure(OrderItemLoadingBenchmark::loadPerOrder);
+        double batchedMs = measure(() -> repository.findAll().size());
+
+        System.out.printf("Orders: %d, items per order: %d%n", ORDER_COUNT, ITEMS_PER_ORDER);
+        System.out.printf("N+1 loading:     %8.2f ms/op%n", perOrderMs);
+        System.out.printf("Batched loading: %8.2f ms/op%n", batchedMs);
+        System.out.printf("Speedup:         %8.1fx%n", perOrderMs / batchedMs);
+
+        SQLiteConnection.shutdown();
+        deleteRecursively(dir);
+    }
+
+    private static double measure(LoadOperation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long start = System.nanoTime();
+        int checksum = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            checksum += operation.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (checksum != ORDER_COUNT * MEASURED_ITERATIONS) {
+            throw new IllegalStateException("Unexpected result size: " + checksum);
+        }
+        return elapsed / 1_000_000.0 / MEASURED_ITERATIONS;
+    }
+
+    /**
+     * The previous loading strategy: one prepared statement and query per order row.
+     */
+    private static int loadPerOrder() throws SQLException {
+        List<Object> orderIds = new ArrayList<>();
+        int loadedItems = 0;
+        try (Connection conn = SQLiteConnection.getConnection()) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT * FROM orders")) {
+                while (rs.next()) {
+                    orderIds.add(rs.getObject("order_id"));
+                }
+            }
+            for (Object orderId : orderIds) {
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT * FROM order_items WHERE order_id = ?")) {
+                    pstmt.setObject(1, orderId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            rs.getString("order_item_id");
+                            loadedItems++;
+                        }
+                    }
+                }
+            }
+        }
+        if (loadedItems != orderIds.size() * ITEMS_PER_ORDER) {
+            throw new IllegalStateException("Unexpected item count: " + loadedItems);
+        }
+        return orderIds.size();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @FunctionalInterface
+    private interface LoadOperation {
+        int run() throws Exception;
+    }
+}
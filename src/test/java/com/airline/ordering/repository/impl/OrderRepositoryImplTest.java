@@ -6,17 +6,29 @@ import com.airline.ordering.domain.OrderItemStatus;
 import com.airline.ordering.domain.OrderStatus;
 import com.airline.ordering.domain.Passenger;
 import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.BulkWriteResult;
 import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.connection.StorageFormat;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -40,7 +52,8 @@ class OrderRepositoryImplTest {
     
     @AfterEach
     void tearDown() {
-        // Clean up database file after each test
+        // Release pooled connections, then clean up database file after each test
+        SQLiteConnection.shutdown();
         File dbFile = new File(DB_FILE);
         if (dbFile.exists()) {
             dbFile.delete();
@@ -262,6 +275,150 @@ class OrderRepositoryImplTest {
         assertFalse(ordersToSync.stream().anyMatch(o -> o.getOrderId().equals(order1.getOrderId())));
         assertFalse(ordersToSync.stream().anyMatch(o -> o.getOrderId().equals(order4.getOrderId())));
     }
+    
+    @Test
+    void testFindAllAttachesItemsAcrossFetchChunks() {
+        Passenger passenger = new Passenger("Kate", "Grey", "kate@example.com", "14M", PassengerType.ECONOMY);
+        passengerRepository.save(passenger);
+        
+        int orderCount = 520; // More than one IN-list chunk
+        List<Order> toSave = new ArrayList<>();
+        for (int i = 0; i < orderCount; i++) {
+            Order order = new Order(passenger.getPassengerId(), passenger.getSeatNumber());
+            order.addItem(new OrderItem(UUID.randomUUID(), "Tea " + i, 1, new BigDecimal("2.00")));
+            order.addItem(new OrderItem(UUID.randomUUID(), "Cookie " + i, 2, new BigDecimal("1.50")));
+            toSave.add(order);
+        }
+        assertTrue(orderRepository.saveAll(toSave).isFullySuccessful());
+        
+        List<Order> orders = orderRepository.findAll();
+        assertEquals(orderCount, orders.size());
+        for (Order order : orders) {
+            assertEquals(2, order.getItems().size());
+            assertEquals(0, new BigDecimal("5.00").compareTo(order.getTotalAmount()));
+        }
+    }
+    
+    @Test
+    void testSaveAllWritesItemsAndIsolatesFailedOrders() {
+        Order order1 = new Order(UUID.randomUUID(), "20A");
+        order1.addItem(new OrderItem(UUID.randomUUID(), "Water", 2, new BigDecimal("1.00")));
+        Order invalid = new Order(UUID.randomUUID(), "20B");
+        invalid.addItem(new OrderItem(UUID.randomUUID(), "Juice", 1, new BigDecimal("3.00")));
+        invalid.setSeatNumber(null);
+        Order order2 = new Order(UUID.randomUUID(), "20C");
+        order2.addItem(new OrderItem(UUID.randomUUID(), "Soda", 1, new BigDecimal("2.50")));
+        order2.addItem(new OrderItem(UUID.randomUUID(), "Chips", 1, new BigDecimal("1.50")));
+        
+        BulkWriteResult<UUID> result = orderRepository.saveAll(List.of(order1, invalid, order2));
+        
+        assertEquals(2, result.getSucceededCount());
+        assertEquals(List.of(invalid.getOrderId()), result.getFailedIds());
+        assertEquals(1, orderRepository.findById(order1.getOrderId()).orElseThrow().getItems().size());
+        assertEquals(2, orderRepository.findById(order2.getOrderId()).orElseThrow().getItems().size());
+        assertFalse(orderRepository.findById(invalid.getOrderId()).isPresent());
+        
+        order2.removeItem(order2.getItems().get(0).getOrderItemId());
+        assertTrue(orderRepository.saveAll(List.of(order2)).isFullySuccessful());
+        assertEquals(1, orderRepository.findById(order2.getOrderId()).orElseThrow().getItems().size());
+        
+        assertTrue(orderRepository.deleteAllById(List.of(order1.getOrderId(), order2.getOrderId())).isFullySuccessful());
+        assertEquals(0, orderRepository.count());
+    }
+    
+    @Test
+    void testStreamAllLoadsItemsPerChunkAndReleasesConnection() {
+        List<Order> toSave = new ArrayList<>();
+        for (int i = 0; i < 45; i++) {
+            Order order = new Order(UUID.randomUUID(), (i + 1) + "D");
+            order.addItem(new OrderItem(UUID.randomUUID(), "Coffee", 1, new BigDecimal("3.00")));
+            if (i % 3 == 0) {
+                order.submit();
+            }
+            toSave.add(order);
+        }
+        orderRepository.saveAll(toSave);
+        
+        try (Stream<Order> orders = orderRepository.streamAll(10)) {
+            assertEquals(45, orders.filter(order -> order.getItems().size() == 1).count());
+        }
+        try (Stream<Order> pending = orderRepository.streamByStatus(OrderStatus.PENDING, 4)) {
+            assertEquals(15, pending.count());
+        }
+        try (Stream<Order> unsynced = orderRepository.streamOrdersRequiringSync(7)) {
+            assertEquals(15, unsynced.limit(20).count());
+        }
+        assertEquals(0, SQLiteConnection.getPoolMetrics().getActiveConnections());
+    }
+    
+    @Test
+    void testFindPageWalksAllOrdersOnce() {
+        List<Order> toSave = new ArrayList<>();
+        for (int i = 0; i < 23; i++) {
+            Order order = new Order(UUID.randomUUID(), (i + 1) + "E");
+            order.addItem(new OrderItem(UUID.randomUUID(), "Tea", 1, new BigDecimal("2.00")));
+            toSave.add(order);
+        }
+        orderRepository.saveAll(toSave);
+        
+        Set<UUID> seen = new HashSet<>();
+        List<Order> page = orderRepository.findPage(null, 10);
+        int pages = 0;
+        while (!page.isEmpty()) {
+            pages++;
+            for (Order order : page) {
+                assertTrue(seen.add(order.getOrderId()));
+                assertEquals(1, order.getItems().size());
+            }
+            page = orderRepository.findPage(page.get(page.size() - 1).getOrderId(), 10);
+        }
+        assertEquals(3, pages);
+        assertEquals(23, seen.size());
+    }
+    
+    @Test
+    void testSaveWritesOnlyChangedItems() throws SQLException {
+        Order order = new Order(UUID.randomUUID(), "7C");
+        OrderItem coffee = new OrderItem(UUID.randomUUID(), "Coffee", 1, new BigDecimal("3.00"));
+        OrderItem water = new OrderItem(UUID.randomUUID(), "Water", 1, new BigDecimal("2.00"));
+        OrderItem cake = new OrderItem(UUID.randomUUID(), "Cake", 1, new BigDecimal("5.00"));
+        order.addItem(coffee);
+        order.addItem(water);
+        order.addItem(cake);
+        orderRepository.save(order);
+        Map<UUID, Long> rowIdsBefore = itemRowIds();
+        
+        Order loaded = orderRepository.findById(order.getOrderId()).orElseThrow();
+        assertFalse(loaded.getChanges().hasChanges());
+        OrderItem juice = new OrderItem(UUID.randomUUID(), "Juice", 2, new BigDecimal("4.00"));
+        loaded.addItem(juice);
+        loaded.findItem(coffee.getOrderItemId()).setQuantity(2);
+        loaded.removeItem(water.getOrderItemId());
+        orderRepository.save(loaded);
+        
+        Map<UUID, Long> rowIdsAfter = itemRowIds();
+        assertEquals(3, rowIdsAfter.size());
+        assertFalse(rowIdsAfter.containsKey(water.getOrderItemId()));
+        assertEquals(rowIdsBefore.get(coffee.getOrderItemId()), rowIdsAfter.get(coffee.getOrderItemId()));
+        assertEquals(rowIdsBefore.get(cake.getOrderItemId()), rowIdsAfter.get(cake.getOrderItemId()));
+        assertTrue(rowIdsAfter.containsKey(juice.getOrderItemId()));
+        
+        Order reloaded = orderRepository.findById(order.getOrderId()).orElseThrow();
+        assertEquals(0, new BigDecimal("19.00").compareTo(reloaded.getTotalAmount()));
+        assertEquals(2, reloaded.findItem(coffee.getOrderItemId()).getQuantity());
+        assertEquals(3, reloaded.getItems().size());
+    }
+    
+    private Map<UUID, Long> itemRowIds() throws SQLException {
+        Map<UUID, Long> rowIds = new HashMap<>();
+        StorageFormat format = SQLiteConnection.getConfig().getStorageFormat();
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT rowid, order_item_id FROM order_items");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rowIds.put(format.getUuid(rs, "order_item_id"), rs.getLong("rowid"));
+            }
+        }
+        return rowIds;
+    }
 }
-
-
@@ -0,0 +1,137 @@
+package com.airline.ordering.repository.impl;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Measures the write amplification of adding one drink to an existing 6-item order, comparing the
+ * differential {@link OrderRepositoryImpl#save(Order)} with the previous full rewrite of the order and all of
+ * its items. Reports rows written and WAL frames (pages) appended per save.
+ * <p>
+ * Not part of the unit test run; execute {@link #main(String[])} with the test classpath.
+ */
+public class OrderSaveBenchmark {
+
+    private static final int ORDER_COUNT = 300;
+    private static final int ITEMS_PER_ORDER = 6;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("order-save-benchmark");
+        SQLiteConnection.configure(DatabaseConfig.builder()
+                .databasePath(dir.resolve("benchmark.db").toString())
+                .build());
+        SQLiteConnection.initializeDatabase();
+        try {
+            OrderRepositoryImpl repository = new OrderRepositoryImpl();
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < ORDER_COUNT; i++) {
+                Order order = new Order(UUID.randomUUID(), (i / 6 + 1) + String.valueOf((char) ('A' + i % 6)));
+                for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                    order.addItem(new OrderItem(UUID.randomUUID(), "Item " + j, 1, new BigDecimal("4.50")));
+                }
+                orders.add(order);
+            }
+            repository.saveAll(orders);
+
+            Result fullRewrite = addDrinkToEveryOrder(repository, orders, true);
+            Result differential = addDrinkToEveryOrder(repository, orders, false);
+
+            System.out.printf("Orders: %d, items per order before save: %d%n", ORDER_COUNT, ITEMS_PER_ORDER);
+            System.out.printf("%-14s %12s %12s %12s%n", "", "rows/save", "WAL pages", "ms/save");
+            fullRewrite.print("Full rewrite");
+            differential.print("Differential");
+        } finally {
+            SQLiteConnection.shutdown();
+            deleteRecursively(dir);
+        }
+    }
+
+    private static Result addDrinkToEveryOrder(OrderRepositoryImpl repository, List<Order> orders,
+                                               boolean fullRewrite) throws SQLException {
+        List<Order> loaded = new ArrayList<>();
+        for (Order order : orders) {
+            Order current = repository.findById(order.getOrderId()).orElseThrow();
+            current.addItem(new OrderItem(UUID.randomUUID(), "Sparkling water", 1, new BigDecimal("2.50")));
+            if (fullRewrite) {
+                // Without a recorded database state the repository rewrites every row, as save() always did
+                current.clearPersistedState();
+            }
+            loaded.add(current);
+        }
+
+        checkpoint();
+        long changesBefore = totalChanges();
+        long start = System.nanoTime();
+        for (Order order : loaded) {
+            repository.save(order);
+        }
+        long elapsed = System.nanoTime() - start;
+        long rows = totalChanges() - changesBefore;
+        long walPages = checkpoint();
+        return new Result(rows, walPages, elapsed);
+    }
+
+    /**
+     * Returns the number of rows changed on the writer connection since it was opened.
+     */
+    private static long totalChanges() throws SQLException {
+        return SQLiteConnection.executeWrite(conn -> {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT total_changes()")) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    /**
+     * Checkpoints and truncates the WAL, returning the number of frames it held.
+     */
+    private static long checkpoint() throws SQLException {
+        try (Connection conn = SQLiteConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            long frames;
+            try (ResultSet rs = stmt.executeQuery("PRAGMA wal_checkpoint(PASSIVE)")) {
+                frames = rs.next() ? rs.getLong(2) : 0L;
+            }
+            stmt.executeQuery("PRAGMA wal_checkpoint(TRUNCATE)").close();
+            return frames;
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static final class Result {
+        private final long rows;
+        private final long walPages;
+        private final long elapsedNanos;
+
+        private Result(long rows, long walPages, long elapsedNanos) {
+            this.rows = rows;
+            this.walPages = walPages;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        private void print(String label) {
+            System.out.printf("%-14s %12.1f %12.1f %12.3f%n", label, (double) rows / ORDER_COUNT,
+                    (double) walPages / ORDER_COUNT, elapsedNanos / 1_000_000.0 / ORDER_COUNT);
+        }
+    }
+}
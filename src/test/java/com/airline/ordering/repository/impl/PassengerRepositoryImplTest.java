@@ -2,6 +2,7 @@ package com.airline.ordering.repository.impl;
 
 import com.airline.ordering.domain.Passenger;
 import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.BulkWriteResult;
 import com.airline.ordering.repository.SQLiteConnection;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.AfterEach;
@@ -10,9 +11,11 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.sql.Connection;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,7 +37,8 @@ class PassengerRepositoryImplTest {
     
     @AfterEach
     void tearDown() {
-        // Clean up database file after each test
+        // Release pooled connections, then clean up database file after each test
+        SQLiteConnection.shutdown();
         File dbFile = new File(DB_FILE);
         if (dbFile.exists()) {
             dbFile.delete();
@@ -132,5 +136,44 @@ class PassengerRepositoryImplTest {
         assertEquals("updated@example.com", retrieved.get().getEmail());
         assertEquals(1, passengerRepository.count()); // Should still be only one record
     }
+    
+    @Test
+    void testSaveAllReportsFailedRowsAndCommitsTheRest() {
+        List<Passenger> manifest = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            manifest.add(new Passenger("First" + i, "Last" + i, "p" + i + "@example.com", (i / 6 + 1) + "A", PassengerType.ECONOMY));
+        }
+        Passenger invalid = new Passenger("No", "Seat", "no.seat@example.com", null, PassengerType.ECONOMY);
+        manifest.add(700, invalid);
+        
+        BulkWriteResult<UUID> result = passengerRepository.saveAll(manifest);
+        
+        assertEquals(1200, result.getSucceededCount());
+        assertEquals(List.of(invalid.getPassengerId()), result.getFailedIds());
+        assertEquals(1200, passengerRepository.count());
+        assertFalse(passengerRepository.findById(invalid.getPassengerId()).isPresent());
+    }
+    
+    @Test
+    void testDeleteAllById() {
+        Passenger passenger1 = new Passenger("Ann", "Lee", "ann@example.com", "3A", PassengerType.BUSINESS);
+        Passenger passenger2 = new Passenger("Ben", "Lee", "ben@example.com", "3B", PassengerType.BUSINESS);
+        Passenger passenger3 = new Passenger("Cal", "Lee", "cal@example.com", "3C", PassengerType.BUSINESS);
+        passengerRepository.saveAll(List.of(passenger1, passenger2, passenger3));
+        
+        BulkWriteResult<UUID> result = passengerRepository.deleteAllById(List.of(passenger1.getPassengerId(), passenger3.getPassengerId(), UUID.randomUUID()));
+        
+        assertTrue(result.isFullySuccessful());
+        assertEquals(1, passengerRepository.count());
+        assertTrue(passengerRepository.findById(passenger2.getPassengerId()).isPresent());
+    }
+    
+    @Test
+    void testUpsertAllStreamsInChunks() {
+        BulkWriteResult<UUID> result = passengerRepository.upsertAll(
+                IntStream.range(0, 250).mapToObj(i -> new Passenger("F" + i, "L" + i, null, i + "C", PassengerType.ECONOMY)), 100);
+        
+        assertEquals(250, result.getSucceededCount());
+        assertEquals(250, passengerRepository.count());
+    }
 }
-
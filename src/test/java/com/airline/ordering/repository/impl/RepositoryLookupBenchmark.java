@@ -0,0 +1,89 @@
+package com.airline.ordering.repository.impl;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Measures CPU time per {@link OrderRepositoryImpl#findById(UUID)} lookup with the per-connection prepared
+ * statement cache disabled and enabled.
+ * <p>
+ * Not part of the unit test run; execute {@link #main(String[])} with the test classpath.
+ */
+public class RepositoryLookupBenchmark {
+
+    private static final int ORDER_COUNT = 300;
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int MEASURED_ROUNDS = 50;
+
+    public static void main(String[] args) throws Exception {
+        double uncachedMicros = run(0);
+        double cachedMicros = run(DatabaseConfig.defaults().getStatementCacheSize());
+
+        System.out.printf("Lookups per run: %d%n", ORDER_COUNT * MEASURED_ROUNDS);
+        System.out.printf("Without statement cache: %8.2f us CPU/lookup%n", uncachedMicros);
+        System.out.printf("With statement cache:    %8.2f us CPU/lookup%n", cachedMicros);
+        System.out.printf("CPU reduction:           %8.1f%%%n", 100.0 * (1 - cachedMicros / uncachedMicros));
+    }
+
+    private static double run(int statementCacheSize) throws Exception {
+        Path dir = Files.createTempDirectory("lookup-benchmark");
+        SQLiteConnection.configure(DatabaseConfig.builder()
+                .databasePath(dir.resolve("benchmark.db").toString())
+                .statementCacheSize(statementCacheSize)
+                .build());
+        SQLiteConnection.initializeDatabase();
+        try {
+            OrderRepositoryImpl repository = new OrderRepositoryImpl();
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < ORDER_COUNT; i++) {
+                Order order = new Order(UUID.randomUUID(), (i / 6 + 1) + String.valueOf((char) ('A' + i % 6)));
+                for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+                    order.addItem(new OrderItem(UUID.randomUUID(), "Item " + j, 1, new BigDecimal("4.50")));
+                }
+                orders.add(order);
+            }
+            repository.saveAll(orders);
+
+            for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                lookUpAll(repository, orders);
+            }
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            long start = threads.getCurrentThreadCpuTime();
+            for (int round = 0; round < MEASURED_ROUNDS; round++) {
+                lookUpAll(repository, orders);
+            }
+            long elapsed = threads.getCurrentThreadCpuTime() - start;
+            return elapsed / 1_000.0 / (ORDER_COUNT * MEASURED_ROUNDS);
+        } finally {
+            SQLiteConnection.shutdown();
+            deleteRecursively(dir);
+        }
+    }
+
+    private static void lookUpAll(OrderRepositoryImpl repository, List<Order> orders) {
+        for (Order order : orders) {
+            if (repository.findById(order.getOrderId()).map(Order::getItems).map(List::size).orElse(0) != ITEMS_PER_ORDER) {
+                throw new IllegalStateException("Order not found: " + order.getOrderId());
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.airline.ordering.repository.journal;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderStatus;
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.OrderRepository;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+import com.airline.ordering.repository.connection.StorageFormat;
+import com.airline.ordering.repository.impl.ChangeLogRepositoryImpl;
+import com.airline.ordering.repository.impl.OrderRepositoryImpl;
+import com.airline.ordering.sync.changelog.OrderDelta;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class JournalingOrderRepositoryTest {
+
+    private static final long NO_BACKGROUND_FLUSH_MS = 60_000;
+
+    @TempDir
+    Path tempDir;
+
+    private Path journalPath;
+    private OrderRepository delegate;
+
+    @BeforeEach
+    void setUp() {
+        journalPath = tempDir.resolve("orders.journal");
+        delegate = mock(OrderRepository.class);
+        when(delegate.saveAll(any())).thenReturn(BulkWriteResult.empty());
+        when(delegate.deleteAllById(any())).thenReturn(BulkWriteResult.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        SQLiteConnection.shutdown();
+        SQLiteConnection.configure(DatabaseConfig.fromSystemProperties());
+    }
+
+    @Test
+    void testSaveIsVisibleBeforeFlushAndAppliedOnFlush() throws IOException {
+        Order order = sampleOrder();
+        try (JournalingOrderRepository repository = new JournalingOrderRepository(
+                delegate, OrderJournal.open(journalPath), NO_BACKGROUND_FLUSH_MS)) {
+            repository.save(order);
+            verify(delegate, never()).saveAll(any());
+            assertTrue(Files.size(journalPath) > 0);
+
+            Order journaled = repository.findById(order.getOrderId()).orElseThrow();
+            assertNotSame(order, journaled);
+            assertSameOrder(order, journaled);
+
+            repository.flush();
+            List<Order> applied = capturedSaves();
+            assertEquals(1, applied.size());
+            assertSameOrder(order, applied.get(0));
+            assertEquals(0, repository.getPendingCount());
+            assertEquals(0, Files.size(journalPath));
+        }
+    }
+
+    @Test
+    void testRecoverReplaysLatestStatePerOrder() throws IOException {
+        Order kept = sampleOrder();
+        Order deleted = sampleOrder();
+        OrderJournal journal = OrderJournal.open(journalPath);
+        JournalingOrderRepository repository = new JournalingOrderRepository(delegate, journal, NO_BACKGROUND_FLUSH_MS);
+        repository.saveAll(List.of(kept, deleted));
+        kept.submit();
+        kept.confirm();
+        repository.save(kept);
+        repository.delete(deleted);
+        // Simulate a crash: the journal is closed without flushing
+        journal.close();
+        verifyNoInteractions(delegate);
+
+        try (JournalingOrderRepository recovered = new JournalingOrderRepository(
+                delegate, OrderJournal.open(journalPath), NO_BACKGROUND_FLUSH_MS)) {
+            assertEquals(4, recovered.recover());
+            List<Order> applied = capturedSaves();
+            assertEquals(1, applied.size());
+            assertEquals(OrderStatus.CONFIRMED, applied.get(0).getStatus());
+            assertSameOrder(kept, applied.get(0));
+            verify(delegate).deleteAllById(List.of(deleted.getOrderId()));
+            assertEquals(0, Files.size(journalPath));
+        }
+    }
+
+    @Test
+    void testTornTailIsDiscardedOnOpen() throws IOException {
+        Order order = sampleOrder();
+        OrderJournal journal = OrderJournal.open(journalPath);
+        new JournalingOrderRepository(delegate, journal, NO_BACKGROUND_FLUSH_MS).save(order);
+        journal.close();
+        long intactSize = Files.size(journalPath);
+        Files.write(journalPath, new byte[] {0, 0, 1, 0, 42, 42}, StandardOpenOption.APPEND);
+
+        try (OrderJournal reopened = OrderJournal.open(journalPath)) {
+            assertEquals(1, reopened.getRecoveredEntries().size());
+            assertEquals(order.getOrderId(), reopened.getRecoveredEntries().get(0).getOrderId());
+            assertEquals(intactSize, Files.size(journalPath));
+        }
+    }
+
+    @Test
+    void testFlushWritesOnlyWhatChangedSinceTheLastFlush() throws IOException, SQLException {
+        openDatabase();
+        Order order = sampleOrder();
+        OrderItem kept = order.getItems().get(0);
+        try (JournalingOrderRepository repository = new JournalingOrderRepository(
+                new OrderRepositoryImpl(), OrderJournal.open(journalPath), NO_BACKGROUND_FLUSH_MS)) {
+            repository.save(order);
+            repository.flush();
+            // Items written after the order's, so a rewritten item cannot get its old row ID back
+            repository.save(sampleOrder());
+            repository.flush();
+            Map<UUID, Long> rowIdsBefore = itemRowIds();
+
+            Order edited = repository.findById(order.getOrderId()).orElseThrow();
+            OrderItem added = new OrderItem(UUID.randomUUID(), "Water", 1, new BigDecimal("2.00"));
+            edited.addItem(added);
+            repository.save(edited);
+            // Orders read back from the journal carry no database state of their own
+            Order journaled = repository.findById(order.getOrderId()).orElseThrow();
+            journaled.setNotes("Extra ice");
+            repository.save(journaled);
+            repository.flush();
+
+            Map<UUID, Long> rowIdsAfter = itemRowIds();
+            assertEquals(3, rowIdsAfter.size());
+            assertEquals(rowIdsBefore.get(kept.getOrderItemId()), rowIdsAfter.get(kept.getOrderItemId()));
+            Order stored = new OrderRepositoryImpl().findById(order.getOrderId()).orElseThrow();
+            assertEquals("Extra ice", stored.getNotes());
+            assertEquals(0, new BigDecimal("8.50").compareTo(stored.getTotalAmount()));
+            assertNotNull(stored.findItem(added.getOrderItemId()));
+        }
+    }
+
+    @Test
+    void testChangeLogRecordsTheChangesOfEachFlush() throws IOException {
+        openDatabase();
+        ChangeLogRepositoryImpl changeLog = new ChangeLogRepositoryImpl();
+        Order order = sampleOrder();
+        try (JournalingOrderRepository repository = new JournalingOrderRepository(
+                new OrderRepositoryImpl(), OrderJournal.open(journalPath), NO_BACKGROUND_FLUSH_MS)) {
+            repository.save(order);
+            repository.flush();
+            assertEquals(1, changeLog.countPending());
+
+            // Recording the sync itself is not a change the CRS needs to hear about
+            order.markAsSynced("CRS-1");
+            repository.save(order);
+            repository.flush();
+            assertEquals(1, changeLog.countPending());
+
+            Order edited = repository.findById(order.getOrderId()).orElseThrow();
+            edited.setNotes("Extra ice");
+            repository.save(edited);
+            repository.flush();
+
+            List<OrderDelta> deltas = changeLog.findAfter(0, 10);
+            assertEquals(2, deltas.size());
+            assertTrue(deltas.get(0).getDelta().contains("\"op\":\"CREATE\""));
+            assertEquals("{\"op\":\"UPDATE\",\"fields\":{\"notes\":\"Extra ice\"}}", deltas.get(1).getDelta());
+        }
+    }
+
+    @Test
+    void testOnlyRecentlyFlushedOrdersAreKeptInMemory() throws IOException {
+        List<Order> older = sampleOrders(JournalingOrderRepository.APPLIED_CACHE_SIZE);
+        List<Order> newer = sampleOrders(JournalingOrderRepository.APPLIED_CACHE_SIZE);
+        Order evicted = older.get(0);
+        Order kept = newer.get(0);
+        try (JournalingOrderRepository repository = new JournalingOrderRepository(
+                delegate, OrderJournal.open(journalPath), NO_BACKGROUND_FLUSH_MS)) {
+            repository.saveAll(older);
+            repository.flush();
+            repository.saveAll(newer);
+            repository.flush();
+
+            evicted.setNotes("Extra ice");
+            kept.setNotes("Extra ice");
+            repository.saveAll(List.of(evicted, kept));
+            repository.flush();
+
+            // Only the order flushed before the newer ones were has its stored state loaded again
+            verify(delegate, times(2)).findById(evicted.getOrderId());
+            verify(delegate, times(1)).findById(kept.getOrderId());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Order> capturedSaves() {
+        ArgumentCaptor<Collection<Order>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(delegate).saveAll(captor.capture());
+        return List.copyOf(captor.getValue());
+    }
+
+    private void openDatabase() {
+        SQLiteConnection.configure(DatabaseConfig.builder()
+                .databasePath(tempDir.resolve("journal-test.db").toString())
+                .build());
+        SQLiteConnection.initializeDatabase();
+    }
+
+    private static Map<UUID, Long> itemRowIds() throws SQLException {
+        Map<UUID, Long> rowIds = new HashMap<>();
+        StorageFormat format = SQLiteConnection.getConfig().getStorageFormat();
+        try (Connection conn = SQLiteConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT rowid, order_item_id FROM order_items");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rowIds.put(format.getUuid(rs, "order_item_id"), rs.getLong("rowid"));
+            }
+        }
+        return rowIds;
+    }
+
+    private static List<Order> sampleOrders(int count) {
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(sampleOrder());
+        }
+        return orders;
+    }
+
+    private static Order sampleOrder() {
+        Order order = new Order(UUID.randomUUID(), "14F");
+        order.setNotes("No ice");
+        order.setCreatedAt(LocalDateTime.of(2024, 5, 2, 9, 30, 15, 250_000_000));
+        OrderItem item = new OrderItem(UUID.randomUUID(), "Orange juice", 2, new BigDecimal("3.25"));
+        item.setSpecialInstructions("Chilled");
+        order.addItem(item);
+        return order;
+    }
+
+    private static void assertSameOrder(Order expected, Order actual) {
+        assertEquals(expected.getOrderId(), actual.getOrderId());
+        assertEquals(expected.getPassengerId(), actual.getPassengerId());
+        assertEquals(expected.getSeatNumber(), actual.getSeatNumber());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getNotes(), actual.getNotes());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+        assertEquals(expected.getConfirmedAt(), actual.getConfirmedAt());
+        assertEquals(expected.getSyncVersion(), actual.getSyncVersion());
+        assertEquals(expected.getTotalAmount(), actual.getTotalAmount());
+        assertEquals(1, actual.getItems().size());
+        assertTrue(expected.getItems().get(0).hasSameContent(actual.getItems().get(0)));
+        assertEquals(expected.getItems().get(0).getUpdatedAt(), actual.getItems().get(0).getUpdatedAt());
+    }
+}
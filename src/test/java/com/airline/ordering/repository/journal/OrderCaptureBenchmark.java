@@ -0,0 +1,162 @@
+package com.airline.ordering.repository.journal;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.repository.OrderRepository;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+import com.airline.ordering.repository.impl.OrderRepositoryImpl;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures tap-to-ack latency of saving an order directly through {@link OrderRepositoryImpl} and through the
+ * write-behind {@link JournalingOrderRepository}, with one device and with several devices saving at once.
+ * Then measures the background flush of edits to existing orders, which writes only what each edit changed,
+ * against rewriting the edited orders in full.
+ * <p>
+ * Not part of the unit test run; execute {@link #main(String[])} with the test classpath.
+ */
+public class OrderCaptureBenchmark {
+
+    private static final int SAVES_PER_THREAD = 500;
+    private static final int[] THREAD_COUNTS = {1, 8};
+    private static final int EDITED_ORDERS = 500;
+    private static final int EDIT_ROUNDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("order-capture-benchmark");
+        DatabaseConfig config = DatabaseConfig.builder()
+                .databasePath(dir.resolve("benchmark.db").toString())
+                .build();
+        SQLiteConnection.configure(config);
+        SQLiteConnection.initializeDatabase();
+        try {
+            OrderRepositoryImpl direct = new OrderRepositoryImpl();
+            System.out.printf("%-10s %8s %12s %12s %12s%n", "", "threads", "mean us", "p50 us", "p99 us");
+            for (int threads : THREAD_COUNTS) {
+                measure(direct, threads).print("Direct", threads);
+            }
+            OrderJournal journal = OrderJournal.open(Path.of(config.getOrderJournalPath()));
+            try (JournalingOrderRepository journaled = new JournalingOrderRepository(direct, journal,
+                    config.getJournalFlushIntervalMs())) {
+                for (int threads : THREAD_COUNTS) {
+                    measure(journaled, threads).print("Journaled", threads);
+                }
+                journaled.flush();
+                System.out.printf("Journal: %d entries in %d syncs, %d flushes%n",
+                        journal.getAppendedEntryCount(), journal.getSyncCount(), journaled.getFlushCount());
+                measureEditFlushes(direct, journaled);
+            }
+        } finally {
+            SQLiteConnection.shutdown();
+            deleteRecursively(dir);
+        }
+    }
+
+    private static Result measure(OrderRepository repository, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String seat = (t + 1) + "C";
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[SAVES_PER_THREAD];
+                    for (int i = 0; i < SAVES_PER_THREAD; i++) {
+                        Order order = new Order(UUID.randomUUID(), seat);
+                        order.addItem(new OrderItem(UUID.randomUUID(), "Coffee", 1, new BigDecimal("3.50")));
+                        order.addItem(new OrderItem(UUID.randomUUID(), "Croissant", 2, new BigDecimal("2.75")));
+                        long start = System.nanoTime();
+                        repository.save(order);
+                        latencies[i] = System.nanoTime() - start;
+                    }
+                    return latencies;
+                }));
+            }
+            long[] all = new long[threads * SAVES_PER_THREAD];
+            for (int t = 0; t < threads; t++) {
+                System.arraycopy(futures.get(t).get(), 0, all, t * SAVES_PER_THREAD, SAVES_PER_THREAD);
+            }
+            return new Result(all);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Adds an item to each of a set of orders through the journal and times the flush that applies the edits,
+     * then times saving the same edits with every order and item rewritten, as a flush without the orders'
+     * stored state would.
+     */
+    private static void measureEditFlushes(OrderRepositoryImpl direct, JournalingOrderRepository journaled) {
+        List<UUID> orderIds = new ArrayList<>();
+        for (int i = 0; i < EDITED_ORDERS; i++) {
+            Order order = new Order(UUID.randomUUID(), (i % 30 + 1) + "D");
+            for (int j = 0; j < 4; j++) {
+                order.addItem(new OrderItem(UUID.randomUUID(), "Snack " + j, 1, new BigDecimal("2.50")));
+            }
+            journaled.save(order);
+            orderIds.add(order.getOrderId());
+        }
+        journaled.flush();
+
+        System.out.printf("%n%-10s %8s %12s%n", "Flush", "orders", "us/order");
+        long differential = 0;
+        long full = 0;
+        for (int round = 0; round < EDIT_ROUNDS; round++) {
+            for (UUID orderId : orderIds) {
+                Order order = journaled.findById(orderId).orElseThrow();
+                order.addItem(new OrderItem(UUID.randomUUID(), "Water", 1, new BigDecimal("2.00")));
+                journaled.save(order);
+            }
+            long start = System.nanoTime();
+            journaled.flush();
+            differential += System.nanoTime() - start;
+
+            List<Order> edited = new ArrayList<>();
+            for (UUID orderId : orderIds) {
+                Order order = direct.findById(orderId).orElseThrow();
+                order.addItem(new OrderItem(UUID.randomUUID(), "Water", 1, new BigDecimal("2.00")));
+                order.clearPersistedState();
+                edited.add(order);
+            }
+            start = System.nanoTime();
+            direct.saveAll(edited);
+            full += System.nanoTime() - start;
+        }
+        int edits = EDITED_ORDERS * EDIT_ROUNDS;
+        System.out.printf("%-10s %8d %12.1f%n", "Changes", EDITED_ORDERS, differential / 1_000.0 / edits);
+        System.out.printf("%-10s %8d %12.1f%n", "Rewrite", EDITED_ORDERS, full / 1_000.0 / edits);
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted((a, b) -> b.getNameCount() - a.getNameCount()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static final class Result {
+        private final long[] latencies;
+
+        private Result(long[] latencies) {
+            this.latencies = latencies.clone();
+            Arrays.sort(this.latencies);
+        }
+
+        private void print(String label, int threads) {
+            double mean = Arrays.stream(latencies).average().orElse(0) / 1_000.0;
+            System.out.printf("%-10s %8d %12.1f %12.1f %12.1f%n", label, threads, mean,
+                    latencies[latencies.length / 2] / 1_000.0, latencies[latencies.length * 99 / 100] / 1_000.0);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.airline.ordering.repository.migration;
+
+import com.airline.ordering.repository.connection.ConnectionPool;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+import com.airline.ordering.repository.connection.SQLiteWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaMigratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SQLiteWriter writer;
+    private ConnectionPool readers;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DatabaseConfig config = DatabaseConfig.builder()
+                .databasePath(tempDir.resolve("migration-test.db").toString())
+                .build();
+        writer = new SQLiteWriter(config);
+        readers = new ConnectionPool(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+        readers.close();
+    }
+
+    @Test
+    void testMigrateAppliesAllMigrationsOnce() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator(Migrations.all());
+
+        assertEquals(Migrations.all().size(), migrator.migrate(writer));
+        assertEquals(migrator.getLatestVersion(), currentVersion());
+        assertEquals(0, migrator.migrate(writer));
+    }
+
+    @Test
+    void testMigrateUpgradesLegacyDatabaseWithoutVersionTable() throws SQLException {
+        Migration baseline = Migrations.all().get(0);
+        writer.execute(conn -> {
+            baseline.apply(conn);
+            return null;
+        });
+
+        SchemaMigrator migrator = new SchemaMigrator(Migrations.all());
+        assertEquals(Migrations.all().size(), migrator.migrate(writer));
+        assertEquals(migrator.getLatestVersion(), currentVersion());
+    }
+
+    @Test
+    void testUnsyncedOrdersQueryUsesPartialIndex() throws SQLException {
+        new SchemaMigrator(Migrations.all()).migrate(writer);
+
+        String plan = queryPlan("SELECT * FROM orders WHERE synced_with_crs = 0 AND (status = 'PENDING' OR status = 'CONFIRMED')");
+        assertTrue(plan.contains("idx_orders_unsynced"), plan);
+        assertTrue(queryPlan("SELECT * FROM order_items WHERE order_id IN ('a', 'b')").contains("idx_order_items_order_id"));
+        assertTrue(queryPlan("SELECT * FROM passengers WHERE seat_number = '12A'").contains("idx_passengers_seat_number"));
+    }
+
+    @Test
+    void testFailedMigrationKeepsEarlierVersions() throws SQLException {
+        List<Migration> migrations = new ArrayList<>(Migrations.all());
+        migrations.add(SqlMigration.of(99, "Broken", "CREATE TABLE broken (", "SELECT 1"));
+        SchemaMigrator migrator = new SchemaMigrator(migrations);
+
+        assertThrows(SQLException.class, () -> migrator.migrate(writer));
+        assertEquals(Migrations.all().size(), currentVersion());
+    }
+
+    @Test
+    void testNewerDatabaseIsLeftUntouched() throws SQLException {
+        int future = Migrations.all().size() + 1;
+        new SchemaMigrator(Arrays.asList(SqlMigration.of(future, "Future", "CREATE TABLE future (id INTEGER)"))).migrate(writer);
+
+        assertEquals(0, new SchemaMigrator(Migrations.all()).migrate(writer));
+        assertEquals(future, currentVersion());
+    }
+
+    @Test
+    void testDuplicateVersionsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SchemaMigrator(Arrays.asList(
+                SqlMigration.of(1, "First", "SELECT 1"),
+                SqlMigration.of(1, "Second", "SELECT 1"))));
+    }
+
+    private int currentVersion() throws SQLException {
+        try (Connection conn = readers.getConnection()) {
+            return SchemaMigrator.getCurrentVersion(conn);
+        }
+    }
+
+    private String queryPlan(String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Connection conn = readers.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("EXPLAIN QUERY PLAN " + sql)) {
+            while (rs.next()) {
+                plan.append(rs.getString("detail")).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,183 @@
+package com.airline.ordering.repository.migration;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.repository.connection.ConnectionPool;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+import com.airline.ordering.repository.connection.SQLiteWriter;
+import com.airline.ordering.repository.connection.StorageFormat;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageFormatConverterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SQLiteWriter writer;
+    private ConnectionPool readers;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DatabaseConfig config = DatabaseConfig.builder()
+                .databasePath(tempDir.resolve("format-test.db").toString())
+                .build();
+        writer = new SQLiteWriter(config);
+        readers = new ConnectionPool(config);
+        new SchemaMigrator(Migrations.all()).migrate(writer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+        readers.close();
+    }
+
+    @Test
+    void testRoundTripPreservesOrdersAndItems() throws SQLException {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_000_000);
+        Order order = new Order(UUID.randomUUID(), "12C");
+        order.setCreatedAt(createdAt);
+        order.setConfirmedAt(createdAt.plusMinutes(5));
+        OrderItem item = new OrderItem(UUID.randomUUID(), "Coffee", 2, new BigDecimal("3.45"));
+        insert(StorageFormat.TEXT, order, item);
+
+        StorageFormatConverter converter = new StorageFormatConverter();
+        assertTrue(converter.ensureFormat(writer, StorageFormat.TYPED));
+        assertFalse(converter.ensureFormat(writer, StorageFormat.TYPED));
+
+        try (Connection conn = readers.getConnection()) {
+            assertEquals(StorageFormat.TYPED, StorageFormatConverter.detectFormat(conn));
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT typeof(order_id), typeof(created_at), typeof(total_amount) FROM orders")) {
+                assertTrue(rs.next());
+                assertEquals("blob", rs.getString(1));
+                assertEquals("integer", rs.getString(2));
+                assertEquals("integer", rs.getString(3));
+            }
+            assertOrderStored(conn, StorageFormat.TYPED, order, item);
+            assertIndexExists(conn, "idx_order_items_order_id");
+            assertIndexExists(conn, "idx_orders_unsynced");
+        }
+
+        assertTrue(converter.ensureFormat(writer, StorageFormat.TEXT));
+        try (Connection conn = readers.getConnection()) {
+            assertEquals(StorageFormat.TEXT, StorageFormatConverter.detectFormat(conn));
+            assertOrderStored(conn, StorageFormat.TEXT, order, item);
+        }
+    }
+
+    @Test
+    void testConvertedTablesKeepCascadingDelete() throws SQLException {
+        Order order = new Order(UUID.randomUUID(), "3A");
+        OrderItem item = new OrderItem(UUID.randomUUID(), "Tea", 1, new BigDecimal("2.00"));
+        insert(StorageFormat.TEXT, order, item);
+        new StorageFormatConverter().ensureFormat(writer, StorageFormat.TYPED);
+
+        writer.execute(conn -> {
+            try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM orders WHERE order_id = ?")) {
+                StorageFormat.TYPED.setUuid(pstmt, 1, order.getOrderId());
+                return pstmt.executeUpdate();
+            }
+        });
+
+        try (Connection conn = readers.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM order_items")) {
+            assertTrue(rs.next());
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void testFractionsOfACentAreNotRoundedAway() throws SQLException {
+        assertEquals(StorageFormat.TEXT, DatabaseConfig.builder().build().getStorageFormat());
+        Order order = new Order(UUID.randomUUID(), "8D");
+        OrderItem item = new OrderItem(UUID.randomUUID(), "Fuel surcharge", 2, new BigDecimal("0.125"));
+        insert(StorageFormat.TEXT, order, item);
+
+        assertThrows(SQLException.class, () -> new StorageFormatConverter().ensureFormat(writer, StorageFormat.TYPED));
+        try (Connection conn = readers.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT unit_price FROM order_items")) {
+            assertEquals(StorageFormat.TEXT, StorageFormatConverter.detectFormat(conn));
+            assertTrue(rs.next());
+            assertEquals(0, new BigDecimal("0.125").compareTo(StorageFormat.TEXT.getMoney(rs, "unit_price")));
+        }
+    }
+
+    private void insert(StorageFormat format, Order order, OrderItem item) throws SQLException {
+        writer.execute(conn -> {
+            String orderSql = "INSERT INTO orders (order_id, passenger_id, seat_number, total_amount, status, " +
+                    "created_at, updated_at, confirmed_at, synced_with_crs, sync_version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, 0)";
+            try (PreparedStatement pstmt = conn.prepareStatement(orderSql)) {
+                format.setUuid(pstmt, 1, order.getOrderId());
+                format.setUuid(pstmt, 2, order.getPassengerId());
+                pstmt.setString(3, order.getSeatNumber());
+                format.setMoney(pstmt, 4, item.getTotalPrice());
+                pstmt.setString(5, order.getStatus().name());
+                format.setTimestamp(pstmt, 6, order.getCreatedAt());
+                format.setTimestamp(pstmt, 7, order.getCreatedAt());
+                format.setTimestamp(pstmt, 8, order.getConfirmedAt());
+                pstmt.executeUpdate();
+            }
+            String itemSql = "INSERT INTO order_items (order_item_id, order_id, menu_item_id, menu_item_name, quantity, " +
+                    "unit_price, total_price, status, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            try (PreparedStatement pstmt = conn.prepareStatement(itemSql)) {
+                format.setUuid(pstmt, 1, item.getOrderItemId());
+                format.setUuid(pstmt, 2, order.getOrderId());
+                format.setUuid(pstmt, 3, item.getMenuItemId());
+                pstmt.setString(4, item.getMenuItemName());
+                pstmt.setInt(5, item.getQuantity());
+                format.setMoney(pstmt, 6, item.getUnitPrice());
+                format.setMoney(pstmt, 7, item.getTotalPrice());
+                pstmt.setString(8, item.getStatus().name());
+                format.setTimestamp(pstmt, 9, order.getCreatedAt());
+                format.setTimestamp(pstmt, 10, order.getCreatedAt());
+                pstmt.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    private void assertOrderStored(Connection conn, StorageFormat format, Order order, OrderItem item) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT o.*, i.order_item_id, i.unit_price, i.total_price " +
+                     "FROM orders o JOIN order_items i ON i.order_id = o.order_id")) {
+            assertTrue(rs.next());
+            assertEquals(order.getOrderId(), format.getUuid(rs, "order_id"));
+            assertEquals(order.getPassengerId(), format.getUuid(rs, "passenger_id"));
+            assertEquals(order.getCreatedAt(), format.getTimestamp(rs, "created_at"));
+            assertEquals(order.getConfirmedAt(), format.getTimestamp(rs, "confirmed_at"));
+            assertNull(format.getTimestamp(rs, "delivered_at"));
+            assertEquals(0, item.getTotalPrice().compareTo(format.getMoney(rs, "total_amount")));
+            assertEquals(item.getOrderItemId(), format.getUuid(rs, "order_item_id"));
+            assertEquals(0, new BigDecimal("3.45").compareTo(format.getMoney(rs, "unit_price")));
+            assertEquals(0, new BigDecimal("6.90").compareTo(format.getMoney(rs, "total_price")));
+            assertFalse(rs.next());
+        }
+    }
+
+    private void assertIndexExists(Connection conn, String name) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT 1 FROM sqlite_master WHERE type = 'index' AND name = ?")) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                assertTrue(rs.next(), "Missing index " + name);
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.airline.ordering.service.impl;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.MenuItemRepository;
+import com.airline.ordering.service.inventory.InventoryEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MenuServiceImplTest {
+    
+    private InventoryEngine inventory;
+    private MenuServiceImpl menuService;
+    private MenuItem tea;
+    
+    @BeforeEach
+    void setUp() {
+        tea = new MenuItem("Tea", "Black tea", new BigDecimal("2.50"), MenuCategory.BEVERAGE);
+        tea.addAvailableForType(PassengerType.ECONOMY);
+        tea.setInventoryCount(10);
+        MenuItemRepository menuItemRepository = mock(MenuItemRepository.class);
+        when(menuItemRepository.findAll()).thenReturn(List.of(tea));
+        when(menuItemRepository.updateInventoryCounts(any())).thenReturn(BulkWriteResult.empty());
+        inventory = new InventoryEngine(menuItemRepository, 60_000, 60_000);
+        menuService = new MenuServiceImpl(menuItemRepository, inventory);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        inventory.close();
+    }
+    
+    @Test
+    void testListedItemsAreReadOnlyAndCarryTheLiveInventoryCount() {
+        MenuItem listed = menuService.getAvailableMenuItems(PassengerType.ECONOMY).get(0);
+        assertThrows(UnsupportedOperationException.class, () -> listed.setName("Changed by a caller"));
+        assertThrows(UnsupportedOperationException.class, () -> listed.setPrice(BigDecimal.ZERO));
+        assertTrue(menuService.reserveInventory(tea.getItemId(), 3));
+        
+        MenuItem relisted = menuService.getMenuItemsByCategory(MenuCategory.BEVERAGE, PassengerType.ECONOMY).get(0);
+        assertSame(listed, relisted);
+        assertEquals("Tea", relisted.getName());
+        assertEquals(7, relisted.getInventoryCount());
+        
+        // A copy can be changed, and starts from the live count
+        MenuItem copy = new MenuItem(listed);
+        copy.setPrice(new BigDecimal("3.00"));
+        assertEquals(7, copy.getInventoryCount());
+        assertEquals(0, new BigDecimal("2.50").compareTo(listed.getPrice()));
+    }
+}
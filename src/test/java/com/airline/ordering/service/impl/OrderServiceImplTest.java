@@ -0,0 +1,259 @@
+package com.airline.ordering.service.impl;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.Passenger;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.connection.DatabaseConfig;
+import com.airline.ordering.repository.impl.MenuItemRepositoryImpl;
+import com.airline.ordering.repository.impl.OrderRepositoryImpl;
+import com.airline.ordering.repository.impl.PassengerRepositoryImpl;
+import com.airline.ordering.repository.journal.JournalingOrderRepository;
+import com.airline.ordering.repository.journal.OrderJournal;
+import com.airline.ordering.service.MenuService;
+import com.airline.ordering.service.OrderConflictException;
+import com.airline.ordering.service.inventory.InventoryEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderServiceImplTest {
+    
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 25;
+    private static final int INITIAL_STOCK = 60;
+    private static final long NO_BACKGROUND_WORK_MS = 60_000;
+    
+    @TempDir
+    Path tempDir;
+    
+    private OrderServiceImpl orderService;
+    private PassengerRepositoryImpl passengerRepository;
+    private MenuItemRepositoryImpl menuItemRepository;
+    private InventoryEngine inventory;
+    private MenuService menuService;
+    private Passenger passenger;
+    private MenuItem coffee;
+    
+    @BeforeEach
+    void setUp() {
+        SQLiteConnection.configure(DatabaseConfig.builder()
+                .databasePath(tempDir.resolve("order-service-test.db").toString())
+                .build());
+        SQLiteConnection.initializeDatabase();
+        
+        passenger = new Passenger("Ada", "Lovelace", "ada@example.com", "2A", PassengerType.BUSINESS);
+        passengerRepository = new PassengerRepositoryImpl();
+        passengerRepository.save(passenger);
+        
+        coffee = new MenuItem("Coffee", "Hot coffee", new BigDecimal("3.50"), MenuCategory.BEVERAGE);
+        coffee.addAvailableForType(PassengerType.BUSINESS);
+        coffee.setInventoryCount(INITIAL_STOCK);
+        menuItemRepository = new MenuItemRepositoryImpl();
+        menuItemRepository.save(coffee);
+        inventory = new InventoryEngine(menuItemRepository, NO_BACKGROUND_WORK_MS, NO_BACKGROUND_WORK_MS);
+        menuService = new MenuServiceImpl(menuItemRepository, inventory);
+        
+        orderService = new OrderServiceImpl(new OrderRepositoryImpl(), passengerRepository, menuService, 4);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        inventory.close();
+        SQLiteConnection.shutdown();
+        SQLiteConnection.configure(DatabaseConfig.fromSystemProperties());
+    }
+    
+    @Test
+    void testConcurrentChangesAreNeitherLostNorInterleaved() throws Exception {
+        List<UUID> orderIds = new ArrayList<>();
+        Map<UUID, AtomicInteger> committed = new ConcurrentHashMap<>();
+        for (int i = 0; i < 6; i++) {
+            Order order = orderService.createOrder(passenger);
+            orderIds.add(order.getOrderId());
+            committed.put(order.getOrderId(), new AtomicInteger());
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    UUID orderId = orderIds.get(random.nextInt(orderIds.size()));
+                    try {
+                        applyRandomChange(orderId, random);
+                        committed.get(orderId).incrementAndGet();
+                    } catch (IllegalArgumentException e) {
+                        // Item removed by another device or out of stock; nothing was written
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        
+        int orderedQuantity = 0;
+        for (UUID orderId : orderIds) {
+            Order order = orderService.getOrder(orderId).orElseThrow();
+            assertEquals(1 + committed.get(orderId).get(), order.getSyncVersion(), "Lost update on " + orderId);
+            BigDecimal itemTotal = BigDecimal.ZERO;
+            for (OrderItem item : order.getItems()) {
+                orderedQuantity += item.getQuantity();
+                itemTotal = itemTotal.add(item.getTotalPrice());
+            }
+            assertEquals(0, itemTotal.compareTo(order.getTotalAmount()));
+        }
+        // All orders are drafts, so what they ordered is held
+        assertEquals(orderedQuantity, inventory.getHeld(coffee.getItemId()), "Inventory holds out of step with orders");
+        assertEquals(INITIAL_STOCK, inventory.getAvailable(coffee.getItemId()) + orderedQuantity);
+    }
+    
+    @Test
+    void testSaveFromStaleCopyIsRejected() {
+        Order order = orderService.createOrder(passenger);
+        Order firstCopy = orderService.getOrder(order.getOrderId()).orElseThrow();
+        Order secondCopy = orderService.getOrder(order.getOrderId()).orElseThrow();
+        
+        firstCopy.setNotes("Window seat, no ice");
+        orderService.saveOrder(firstCopy);
+        assertEquals(2, firstCopy.getSyncVersion());
+        
+        secondCopy.setNotes("Extra napkins");
+        OrderConflictException conflict = assertThrows(OrderConflictException.class,
+                () -> orderService.saveOrder(secondCopy));
+        assertEquals(1, conflict.getExpectedVersion());
+        assertEquals(2, conflict.getActualVersion());
+        assertEquals("Window seat, no ice", orderService.getOrder(order.getOrderId()).orElseThrow().getNotes());
+        assertEquals(1, orderService.getConflictCount());
+    }
+    
+    @Test
+    void testEachChangeMovesTheVersionOnceAndSyncsDoNot() {
+        UUID orderId = orderService.createOrder(passenger).getOrderId();
+        orderService.addItemToOrder(orderId, coffee.getItemId(), 1, null);
+        assertEquals(3, orderService.submitOrder(orderId).getSyncVersion());
+        
+        orderService.markOrderAsSynced(orderId, "CRS-1");
+        orderService.markOrderSyncFailed(orderId);
+        Order synced = orderService.getOrder(orderId).orElseThrow();
+        assertTrue(synced.isSyncedWithCrs());
+        assertEquals(3, synced.getSyncVersion());
+        
+        Order changed = orderService.addItemToOrder(orderId, coffee.getItemId(), 1, null);
+        assertFalse(changed.isSyncedWithCrs());
+        assertEquals(4, changed.getSyncVersion());
+        
+        orderService.markOrderAsSynced(orderId, "CRS-1");
+        Order copy = orderService.getOrder(orderId).orElseThrow();
+        copy.addItem(new OrderItem(coffee.getItemId(), "Coffee", 1, new BigDecimal("3.50")));
+        assertEquals(5, orderService.saveOrder(copy).getSyncVersion());
+        assertEquals(5, orderService.getOrder(orderId).orElseThrow().getSyncVersion());
+        assertEquals(0, orderService.getConflictCount());
+    }
+    
+    @Test
+    void testSaveOfSyncedCopyReadBeforeJournalFlushIsAccepted() throws IOException {
+        try (JournalingOrderRepository orderRepository = new JournalingOrderRepository(new OrderRepositoryImpl(),
+                OrderJournal.open(tempDir.resolve("orders.journal")), 60_000)) {
+            OrderServiceImpl journaledService =
+                    new OrderServiceImpl(orderRepository, passengerRepository, menuService, 4);
+            UUID orderId = journaledService.createOrder(passenger).getOrderId();
+            journaledService.markOrderAsSynced(orderId, "CRS-1");
+            assertEquals(1, orderRepository.getPendingCount());
+            
+            Order copy = journaledService.getOrder(orderId).orElseThrow();
+            copy.addItem(new OrderItem(coffee.getItemId(), "Coffee", 1, new BigDecimal("3.50")));
+            assertEquals(2, copy.getSyncVersion());
+            assertEquals(2, journaledService.saveOrder(copy).getSyncVersion());
+            
+            orderRepository.flush();
+            Order stored = journaledService.getOrder(orderId).orElseThrow();
+            assertEquals(2, stored.getSyncVersion());
+            assertEquals(1, stored.getItems().size());
+            assertEquals(0, journaledService.getConflictCount());
+        }
+    }
+    
+    @Test
+    void testDraftHoldsAreCommittedOnSubmitAndReleasedOnCancel() {
+        UUID coffeeId = coffee.getItemId();
+        UUID submitted = orderService.createOrder(passenger).getOrderId();
+        orderService.addItemToOrder(submitted, coffeeId, 2, null);
+        assertEquals(2, inventory.getHeld(coffeeId));
+        orderService.submitOrder(submitted);
+        assertEquals(0, inventory.getHeld(coffeeId));
+        assertEquals(INITIAL_STOCK - 2, inventory.getAvailable(coffeeId));
+        
+        UUID cancelled = orderService.createOrder(passenger).getOrderId();
+        Order draft = orderService.addItemToOrder(cancelled, coffeeId, 3, null);
+        orderService.updateItemQuantity(cancelled, draft.getItems().get(0).getOrderItemId(), 1);
+        assertEquals(1, inventory.getHeld(coffeeId));
+        orderService.cancelOrder(cancelled, "Changed mind");
+        
+        assertEquals(0, inventory.getHeld(coffeeId));
+        assertEquals(0, inventory.getReservationCount());
+        assertEquals(INITIAL_STOCK - 2, inventory.getAvailable(coffeeId));
+    }
+    
+    @Test
+    void testAbandonedDraftGivesItsInventoryBackAndTakesItAgainOnSubmit() throws InterruptedException {
+        UUID coffeeId = coffee.getItemId();
+        OrderServiceImpl draftService = new OrderServiceImpl(new OrderRepositoryImpl(), passengerRepository,
+                new MenuServiceImpl(menuItemRepository, inventory, Duration.ofMillis(1)), 4);
+        UUID orderId = draftService.createOrder(passenger).getOrderId();
+        draftService.addItemToOrder(orderId, coffeeId, 2, null);
+        assertEquals(2, inventory.getHeld(coffeeId));
+        
+        Thread.sleep(5);
+        assertEquals(1, inventory.expireReservations());
+        assertEquals(INITIAL_STOCK, inventory.getAvailable(coffeeId));
+        
+        draftService.submitOrder(orderId);
+        assertEquals(0, inventory.getHeld(coffeeId));
+        assertEquals(INITIAL_STOCK - 2, inventory.getAvailable(coffeeId));
+    }
+    
+    private void applyRandomChange(UUID orderId, ThreadLocalRandom random) {
+        List<OrderItem> items = orderService.getOrder(orderId).orElseThrow().getItems();
+        int choice = items.isEmpty() ? 0 : random.nextInt(3);
+        if (choice == 0) {
+            orderService.addItemToOrder(orderId, coffee.getItemId(), 1 + random.nextInt(2), null);
+        } else {
+            UUID itemId = items.get(random.nextInt(items.size())).getOrderItemId();
+            if (choice == 1) {
+                orderService.updateItemQuantity(orderId, itemId, 1 + random.nextInt(3));
+            } else {
+                orderService.removeItemFromOrder(orderId, itemId);
+            }
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.airline.ordering.service.impl;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.Passenger;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.MenuItemRepository;
+import com.airline.ordering.repository.PassengerRepository;
+import com.airline.ordering.service.MenuService;
+import com.airline.ordering.service.ValidationService.ValidationResult;
+import com.airline.ordering.service.inventory.InventoryEngine;
+import com.airline.ordering.service.menu.MenuSnapshot;
+import com.airline.ordering.service.menu.MenuTagIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ValidationServiceImplTest {
+    
+    private MenuTagIndex tagIndex;
+    private ValidationServiceImpl validationService;
+    private MenuItem curry;
+    private MenuItem brownie;
+    
+    @BeforeEach
+    void setUp() {
+        curry = new MenuItem("Chickpea curry", "Mild curry", new BigDecimal("14.00"), MenuCategory.MAIN_COURSE);
+        curry.setDietaryTags(Set.of("vegan", "Halal"));
+        curry.setAllergens(Set.of("mustard"));
+        brownie = new MenuItem("Brownie", "Chocolate brownie", new BigDecimal("4.50"), MenuCategory.DESSERT);
+        brownie.setDietaryTags(Set.of("vegetarian"));
+        brownie.setAllergens(Set.of("gluten", "milk", "eggs"));
+        
+        tagIndex = new MenuTagIndex();
+        tagIndex.put(curry);
+        tagIndex.put(brownie);
+        MenuSnapshot menu = MenuSnapshot.of(List.of(curry, brownie), tagIndex);
+        validationService = new ValidationServiceImpl(mock(MenuService.class), mock(PassengerRepository.class),
+                tagIndex, () -> menu);
+    }
+    
+    @Test
+    void testDietaryRequirementsAreMatchedPerItem() {
+        assertTrue(validationService.validateDietaryRequirements(List.of(curry.getItemId()),
+                List.of("Gluten"), List.of("halal", "VEGAN")).isValid());
+        
+        UUID unknown = UUID.randomUUID();
+        ValidationResult result = validationService.validateDietaryRequirements(
+                List.of(curry.getItemId(), brownie.getItemId(), unknown),
+                List.of("milk", "Gluten", "peanuts"), List.of("vegetarian"));
+        assertEquals(List.of(
+                "Chickpea curry is not vegetarian",
+                "Brownie contains gluten, milk",
+                "Menu item not found: " + unknown), result.getErrors());
+    }
+    
+    @Test
+    void testTagsOnNoItemAreNotInterned() {
+        int knownTags = tagIndex.getDictionary().size();
+        
+        assertTrue(validationService.validateDietaryRequirements(List.of(curry.getItemId()),
+                List.of("Sesame"), List.of()).isValid());
+        ValidationResult result = validationService.validateDietaryRequirements(List.of(curry.getItemId()),
+                List.of(), List.of("Kosher", "vegan"));
+        
+        assertEquals(List.of("Chickpea curry is not kosher"), result.getErrors());
+        assertEquals(knownTags, tagIndex.getDictionary().size());
+        assertEquals(-1, tagIndex.getDictionary().idOf("sesame"));
+    }
+    
+    @Test
+    void testOrderHoldingTheLastUnitsIsValid() {
+        MenuItem pasta = new MenuItem("Pasta", "Penne arrabbiata", new BigDecimal("12.00"), MenuCategory.MAIN_COURSE);
+        pasta.addAvailableForType(PassengerType.ECONOMY);
+        pasta.setInventoryCount(2);
+        MenuItemRepository menuItemRepository = mock(MenuItemRepository.class);
+        when(menuItemRepository.findAll()).thenReturn(List.of(pasta));
+        when(menuItemRepository.updateInventoryCounts(any())).thenReturn(BulkWriteResult.empty());
+        Passenger passenger = new Passenger("Test", "User", "test@example.com", "12C", PassengerType.ECONOMY);
+        PassengerRepository passengerRepository = mock(PassengerRepository.class);
+        when(passengerRepository.findById(passenger.getPassengerId())).thenReturn(Optional.of(passenger));
+        
+        try (InventoryEngine inventory = new InventoryEngine(menuItemRepository, 60_000, 60_000)) {
+            MenuServiceImpl menuService = new MenuServiceImpl(menuItemRepository, inventory);
+            ValidationServiceImpl service = new ValidationServiceImpl(menuService, passengerRepository);
+            Order order = new Order(passenger.getPassengerId(), passenger.getSeatNumber());
+            // As OrderServiceImpl.addItemToOrder does, the stock is taken before the item is added
+            assertTrue(menuService.reserveInventory(pasta.getItemId(), 2));
+            order.addItem(new OrderItem(pasta.getItemId(), "Pasta", 2, new BigDecimal("12.00")));
+            
+            ValidationResult result = service.validateOrder(order);
+            assertTrue(result.isValid(), result.getErrors().toString());
+            assertEquals(List.of("Only 0 of 2 x Pasta in stock"),
+                    service.validateInventoryAvailability(order).getErrors());
+        }
+    }
+}
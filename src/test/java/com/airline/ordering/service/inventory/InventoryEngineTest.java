@@ -0,0 +1,225 @@
+package com.airline.ordering.service.inventory;
+
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.MenuItemRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class InventoryEngineTest {
+    
+    private static final long NO_BACKGROUND_WORK_MS = 60_000;
+    
+    private MenuItemRepository repository;
+    private InventoryEngine engine;
+    
+    @BeforeEach
+    void setUp() {
+        repository = mock(MenuItemRepository.class);
+        when(repository.updateInventoryCounts(any())).thenReturn(BulkWriteResult.empty());
+        engine = new InventoryEngine(repository, NO_BACKGROUND_WORK_MS, NO_BACKGROUND_WORK_MS);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        engine.close();
+    }
+    
+    @Test
+    void testNeverOversellsUnderContention() throws Exception {
+        UUID meal = UUID.randomUUID();
+        engine.track(meal, 500);
+        int threads = 8;
+        int attemptsPerThread = 200;
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            boolean useTokens = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                int served = 0;
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    if (useTokens) {
+                        Optional<ReservationToken> token = engine.reserve(meal, 1, Duration.ofMinutes(1));
+                        if (token.isPresent() && engine.commit(token.get())) {
+                            served++;
+                        }
+                    } else if (engine.tryConsume(meal, 1)) {
+                        served++;
+                    }
+                }
+                return served;
+            }));
+        }
+        start.countDown();
+        int served = 0;
+        for (Future<Integer> future : futures) {
+            served += future.get();
+        }
+        executor.shutdown();
+        
+        assertEquals(500, served);
+        assertEquals(0, engine.getAvailable(meal));
+        assertEquals(0, engine.getHeld(meal));
+        assertEquals(0, engine.getReservationCount());
+    }
+    
+    @Test
+    void testAbandonedReservationIsReleasedAfterTimeout() throws InterruptedException {
+        UUID meal = UUID.randomUUID();
+        engine.track(meal, 3);
+        ReservationToken abandoned = engine.reserve(meal, 2, Duration.ofMillis(1)).orElseThrow();
+        ReservationToken kept = engine.reserve(meal, 1, Duration.ofMinutes(1)).orElseThrow();
+        assertTrue(engine.reserve(meal, 1, Duration.ofMinutes(1)).isEmpty());
+        assertEquals(2 + 1, engine.getHeld(meal));
+        
+        Thread.sleep(5);
+        assertEquals(1, engine.expireReservations());
+        assertEquals(2, engine.getAvailable(meal));
+        assertFalse(engine.commit(abandoned));
+        assertTrue(engine.commit(kept));
+        assertEquals(0, engine.getHeld(meal));
+        assertEquals(2, engine.getAvailable(meal));
+    }
+    
+    @Test
+    void testReservationsOfAHolderEndTogether() {
+        UUID meal = UUID.randomUUID();
+        UUID committedHolder = UUID.randomUUID();
+        UUID cancelledHolder = UUID.randomUUID();
+        engine.track(meal, 10);
+        engine.reserve(committedHolder, meal, 2, Duration.ofMinutes(1)).orElseThrow();
+        engine.reserve(committedHolder, meal, 1, Duration.ofMinutes(1)).orElseThrow();
+        ReservationToken undone = engine.reserve(cancelledHolder, meal, 3, Duration.ofMinutes(1)).orElseThrow();
+        engine.reserve(cancelledHolder, meal, 4, Duration.ofMinutes(1)).orElseThrow();
+        assertTrue(engine.cancel(undone));
+        
+        assertEquals(3, engine.commitAll(committedHolder));
+        assertEquals(4, engine.cancelAll(cancelledHolder));
+        assertEquals(0, engine.commitAll(committedHolder));
+        assertEquals(0, engine.getReservationCount());
+        assertEquals(0, engine.getHeld(meal));
+        assertEquals(7, engine.getAvailable(meal));
+    }
+    
+    @Test
+    void testReservationsOfAHolderShrinkTogether() {
+        UUID meal = UUID.randomUUID();
+        UUID holder = UUID.randomUUID();
+        engine.track(meal, 10);
+        engine.reserve(holder, meal, 2, Duration.ofMinutes(1)).orElseThrow();
+        engine.reserve(holder, meal, 3, Duration.ofMinutes(1)).orElseThrow();
+        
+        assertEquals(5, engine.shrinkAll(holder, 7));
+        assertEquals(5, engine.getHeld(meal));
+        assertEquals(3, engine.shrinkAll(holder, 3));
+        assertEquals(3, engine.getHeld(meal));
+        assertEquals(7, engine.getAvailable(meal));
+        assertEquals(1, engine.shrinkAll(holder, 1));
+        assertEquals(1, engine.getReservationCount());
+        
+        assertEquals(1, engine.commitAll(holder));
+        assertEquals(0, engine.shrinkAll(holder, 1));
+        assertEquals(0, engine.getHeld(meal));
+        assertEquals(9, engine.getAvailable(meal));
+    }
+    
+    @Test
+    void testShrinkingHolderNeverLosesTheStockItKeeps() throws Exception {
+        UUID meal = UUID.randomUUID();
+        UUID holder = UUID.randomUUID();
+        int stock = 200;
+        engine.track(meal, stock);
+        engine.reserve(holder, meal, stock / 2, Duration.ofMinutes(1)).orElseThrow();
+        engine.reserve(holder, meal, stock / 2, Duration.ofMinutes(1)).orElseThrow();
+        
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> competitors = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            competitors.add(executor.submit(() -> {
+                start.await();
+                int taken = 0;
+                while (engine.getHeld(meal) > 0 || engine.getAvailable(meal) > 0) {
+                    if (engine.tryConsume(meal, 1)) {
+                        taken++;
+                    }
+                }
+                return taken;
+            }));
+        }
+        start.countDown();
+        try {
+            for (int keep = stock - 1; keep >= 0; keep--) {
+                assertEquals(keep, engine.shrinkAll(holder, keep));
+            }
+        } finally {
+            // Lets the competitors run out of stock and stop, whether or not the holder kept its stock
+            engine.cancelAll(holder);
+        }
+        int taken = 0;
+        for (Future<Integer> competitor : competitors) {
+            taken += competitor.get();
+        }
+        executor.shutdown();
+        
+        assertEquals(stock, taken);
+        assertEquals(0, engine.getAvailable(meal));
+    }
+    
+    @Test
+    void testReservationTakenBeforeRemovalDoesNotRestockTheTrackedAgainItem() {
+        UUID meal = UUID.randomUUID();
+        engine.track(meal, 5);
+        ReservationToken cancelled = engine.reserve(meal, 2, Duration.ofMinutes(1)).orElseThrow();
+        ReservationToken committed = engine.reserve(meal, 1, Duration.ofMinutes(1)).orElseThrow();
+        
+        engine.remove(meal);
+        assertEquals(0, engine.getReservationCount());
+        engine.track(meal, 4);
+        
+        assertFalse(engine.cancel(cancelled));
+        assertFalse(engine.commit(committed));
+        assertEquals(4, engine.getAvailable(meal));
+        assertEquals(0, engine.getHeld(meal));
+    }
+    
+    @Test
+    void testChangedCountsArePersistedInOneBatch() {
+        UUID coffee = UUID.randomUUID();
+        UUID tea = UUID.randomUUID();
+        UUID juice = UUID.randomUUID();
+        engine.track(coffee, 10);
+        engine.track(tea, 10);
+        engine.track(juice, 10);
+        assertEquals(0, engine.flush());
+        
+        engine.tryConsume(coffee, 2);
+        engine.tryConsume(coffee, 1);
+        engine.reserve(tea, 4, Duration.ofMinutes(1));
+        engine.restock(juice, 5);
+        
+        // A pending reservation does not change the stored count; tea is not written
+        assertEquals(2, engine.flush());
+        verify(repository).updateInventoryCounts(Map.of(coffee, 7, juice, 15));
+        assertEquals(0, engine.flush());
+    }
+}
@@ -0,0 +1,104 @@
+package com.airline.ordering.service.menu;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Compares checking a tray of menu items against a passenger profile through the items' {@code Set<String>}
+ * getters with the same check through {@link MenuTagIndex} masks.
+ * <p>
+ * Not part of the unit test run; execute {@link #main(String[])} with the test classpath.
+ */
+public class DietaryMatchingBenchmark {
+    
+    private static final String[] ALLERGENS = {"gluten", "milk", "eggs", "peanuts", "tree nuts", "soy", "fish",
+            "shellfish", "sesame", "mustard", "celery", "lupin", "sulphites", "molluscs"};
+    private static final String[] DIETARY_TAGS = {"vegetarian", "vegan", "halal", "kosher", "gluten-free",
+            "dairy-free", "low-sodium", "diabetic", "hindu", "low-fat"};
+    private static final int MENU_SIZE = 80;
+    private static final int TRAY_SIZE = 10;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 200_000;
+    
+    private static volatile int sink;
+    
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<MenuItem> menu = new ArrayList<>();
+        MenuTagIndex index = new MenuTagIndex();
+        for (int i = 0; i < MENU_SIZE; i++) {
+            MenuItem item = new MenuItem("Item " + i, "", BigDecimal.TEN, MenuCategory.MAIN_COURSE);
+            item.setAllergens(pick(random, ALLERGENS, 3));
+            item.setDietaryTags(pick(random, DIETARY_TAGS, 3));
+            menu.add(item);
+            index.put(item);
+        }
+        List<MenuItem> tray = menu.subList(0, TRAY_SIZE);
+        List<UUID> trayIds = new ArrayList<>();
+        for (MenuItem item : tray) {
+            trayIds.add(item.getItemId());
+        }
+        List<String> allergies = List.of("Peanuts", "Sesame");
+        List<String> requirements = List.of("Halal");
+        
+        System.out.printf("%-8s %14s %14s%n", "round", "sets ns/tray", "masks ns/tray");
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += matchWithSets(tray, allergies, requirements);
+            }
+            long sets = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += matchWithMasks(index, trayIds, allergies, requirements);
+            }
+            long masks = System.nanoTime() - start;
+            System.out.printf("%-8d %14.1f %14.1f%n", round, (double) sets / ITERATIONS, (double) masks / ITERATIONS);
+        }
+    }
+    
+    private static int matchWithSets(List<MenuItem> tray, List<String> allergies, List<String> requirements) {
+        int matches = 0;
+        for (MenuItem item : tray) {
+            Set<String> allergens = item.getAllergens();
+            Set<String> dietaryTags = item.getDietaryTags();
+            boolean ok = true;
+            for (String allergy : allergies) {
+                ok &= !allergens.contains(allergy.toLowerCase());
+            }
+            for (String requirement : requirements) {
+                ok &= dietaryTags.contains(requirement.toLowerCase());
+            }
+            matches += ok ? 1 : 0;
+        }
+        return matches;
+    }
+    
+    private static int matchWithMasks(MenuTagIndex index, List<UUID> trayIds, List<String> allergies,
+                                      List<String> requirements) {
+        TagMask forbidden = index.getDictionary().maskOf(allergies);
+        TagMask required = index.getDictionary().maskOf(requirements);
+        int matches = 0;
+        for (UUID itemId : trayIds) {
+            matches += index.get(itemId).matches(required, forbidden) ? 1 : 0;
+        }
+        return matches;
+    }
+    
+    private static Set<String> pick(Random random, String[] pool, int count) {
+        Set<String> picked = new HashSet<>();
+        while (picked.size() < count) {
+            picked.add(pool[random.nextInt(pool.length)]);
+        }
+        return picked;
+    }
+}
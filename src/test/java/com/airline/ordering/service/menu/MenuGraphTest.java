@@ -0,0 +1,92 @@
+package com.airline.ordering.service.menu;
+
+import com.airline.ordering.domain.ItemStatus;
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MenuGraphTest {
+    
+    @Test
+    void testSubstitutionsAreTransitiveAndFilteredPerPassengerType() {
+        MenuItem chicken = item("Chicken", PassengerType.ECONOMY, PassengerType.BUSINESS);
+        MenuItem pasta = item("Pasta", PassengerType.ECONOMY, PassengerType.BUSINESS);
+        MenuItem lobster = item("Lobster", PassengerType.BUSINESS);
+        chicken.setSubstitutableItems(Set.of(pasta.getItemId()));
+        pasta.setSubstitutableItems(Set.of(lobster.getItemId(), chicken.getItemId()));
+        MenuGraph graph = new MenuGraph();
+        graph.load(List.of(chicken, pasta, lobster));
+        
+        assertTrue(graph.canSubstitute(chicken.getItemId(), lobster.getItemId(), PassengerType.BUSINESS));
+        assertFalse(graph.canSubstitute(chicken.getItemId(), lobster.getItemId(), PassengerType.ECONOMY));
+        assertFalse(graph.canSubstitute(lobster.getItemId(), chicken.getItemId(), PassengerType.BUSINESS));
+        assertEquals(List.of(pasta.getItemId()), graph.substitutionsFor(chicken.getItemId(), PassengerType.ECONOMY));
+        
+        // Pasta runs out of menu: it drops out as a target, but still links chicken to lobster
+        pasta.setStatus(ItemStatus.DISCONTINUED);
+        graph.upsert(pasta);
+        assertEquals(List.of(lobster.getItemId()), graph.substitutionsFor(chicken.getItemId(), PassengerType.BUSINESS));
+        
+        graph.remove(pasta.getItemId());
+        assertTrue(graph.substitutionsFor(chicken.getItemId(), PassengerType.BUSINESS).isEmpty());
+    }
+    
+    @Test
+    void testCombosAreSymmetricAndPairwise() {
+        MenuItem burger = item("Burger", PassengerType.ECONOMY);
+        MenuItem fries = item("Fries", PassengerType.ECONOMY);
+        MenuItem cola = item("Cola", PassengerType.ECONOMY);
+        burger.setComboItems(Set.of(fries.getItemId(), cola.getItemId()));
+        fries.setComboItems(Set.of(cola.getItemId()));
+        MenuGraph graph = new MenuGraph();
+        graph.load(List.of(burger, fries));
+        
+        assertTrue(graph.isValidCombo(fries.getItemId(), burger.getItemId()));
+        assertFalse(graph.isValidCombo(List.of(burger.getItemId(), fries.getItemId(), cola.getItemId())));
+        
+        // Cola arrives later and picks up the pairings declared before it existed
+        graph.upsert(cola);
+        assertTrue(graph.isValidCombo(List.of(burger.getItemId(), fries.getItemId(), cola.getItemId())));
+        assertFalse(graph.isValidCombo(List.of(cola.getItemId(), cola.getItemId())));
+        
+        fries.setComboItems(Set.of());
+        graph.upsert(fries);
+        assertFalse(graph.isValidCombo(List.of(burger.getItemId(), fries.getItemId(), cola.getItemId())));
+        assertTrue(graph.isValidCombo(List.of(burger.getItemId(), fries.getItemId())));
+    }
+    
+    @Test
+    void testGraphGrowsBeyondItsInitialCapacity() {
+        MenuGraph graph = new MenuGraph();
+        List<MenuItem> chain = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            MenuItem item = item("Item " + i, PassengerType.CREW);
+            if (!chain.isEmpty()) {
+                MenuItem previous = chain.get(chain.size() - 1);
+                previous.setSubstitutableItems(Set.of(item.getItemId()));
+                graph.upsert(previous);
+            }
+            chain.add(item);
+            graph.upsert(item);
+        }
+        assertEquals(150, graph.size());
+        assertTrue(graph.canSubstitute(chain.get(0).getItemId(), chain.get(149).getItemId(), PassengerType.CREW));
+        assertEquals(149, graph.substitutionsFor(chain.get(0).getItemId(), PassengerType.CREW).size());
+    }
+    
+    private static MenuItem item(String name, PassengerType... types) {
+        MenuItem item = new MenuItem(name, name, new BigDecimal("8.00"), MenuCategory.MAIN_COURSE);
+        for (PassengerType type : types) {
+            item.addAvailableForType(type);
+        }
+        return item;
+    }
+}
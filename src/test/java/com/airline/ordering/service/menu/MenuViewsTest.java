@@ -0,0 +1,99 @@
+package com.airline.ordering.service.menu;
+
+import com.airline.ordering.domain.ItemStatus;
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.BulkWriteResult;
+import com.airline.ordering.repository.MenuItemRepository;
+import com.airline.ordering.service.inventory.InventoryEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MenuViewsTest {
+    
+    private InventoryEngine inventory;
+    private MenuViews views;
+    private MenuItem salad;
+    private MenuItem steak;
+    private MenuItem water;
+    
+    @BeforeEach
+    void setUp() {
+        MenuItemRepository repository = mock(MenuItemRepository.class);
+        when(repository.updateInventoryCounts(any())).thenReturn(BulkWriteResult.empty());
+        inventory = new InventoryEngine(repository, 60_000, 60_000);
+        
+        salad = item("Garden salad", MenuCategory.APPETIZER, 5, PassengerType.ECONOMY, PassengerType.BUSINESS);
+        salad.setDietaryTags(Set.of("vegetarian", "vegan"));
+        steak = item("Beef steak", MenuCategory.MAIN_COURSE, 1, PassengerType.BUSINESS);
+        steak.setAllergens(Set.of("mustard"));
+        water = item("Aqua", MenuCategory.BEVERAGE, 0, PassengerType.ECONOMY, PassengerType.BUSINESS);
+        water.setDietaryTags(Set.of("vegan"));
+        List<MenuItem> menu = List.of(salad, steak, water);
+        inventory.load(menu);
+        
+        views = new MenuViews(inventory);
+        views.load(menu);
+        inventory.addStockListener(views);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        inventory.close();
+    }
+    
+    @Test
+    void testViewsFollowPassengerTypeCategoryAndStock() {
+        assertEquals(List.of(salad, steak), views.available(PassengerType.BUSINESS));
+        assertEquals(List.of(salad), views.available(PassengerType.ECONOMY));
+        assertEquals(List.of(steak), views.available(PassengerType.BUSINESS, MenuCategory.MAIN_COURSE));
+        assertEquals(List.of(MenuCategory.APPETIZER, MenuCategory.MAIN_COURSE), views.categories(PassengerType.BUSINESS));
+        assertTrue(views.available(PassengerType.CREW).isEmpty());
+        
+        // The last steak sells out, then water is restocked
+        assertTrue(inventory.tryConsume(steak.getItemId(), 1));
+        inventory.restock(water.getItemId(), 12);
+        assertEquals(List.of(salad, water), views.available(PassengerType.BUSINESS));
+        assertEquals(List.of(MenuCategory.APPETIZER, MenuCategory.BEVERAGE), views.categories(PassengerType.BUSINESS));
+        
+        salad.setStatus(ItemStatus.TEMPORARILY_UNAVAILABLE);
+        views.upsert(salad);
+        assertEquals(List.of(water), views.available(PassengerType.ECONOMY));
+        views.remove(water.getItemId());
+        assertTrue(views.available(PassengerType.ECONOMY).isEmpty());
+    }
+    
+    @Test
+    void testDietaryAndAllergenSelection() {
+        inventory.restock(water.getItemId(), 3);
+        assertEquals(List.of(salad, water), views.withDietaryTags(PassengerType.BUSINESS, Set.of("Vegan")));
+        assertEquals(List.of(salad), views.withDietaryTags(PassengerType.BUSINESS, Set.of("vegan", "vegetarian")));
+        assertTrue(views.withDietaryTags(PassengerType.BUSINESS, Set.of("halal")).isEmpty());
+        assertEquals(List.of(salad, water), views.freeOfAllergens(PassengerType.BUSINESS, Set.of("mustard")));
+        
+        // Tags on no item match nothing when required and everything when avoided, and are not interned
+        int knownTags = views.getTagIndex().getDictionary().size();
+        assertTrue(views.select(PassengerType.BUSINESS, Set.of("vegan", "kosher"), Set.of()).isEmpty());
+        assertEquals(List.of(salad, steak, water), views.freeOfAllergens(PassengerType.BUSINESS, Set.of("sesame")));
+        assertEquals(knownTags, views.getTagIndex().getDictionary().size());
+    }
+    
+    private static MenuItem item(String name, MenuCategory category, int stock, PassengerType... types) {
+        MenuItem item = new MenuItem(name, name, new BigDecimal("9.00"), category);
+        for (PassengerType type : types) {
+            item.addAvailableForType(type);
+        }
+        item.setInventoryCount(stock);
+        return item;
+    }
+}
@@ -0,0 +1,50 @@
+package com.airline.ordering.service.menu;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TagMaskTest {
+    
+    @Test
+    void testDictionaryInternsCaseInsensitively() {
+        TagDictionary dictionary = new TagDictionary();
+        int vegan = dictionary.intern("Vegan");
+        assertEquals(vegan, dictionary.intern(" vegan "));
+        assertEquals(-1, dictionary.idOf("halal"));
+        assertEquals("vegan", dictionary.nameOf(vegan));
+        assertEquals(List.of("vegan"), dictionary.namesOf(dictionary.maskOf(Set.of("VEGAN"))));
+        
+        List<String> unknown = new ArrayList<>();
+        assertEquals(TagMask.of(vegan), dictionary.knownMaskOf(List.of(" Halal", "VEGAN"), unknown));
+        assertEquals(List.of("halal"), unknown);
+        assertEquals(1, dictionary.size());
+    }
+    
+    @Test
+    void testOperationsSpanTheOverflowBitmap() {
+        TagDictionary dictionary = new TagDictionary();
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            tags.add("tag-" + i);
+        }
+        TagMask all = dictionary.maskOf(tags);
+        TagMask low = dictionary.maskOf(List.of("tag-3", "tag-40"));
+        TagMask high = dictionary.maskOf(List.of("tag-70", "tag-140"));
+        TagMask mixed = dictionary.maskOf(List.of("tag-3", "tag-140"));
+        
+        assertTrue(all.containsAll(high));
+        assertFalse(low.containsAll(mixed));
+        assertTrue(high.intersects(mixed));
+        assertFalse(low.intersects(high));
+        assertEquals(TagMask.of(dictionary.idOf("tag-140")), high.and(mixed));
+        assertEquals(low, low.andNot(high));
+        assertTrue(high.andNot(all).isEmpty());
+        assertSame(TagMask.EMPTY, high.andNot(high));
+        assertEquals(List.of("tag-3", "tag-140"), dictionary.namesOf(mixed));
+    }
+}
@@ -0,0 +1,78 @@
+package com.airline.ordering.service.validation;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.service.menu.MenuSnapshot;
+import com.airline.ordering.service.menu.MenuTagIndex;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Measures validating a 10-item order with the standard rules against a menu snapshot, collecting every error
+ * and short-circuiting.
+ * <p>
+ * Not part of the unit test run; execute {@link #main(String[])} with the test classpath.
+ */
+public class OrderValidationBenchmark {
+    
+    private static final int MENU_SIZE = 80;
+    private static final int ORDER_SIZE = 10;
+    private static final int ROUNDS = 5;
+    private static final int ITERATIONS = 200_000;
+    
+    private static volatile int sink;
+    
+    public static void main(String[] args) {
+        List<MenuItem> items = new ArrayList<>();
+        for (int i = 0; i < MENU_SIZE; i++) {
+            MenuItem item = new MenuItem("Item " + i, "", new BigDecimal("10.00"), MenuCategory.MAIN_COURSE);
+            item.addAvailableForType(PassengerType.ECONOMY);
+            items.add(item);
+        }
+        MenuSnapshot menu = MenuSnapshot.of(items, new MenuTagIndex());
+        Order order = new Order(UUID.randomUUID(), "23A");
+        for (int i = 0; i < ORDER_SIZE; i++) {
+            order.addItem(new OrderItem(items.get(i * 7).getItemId(), "Item " + i * 7, 1, new BigDecimal("10.00")));
+        }
+        ValidationEngine full = engine(false);
+        ValidationEngine quick = engine(true);
+        
+        System.out.printf("%-8s %14s %14s%n", "round", "full ns/order", "quick ns/order");
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += full.validate(order, PassengerType.ECONOMY, menu).getErrors().size();
+            }
+            long fullNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                sink += quick.validate(order, PassengerType.ECONOMY, menu).getErrors().size();
+            }
+            long quickNanos = System.nanoTime() - start;
+            System.out.printf("%-8d %14.1f %14.1f%n", round, (double) fullNanos / ITERATIONS,
+                    (double) quickNanos / ITERATIONS);
+        }
+    }
+    
+    // The standard rules, less substitution, which needs a menu service
+    private static ValidationEngine engine(boolean shortCircuit) {
+        return ValidationEngine.builder()
+                .orderRule(ValidationRules.seatAssigned())
+                .orderRule(ValidationRules.hasItems())
+                .orderRule(ValidationRules.passengerKnown())
+                .orderRule(ValidationRules.deliveryNotInPast())
+                .itemRule(ValidationRules.validQuantity())
+                .itemRule(ValidationRules.onMenu())
+                .itemRule(ValidationRules.eligible())
+                .itemRule(ValidationRules.priceUnchanged())
+                .shortCircuit(shortCircuit)
+                .build();
+    }
+}
@@ -0,0 +1,87 @@
+package com.airline.ordering.service.validation;
+
+import com.airline.ordering.domain.MenuCategory;
+import com.airline.ordering.domain.MenuItem;
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderItemStatus;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.service.MenuService;
+import com.airline.ordering.service.ValidationService.ValidationResult;
+import com.airline.ordering.service.menu.MenuSnapshot;
+import com.airline.ordering.service.menu.MenuTagIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ValidationEngineTest {
+    
+    private MenuService menuService;
+    private MenuItem wine;
+    private MenuItem pasta;
+    private MenuSnapshot menu;
+    
+    @BeforeEach
+    void setUp() {
+        wine = new MenuItem("Red wine", "Merlot", new BigDecimal("9.00"), MenuCategory.ALCOHOL);
+        wine.addAvailableForType(PassengerType.BUSINESS);
+        wine.addAvailableForType(PassengerType.CREW);
+        pasta = new MenuItem("Pasta", "Penne arrabbiata", new BigDecimal("12.00"), MenuCategory.MAIN_COURSE);
+        pasta.addAvailableForType(PassengerType.ECONOMY);
+        pasta.addAvailableForType(PassengerType.CREW);
+        menu = MenuSnapshot.of(List.of(wine, pasta), new MenuTagIndex());
+        
+        menuService = mock(MenuService.class);
+        when(menuService.getInventoryCount(any())).thenReturn(3);
+    }
+    
+    @Test
+    void testOrderIsValidatedInOnePassAgainstTheSnapshot() {
+        UUID unknown = UUID.randomUUID();
+        Order order = new Order(UUID.randomUUID(), "14C");
+        order.addItem(new OrderItem(wine.getItemId(), "Red wine", 1, new BigDecimal("9.00")));
+        order.addItem(new OrderItem(pasta.getItemId(), "Pasta", 2, new BigDecimal("11.00")));
+        order.addItem(new OrderItem(pasta.getItemId(), "Pasta", 2, new BigDecimal("12.00")));
+        order.addItem(new OrderItem(unknown, "Mystery", 1, BigDecimal.ONE));
+        OrderItem cancelled = new OrderItem(pasta.getItemId(), "Pasta", 5, new BigDecimal("12.00"));
+        cancelled.setStatus(OrderItemStatus.CANCELLED);
+        order.addItem(cancelled);
+        
+        ValidationResult result = ValidationRules.standard(menuService, false)
+                .validate(order, PassengerType.CREW, menu);
+        assertEquals(List.of(
+                "Red wine cannot be served to crew",
+                "Menu item not found: " + unknown), result.getErrors());
+        assertEquals(List.of("Pasta is now priced at 12.00"), result.getWarnings());
+        verify(menuService, never()).getInventoryCount(any());
+        
+        ValidationResult stock = ValidationEngine.builder()
+                .finishRule(ValidationRules.inStock(menuService::getInventoryCount)).build()
+                .validate(order, PassengerType.CREW, menu);
+        assertEquals(List.of("Only 3 of 4 x Pasta in stock"), stock.getErrors());
+        
+        ValidationResult economy = ValidationRules.standard(menuService, false)
+                .validate(order, PassengerType.ECONOMY, menu);
+        assertEquals("Red wine is not available for Economy passengers", economy.getErrors().get(0));
+    }
+    
+    @Test
+    void testShortCircuitStopsAtTheFirstError() {
+        Order order = new Order(UUID.randomUUID(), " ");
+        order.addItem(new OrderItem(wine.getItemId(), "Red wine", 0, new BigDecimal("9.00")));
+        
+        assertEquals(List.of("Order has no seat number"),
+                ValidationRules.standard(menuService, true).validate(order, null, menu).getErrors());
+        assertEquals(List.of("Order has no seat number", "Order has no known passenger",
+                "Item Red wine has invalid quantity 0"),
+                ValidationRules.standard(menuService, false).validate(order, null, menu).getErrors());
+        verify(menuService, never()).getMenuItem(any());
+    }
+}
@@ -0,0 +1,146 @@
+package com.airline.ordering.sync.changelog;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderStatus;
+import com.airline.ordering.domain.Passenger;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.impl.ChangeLogRepositoryImpl;
+import com.airline.ordering.repository.impl.OrderRepositoryImpl;
+import com.airline.ordering.repository.impl.PassengerRepositoryImpl;
+import com.airline.ordering.sync.CRSClient;
+import com.airline.ordering.sync.CRSResponse;
+import com.airline.ordering.sync.SyncErrorType;
+import com.airline.ordering.sync.SyncResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ChangeLogPusherTest {
+    
+    private static final String DB_FILE = "inflight_ordering.db";
+    
+    private OrderRepositoryImpl orderRepository;
+    private ChangeLogRepositoryImpl changeLog;
+    private Passenger passenger;
+    
+    @BeforeEach
+    void setUp() {
+        new File(DB_FILE).delete();
+        SQLiteConnection.initializeDatabase();
+        orderRepository = new OrderRepositoryImpl();
+        changeLog = new ChangeLogRepositoryImpl();
+        passenger = new Passenger("Test", "User", "test@example.com", "10B", PassengerType.ECONOMY);
+        new PassengerRepositoryImpl().save(passenger);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        SQLiteConnection.shutdown();
+        new File(DB_FILE).delete();
+    }
+    
+    @Test
+    void testSavesAreLoggedAsFieldLevelDeltas() {
+        Order order = new Order(passenger.getPassengerId(), passenger.getSeatNumber());
+        OrderItem coffee = new OrderItem(UUID.randomUUID(), "Coffee", 1, new BigDecimal("3.00"));
+        order.addItem(coffee);
+        orderRepository.save(order);
+        
+        order.setNotes("No sugar");
+        orderRepository.save(order);
+        
+        order.removeItem(coffee.getOrderItemId());
+        orderRepository.save(order);
+        
+        // Recording the sync itself is not a change the CRS needs to hear about
+        order.markAsSynced("CRS-1");
+        orderRepository.save(order);
+        
+        List<OrderDelta> deltas = changeLog.findAfter(0, 10);
+        assertEquals(3, deltas.size());
+        assertTrue(deltas.get(0).getSequence() < deltas.get(1).getSequence());
+        assertTrue(deltas.get(0).getDelta().contains("\"op\":\"CREATE\""));
+        assertTrue(deltas.get(0).getDelta().contains("\"menuItemName\":\"Coffee\""));
+        assertEquals("{\"op\":\"UPDATE\",\"fields\":{\"notes\":\"No sugar\"}}", deltas.get(1).getDelta());
+        assertTrue(deltas.get(2).getDelta().contains("\"removedItemIds\":[\"" + coffee.getOrderItemId() + "\"]"));
+        assertTrue(deltas.get(2).getDelta().contains("\"totalAmount\":\"0"));
+        
+        orderRepository.deleteById(order.getOrderId());
+        List<OrderDelta> all = changeLog.findAfter(0, 10);
+        assertEquals(4, all.size());
+        assertEquals("{\"op\":\"DELETE\"}", all.get(3).getDelta());
+        assertEquals(order.getSyncVersion(), all.get(3).getSyncVersion());
+    }
+    
+    @Test
+    void testPushAcknowledgesAcceptedBatchesAndResumesAfterFailure() {
+        for (int i = 0; i < 3; i++) {
+            Order order = new Order(passenger.getPassengerId(), passenger.getSeatNumber());
+            order.addItem(new OrderItem(UUID.randomUUID(), "Tea", 1, new BigDecimal("2.50")));
+            orderRepository.save(order);
+        }
+        CRSClient crsClient = mock(CRSClient.class);
+        when(crsClient.getMaxBatchSize()).thenReturn(2);
+        when(crsClient.pushChanges(anyList()))
+                .thenReturn(CRSResponse.success("ok"))
+                .thenReturn(CRSResponse.failure(503, "Unavailable"))
+                .thenReturn(CRSResponse.success("ok"));
+        ChangeLogPusher pusher = new ChangeLogPusher(crsClient, changeLog);
+        
+        SyncResult failed = pusher.push();
+        assertFalse(failed.isSuccess());
+        assertEquals(2, failed.getProcessedCount());
+        assertEquals(1, failed.getFailedCount());
+        assertEquals(SyncErrorType.SERVER_ERROR, failed.getErrors().get(0).getErrorType());
+        assertEquals(1, changeLog.countPending());
+        
+        SyncResult resumed = pusher.push();
+        assertTrue(resumed.isSuccess());
+        assertEquals(1, resumed.getProcessedCount());
+        assertEquals(0, changeLog.countPending());
+        assertTrue(changeLog.findAfter(0, 10).isEmpty());
+        verify(crsClient, times(3)).pushChanges(anyList());
+    }
+    
+    @Test
+    void testAcknowledgedOrdersAreMarkedSynced() {
+        Order pushed = new Order(passenger.getPassengerId(), passenger.getSeatNumber());
+        pushed.addItem(new OrderItem(UUID.randomUUID(), "Tea", 1, new BigDecimal("2.50")));
+        pushed.setStatus(OrderStatus.PENDING);
+        orderRepository.save(pushed);
+        Order changedAgain = new Order(passenger.getPassengerId(), passenger.getSeatNumber());
+        changedAgain.setStatus(OrderStatus.PENDING);
+        orderRepository.save(changedAgain);
+        CRSClient crsClient = mock(CRSClient.class);
+        when(crsClient.getMaxBatchSize()).thenReturn(1);
+        when(crsClient.pushChanges(anyList())).thenAnswer(invocation -> {
+            // The second order changes while its first change is being pushed
+            changedAgain.setNotes("Aisle seat");
+            orderRepository.save(changedAgain);
+            return CRSResponse.success("ok");
+        }).thenReturn(CRSResponse.success("ok"))
+                .thenReturn(CRSResponse.failure(503, "Unavailable"));
+        
+        SyncResult result = new ChangeLogPusher(crsClient, changeLog).push();
+        
+        assertFalse(result.isSuccess());
+        assertTrue(orderRepository.findById(pushed.getOrderId()).orElseThrow().isSyncedWithCrs());
+        assertFalse(orderRepository.findById(changedAgain.getOrderId()).orElseThrow().isSyncedWithCrs());
+        assertEquals(List.of(changedAgain.getOrderId()), orderRepository.findOrdersRequiringSync().stream()
+                .map(Order::getOrderId).collect(Collectors.toList()));
+        // Marking the orders synced is not a change to push
+        assertEquals(1, changeLog.countPending());
+    }
+}
@@ -0,0 +1,84 @@
+package com.airline.ordering.sync.codec;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compares the encoded size and the encode and decode cost of each {@link PayloadCodec} on CRS push batches of a
+ * few sizes, against plain JSON.
+ * <p>
+ * Not part of the unit test run; execute {@link #main(String[])} with the test classpath.
+ */
+public class PayloadCodecBenchmark {
+    
+    private static final int[] BATCH_SIZES = {1, 10, 100};
+    private static final String[][] MENU = {
+            {"Coffee", "3.50"}, {"Tea", "2.50"}, {"Croissant", "2.75"}, {"Chicken wrap", "8.95"},
+            {"Vegetarian pasta", "9.50"}, {"Sparkling water", "2.00"}, {"Red wine", "6.50"}, {"Chocolate bar", "1.95"}};
+    private static final long TARGET_NANOS = 1_000_000_000L;
+    
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%-22s %6s %10s %8s %12s %12s%n", "format", "orders", "bytes", "vs json", "encode us",
+                "decode us");
+        for (int batchSize : BATCH_SIZES) {
+            List<Order> orders = orders(batchSize);
+            int jsonBytes = PayloadCodecs.JSON.encode(orders).length;
+            for (PayloadCodec codec : PayloadCodecs.supported()) {
+                byte[] body = codec.encode(orders);
+                double encodeMicros = measure(() -> codec.encode(orders));
+                double decodeMicros = measure(() -> codec.decode(body));
+                System.out.printf("%-22s %6d %10d %7.0f%% %12.1f %12.1f%n", codec.getFormat(), batchSize,
+                        body.length, body.length * 100.0 / jsonBytes, encodeMicros, decodeMicros);
+            }
+        }
+    }
+    
+    /**
+     * @return The mean microseconds per run, after warming up for as long as it measures.
+     */
+    private static double measure(Task task) throws Exception {
+        run(task, TARGET_NANOS);
+        long[] result = run(task, TARGET_NANOS);
+        return result[1] / 1000.0 / result[0];
+    }
+    
+    private static long[] run(Task task, long nanos) throws Exception {
+        long start = System.nanoTime();
+        long runs = 0;
+        long elapsed;
+        do {
+            task.run();
+            runs++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < nanos);
+        return new long[] {runs, elapsed};
+    }
+    
+    private static List<Order> orders(int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = new Order(UUID.randomUUID(), (i / 6 + 1) + String.valueOf((char) ('A' + i % 6)));
+            for (int j = 0; j < 1 + i % 4; j++) {
+                String[] menuItem = MENU[(i * 3 + j) % MENU.length];
+                order.addItem(new OrderItem(UUID.randomUUID(), menuItem[0], 1 + j % 2, new BigDecimal(menuItem[1])));
+            }
+            order.setRequestedDeliveryTime(now.plusMinutes(20 + i % 40));
+            if (i % 5 == 0) {
+                order.setNotes("Please serve after take-off");
+            }
+            orders.add(order);
+        }
+        return orders;
+    }
+    
+    private interface Task {
+        void run() throws Exception;
+    }
+}
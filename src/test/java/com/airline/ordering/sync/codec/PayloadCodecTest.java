@@ -0,0 +1,112 @@
+package com.airline.ordering.sync.codec;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderItemStatus;
+import com.airline.ordering.domain.OrderStatus;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PayloadCodecTest {
+    
+    @Test
+    void testEveryCodecRestoresTheOrdersExactly() throws IOException {
+        List<Order> orders = orders(20);
+        Order edited = orders.get(0);
+        edited.setNotes("Nut allergy – seat 1A");
+        edited.setConfirmedAt(edited.getCreatedAt().plusMinutes(3));
+        edited.setSyncedWithCrs(true);
+        edited.setCrsOrderId("CRS-42");
+        edited.setSyncVersion(7);
+        OrderItem substitute = edited.getItems().get(0);
+        substitute.setSubstitutedFromItemId(UUID.randomUUID());
+        substitute.setStatus(OrderItemStatus.SUBSTITUTED);
+        substitute.setSpecialInstructions("No ice");
+        Order bare = new Order();
+        bare.setPassengerId(null);
+        bare.setStatus(OrderStatus.CANCELLED);
+        orders.add(bare);
+        
+        for (PayloadCodec codec : PayloadCodecs.supported()) {
+            List<Order> decoded = codec.decode(codec.encode(orders));
+            assertEquals(orders.size(), decoded.size(), codec.getFormat());
+            for (int i = 0; i < orders.size(); i++) {
+                assertSameOrder(orders.get(i), decoded.get(i), codec.getFormat());
+            }
+        }
+    }
+    
+    @Test
+    void testCompactFormatsAreSmallerThanJson() {
+        List<Order> orders = orders(50);
+        int json = PayloadCodecs.JSON.encode(orders).length;
+        int binary = PayloadCodecs.BINARY.encode(orders).length;
+        int binaryDeflate = PayloadCodecs.BINARY_DEFLATE.encode(orders).length;
+        
+        assertTrue(binary * 3 < json, "binary " + binary + " vs json " + json);
+        assertTrue(binaryDeflate < binary, "deflated " + binaryDeflate + " vs binary " + binary);
+        // Too small to compress, so the body is stored behind the framing byte
+        assertEquals(PayloadCodecs.BINARY.encode(List.of()).length + 1,
+                PayloadCodecs.BINARY_DEFLATE.encode(List.of()).length);
+    }
+    
+    @Test
+    void testNegotiationPrefersTheMostCompactAcceptedFormat() throws IOException {
+        assertSame(PayloadCodecs.BINARY_DEFLATE,
+                PayloadCodecs.negotiate(Arrays.asList("json", "CRS-BINARY-1+DEFLATE", "crs-binary-1")));
+        assertSame(PayloadCodecs.JSON_DEFLATE, PayloadCodecs.negotiate(Arrays.asList("json+deflate", "cbor")));
+        assertSame(PayloadCodecs.JSON, PayloadCodecs.negotiate(null));
+        assertSame(PayloadCodecs.BINARY, PayloadCodecs.forFormat("crs-binary-1").orElseThrow());
+        
+        byte[] body = PayloadCodecs.BINARY_DEFLATE.encode(orders(10));
+        assertThrows(IOException.class, () -> PayloadCodecs.BINARY_DEFLATE.decode(Arrays.copyOf(body, body.length / 2)));
+        assertThrows(IOException.class, () -> PayloadCodecs.BINARY.decode(body));
+    }
+    
+    private static List<Order> orders(int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Order order = new Order(UUID.randomUUID(), (i % 30 + 1) + "C");
+            order.addItem(new OrderItem(UUID.randomUUID(), "Coffee", 1, new BigDecimal("3.50")));
+            order.addItem(new OrderItem(UUID.randomUUID(), "Croissant", 2, new BigDecimal("2.75")));
+            order.setRequestedDeliveryTime(now.plusMinutes(30));
+            orders.add(order);
+        }
+        return orders;
+    }
+    
+    private static void assertSameOrder(Order expected, Order actual, String format) {
+        assertEquals(expected.getOrderId(), actual.getOrderId(), format);
+        assertEquals(expected.getPassengerId(), actual.getPassengerId(), format);
+        assertEquals(expected.getSeatNumber(), actual.getSeatNumber(), format);
+        assertEquals(expected.getStatus(), actual.getStatus(), format);
+        assertEquals(expected.getNotes(), actual.getNotes(), format);
+        assertEquals(expected.getRequestedDeliveryTime(), actual.getRequestedDeliveryTime(), format);
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt(), format);
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt(), format);
+        assertEquals(expected.getConfirmedAt(), actual.getConfirmedAt(), format);
+        assertEquals(expected.isSyncedWithCrs(), actual.isSyncedWithCrs(), format);
+        assertEquals(expected.getCrsOrderId(), actual.getCrsOrderId(), format);
+        assertEquals(expected.getSyncVersion(), actual.getSyncVersion(), format);
+        assertEquals(expected.getTotalAmount(), actual.getTotalAmount(), format);
+        assertEquals(expected.getItems().size(), actual.getItems().size(), format);
+        for (int i = 0; i < expected.getItems().size(); i++) {
+            OrderItem expectedItem = expected.getItems().get(i);
+            OrderItem actualItem = actual.getItems().get(i);
+            assertTrue(expectedItem.hasSameContent(actualItem), format);
+            assertEquals(expectedItem.getOrderItemId(), actualItem.getOrderItemId(), format);
+            assertEquals(expectedItem.getTotalPrice(), actualItem.getTotalPrice(), format);
+            assertEquals(expectedItem.getUpdatedAt(), actualItem.getUpdatedAt(), format);
+        }
+    }
+}
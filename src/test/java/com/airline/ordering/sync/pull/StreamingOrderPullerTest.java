@@ -0,0 +1,219 @@
+package com.airline.ordering.sync.pull;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.domain.OrderItem;
+import com.airline.ordering.domain.OrderStatus;
+import com.airline.ordering.domain.Passenger;
+import com.airline.ordering.domain.PassengerType;
+import com.airline.ordering.repository.OrderRepository;
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.impl.ChangeLogRepositoryImpl;
+import com.airline.ordering.repository.impl.OrderRepositoryImpl;
+import com.airline.ordering.repository.impl.PassengerRepositoryImpl;
+import com.airline.ordering.repository.impl.PullCheckpointRepositoryImpl;
+import com.airline.ordering.sync.CRSClient;
+import com.airline.ordering.sync.CRSResponse;
+import com.airline.ordering.sync.ConflictInfo;
+import com.airline.ordering.sync.ConflictResolver;
+import com.airline.ordering.sync.ConflictType;
+import com.airline.ordering.sync.SyncErrorType;
+import com.airline.ordering.sync.SyncResult;
+import com.airline.ordering.sync.impl.ConflictResolverImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class StreamingOrderPullerTest {
+    
+    private static final String DB_FILE = "inflight_ordering.db";
+    
+    private OrderRepositoryImpl orderRepository;
+    private ChangeLogRepositoryImpl changeLog;
+    private PullCheckpointRepositoryImpl checkpoints;
+    private Passenger passenger;
+    
+    @BeforeEach
+    void setUp() {
+        new File(DB_FILE).delete();
+        SQLiteConnection.initializeDatabase();
+        orderRepository = new OrderRepositoryImpl();
+        changeLog = new ChangeLogRepositoryImpl();
+        checkpoints = new PullCheckpointRepositoryImpl();
+        passenger = new Passenger("Test", "User", "test@example.com", "12C", PassengerType.ECONOMY);
+        new PassengerRepositoryImpl().save(passenger);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        SQLiteConnection.shutdown();
+        new File(DB_FILE).delete();
+    }
+    
+    @Test
+    void testInterruptedPullResumesFromTheLastAppliedPage() {
+        Order synced = order();
+        synced.markAsSynced("CRS-1");
+        orderRepository.save(synced);
+        long pendingChanges = new ChangeLogRepositoryImpl().countPending();
+        
+        Order updated = order();
+        updated.setOrderId(synced.getOrderId());
+        updated.setStatus(OrderStatus.CONFIRMED);
+        Order created = order();
+        Order last = order();
+        LocalDateTime serverTime = LocalDateTime.of(2026, 10, 16, 12, 0);
+        CRSClient crsClient = mock(CRSClient.class);
+        when(crsClient.getServerTimestamp()).thenReturn(serverTime);
+        when(crsClient.pullUpdatedOrdersPage(null, null, 2)).thenReturn(page(List.of(updated, created), "page-2"));
+        when(crsClient.pullUpdatedOrdersPage(null, "page-2", 2))
+                .thenReturn(CRSResponse.failure(503, "Unavailable"))
+                .thenReturn(page(List.of(last), null));
+        StreamingOrderPuller puller = new StreamingOrderPuller(crsClient, orderRepository, changeLog,
+                new ConflictResolverImpl(), checkpoints, 2);
+        
+        SyncResult interrupted = puller.pull();
+        assertFalse(interrupted.isSuccess());
+        assertEquals(2, interrupted.getProcessedCount());
+        assertEquals(SyncErrorType.SERVER_ERROR, interrupted.getErrors().get(0).getErrorType());
+        assertEquals(new PullCheckpoint(null, serverTime, "page-2"), checkpoints.find());
+        assertEquals(OrderStatus.CONFIRMED, orderRepository.findById(synced.getOrderId()).orElseThrow().getStatus());
+        assertTrue(orderRepository.findById(created.getOrderId()).orElseThrow().isSyncedWithCrs());
+        // Orders from the CRS are not pushed back to it
+        assertEquals(pendingChanges, new ChangeLogRepositoryImpl().countPending());
+        
+        SyncResult resumed = puller.pull();
+        assertTrue(resumed.isSuccess());
+        assertEquals(List.of(last.getOrderId()), resumed.getProcessedOrderIds());
+        assertEquals(new PullCheckpoint(serverTime, null, null), checkpoints.find());
+        verify(crsClient, times(1)).pullUpdatedOrdersPage(null, null, 2);
+        verify(crsClient, times(1)).getServerTimestamp();
+    }
+    
+    @Test
+    void testConflictingLocalChangesAreKeptAndReported() {
+        Order local = order();
+        Order remote = order();
+        remote.setOrderId(local.getOrderId());
+        remote.setStatus(OrderStatus.CANCELLED);
+        ConflictInfo conflict = new ConflictInfo(local.getOrderId(), local, remote, ConflictType.STATUS_CONFLICT,
+                "Status conflict");
+        OrderRepository repository = mock(OrderRepository.class);
+        when(repository.findById(local.getOrderId())).thenReturn(Optional.of(local));
+        ConflictResolver resolver = mock(ConflictResolver.class);
+        when(resolver.detectConflict(local, remote)).thenReturn(conflict);
+        when(resolver.canAutoResolve(conflict)).thenReturn(false);
+        CRSClient crsClient = mock(CRSClient.class);
+        when(crsClient.getServerTimestamp()).thenReturn(LocalDateTime.now());
+        when(crsClient.pullUpdatedOrdersPage(any(), any(), anyInt())).thenReturn(page(List.of(remote), null));
+        
+        SyncResult result = new StreamingOrderPuller(crsClient, repository, changeLog, resolver, checkpoints).pull();
+        
+        assertFalse(result.isSuccess());
+        assertEquals(List.of(conflict), result.getConflicts());
+        assertEquals(List.of(local.getOrderId()), result.getFailedOrderIds());
+        assertEquals(SyncErrorType.CONFLICT_ERROR, result.getErrors().get(0).getErrorType());
+        verify(repository, never()).saveAll(any());
+        verify(repository, never()).saveAllFromCrs(any());
+        assertFalse(checkpoints.find().isResumable());
+    }
+    
+    @Test
+    void testLocalChangeMadeWhilePullingIsNotOverwritten() {
+        Order synced = order();
+        synced.markAsSynced("CRS-1");
+        orderRepository.save(synced);
+        OrderRepositoryImpl racingRepository = new OrderRepositoryImpl() {
+            @Override
+            public Optional<Order> findById(UUID id) {
+                Optional<Order> read = super.findById(id);
+                // A crew device changes the order right after the puller has looked at it
+                Order edited = super.findById(id).orElseThrow();
+                edited.setNotes("No ice");
+                edited.markAsModified();
+                save(edited);
+                return read;
+            }
+        };
+        
+        Order remote = order();
+        remote.setOrderId(synced.getOrderId());
+        remote.setStatus(OrderStatus.CONFIRMED);
+        CRSClient crsClient = mock(CRSClient.class);
+        when(crsClient.getServerTimestamp()).thenReturn(LocalDateTime.now());
+        when(crsClient.pullUpdatedOrdersPage(any(), any(), anyInt())).thenReturn(page(List.of(remote), null));
+        
+        SyncResult result = new StreamingOrderPuller(crsClient, racingRepository, changeLog, new ConflictResolverImpl(),
+                checkpoints).pull();
+        
+        assertFalse(result.isSuccess());
+        assertEquals(List.of(synced.getOrderId()), result.getFailedOrderIds());
+        assertEquals(SyncErrorType.CONFLICT_ERROR, result.getErrors().get(0).getErrorType());
+        Order stored = orderRepository.findById(synced.getOrderId()).orElseThrow();
+        assertEquals("No ice", stored.getNotes());
+        assertEquals(synced.getStatus(), stored.getStatus());
+        assertFalse(stored.isSyncedWithCrs());
+        assertEquals(synced.getItems().get(0).getOrderItemId(), stored.getItems().get(0).getOrderItemId());
+    }
+    
+    @Test
+    void testRemoteChangeIsMergedIntoUnpushedLocalChanges() {
+        Order local = order();
+        orderRepository.save(local);
+        changeLog.acknowledge(changeLog.findAfter(0, 10).get(0).getSequence());
+        local = orderRepository.findById(local.getOrderId()).orElseThrow();
+        local.setNotes("No ice");
+        local.markAsModified();
+        orderRepository.save(local);
+        
+        Order remote = order();
+        remote.setOrderId(local.getOrderId());
+        remote.setItems(local.getItems());
+        remote.setStatus(OrderStatus.CONFIRMED);
+        remote.setCrsOrderId("CRS-7");
+        ConflictResolver resolver = mock(ConflictResolver.class);
+        when(resolver.detectConflict(any(), any())).thenReturn(null);
+        CRSClient crsClient = mock(CRSClient.class);
+        when(crsClient.getServerTimestamp()).thenReturn(LocalDateTime.now());
+        when(crsClient.pullUpdatedOrdersPage(any(), any(), anyInt())).thenReturn(page(List.of(remote), null));
+        
+        SyncResult result = new StreamingOrderPuller(crsClient, orderRepository, changeLog, resolver, checkpoints)
+                .pull();
+        
+        assertTrue(result.isSuccess());
+        assertEquals(List.of(local.getOrderId()), result.getProcessedOrderIds());
+        Order stored = orderRepository.findById(local.getOrderId()).orElseThrow();
+        assertEquals(OrderStatus.CONFIRMED, stored.getStatus());
+        assertEquals("CRS-7", stored.getCrsOrderId());
+        assertEquals("No ice", stored.getNotes());
+        // The local change is still to be pushed, now with the status the CRS already has
+        assertFalse(stored.isSyncedWithCrs());
+        assertTrue(changeLog.findPending(local.getOrderId()).stream()
+                .anyMatch(delta -> delta.getChangedFields().contains("notes")));
+    }
+    
+    private Order order() {
+        Order order = new Order(passenger.getPassengerId(), passenger.getSeatNumber());
+        order.addItem(new OrderItem(UUID.randomUUID(), "Sandwich", 1, new BigDecimal("6.50")));
+        return order;
+    }
+    
+    private static CRSResponse page(List<Order> orders, String nextToken) {
+        CRSResponse.Builder response = CRSResponse.builder().success(true).statusCode(200).orders(orders);
+        if (nextToken != null) {
+            response.addMetadata(StreamingOrderPuller.CONTINUATION_TOKEN, nextToken);
+        }
+        return response.build();
+    }
+}
@@ -0,0 +1,130 @@
+package com.airline.ordering.sync.push;
+
+import com.airline.ordering.domain.Order;
+import com.airline.ordering.sync.CRSClient;
+import com.airline.ordering.sync.CRSRateLimit;
+import com.airline.ordering.sync.CRSResponse;
+import com.airline.ordering.sync.SyncErrorType;
+import com.airline.ordering.sync.SyncResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class PipelinedPushEngineTest {
+    
+    @Test
+    void testBatchesArePipelinedAndGrowWhileTheCrsKeepsUp() {
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        CRSClient crsClient = mock(CRSClient.class);
+        when(crsClient.getMaxBatchSize()).thenReturn(20);
+        when(crsClient.getRateLimit()).thenReturn(CRSRateLimit.unlimited());
+        when(crsClient.pushOrders(anyList())).thenAnswer(invocation -> {
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            concurrent.decrementAndGet();
+            return CRSResponse.success("ok");
+        });
+        List<Order> orders = orders(200);
+        
+        try (PipelinedPushEngine engine = PipelinedPushEngine.builder(crsClient)
+                .maxInFlight(4).initialBatchSize(2).targetLatency(Duration.ofSeconds(1)).build()) {
+            SyncResult result = engine.push(orders);
+            
+            assertTrue(result.isSuccess());
+            assertEquals(200, result.getProcessedCount());
+            assertEquals(200, result.getStatistics().getSuccessfulRecords());
+            assertTrue(result.getStatistics().getSuccessfulRecordsPerSecond() > 0);
+            assertTrue(maxConcurrent.get() > 1, "Batches were not overlapped");
+            assertEquals(20, engine.getCurrentBatchSize());
+        }
+    }
+    
+    @Test
+    void testRejectedOrdersAreRetriedAloneWithinTheRateLimit() {
+        List<Order> orders = orders(10);
+        UUID flaky = orders.get(3).getOrderId();
+        UUID invalid = orders.get(7).getOrderId();
+        Set<UUID> rejectedOnce = ConcurrentHashMap.newKeySet();
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        CRSClient crsClient = mock(CRSClient.class);
+        when(crsClient.getMaxBatchSize()).thenReturn(50);
+        when(crsClient.pushOrders(anyList())).thenAnswer(invocation -> {
+            List<Order> batch = invocation.getArgument(0);
+            batchSizes.add(batch.size());
+            CRSResponse.Builder response = CRSResponse.builder().success(true).statusCode(200);
+            for (Order order : batch) {
+                if (order.getOrderId().equals(flaky) && rejectedOnce.add(flaky)) {
+                    response.addError(new CRSResponse.CRSError("SERVER_ERROR", "Try again",
+                            PipelinedPushEngine.ORDER_ID_FIELD, flaky));
+                } else if (order.getOrderId().equals(invalid)) {
+                    response.addError(new CRSResponse.CRSError("VALIDATION_ERROR", "Unknown seat",
+                            PipelinedPushEngine.ORDER_ID_FIELD, invalid.toString()));
+                }
+            }
+            return response.build();
+        });
+        CRSRateLimit oneLeft = new CRSRateLimit(60, 1000, 10000, 1, null, 10, 0);
+        
+        try (PipelinedPushEngine engine = PipelinedPushEngine.builder(crsClient)
+                .rateLimits(() -> oneLeft).maxInFlight(2).initialBatchSize(10).build()) {
+            SyncResult result = engine.push(orders);
+            
+            assertFalse(result.isSuccess());
+            assertEquals(9, result.getProcessedCount());
+            assertEquals(List.of(invalid), result.getFailedOrderIds());
+            assertEquals(SyncErrorType.VALIDATION_ERROR, result.getErrors().get(0).getErrorType());
+            assertFalse(result.getErrors().get(0).isRetryable());
+            assertTrue(result.getProcessedOrderIds().contains(flaky));
+            assertEquals(1, result.getStatistics().getRetryAttempts());
+            // A batch is one request, so a single remaining request still carries all the orders
+            assertEquals(10, batchSizes.get(0));
+            assertTrue(batchSizes.contains(1), "Rejected order was not retried alone: " + batchSizes);
+        }
+    }
+    
+    @Test
+    void testBatchesInFlightTogetherStayWithinTheRemainingRequests() {
+        AtomicInteger batchesInFlight = new AtomicInteger();
+        AtomicInteger maxBatchesInFlight = new AtomicInteger();
+        CRSClient crsClient = mock(CRSClient.class);
+        when(crsClient.getMaxBatchSize()).thenReturn(2);
+        when(crsClient.pushOrders(anyList())).thenAnswer(invocation -> {
+            maxBatchesInFlight.accumulateAndGet(batchesInFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            batchesInFlight.decrementAndGet();
+            return CRSResponse.success("ok");
+        });
+        // The CRS reports the same budget until an answer arrives
+        CRSRateLimit twoLeft = new CRSRateLimit(60, 1000, 10000, 2, null, 10, 0);
+        
+        try (PipelinedPushEngine engine = PipelinedPushEngine.builder(crsClient)
+                .rateLimits(() -> twoLeft).maxInFlight(4).initialBatchSize(2).build()) {
+            SyncResult result = engine.push(orders(12));
+            
+            assertTrue(result.isSuccess());
+            assertEquals(12, result.getProcessedCount());
+            assertTrue(maxBatchesInFlight.get() <= 2, "Dispatched " + maxBatchesInFlight.get() + " batches on 2 requests");
+            assertEquals(6, result.getStatistics().getNetworkRequests());
+        }
+    }
+    
+    private static List<Order> orders(int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orders.add(new Order(UUID.randomUUID(), (i + 1) + "A"));
+        }
+        return orders;
+    }
+}
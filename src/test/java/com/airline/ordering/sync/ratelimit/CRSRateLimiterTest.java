@@ -0,0 +1,129 @@
+package com.airline.ordering.sync.ratelimit;
+
+import com.airline.ordering.sync.CRSRateLimit;
+import com.airline.ordering.sync.CRSResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CRSRateLimiterTest {
+    
+    private final AtomicLong now = new AtomicLong();
+    
+    @Test
+    void testWindowsAreEnforcedTogether() {
+        // 60/min with bursts of 10, but only 12/h
+        CRSRateLimiter limiter = new CRSRateLimiter(new CRSRateLimit(60, 12, 1000, Integer.MAX_VALUE, null, 10, 0),
+                now::get);
+        
+        assertEquals(10, acquireAll(limiter));
+        assertEquals(TimeUnit.SECONDS.toNanos(1), limiter.tryAcquireOrDelay(1));
+        
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        // The minute window is full again, the hour window only has 2 left
+        assertEquals(2, acquireAll(limiter));
+        assertEquals(TimeUnit.MINUTES.toNanos(5) - TimeUnit.MINUTES.toNanos(1), limiter.tryAcquireOrDelay(1));
+        assertEquals(0, limiter.availablePermits());
+        
+        assertThrows(IllegalArgumentException.class, () -> limiter.tryAcquire(11));
+    }
+    
+    @Test
+    void testCrsResponsesTightenTheLimiter() {
+        CRSRateLimiter limiter = new CRSRateLimiter(new CRSRateLimit(120, 0, 0, Integer.MAX_VALUE, null, 20, 0),
+                now::get);
+        limiter.update(CRSResponse.builder().success(true).statusCode(200)
+                .addMetadata(CRSRateLimiter.REMAINING_REQUESTS, 3).build());
+        assertEquals(3, limiter.availablePermits());
+        
+        limiter.update(CRSResponse.builder().success(false).statusCode(429)
+                .addMetadata(CRSRateLimiter.RETRY_AFTER_SECONDS, "30").build());
+        assertEquals(TimeUnit.SECONDS.toNanos(30), limiter.tryAcquireOrDelay(1));
+        
+        // After the delay the minute window refills from empty at 2 per second instead of allowing a full burst
+        now.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertEquals(2, acquireAll(limiter));
+        
+        limiter.update(CRSRateLimit.unlimited());
+        assertTrue(limiter.tryAcquire(1000));
+    }
+    
+    @Test
+    void testHoldOnlyRestartsTheMinuteWindow() {
+        CRSRateLimit limits = new CRSRateLimit(60, 1000, 10000, Integer.MAX_VALUE, null, 10, 0);
+        int unheld = acquireOver(new CRSRateLimiter(limits, now::get), TimeUnit.MINUTES.toNanos(10));
+        
+        CRSRateLimiter limiter = new CRSRateLimiter(limits, now::get);
+        limiter.update(CRSRateLimit.rateLimited(30));
+        int held = acquireOver(limiter, TimeUnit.MINUTES.toNanos(10));
+        
+        // The hold costs its 30 seconds and the burst, not the rest of the day
+        assertEquals(609, unheld);
+        assertTrue(held >= unheld - 40, "Only " + held + " permits after a 30 s hold");
+    }
+    
+    @Test
+    void testConcurrentCallersNeverExceedTheBurst() throws InterruptedException {
+        CRSRateLimiter limiter = new CRSRateLimiter(new CRSRateLimit(600, 36000, 0, Integer.MAX_VALUE, null, 50, 0),
+                now::get);
+        AtomicInteger granted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < 1000; j++) {
+                    if (limiter.tryAcquire()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(50, granted.get());
+    }
+    
+    @Test
+    void testAsyncAcquireCompletesWhenAPermitIsRefilled() throws Exception {
+        CRSRateLimiter limiter = new CRSRateLimiter(new CRSRateLimit(600, 0, 0, Integer.MAX_VALUE, null, 1, 0));
+        assertTrue(limiter.tryAcquire());
+        
+        CompletableFuture<Void> acquired = limiter.acquireAsync(1);
+        assertFalse(acquired.isDone());
+        acquired.get(2, TimeUnit.SECONDS);
+        assertFalse(limiter.tryAcquire());
+    }
+    
+    private int acquireOver(CRSRateLimiter limiter, long nanos) {
+        int acquired = 0;
+        for (long end = now.get() + nanos; now.get() - end < 0; now.addAndGet(TimeUnit.MILLISECONDS.toNanos(100))) {
+            acquired += acquireAll(limiter);
+        }
+        return acquired;
+    }
+    
+    private static int acquireAll(CRSRateLimiter limiter) {
+        int acquired = 0;
+        while (limiter.tryAcquire()) {
+            acquired++;
+        }
+        return acquired;
+    }
+}
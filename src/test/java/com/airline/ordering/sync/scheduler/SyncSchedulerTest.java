@@ -0,0 +1,192 @@
+package com.airline.ordering.sync.scheduler;
+
+import com.airline.ordering.repository.SQLiteConnection;
+import com.airline.ordering.repository.SyncQueueRepository;
+import com.airline.ordering.repository.impl.SyncQueueRepositoryImpl;
+import com.airline.ordering.sync.CRSRateLimit;
+import com.airline.ordering.sync.SyncError;
+import com.airline.ordering.sync.SyncOperation;
+import com.airline.ordering.sync.SyncResult;
+import com.airline.ordering.sync.SyncService;
+import com.airline.ordering.sync.ratelimit.CRSRateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class SyncSchedulerTest {
+    
+    private static final String DB_FILE = "inflight_ordering.db";
+    
+    private SyncQueueRepositoryImpl store;
+    private SyncService syncService;
+    private List<UUID> pushed;
+    
+    @BeforeEach
+    void setUp() {
+        new File(DB_FILE).delete();
+        SQLiteConnection.initializeDatabase();
+        store = new SyncQueueRepositoryImpl();
+        pushed = new CopyOnWriteArrayList<>();
+        syncService = mock(SyncService.class);
+        when(syncService.synchronizeOrder(any())).thenAnswer(invocation -> {
+            UUID orderId = invocation.getArgument(0);
+            pushed.add(orderId);
+            return SyncResult.builder().success(true).operation(SyncOperation.SINGLE_ORDER)
+                    .addProcessedOrderId(orderId).build();
+        });
+    }
+    
+    @AfterEach
+    void tearDown() {
+        SQLiteConnection.shutdown();
+        new File(DB_FILE).delete();
+    }
+    
+    @Test
+    void testQueueIsCoalescedPersistedAndServedByPriority() throws InterruptedException {
+        UUID background = UUID.randomUUID();
+        UUID push = UUID.randomUUID();
+        UUID emergency = UUID.randomUUID();
+        try (SyncScheduler scheduler = SyncScheduler.builder(syncService, store)
+                .batchSize(1).maxWorkers(1).capacity(3).startPaused(true).build()) {
+            assertTrue(scheduler.enqueue(background, SyncOperation.BACKGROUND_SYNC));
+            assertTrue(scheduler.enqueue(push, SyncOperation.PUSH));
+            assertTrue(scheduler.enqueue(background, SyncOperation.SINGLE_ORDER));
+            assertTrue(scheduler.enqueue(emergency, SyncOperation.EMERGENCY_SYNC));
+            assertTrue(scheduler.enqueue(push, SyncOperation.BACKGROUND_SYNC));
+            assertFalse(scheduler.enqueue(UUID.randomUUID(), SyncOperation.PUSH));
+            assertEquals(3, scheduler.getPendingCount());
+        }
+        assertEquals(3, store.count());
+        assertEquals(SyncOperation.SINGLE_ORDER, store.findById(background).orElseThrow().getOperation());
+        
+        // A new scheduler picks up where the previous one stopped
+        try (SyncScheduler scheduler = SyncScheduler.builder(syncService, store)
+                .batchSize(1).maxWorkers(1).build()) {
+            assertTrue(scheduler.awaitIdle(Duration.ofSeconds(5)));
+        }
+        assertEquals(List.of(emergency, background, push), pushed);
+        assertEquals(0, store.count());
+    }
+    
+    @Test
+    void testTransientFailuresAreRetriedAfterBackoff() throws InterruptedException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        AtomicBoolean failed = new AtomicBoolean();
+        when(syncService.synchronizeBatch(anyList())).thenAnswer(invocation -> {
+            failed.set(true);
+            return SyncResult.builder().success(false).operation(SyncOperation.BATCH_SYNC)
+                    .addProcessedOrderId(first).addFailedOrderId(second)
+                    .addError(SyncError.networkError(second, "Link down")).build();
+        });
+        
+        try (SyncScheduler scheduler = SyncScheduler.builder(syncService, store).startPaused(true).build()) {
+            assertEquals(2, scheduler.enqueueAll(List.of(first, second), SyncOperation.PUSH));
+            scheduler.resume();
+            assertTrue(scheduler.awaitIdle(Duration.ofSeconds(5)));
+        }
+        assertTrue(failed.get());
+        assertEquals(List.of(second), pushed);
+        verify(syncService, times(1)).synchronizeBatch(anyList());
+        assertEquals(0, store.count());
+    }
+    
+    @Test
+    void testThrottledBatchesKeepTheirPlaceAndTheirPermits() throws InterruptedException {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID third = UUID.randomUUID();
+        // One request now, then one every 100 ms
+        CRSRateLimiter rateLimiter = new CRSRateLimiter(new CRSRateLimit(600, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                Integer.MAX_VALUE, null, 1, 0));
+        
+        try (SyncScheduler scheduler = SyncScheduler.builder(syncService, store)
+                .batchSize(1).maxWorkers(1).rateLimiter(rateLimiter).startPaused(true).build()) {
+            scheduler.enqueue(first, SyncOperation.PUSH);
+            scheduler.enqueue(second, SyncOperation.PUSH);
+            scheduler.enqueue(third, SyncOperation.PUSH);
+            scheduler.resume();
+            assertTrue(scheduler.awaitIdle(Duration.ofSeconds(5)));
+        }
+        assertEquals(List.of(first, second, third), pushed);
+        assertEquals(0, store.count());
+        // Waiting for the rate limiter took no permits beyond the three requests
+        Thread.sleep(150);
+        assertEquals(1, rateLimiter.availablePermits());
+    }
+    
+    @Test
+    void testStoreWritesDoNotHoldUpDispatchOrOvertakeEachOther() throws InterruptedException {
+        UUID orderId = UUID.randomUUID();
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch saved = new CountDownLatch(1);
+        CountDownLatch synchronizing = new CountDownLatch(1);
+        SyncQueueRepository slowStore = mock(SyncQueueRepository.class);
+        when(slowStore.findAll()).thenReturn(List.of());
+        when(slowStore.save(any())).thenAnswer(invocation -> {
+            saving.countDown();
+            saved.await(5, TimeUnit.SECONDS);
+            return invocation.getArgument(0);
+        });
+        when(syncService.synchronizeOrder(any())).thenAnswer(invocation -> {
+            synchronizing.countDown();
+            return SyncResult.builder().success(true).operation(SyncOperation.SINGLE_ORDER)
+                    .addProcessedOrderId(invocation.getArgument(0)).build();
+        });
+        
+        try (SyncScheduler scheduler = SyncScheduler.builder(syncService, slowStore)
+                .batchSize(1).maxWorkers(1).build()) {
+            Thread enqueuer = new Thread(() -> scheduler.enqueue(orderId, SyncOperation.PUSH));
+            enqueuer.start();
+            assertTrue(saving.await(5, TimeUnit.SECONDS));
+            // The order is pushed while its store write is still being made
+            assertTrue(synchronizing.await(5, TimeUnit.SECONDS), "Dispatch waited for the store");
+            assertEquals(0, scheduler.getPendingCount());
+            saved.countDown();
+            enqueuer.join(5_000);
+            assertTrue(scheduler.awaitIdle(Duration.ofSeconds(5)));
+        }
+        InOrder writes = inOrder(slowStore);
+        writes.verify(slowStore).save(any());
+        writes.verify(slowStore).deleteAllById(List.of(orderId));
+    }
+    
+    @Test
+    void testRateLimitWithoutBurstLimitKeepsTheWorkers() throws InterruptedException {
+        CountDownLatch allPushing = new CountDownLatch(3);
+        when(syncService.synchronizeOrder(any())).thenAnswer(invocation -> {
+            allPushing.countDown();
+            allPushing.await(5, TimeUnit.SECONDS);
+            return SyncResult.builder().success(true).operation(SyncOperation.SINGLE_ORDER)
+                    .addProcessedOrderId(invocation.getArgument(0)).build();
+        });
+        
+        try (SyncScheduler scheduler = SyncScheduler.builder(syncService, store)
+                .batchSize(1).maxWorkers(3).startPaused(true).build()) {
+            scheduler.applyRateLimit(new CRSRateLimit(Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+                    Integer.MAX_VALUE, null, 0, 0));
+            for (int i = 0; i < 3; i++) {
+                scheduler.enqueue(UUID.randomUUID(), SyncOperation.PUSH);
+            }
+            scheduler.resume();
+            assertTrue(allPushing.await(5, TimeUnit.SECONDS), "Workers were limited to a burst that was not reported");
+            assertTrue(scheduler.awaitIdle(Duration.ofSeconds(5)));
+        }
+    }
+}